@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Random;
+
+/**
+ * Benchmarks for {@link BloomFilter#put} and {@link BloomFilter#mightContain}, comparing ordinary
+ * filters with blocked ones. The blocked filters should be much faster once the filter outgrows the
+ * processor's caches.
+ */
+public class BloomFilterBenchmark {
+  private static final int SAMPLES = 1 << 16;
+
+  @Param({"1000", "1000000", "100000000"})
+  private long expectedInsertions;
+
+  @Param({"0.01"})
+  private double fpp;
+
+  @Param({"false", "true"})
+  private boolean blocked;
+
+  private BloomFilter<Long> filter;
+  private final long[] samples = new long[SAMPLES];
+
+  @BeforeExperiment
+  void setUp() {
+    filter =
+        blocked
+            ? BloomFilter.createBlocked(Funnels.longFunnel(), expectedInsertions, fpp)
+            : BloomFilter.create(Funnels.longFunnel(), expectedInsertions, fpp);
+    Random random = new Random(42);
+    for (long i = 0; i < expectedInsertions / 2; i++) {
+      filter.put(random.nextLong());
+    }
+    // half of the samples were put in the filter, and half (almost certainly) were not
+    Random replay = new Random(42);
+    for (int i = 0; i < SAMPLES; i++) {
+      samples[i] = (i % 2 == 0 && i / 2 < expectedInsertions / 2) ? replay.nextLong() : ~i;
+    }
+  }
+
+  @Benchmark
+  int put(int reps) {
+    int result = 0;
+    for (int i = 0; i < reps; i++) {
+      if (filter.put(samples[i & (SAMPLES - 1)] + i)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  int mightContain(int reps) {
+    int result = 0;
+    for (int i = 0; i < reps; i++) {
+      if (filter.mightContain(samples[i & (SAMPLES - 1)])) {
+        result++;
+      }
+    }
+    return result;
+  }
+}
@@ -87,6 +87,23 @@ public class ChecksumBenchmark {
     return result;
   }
 
+  // CRC32C
+
+  @Benchmark
+  byte crc32cHashFunction(int reps) {
+    return runHashFunction(reps, Hashing.crc32c());
+  }
+
+  @Benchmark
+  byte crc32cSlicingBy8(int reps) {
+    byte result = 0x01;
+    for (int i = 0; i < reps; i++) {
+      Hasher hasher = new Crc32cHashFunction.Crc32cHasher();
+      result ^= hasher.putBytes(testBytes).hash().asBytes()[0];
+    }
+    return result;
+  }
+
   // Helpers + main
 
   private byte runHashFunction(int reps, HashFunction hashFunction) {
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.Random;
+
+/**
+ * Benchmarks comparing {@link CuckooFilter} with {@link BloomFilter}, for lookups, insertions, and
+ * deduplication over a sliding window of recent elements. A cuckoo filter slides the window by
+ * removing the element leaving it, whereas a Bloom filter must be rebuilt from the elements in the
+ * window whenever it has filled up.
+ *
+ * <p>For space, compare {@link CuckooFilter#bitSize} with {@link BloomFilter#bitSize}: at their
+ * expected insertions, cuckoo filters use about 10% more bits than Bloom filters at 1%, and 5%
+ * fewer at 0.1%. Both achieve the requested false positive probability.
+ */
+public class CuckooFilterBenchmark {
+  private static final int SAMPLES = 1 << 16;
+
+  @Param({"1000", "1000000", "10000000"})
+  private int expectedInsertions;
+
+  @Param({"0.01", "0.001"})
+  private double fpp;
+
+  @Param private Impl impl;
+
+  private Filter filter;
+  private Filter window;
+  private final long[] samples = new long[SAMPLES];
+
+  private interface Filter {
+    boolean put(long element);
+
+    boolean mightContain(long element);
+  }
+
+  enum Impl {
+    BLOOM {
+      @Override
+      Filter create(long expectedInsertions, double fpp) {
+        final BloomFilter<Long> bf =
+            BloomFilter.create(Funnels.longFunnel(), expectedInsertions, fpp);
+        return new Filter() {
+          @Override
+          public boolean put(long element) {
+            return bf.put(element);
+          }
+
+          @Override
+          public boolean mightContain(long element) {
+            return bf.mightContain(element);
+          }
+        };
+      }
+
+      @Override
+      Filter createWindow(final int size, final double fpp) {
+        // Between rebuilds, the filter holds the elements of the last window and the current one.
+        return new Filter() {
+          final long[] elements = new long[size];
+          int next;
+          BloomFilter<Long> bf = BloomFilter.create(Funnels.longFunnel(), 2L * size, fpp);
+
+          @Override
+          public boolean put(long element) {
+            boolean result = bf.put(element);
+            elements[next++] = element;
+            if (next == size) {
+              next = 0;
+              bf = BloomFilter.create(Funnels.longFunnel(), 2L * size, fpp);
+              for (long e : elements) {
+                bf.put(e);
+              }
+            }
+            return result;
+          }
+
+          @Override
+          public boolean mightContain(long element) {
+            return bf.mightContain(element);
+          }
+        };
+      }
+    },
+    CUCKOO {
+      @Override
+      Filter create(long expectedInsertions, double fpp) {
+        final CuckooFilter<Long> cf =
+            CuckooFilter.create(Funnels.longFunnel(), expectedInsertions, fpp);
+        return new Filter() {
+          @Override
+          public boolean put(long element) {
+            return cf.put(element);
+          }
+
+          @Override
+          public boolean mightContain(long element) {
+            return cf.mightContain(element);
+          }
+        };
+      }
+
+      @Override
+      Filter createWindow(final int size, final double fpp) {
+        return new Filter() {
+          final long[] elements = new long[size];
+          int next;
+          boolean full;
+          final CuckooFilter<Long> cf = CuckooFilter.create(Funnels.longFunnel(), size, fpp);
+
+          @Override
+          public boolean put(long element) {
+            if (full) {
+              cf.remove(elements[next]);
+            }
+            boolean result = cf.put(element);
+            elements[next++] = element;
+            if (next == size) {
+              next = 0;
+              full = true;
+            }
+            return result;
+          }
+
+          @Override
+          public boolean mightContain(long element) {
+            return cf.mightContain(element);
+          }
+        };
+      }
+    };
+
+    abstract Filter create(long expectedInsertions, double fpp);
+
+    /** Returns a filter of the last {@code size} elements put into it, or a few more. */
+    abstract Filter createWindow(int size, double fpp);
+  }
+
+  @BeforeExperiment
+  void setUp() {
+    filter = impl.create(expectedInsertions, fpp);
+    window = impl.createWindow(expectedInsertions / 2, fpp);
+    Random random = new Random(42);
+    for (long i = 0; i < expectedInsertions / 2; i++) {
+      long element = random.nextLong();
+      filter.put(element);
+      window.put(element);
+    }
+    // half of the samples were put in the filters, and half (almost certainly) were not
+    Random replay = new Random(42);
+    for (int i = 0; i < SAMPLES; i++) {
+      samples[i] = (i % 2 == 0 && i / 2 < expectedInsertions / 2) ? replay.nextLong() : ~i;
+    }
+  }
+
+  /**
+   * Puts elements into empty filters, replacing each with a new one when it holds half its expected
+   * insertions.
+   */
+  @Benchmark
+  int put(int reps) {
+    int result = 0;
+    Filter target = impl.create(expectedInsertions, fpp);
+    for (int i = 0, size = 0; i < reps; i++) {
+      if (++size > expectedInsertions / 2) {
+        target = impl.create(expectedInsertions, fpp);
+        size = 1;
+      }
+      if (target.put(samples[i & (SAMPLES - 1)] + i)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  int mightContain(int reps) {
+    int result = 0;
+    for (int i = 0; i < reps; i++) {
+      if (filter.mightContain(samples[i & (SAMPLES - 1)])) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /** Looks up and puts each of a stream of elements, keeping a window of the most recent ones. */
+  @Benchmark
+  int slidingWindow(int reps) {
+    int result = 0;
+    for (int i = 0; i < reps; i++) {
+      long element = samples[i & (SAMPLES - 1)] + (i >>> 16);
+      if (!window.mightContain(element)) {
+        result++;
+      }
+      window.put(element);
+    }
+    return result;
+  }
+}
@@ -19,6 +19,7 @@ package com.google.common.hash;
 import com.google.caliper.BeforeExperiment;
 import com.google.caliper.Benchmark;
 import com.google.caliper.Param;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
 /**
@@ -44,11 +45,14 @@ public class HashFunctionBenchmark {
   @Param HashFunctionEnum hashFunctionEnum;
 
   private byte[] testBytes;
+  private ByteBuffer directBuffer;
 
   @BeforeExperiment
   void setUp() {
     testBytes = new byte[size];
     random.nextBytes(testBytes);
+    directBuffer = ByteBuffer.allocateDirect(size);
+    directBuffer.put(testBytes).flip();
   }
 
   @Benchmark
@@ -80,4 +84,15 @@ public class HashFunctionBenchmark {
     }
     return result;
   }
+
+  @Benchmark
+  int hashFunctionDirectBuffer(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    int result = 37;
+    for (int i = 0; i < reps; i++) {
+      directBuffer.clear();
+      result ^= hashFunction.hashBytes(directBuffer).asBytes()[0];
+    }
+    return result;
+  }
 }
@@ -25,7 +25,10 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
 import java.util.Random;
 
-/** Benchmarks some algorithms providing the same functionality as {@link Quantiles}. */
+/**
+ * Benchmarks some algorithms providing the same functionality as {@link Quantiles}, including
+ * estimating quantiles by accumulating the dataset in a {@link QuantilesSketch}.
+ */
 public class QuantilesBenchmark {
 
   private static final ContiguousSet<Integer> ALL_DECILE_INDEXES =
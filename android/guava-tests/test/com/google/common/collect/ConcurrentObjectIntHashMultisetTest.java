@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.testing.SerializableTester.reserializeAndAssert;
+import static java.util.Arrays.asList;
+
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.google.MultisetTestSuiteBuilder;
+import com.google.common.collect.testing.google.TestStringMultisetGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Test case for {@link ConcurrentObjectIntHashMultiset}.
+ */
+public class ConcurrentObjectIntHashMultisetTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        MultisetTestSuiteBuilder.using(
+                new TestStringMultisetGenerator() {
+                  @Override
+                  protected Multiset<String> create(String[] elements) {
+                    return ConcurrentObjectIntHashMultiset.create(asList(elements));
+                  }
+                })
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.GENERAL_PURPOSE,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.ALLOWS_NULL_QUERIES)
+            .named("ConcurrentObjectIntHashMultiset")
+            .createTestSuite());
+    suite.addTestSuite(ConcurrentObjectIntHashMultisetTest.class);
+    return suite;
+  }
+
+  public void testCreate_concurrencyLevel() {
+    assertEquals(1, ConcurrentObjectIntHashMultiset.create(1).stripeCount());
+    assertEquals(4, ConcurrentObjectIntHashMultiset.create(3).stripeCount());
+    assertEquals(4, ConcurrentObjectIntHashMultiset.create(4).stripeCount());
+    assertEquals(
+        ConcurrentObjectIntHashMultiset.MAX_CONCURRENCY_LEVEL,
+        ConcurrentObjectIntHashMultiset.create(Integer.MAX_VALUE).stripeCount());
+    try {
+      ConcurrentObjectIntHashMultiset.create(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSingleStripe() {
+    ConcurrentObjectIntHashMultiset<String> multiset = ConcurrentObjectIntHashMultiset.create(1);
+    multiset.addAll(asList("a", "b", "a"));
+    assertEquals(2, multiset.count("a"));
+    assertEquals(3, multiset.size());
+    assertEquals(HashMultiset.create(asList("a", "a", "b")), multiset);
+  }
+
+  public void testRemoveExactly() {
+    ConcurrentObjectIntHashMultiset<String> multiset = ConcurrentObjectIntHashMultiset.create();
+    multiset.add("a", 2);
+    assertTrue(multiset.removeExactly("a", 0));
+    assertFalse(multiset.removeExactly("a", 3));
+    assertEquals(2, multiset.count("a"));
+    assertTrue(multiset.removeExactly("a", 2));
+    assertEquals(0, multiset.count("a"));
+    assertFalse(multiset.removeExactly(null, 1));
+    try {
+      multiset.removeExactly("a", -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSetCount_conditional() {
+    ConcurrentObjectIntHashMultiset<String> multiset = ConcurrentObjectIntHashMultiset.create();
+    assertTrue(multiset.setCount("a", 0, 2));
+    assertFalse(multiset.setCount("a", 1, 3));
+    assertTrue(multiset.setCount("a", 2, 0));
+    assertTrue(multiset.isEmpty());
+  }
+
+  public void testSerialization_preservesStripes() {
+    ConcurrentObjectIntHashMultiset<String> multiset = ConcurrentObjectIntHashMultiset.create(2);
+    multiset.add("a", 3);
+    reserializeAndAssert(multiset);
+  }
+
+  public void testConcurrentAdds() throws Exception {
+    final ConcurrentObjectIntHashMultiset<Integer> multiset =
+        ConcurrentObjectIntHashMultiset.create(4);
+    int threads = 4;
+    final int perThread = 10000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                      multiset.add(i % 100);
+                    }
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(threads * perThread, multiset.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(threads * perThread / 100, multiset.count(i));
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ImmutableIntObjectMap}.
+ */
+public class ImmutableIntObjectMapTest extends TestCase {
+
+  public void testBuilder() {
+    ImmutableIntObjectMap<String> map =
+        ImmutableIntObjectMap.<String>builder().put(1, "a").put(2, "b").build();
+    assertEquals(2, map.size());
+    assertEquals("a", map.get(1));
+    assertEquals("b", map.get(2));
+    assertNull(map.get(3));
+  }
+
+  public void testOf_duplicateKey() {
+    try {
+      ImmutableIntObjectMap.of(1, "a", 1, "b");
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: 1=a and 1=b", expected.getMessage());
+    }
+  }
+
+  public void testCopyOf() {
+    IntObjectHashMap<String> map = IntObjectHashMap.create();
+    map.put(1, "a");
+    ImmutableIntObjectMap<String> copy = ImmutableIntObjectMap.copyOf(map);
+    assertSame(copy, ImmutableIntObjectMap.copyOf(copy));
+    map.put(2, "b");
+    assertFalse(copy.containsKey(2));
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableIntObjectMap.of(), IntObjectHashMap.create())
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a"))
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a", 2, "b"))
+        .addEqualityGroup(ImmutableLongObjectMap.of(1, "a"))
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(ImmutableIntObjectMap.class);
+    tester.testAllPublicInstanceMethods(ImmutableIntObjectMap.builder());
+  }
+}
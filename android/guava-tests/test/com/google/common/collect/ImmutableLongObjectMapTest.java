@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ImmutableLongObjectMap}.
+ */
+public class ImmutableLongObjectMapTest extends TestCase {
+
+  public void testOf() {
+    assertTrue(ImmutableLongObjectMap.of().isEmpty());
+    assertSame(ImmutableLongObjectMap.of(), ImmutableLongObjectMap.of());
+
+    ImmutableLongObjectMap<String> one = ImmutableLongObjectMap.of(1, "a");
+    assertEquals(1, one.size());
+    assertEquals("a", one.get(1));
+
+    ImmutableLongObjectMap<String> two = ImmutableLongObjectMap.of(1, "a", 2, "b");
+    assertEquals(2, two.size());
+    assertEquals("b", two.get(2));
+    assertNull(two.get(3));
+    assertEquals("c", two.getOrDefault(3, "c"));
+  }
+
+  public void testOf_duplicateKey() {
+    try {
+      ImmutableLongObjectMap.of(1, "a", 1, "b");
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: 1=a and 1=b", expected.getMessage());
+    }
+  }
+
+  public void testBuilder() {
+    ImmutableLongObjectMap.Builder<String> builder =
+        ImmutableLongObjectMap.<String>builderWithExpectedSize(2).put(1, "a");
+    ImmutableLongObjectMap<String> first = builder.build();
+    builder.put(2, "b");
+    ImmutableLongObjectMap<String> second = builder.build();
+    assertEquals(ImmutableLongObjectMap.of(1, "a"), first);
+    assertEquals(ImmutableLongObjectMap.of(1, "a", 2, "b"), second);
+  }
+
+  public void testBuilder_putAll() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    for (int i = 0; i < 100; i++) {
+      map.put(i, Integer.toString(i));
+    }
+    ImmutableLongObjectMap<String> copy =
+        ImmutableLongObjectMap.<String>builder().putAll(map).build();
+    assertEquals(map, copy);
+    map.put(100, "100");
+    assertFalse(copy.containsKey(100));
+  }
+
+  public void testCopyOf() {
+    ImmutableLongObjectMap<String> map = ImmutableLongObjectMap.of(1, "a");
+    assertSame(map, ImmutableLongObjectMap.copyOf(map));
+    assertSame(
+        ImmutableLongObjectMap.of(), ImmutableLongObjectMap.copyOf(LongObjectHashMap.create()));
+  }
+
+  @SuppressWarnings("deprecation")
+  public void testMutators() {
+    ImmutableLongObjectMap<String> map = ImmutableLongObjectMap.of(1, "a");
+    try {
+      map.put(2, "b");
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      map.remove(1);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      map.clear();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    assertEquals(ImmutableLongObjectMap.of(1, "a"), map);
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableLongObjectMap.of(), LongObjectHashMap.create())
+        .addEqualityGroup(ImmutableLongObjectMap.of(1, "a"), ImmutableLongObjectMap.of(1, "a"))
+        .addEqualityGroup(ImmutableLongObjectMap.of(1, "a", 2, "b"))
+        .addEqualityGroup(ImmutableLongObjectMap.of(1, "b"))
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(ImmutableLongObjectMap.class);
+    tester.testAllPublicInstanceMethods(ImmutableLongObjectMap.builder());
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.testing.SerializableTester.reserialize;
+import static com.google.common.base.Charsets.UTF_8;
+
+import com.google.common.base.Converter;
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.NavigableMapTestSuiteBuilder;
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.TestStringSortedMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.primitives.Ints;
+import com.google.common.testing.NullPointerTester;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for {@link ImmutableSnapshots}.
+ */
+public class ImmutableSnapshotsTest extends TestCase {
+
+  private static final Converter<String, byte[]> UTF_8_CODEC =
+      new Converter<String, byte[]>() {
+        @Override
+        protected byte[] doForward(String s) {
+          return s.getBytes(UTF_8);
+        }
+
+        @Override
+        protected String doBackward(byte[] b) {
+          return new String(b, UTF_8);
+        }
+      };
+
+  private static final Converter<Integer, byte[]> INT_CODEC =
+      new Converter<Integer, byte[]>() {
+        @Override
+        protected byte[] doForward(Integer i) {
+          return Ints.toByteArray(i);
+        }
+
+        @Override
+        protected Integer doBackward(byte[] b) {
+          return Ints.fromByteArray(b);
+        }
+      };
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        MapTestSuiteBuilder.using(
+                new TestStringMapGenerator() {
+                  @Override
+                  protected Map<String, String> create(Entry<String, String>[] entries) {
+                    Map<String, String> map = new LinkedHashMap<>();
+                    for (Entry<String, String> entry : entries) {
+                      map.put(entry.getKey(), entry.getValue());
+                    }
+                    try {
+                      File file = tempFile();
+                      ImmutableSnapshots.writeMap(map, UTF_8_CODEC, UTF_8_CODEC, file);
+                      return ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC);
+                    } catch (IOException e) {
+                      throw new AssertionError(e);
+                    }
+                  }
+                })
+            .named("ImmutableSnapshots.openMap")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.KNOWN_ORDER,
+                MapFeature.ALLOWS_ANY_NULL_QUERIES)
+            .createTestSuite());
+    suite.addTest(
+        SetTestSuiteBuilder.using(
+                new TestStringSetGenerator() {
+                  @Override
+                  protected Set<String> create(String[] elements) {
+                    try {
+                      File file = tempFile();
+                      ImmutableSnapshots.writeSet(
+                          ImmutableSet.copyOf(elements), UTF_8_CODEC, file);
+                      return ImmutableSnapshots.openSet(file, UTF_8_CODEC);
+                    } catch (IOException e) {
+                      throw new AssertionError(e);
+                    }
+                  }
+                })
+            .named("ImmutableSnapshots.openSet")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.KNOWN_ORDER,
+                CollectionFeature.ALLOWS_NULL_QUERIES)
+            .createTestSuite());
+    suite.addTest(
+        NavigableMapTestSuiteBuilder.using(
+                new TestStringSortedMapGenerator() {
+                  @Override
+                  protected SortedMap<String, String> create(Entry<String, String>[] entries) {
+                    SortedMap<String, String> map = new TreeMap<>();
+                    for (Entry<String, String> entry : entries) {
+                      map.put(entry.getKey(), entry.getValue());
+                    }
+                    try {
+                      File file = tempFile();
+                      ImmutableSnapshots.writeSortedMap(map, UTF_8_CODEC, UTF_8_CODEC, file);
+                      return ImmutableSnapshots.openSortedMap(
+                          file, Ordering.natural(), UTF_8_CODEC, UTF_8_CODEC);
+                    } catch (IOException e) {
+                      throw new AssertionError(e);
+                    }
+                  }
+                })
+            .named("ImmutableSnapshots.openSortedMap")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.KNOWN_ORDER,
+                MapFeature.ALLOWS_ANY_NULL_QUERIES)
+            .createTestSuite());
+    suite.addTestSuite(ImmutableSnapshotsTest.class);
+    return suite;
+  }
+
+  private static File tempFile() throws IOException {
+    File file = File.createTempFile("snapshot", ".bin");
+    file.deleteOnExit();
+    return file;
+  }
+
+  public void testMap_large() throws IOException {
+    Map<Integer, String> expected = new LinkedHashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      expected.put(i * 31, Integer.toString(i));
+    }
+    File file = tempFile();
+    ImmutableSnapshots.writeMap(expected, INT_CODEC, UTF_8_CODEC, file);
+    ImmutableMap<Integer, String> map = ImmutableSnapshots.openMap(file, INT_CODEC, UTF_8_CODEC);
+    assertEquals(expected, map);
+    assertEquals(ImmutableList.copyOf(expected.keySet()), map.keySet().asList());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(Integer.toString(i), map.get(i * 31));
+      assertNull(map.get(i * 31 + 1));
+    }
+  }
+
+  public void testMap_wrongKeyType() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeMap(ImmutableMap.of("a", "b"), UTF_8_CODEC, UTF_8_CODEC, file);
+    ImmutableMap<String, String> map = ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC);
+    assertNull(map.get(1));
+    assertFalse(map.containsKey(1));
+    assertEquals("b", map.get("a"));
+  }
+
+  public void testMap_duplicateEncodedKeys() throws IOException {
+    Converter<String, byte[]> lengthCodec =
+        new Converter<String, byte[]>() {
+          @Override
+          protected byte[] doForward(String s) {
+            return Ints.toByteArray(s.length());
+          }
+
+          @Override
+          protected String doBackward(byte[] b) {
+            return "";
+          }
+        };
+    File file = tempFile();
+    try {
+      ImmutableSnapshots.writeMap(
+          ImmutableMap.of("a", "1", "bc", "2", "d", "3"), lengthCodec, UTF_8_CODEC, file);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testMap_emptyValues() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeMap(
+        ImmutableMap.of("", "", "a", ""), UTF_8_CODEC, UTF_8_CODEC, file);
+    ImmutableMap<String, String> map = ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC);
+    assertEquals(ImmutableMap.of("", "", "a", ""), map);
+  }
+
+  public void testMap_empty() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeMap(ImmutableMap.<String, String>of(), UTF_8_CODEC, UTF_8_CODEC, file);
+    assertSame(ImmutableMap.of(), ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC));
+  }
+
+  public void testMap_serialization() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeMap(
+        ImmutableMap.of("a", "1", "b", "2"), UTF_8_CODEC, UTF_8_CODEC, file);
+    ImmutableMap<String, String> map = ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC);
+    // serializes a copy of the mappings, not the file
+    ImmutableMap<String, String> copy = reserialize(map);
+    assertEquals(map, copy);
+    assertEquals(map.entrySet().asList(), copy.entrySet().asList());
+  }
+
+  public void testSet_large() throws IOException {
+    ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+    for (int i = 0; i < 10000; i++) {
+      builder.add(i * 7);
+    }
+    ImmutableSet<Integer> expected = builder.build();
+    File file = tempFile();
+    ImmutableSnapshots.writeSet(expected, INT_CODEC, file);
+    ImmutableSet<Integer> set = ImmutableSnapshots.openSet(file, INT_CODEC);
+    assertEquals(expected, set);
+    assertEquals(expected.asList(), set.asList());
+    for (int i = 0; i < 10000; i++) {
+      assertTrue(set.contains(i * 7));
+      assertFalse(set.contains(i * 7 + 1));
+    }
+    assertFalse(set.contains("a"));
+  }
+
+  public void testSet_duplicateEncodedElements() throws IOException {
+    Converter<Integer, byte[]> signCodec =
+        new Converter<Integer, byte[]>() {
+          @Override
+          protected byte[] doForward(Integer i) {
+            return Ints.toByteArray(Integer.signum(i));
+          }
+
+          @Override
+          protected Integer doBackward(byte[] b) {
+            return Ints.fromByteArray(b);
+          }
+        };
+    File file = tempFile();
+    try {
+      ImmutableSnapshots.writeSet(ImmutableSet.of(0, 1, -1, 2), signCodec, file);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSet_empty() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeSet(ImmutableSet.<String>of(), UTF_8_CODEC, file);
+    assertSame(ImmutableSet.of(), ImmutableSnapshots.openSet(file, UTF_8_CODEC));
+  }
+
+  public void testSortedMap_comparator() throws IOException {
+    Comparator<String> comparator = Ordering.natural().reverse();
+    SortedMap<String, String> expected = new TreeMap<>(comparator);
+    for (int i = 0; i < 1000; i++) {
+      expected.put(String.format("%04d", i), Integer.toString(i));
+    }
+    File file = tempFile();
+    ImmutableSnapshots.writeSortedMap(expected, UTF_8_CODEC, UTF_8_CODEC, file);
+    ImmutableSortedMap<String, String> map =
+        ImmutableSnapshots.openSortedMap(file, comparator, UTF_8_CODEC, UTF_8_CODEC);
+    assertEquals(expected, map);
+    assertSame(comparator, map.comparator());
+    assertEquals("0999", map.firstKey());
+    assertEquals("0000", map.lastKey());
+    assertEquals("500", map.get("0500"));
+    assertNull(map.get("1000"));
+    assertEquals(expected.subMap("0600", "0500"), map.subMap("0600", "0500"));
+    assertEquals("0499", map.higherKey("0500"));
+  }
+
+  public void testSortedMap_empty() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeSortedMap(
+        ImmutableSortedMap.<String, String>of(), UTF_8_CODEC, UTF_8_CODEC, file);
+    ImmutableSortedMap<String, String> map =
+        ImmutableSnapshots.openSortedMap(file, Ordering.natural(), UTF_8_CODEC, UTF_8_CODEC);
+    assertTrue(map.isEmpty());
+    assertEquals(Ordering.natural(), map.comparator());
+  }
+
+  public void testOpen_wrongKind() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeSet(ImmutableSet.of("a"), UTF_8_CODEC, file);
+    try {
+      ImmutableSnapshots.openMap(file, UTF_8_CODEC, UTF_8_CODEC);
+      fail();
+    } catch (IOException expected) {
+    }
+    try {
+      ImmutableSnapshots.openSortedMap(file, Ordering.natural(), UTF_8_CODEC, UTF_8_CODEC);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testOpen_notASnapshot() throws IOException {
+    File file = tempFile();
+    try {
+      ImmutableSnapshots.openSet(file, UTF_8_CODEC);
+      fail();
+    } catch (IOException expected) {
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.write(new byte[100]);
+    } finally {
+      raf.close();
+    }
+    try {
+      ImmutableSnapshots.openSet(file, UTF_8_CODEC);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testOpen_corrupt() throws IOException {
+    File file = tempFile();
+    ImmutableSnapshots.writeSet(ImmutableSet.of("a", "b"), UTF_8_CODEC, file);
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      // the number of records, in the footer
+      raf.seek(raf.length() - MappedSnapshot.FOOTER_SIZE + Ints.BYTES);
+      raf.writeInt(3);
+    } finally {
+      raf.close();
+    }
+    try {
+      ImmutableSnapshots.openSet(file, UTF_8_CODEC);
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testWrite_nullElement() throws IOException {
+    File file = tempFile();
+    try {
+      ImmutableSnapshots.writeSet(Sets.newHashSet((String) null), UTF_8_CODEC, file);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testNulls() {
+    new NullPointerTester()
+        .setDefault(File.class, new File("snapshot"))
+        .testAllPublicStaticMethods(ImmutableSnapshots.class);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link IntObjectHashMap}.
+ */
+public class IntObjectHashMapTest extends TestCase {
+
+  public void testPutGetRemove() {
+    IntObjectHashMap<String> map = IntObjectHashMap.create();
+    assertNull(map.put(0, "a"));
+    assertNull(map.put(Integer.MIN_VALUE, "b"));
+    assertEquals("a", map.put(0, "c"));
+    assertEquals(2, map.size());
+    assertEquals("c", map.get(0));
+    assertEquals("b", map.getOrDefault(Integer.MIN_VALUE, "default"));
+    assertEquals("default", map.getOrDefault(1, "default"));
+    assertEquals("c", map.remove(0));
+    assertNull(map.get(0));
+    assertEquals(1, map.size());
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    IntObjectHashMap<Integer> map = IntObjectHashMap.create();
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      // multiples of 1024 collide in small tables
+      int key = (random.nextInt(2000) - 1000) << 10;
+      if (random.nextBoolean()) {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      } else {
+        assertEquals(expected.remove(key), map.remove(key));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    final Map<Integer, Integer> actual = new HashMap<>();
+    map.forEach(
+        new IntObjectMap.EntryConsumer<Integer>() {
+          @Override
+          public void accept(int key, Integer value) {
+            actual.put(key, value);
+          }
+        });
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), map.hashCode());
+  }
+
+  public void testEquals() {
+    IntObjectHashMap<String> map = IntObjectHashMap.create();
+    map.put(1, "a");
+    map.put(2, "b");
+    new EqualsTester()
+        .addEqualityGroup(IntObjectHashMap.create(), ImmutableIntObjectMap.of())
+        .addEqualityGroup(map, ImmutableIntObjectMap.of(2, "b", 1, "a"))
+        .addEqualityGroup(ImmutableIntObjectMap.of(1, "a"))
+        .addEqualityGroup(LongObjectHashMap.create())
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(IntObjectHashMap.class);
+    tester.testAllPublicInstanceMethods(IntObjectHashMap.create());
+  }
+}
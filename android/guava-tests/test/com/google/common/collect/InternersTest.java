@@ -98,6 +98,40 @@ public class InternersTest extends TestCase {
     assertSame(not, pool.intern(not));
   }
 
+  public void testStriped_builder() {
+    Interner<Object> interner = Interners.newBuilder().striped().concurrencyLevel(42).build();
+    assertEquals(64, ((StripedInterner<Object>) interner).segmentCount());
+    assertTrue(Interners.newBuilder().maximumSize(100).build() instanceof StripedInterner);
+  }
+
+  public void testStriped_weak() {
+    Interners.InternerBuilder builder = Interners.newBuilder().weak().striped();
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testMaximumSize_notPositive() {
+    Interners.InternerBuilder builder = Interners.newBuilder();
+    try {
+      builder.maximumSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testInternAll() {
+    String canonical = "a";
+    Interner<String> pool = Interners.newStrongInterner();
+    pool.intern(canonical);
+    String[] samples = {new String("a"), "b", new String("b")};
+    pool.internAll(samples);
+    assertSame(canonical, samples[0]);
+    assertSame(samples[1], samples[2]);
+  }
+
   public void testAsFunction_simplistic() {
     String canonical = "a";
     String not = new String("a");
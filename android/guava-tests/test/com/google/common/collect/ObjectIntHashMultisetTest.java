@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.google.MultisetFeature;
+import com.google.common.collect.testing.google.MultisetTestSuiteBuilder;
+import com.google.common.collect.testing.google.TestStringMultisetGenerator;
+import com.google.common.testing.SerializableTester;
+import java.util.Iterator;
+import java.util.Random;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for {@link ObjectIntHashMultiset}.
+ */
+public class ObjectIntHashMultisetTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        MultisetTestSuiteBuilder.using(
+                new TestStringMultisetGenerator() {
+                  @Override
+                  protected Multiset<String> create(String[] elements) {
+                    return ObjectIntHashMultiset.create(asList(elements));
+                  }
+                })
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                CollectionFeature.ALLOWS_NULL_VALUES,
+                CollectionFeature.SERIALIZABLE,
+                CollectionFeature.GENERAL_PURPOSE,
+                MultisetFeature.ENTRIES_ARE_VIEWS)
+            .named("ObjectIntHashMultiset")
+            .createTestSuite());
+    suite.addTestSuite(ObjectIntHashMultisetTest.class);
+    return suite;
+  }
+
+  public void testCreate() {
+    Multiset<String> multiset = ObjectIntHashMultiset.create();
+    multiset.add("foo", 2);
+    multiset.add("bar");
+    assertEquals(3, multiset.size());
+    assertEquals(2, multiset.count("foo"));
+  }
+
+  public void testCreateWithSize() {
+    ObjectIntHashMultiset<Integer> multiset = ObjectIntHashMultiset.create(100);
+    int tableSize = multiset.tableSize();
+    for (int i = 0; i < 100; i++) {
+      multiset.add(i, i + 1);
+    }
+    assertEquals(tableSize, multiset.tableSize());
+    assertEquals(100 * 101 / 2, multiset.size());
+  }
+
+  public void testCreateFromIterable() {
+    Multiset<String> multiset = ObjectIntHashMultiset.create(asList("foo", "bar", "foo", null));
+    assertEquals(4, multiset.size());
+    assertEquals(2, multiset.count("foo"));
+    assertEquals(1, multiset.count(null));
+  }
+
+  public void testSerializationContainingSelf() {
+    Multiset<Multiset<?>> multiset = ObjectIntHashMultiset.create();
+    multiset.add(multiset, 2);
+    Multiset<Multiset<?>> copy = SerializableTester.reserialize(multiset);
+    assertEquals(2, copy.size());
+    assertSame(copy, copy.iterator().next());
+  }
+
+  /** Repeated additions and removals reuse the removed slots rather than growing the table. */
+  public void testChurn_tableSizeBounded() {
+    ObjectIntHashMultiset<Integer> multiset = ObjectIntHashMultiset.create();
+    for (int i = 0; i < 100000; i++) {
+      multiset.add(i);
+      if (i >= 50) {
+        assertEquals(1, multiset.remove(i - 50, Integer.MAX_VALUE));
+      }
+    }
+    assertEquals(50, multiset.elementSet().size());
+    assertThat(multiset.tableSize()).isAtMost(256);
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    ObjectIntHashMultiset<Integer> multiset = ObjectIntHashMultiset.create();
+    HashMultiset<Integer> expected = HashMultiset.create();
+    for (int i = 0; i < 100000; i++) {
+      // multiples of 1024 collide in small tables
+      Integer element = (random.nextInt(1000) - 500) << 10;
+      int count = random.nextInt(4);
+      switch (random.nextInt(3)) {
+        case 0:
+          assertEquals(expected.add(element, count), multiset.add(element, count));
+          break;
+        case 1:
+          assertEquals(expected.remove(element, count), multiset.remove(element, count));
+          break;
+        default:
+          assertEquals(expected.setCount(element, count), multiset.setCount(element, count));
+      }
+      assertEquals(expected.size(), multiset.size());
+    }
+    assertEquals(expected, multiset);
+  }
+
+  public void testIteratorRemove_duringChurn() {
+    ObjectIntHashMultiset<Integer> multiset = ObjectIntHashMultiset.create();
+    for (int i = 0; i < 1000; i++) {
+      multiset.add(i << 10, 2);
+    }
+    for (Iterator<Integer> it = multiset.elementSet().iterator(); it.hasNext(); ) {
+      if ((it.next() >> 10) % 3 != 0) {
+        it.remove();
+      }
+    }
+    assertEquals(334, multiset.elementSet().size());
+    assertEquals(668, multiset.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals((i % 3 == 0) ? 2 : 0, multiset.count(i << 10));
+    }
+  }
+
+  public void testAdd_tooManyOccurrences() {
+    ObjectIntHashMultiset<String> multiset = ObjectIntHashMultiset.create();
+    multiset.add("a", Integer.MAX_VALUE);
+    try {
+      multiset.add("a");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals(Integer.MAX_VALUE, multiset.count("a"));
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.testing.NullPointerTester;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link StripedInterner}.
+ */
+public class StripedInternerTest extends TestCase {
+
+  public void testIntern() {
+    StripedInterner<String> interner = new StripedInterner<>(4, StripedInterner.UNBOUNDED);
+    String canonical = "a";
+    assertSame(canonical, interner.intern(canonical));
+    assertSame(canonical, interner.intern(new String("a")));
+    assertEquals(1, interner.size());
+  }
+
+  public void testIntern_null() {
+    StripedInterner<String> interner = new StripedInterner<>(4, StripedInterner.UNBOUNDED);
+    try {
+      interner.intern(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testIntern_growth() {
+    StripedInterner<Integer> interner = new StripedInterner<>(1, StripedInterner.UNBOUNDED);
+    List<Integer> canonicals = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      Integer canonical = new Integer(i);
+      canonicals.add(canonical);
+      assertSame(canonical, interner.intern(canonical));
+    }
+    assertEquals(100000, interner.size());
+    for (int i = 0; i < 100000; i++) {
+      assertSame(canonicals.get(i), interner.intern(new Integer(i)));
+    }
+  }
+
+  public void testInternAll() {
+    StripedInterner<String> interner = new StripedInterner<>(16, StripedInterner.UNBOUNDED);
+    String a = "a";
+    interner.intern(a);
+    String[] samples = new String[1000];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = new String((i % 2 == 0) ? "a" : Integer.toString(i % 100));
+    }
+    String[] expected = samples.clone();
+    interner.internAll(samples);
+    for (int i = 0; i < samples.length; i++) {
+      assertEquals(expected[i], samples[i]);
+      assertSame(interner.intern(new String(expected[i])), samples[i]);
+    }
+    assertSame(a, samples[0]);
+    assertEquals(51, interner.size());
+  }
+
+  public void testInternAll_null() {
+    StripedInterner<String> interner = new StripedInterner<>(4, StripedInterner.UNBOUNDED);
+    try {
+      interner.internAll(new String[] {"a", null});
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testBounded() {
+    StripedInterner<Integer> interner = new StripedInterner<>(4, 1000);
+    assertEquals(4, interner.segmentCount());
+    for (int i = 0; i < 100000; i++) {
+      interner.intern(i);
+      assertTrue(interner.size() <= 1004);
+    }
+    assertTrue(interner.size() > 900);
+  }
+
+  public void testBounded_smallSizeUsesFewSegments() {
+    assertEquals(1, new StripedInterner<Integer>(16, 10).segmentCount());
+    assertEquals(16, new StripedInterner<Integer>(16, 1000).segmentCount());
+  }
+
+  public void testBounded_retainsRecentlyUsed() {
+    StripedInterner<Integer> interner = new StripedInterner<>(1, 100);
+    Integer hot = new Integer(-1);
+    interner.intern(hot);
+    for (int i = 0; i < 10000; i++) {
+      interner.intern(i);
+      assertSame(hot, interner.intern(new Integer(-1)));
+    }
+  }
+
+  public void testConcurrentIntern() throws Exception {
+    final StripedInterner<Integer> interner = new StripedInterner<>(4, StripedInterner.UNBOUNDED);
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Integer[]>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                new Callable<Integer[]>() {
+                  @Override
+                  public Integer[] call() {
+                    Integer[] results = new Integer[10000];
+                    for (int i = 0; i < results.length; i++) {
+                      results[i] = interner.intern(new Integer(i));
+                    }
+                    return results;
+                  }
+                }));
+      }
+      Integer[] first = futures.get(0).get();
+      for (Future<Integer[]> future : futures) {
+        Integer[] results = future.get();
+        for (int i = 0; i < results.length; i++) {
+          assertSame(first[i], results[i]);
+        }
+      }
+      assertEquals(10000, interner.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testNulls() {
+    new NullPointerTester()
+        .testAllPublicInstanceMethods(new StripedInterner<>(4, StripedInterner.UNBOUNDED));
+  }
+}
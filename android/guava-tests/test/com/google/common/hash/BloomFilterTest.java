@@ -30,12 +30,21 @@ import com.google.common.testing.SerializableTester;
 import com.google.common.util.concurrent.Uninterruptibles;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.TestCase;
 import org.checkerframework.checker.nullness.compatqual.NullableDecl;
 
@@ -168,6 +177,134 @@ public class BloomFilterTest extends TestCase {
     assertEquals(expectedReportedFpp, actualReportedFpp, 0.00033);
   }
 
+  public void testCreateAndCheckBlockedBloomFilterWithKnownFalsePositives() {
+    int numInsertions = 1000000;
+    BloomFilter<String> bf =
+        BloomFilter.createBlocked(Funnels.unencodedCharsFunnel(), numInsertions, 0.03);
+
+    // Insert "numInsertions" even numbers into the BF.
+    for (int i = 0; i < numInsertions * 2; i += 2) {
+      bf.put(Integer.toString(i));
+    }
+    assertApproximateElementCountGuess(bf, numInsertions);
+
+    // Assert that the BF "might" have all of the even numbers.
+    for (int i = 0; i < numInsertions * 2; i += 2) {
+      assertTrue(bf.mightContain(Integer.toString(i)));
+    }
+
+    // Now we check for known false positives using a set of known false positives.
+    // (These are all of the false positives under 900.)
+    ImmutableSet<Integer> falsePositives =
+        ImmutableSet.of(57, 61, 87, 97, 135, 265, 295, 359, 401, 701, 719, 791, 799, 873);
+    for (int i = 1; i < 900; i += 2) {
+      if (!falsePositives.contains(i)) {
+        assertFalse("BF should not contain " + i, bf.mightContain(Integer.toString(i)));
+      }
+    }
+
+    // Check that there are exactly 28748 false positives for this BF, which is sized for them to
+    // be fewer than 3% despite being blocked.
+    int knownNumberOfFalsePositives = 28748;
+    int numFpp = 0;
+    for (int i = 1; i < numInsertions * 2; i += 2) {
+      if (bf.mightContain(Integer.toString(i))) {
+        numFpp++;
+      }
+    }
+    assertEquals(knownNumberOfFalsePositives, numFpp);
+  }
+
+  public void testBlockedBloomFilterSetsBitsInOneBlock() {
+    LockFreeBitArray bits = new LockFreeBitArray(64 * BloomFilterStrategies.BLOCK_BITS);
+    for (int i = 0; i < 100; i++) {
+      long[] before = LockFreeBitArray.toPlainArray(bits.data);
+      BloomFilterStrategies.MURMUR128_BLOCKED_512.put(i, Funnels.integerFunnel(), 12, bits);
+      long[] after = LockFreeBitArray.toPlainArray(bits.data);
+      int changedBlock = -1;
+      for (int word = 0; word < after.length; word++) {
+        if (before[word] != after[word]) {
+          int block = word / (BloomFilterStrategies.BLOCK_BITS / Long.SIZE);
+          assertTrue(changedBlock == -1 || changedBlock == block);
+          changedBlock = block;
+        }
+      }
+      assertTrue(
+          BloomFilterStrategies.MURMUR128_BLOCKED_512.mightContain(
+              i, Funnels.integerFunnel(), 12, bits));
+    }
+  }
+
+  public void testBlockedFpp() {
+    for (double fpp : new double[] {0.1, 0.03, 0.01, 0.001, 0.0001}) {
+      long ordinaryBits = BloomFilter.optimalNumOfBits(1000000, fpp);
+      long blockedBits = BloomFilter.optimalNumOfBlockedBits(1000000, fpp);
+      assertEquals(0, blockedBits % BloomFilterStrategies.BLOCK_BITS);
+      // blocking costs some space, but not too much
+      assertThat(blockedBits).isGreaterThan(ordinaryBits);
+      assertThat(blockedBits).isLessThan(ordinaryBits * 5 / 4);
+      assertThat(BloomFilter.blockedFpp(1000000, blockedBits)).isAtMost(fpp);
+      assertThat(BloomFilter.blockedFpp(1000000, blockedBits * 31 / 32)).isGreaterThan(fpp);
+    }
+  }
+
+  public void testBlockedCompatibility() throws Exception {
+    BloomFilter<Integer> blocked = BloomFilter.createBlocked(Funnels.integerFunnel(), 1000, 0.01);
+    BloomFilter<Integer> ordinary = BloomFilter.create(Funnels.integerFunnel(), 1000, 0.01);
+    assertFalse(blocked.isCompatible(ordinary));
+    assertTrue(blocked.isCompatible(blocked.copy()));
+    for (int i = 0; i < 1000; i++) {
+      blocked.put(i);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    blocked.writeTo(out);
+    BloomFilter<Integer> read =
+        BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+    assertEquals(blocked, read);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(read.mightContain(i));
+    }
+    SerializableTester.reserializeAndAssert(blocked);
+  }
+
+  public void testBlocked_partialBlock() throws Exception {
+    BloomFilter<Integer> bf = BloomFilter.createBlocked(Funnels.integerFunnel(), 1000, 0.01);
+    byte[] serialized = serialize(bf);
+    // claim one long fewer than a whole number of blocks, which the data still holds
+    ByteBuffer.wrap(serialized).putInt(2, ByteBuffer.wrap(serialized).getInt(2) - 1);
+    try {
+      BloomFilter.readFrom(new ByteArrayInputStream(serialized), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(serialized.length);
+    buffer.put(serialized).flip();
+    try {
+      BloomFilter.wrap(buffer, Funnels.integerFunnel());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    File file = File.createTempFile("BloomFilterTest", ".bf");
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        out.write(serialized);
+      } finally {
+        out.close();
+      }
+      try {
+        BloomFilter.map(file, Funnels.integerFunnel());
+        fail();
+      } catch (IOException expected) {
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
   public void testCreateAndCheckBloomFilterWithKnownUtf8FalsePositives64() {
     int numInsertions = 1000000;
     BloomFilter<String> bf =
@@ -509,14 +646,214 @@ public class BloomFilterTest extends TestCase {
     assertEquals(bf, BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel));
   }
 
+  public void testWrap() throws Exception {
+    Funnel<byte[]> funnel = Funnels.byteArrayFunnel();
+    BloomFilter<byte[]> bf = BloomFilter.create(funnel, 100);
+    for (int i = 0; i < 100; i++) {
+      bf.put(Ints.toByteArray(i));
+    }
+    byte[] serialized = serialize(bf);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(serialized.length + 7);
+    buffer.position(3);
+    buffer.put(serialized);
+    buffer.position(3);
+
+    BloomFilter<byte[]> wrapped = BloomFilter.wrap(buffer, funnel);
+    assertEquals(bf, wrapped);
+    assertEquals(bf.hashCode(), wrapped.hashCode());
+    assertEquals(bf.approximateElementCount(), wrapped.approximateElementCount());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(wrapped.mightContain(Ints.toByteArray(i)));
+    }
+    assertEquals(3, buffer.position());
+
+    for (int i = 100; i < 200; i++) {
+      assertEquals(bf.put(Ints.toByteArray(i)), wrapped.put(Ints.toByteArray(i)));
+    }
+    assertEquals(bf, wrapped);
+    byte[] written = new byte[serialized.length];
+    buffer.get(written);
+    assertEquals(bf, BloomFilter.readFrom(new ByteArrayInputStream(written), funnel));
+  }
+
+  public void testWrap_readOnly() {
+    BloomFilter<Integer> bf = BloomFilter.create(Funnels.integerFunnel(), 100);
+    bf.put(1);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(serialize(bf).length);
+    buffer.put(serialize(bf)).flip();
+
+    BloomFilter<Integer> wrapped =
+        BloomFilter.wrap(buffer.asReadOnlyBuffer(), Funnels.integerFunnel());
+    assertTrue(wrapped.mightContain(1));
+    try {
+      wrapped.put(2);
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+  }
+
+  public void testWrap_invalid() {
+    BloomFilter<Integer> bf = BloomFilter.create(Funnels.integerFunnel(), 100);
+    byte[] serialized = serialize(bf);
+    try {
+      BloomFilter.wrap(ByteBuffer.wrap(serialized), Funnels.integerFunnel());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    ByteBuffer truncated = ByteBuffer.allocateDirect(serialized.length - 1);
+    truncated.put(serialized, 0, serialized.length - 1).flip();
+    try {
+      BloomFilter.wrap(truncated, Funnels.integerFunnel());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+
+    ByteBuffer unknownStrategy = ByteBuffer.allocateDirect(serialized.length);
+    unknownStrategy.put(serialized).put(0, (byte) 100).flip();
+    try {
+      BloomFilter.wrap(unknownStrategy, Funnels.integerFunnel());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testMap() throws Exception {
+    Funnel<CharSequence> funnel = Funnels.unencodedCharsFunnel();
+    BloomFilter<CharSequence> bf = BloomFilter.createBlocked(funnel, 10_000, 0.01);
+    for (int i = 0; i < 10_000; i += 2) {
+      bf.put(Integer.toString(i));
+    }
+    File file = File.createTempFile("BloomFilterTest", ".bf");
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        bf.writeTo(out);
+      } finally {
+        out.close();
+      }
+
+      BloomFilter<CharSequence> mapped = BloomFilter.map(file, funnel);
+      assertEquals(bf, mapped);
+      assertEquals(bf.expectedFpp(), mapped.expectedFpp());
+      assertTrue(mapped.isCompatible(bf));
+      for (int i = 1; i < 10_000; i += 2) {
+        mapped.put(Integer.toString(i));
+        bf.put(Integer.toString(i));
+      }
+      assertEquals(bf, mapped);
+      assertEquals(bf, readFrom(file, funnel));
+
+      BloomFilter<CharSequence> copy = mapped.copy();
+      copy.put("a");
+      assertEquals(bf, BloomFilter.map(file, funnel));
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testMap_invalid() throws Exception {
+    BloomFilter<Integer> bf = BloomFilter.create(Funnels.integerFunnel(), 100);
+    byte[] serialized = serialize(bf);
+    File file = File.createTempFile("BloomFilterTest", ".bf");
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        out.write(serialized, 0, serialized.length - 1);
+      } finally {
+        out.close();
+      }
+      try {
+        BloomFilter.map(file, Funnels.integerFunnel());
+        fail();
+      } catch (IOException expected) {
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testCreateMapped() throws Exception {
+    Funnel<Integer> funnel = Funnels.integerFunnel();
+    File file = File.createTempFile("BloomFilterTest", ".bf");
+    try {
+      BloomFilter<Integer> mapped = BloomFilter.createMapped(file, funnel, 10_000, 0.001);
+      BloomFilter<Integer> bf = BloomFilter.create(funnel, 10_000, 0.001);
+      assertEquals(bf, mapped);
+      assertEquals(serialize(bf).length, file.length());
+      for (int i = 0; i < 10_000; i++) {
+        assertEquals(bf.put(i), mapped.put(i));
+      }
+      assertEquals(bf, mapped);
+      assertEquals(bf.approximateElementCount(), mapped.approximateElementCount());
+      assertEquals(bf, readFrom(file, funnel));
+      assertEquals(bf, BloomFilter.map(file, funnel));
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testNoRaceConditions_wrapped() throws Exception {
+    BloomFilter<Integer> empty = BloomFilter.create(Funnels.integerFunnel(), 100_000, 0.01);
+    byte[] serialized = serialize(empty);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(serialized.length);
+    buffer.put(serialized).flip();
+    final BloomFilter<Integer> wrapped = BloomFilter.wrap(buffer, Funnels.integerFunnel());
+
+    final int numThreads = 8;
+    final int putsPerThread = 100_000 / numThreads;
+    final AtomicInteger nextThread = new AtomicInteger();
+    Runnable task =
+        new Runnable() {
+          @Override
+          public void run() {
+            int thread = nextThread.getAndIncrement();
+            for (int i = thread; i < numThreads * putsPerThread; i += numThreads) {
+              wrapped.put(i);
+              // False negative should *never* happen.
+              assertThat(wrapped.mightContain(i)).isTrue();
+            }
+          }
+        };
+    List<Throwable> exceptions = runThreadsAndReturnExceptions(numThreads, task);
+    assertThat(exceptions).isEmpty();
+
+    BloomFilter<Integer> expected = empty.copy();
+    for (int i = 0; i < numThreads * putsPerThread; i++) {
+      expected.put(i);
+    }
+    assertEquals(expected, wrapped);
+  }
+
+  private static byte[] serialize(BloomFilter<?> bf) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      bf.writeTo(out);
+    } catch (IOException impossible) {
+      throw new AssertionError(impossible);
+    }
+    return out.toByteArray();
+  }
+
+  private static <T> BloomFilter<T> readFrom(File file, Funnel<? super T> funnel)
+      throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      return BloomFilter.readFrom(in, funnel);
+    } finally {
+      in.close();
+    }
+  }
+
   /**
    * This test will fail whenever someone updates/reorders the BloomFilterStrategies constants. Only
    * appending a new constant is allowed.
    */
   public void testBloomFilterStrategies() {
-    assertThat(BloomFilterStrategies.values()).hasLength(2);
+    assertThat(BloomFilterStrategies.values()).hasLength(3);
     assertEquals(BloomFilterStrategies.MURMUR128_MITZ_32, BloomFilterStrategies.values()[0]);
     assertEquals(BloomFilterStrategies.MURMUR128_MITZ_64, BloomFilterStrategies.values()[1]);
+    assertEquals(BloomFilterStrategies.MURMUR128_BLOCKED_512, BloomFilterStrategies.values()[2]);
   }
 
   public void testNoRaceConditions() throws Exception {
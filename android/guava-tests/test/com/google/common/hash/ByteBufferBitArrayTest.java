@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.common.hash.BloomFilterStrategies.LockFreeBitArray;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Tests for {@link ByteBufferBitArray}. */
+public class ByteBufferBitArrayTest extends TestCase {
+  private static final int LONGS_PER_BUFFER = 4;
+
+  public void testLayout() {
+    for (long bitIndex = 0; bitIndex < 128; bitIndex++) {
+      ByteBuffer data = ByteBuffer.allocateDirect(16);
+      ByteBufferBitArray bits = new ByteBufferBitArray(new ByteBuffer[] {data}, LONGS_PER_BUFFER);
+      assertTrue(bits.set(bitIndex));
+      int byteIndex = (int) (8 * (bitIndex / 64) + 7 - (bitIndex % 64) / 8);
+      for (int i = 0; i < 16; i++) {
+        assertEquals((i == byteIndex) ? 1 << (bitIndex % 8) : 0, data.get(i) & 0xFF);
+      }
+      assertEquals(1L << bitIndex, bits.getLong((int) (bitIndex / 64)));
+    }
+  }
+
+  public void testSetAndGet() {
+    // three buffers, the last one partial
+    ByteBuffer[] buffers = {
+      sliceAt(2, 8 * LONGS_PER_BUFFER),
+      sliceAt(1, 8 * LONGS_PER_BUFFER),
+      sliceAt(3, 8 * (LONGS_PER_BUFFER - 1))
+    };
+    ByteBufferBitArray bits = new ByteBufferBitArray(buffers, LONGS_PER_BUFFER);
+    LockFreeBitArray expected = new LockFreeBitArray(bits.bitSize());
+    assertEquals(3 * LONGS_PER_BUFFER - 1, bits.dataLength());
+    assertEquals(expected, bits);
+
+    Random random = new Random(0);
+    for (int i = 0; i < 400; i++) {
+      long bitIndex = random.nextInt((int) bits.bitSize());
+      assertEquals(expected.set(bitIndex), bits.set(bitIndex));
+      assertTrue(bits.get(bitIndex));
+    }
+    for (long bitIndex = 0; bitIndex < bits.bitSize(); bitIndex++) {
+      assertEquals(expected.get(bitIndex), bits.get(bitIndex));
+    }
+    assertEquals(expected, bits);
+    assertEquals(expected.hashCode(), bits.hashCode());
+    assertEquals(expected.bitCount(), bits.bitCount());
+  }
+
+  public void testBitCount_countsBitsSetBeforehand() {
+    ByteBuffer data = ByteBuffer.allocateDirect(16);
+    data.putLong(0, -1L).putLong(8, 5L);
+    ByteBufferBitArray bits = new ByteBufferBitArray(data);
+    assertEquals(66, bits.bitCount());
+    assertTrue(bits.set(65));
+    assertFalse(bits.set(64));
+    assertEquals(67, bits.bitCount());
+  }
+
+  public void testPutAll() {
+    ByteBufferBitArray bits = new ByteBufferBitArray(ByteBuffer.allocateDirect(16));
+    LockFreeBitArray other = new LockFreeBitArray(new long[] {0x8000000000000001L, 6L});
+    bits.set(0);
+    bits.set(100);
+    bits.putAll(other);
+    assertEquals(new LockFreeBitArray(new long[] {0x8000000000000001L, 6L | (1L << 36)}), bits);
+    assertEquals(5, bits.bitCount());
+  }
+
+  public void testConcurrentSets() {
+    final ByteBufferBitArray bits =
+        new ByteBufferBitArray(
+            new ByteBuffer[] {sliceAt(1, 8 * LONGS_PER_BUFFER), sliceAt(2, 8)}, LONGS_PER_BUFFER);
+    final int numThreads = 8;
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              for (int repeat = 0; repeat < 1000; repeat++) {
+                // every thread sets a different bit of each byte
+                for (long bitIndex = thread; bitIndex < bits.bitSize(); bitIndex += numThreads) {
+                  bits.set(bitIndex);
+                }
+              }
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    for (int i = 0; i < bits.dataLength(); i++) {
+      assertEquals(-1L, bits.getLong(i));
+    }
+    assertEquals(bits.bitSize(), bits.bitCount());
+  }
+
+  public void testReadOnly() {
+    ByteBuffer data = ByteBuffer.allocateDirect(8);
+    data.put(7, (byte) 1);
+    ByteBufferBitArray bits = new ByteBufferBitArray(data.asReadOnlyBuffer());
+    assertTrue(bits.get(0));
+    try {
+      bits.set(1);
+      fail();
+    } catch (java.nio.ReadOnlyBufferException expected) {
+    }
+  }
+
+  public void testInvalidBuffers() {
+    try {
+      new ByteBufferBitArray(ByteBuffer.allocate(8));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new ByteBufferBitArray(ByteBuffer.allocateDirect(12));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new ByteBufferBitArray(
+          new ByteBuffer[] {ByteBuffer.allocateDirect(8), ByteBuffer.allocateDirect(8)},
+          LONGS_PER_BUFFER);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  /** Returns a direct buffer of the given capacity, starting at an offset into its allocation. */
+  private static ByteBuffer sliceAt(int offset, int capacity) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(offset + capacity);
+    buffer.position(offset);
+    return buffer.slice();
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/** Tests for {@link CountMinSketch}. */
+public class CountMinSketchTest extends TestCase {
+
+  public void testAdd() {
+    CountMinSketch<String> cms = CountMinSketch.create(Funnels.unencodedCharsFunnel(), 0.01, 0.01);
+    assertEquals(0, cms.estimateCount("a"));
+    assertEquals(1, cms.add("a"));
+    assertEquals(4, cms.add("a", 3));
+    assertEquals(4, cms.add("a", 0));
+    assertEquals(4, cms.estimateCount("a"));
+    assertEquals(4, cms.totalCount());
+    try {
+      cms.add("a", -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testDimensions() {
+    CountMinSketch<Integer> cms = CountMinSketch.create(Funnels.integerFunnel(), 0.001, 0.01);
+    // ceil(e / 0.001) counters in each of ceil(ln(100)) rows
+    assertEquals(2719 * 5, cms.counterCount());
+    assertEquals(1, CountMinSketch.optimalDepth(0.5));
+    assertEquals(3, CountMinSketch.optimalDepth(0.05));
+    assertEquals(7, CountMinSketch.optimalDepth(0.001));
+  }
+
+  public void testErrorBound() {
+    double epsilon = 0.001;
+    double delta = 0.01;
+    CountMinSketch<Integer> cms = CountMinSketch.create(Funnels.integerFunnel(), epsilon, delta);
+    // a skewed distribution: element i is added about 1 / (i + 1) as often as element 0
+    Random random = new Random(0);
+    int numElements = 10_000;
+    long[] counts = new long[numElements];
+    for (int i = 0; i < 1_000_000; i++) {
+      int element = (int) Math.floor(Math.pow(numElements + 1, random.nextDouble())) - 1;
+      cms.add(element);
+      counts[element]++;
+    }
+    long bound = (long) (epsilon * cms.totalCount());
+    int exceeded = 0;
+    for (int i = 0; i < numElements; i++) {
+      long estimate = cms.estimateCount(i);
+      assertThat(estimate).isAtLeast(counts[i]);
+      if (estimate > counts[i] + bound) {
+        exceeded++;
+      }
+    }
+    assertThat((double) exceeded / numElements).isAtMost(delta);
+  }
+
+  public void testPutAll() {
+    CountMinSketch<Integer> all = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    CountMinSketch<Integer> even = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    CountMinSketch<Integer> odd = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    for (int i = 0; i < 1000; i++) {
+      all.add(i % 100);
+      (i % 2 == 0 ? even : odd).add(i % 100);
+    }
+    even.putAll(odd);
+    assertEquals(all, even);
+    assertEquals(1000, even.totalCount());
+  }
+
+  public void testPutAll_incompatible() {
+    CountMinSketch<Integer> cms = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    CountMinSketch<Integer> wider = CountMinSketch.create(Funnels.integerFunnel(), 0.001, 0.01);
+    assertFalse(cms.isCompatible(cms));
+    assertFalse(cms.isCompatible(wider));
+    assertTrue(cms.isCompatible(CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01)));
+    try {
+      cms.putAll(wider);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      cms.putAll(cms);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testPreconditions() {
+    double[] invalid = {0.0, 1.0, -0.5, Double.NaN};
+    for (double value : invalid) {
+      try {
+        CountMinSketch.create(Funnels.integerFunnel(), value, 0.01);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      try {
+        CountMinSketch.create(Funnels.integerFunnel(), 0.01, value);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    try {
+      CountMinSketch.create(Funnels.integerFunnel(), 1e-10, 0.01);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(
+        CountMinSketch.create(Funnels.unencodedCharsFunnel(), 0.01, 0.01));
+    tester.testAllPublicStaticMethods(CountMinSketch.class);
+  }
+
+  public void testCopy() {
+    CountMinSketch<Integer> original = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    original.add(1, 5);
+    CountMinSketch<Integer> copy = original.copy();
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+    original.add(1);
+    assertEquals(5, copy.estimateCount(1));
+    assertEquals(5, copy.totalCount());
+  }
+
+  public void testEquals() {
+    CountMinSketch<Integer> cms1 = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    cms1.add(1);
+    cms1.add(2, 2);
+    CountMinSketch<Integer> cms2 = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    cms2.add(2, 2);
+    cms2.add(1);
+    new EqualsTester()
+        .addEqualityGroup(cms1, cms2)
+        .addEqualityGroup(CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01))
+        .addEqualityGroup(CountMinSketch.create(Funnels.integerFunnel(), 0.02, 0.01))
+        .addEqualityGroup(CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.001))
+        .addEqualityGroup(CountMinSketch.create(Funnels.unencodedCharsFunnel(), 0.01, 0.01))
+        .testEquals();
+  }
+
+  public void testJavaSerialization() {
+    CountMinSketch<Integer> cms = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    for (int i = 0; i < 100; i++) {
+      cms.add(i, i);
+    }
+    SerializableTester.reserializeAndAssert(cms);
+  }
+
+  public void testCustomSerialization() throws Exception {
+    Funnel<Integer> funnel = Funnels.integerFunnel();
+    CountMinSketch<Integer> cms = CountMinSketch.create(funnel, 0.001, 0.01);
+    for (int i = 0; i < 100; i++) {
+      cms.add(i, i);
+    }
+    cms.add(-1, Long.MAX_VALUE / 2);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    cms.writeTo(out);
+    // mostly zero counters, written as one byte each
+    assertThat(out.size()).isLessThan(16 + 2 * (int) cms.counterCount());
+    CountMinSketch<Integer> read =
+        CountMinSketch.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel);
+    assertEquals(cms, read);
+    assertEquals(Long.MAX_VALUE / 2, read.estimateCount(-1));
+  }
+
+  public void testCustomSerialization_invalid() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CountMinSketch.create(Funnels.integerFunnel(), 0.5, 0.5).writeTo(out);
+    byte[] serialized = out.toByteArray();
+
+    byte[] badDepth = serialized.clone();
+    badDepth[3] = 0;
+    assertReadFails(badDepth);
+
+    byte[] truncated = new byte[serialized.length - 1];
+    System.arraycopy(serialized, 0, truncated, 0, truncated.length);
+    assertReadFails(truncated);
+  }
+
+  private static void assertReadFails(byte[] serialized) {
+    try {
+      CountMinSketch.readFrom(new ByteArrayInputStream(serialized), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testConcurrentAdds() throws Exception {
+    final CountMinSketch<Integer> cms = CountMinSketch.create(Funnels.integerFunnel(), 0.01, 0.01);
+    final int numThreads = 8;
+    final int addsPerThread = 10_000;
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              for (int i = 0; i < addsPerThread; i++) {
+                cms.add(i % 10);
+              }
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    assertEquals(numThreads * addsPerThread, cms.totalCount());
+    for (int i = 0; i < 10; i++) {
+      assertThat(cms.estimateCount(i)).isAtLeast((long) numThreads * addsPerThread / 10);
+    }
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.primitives.Ints;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/** Tests for {@link CuckooFilter}. */
+public class CuckooFilterTest extends TestCase {
+
+  public void testBasic() {
+    CuckooFilter<String> cf = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    assertFalse(cf.mightContain("a"));
+    assertTrue(cf.put("a"));
+    assertTrue(cf.mightContain("a"));
+    assertEquals(1, cf.approximateElementCount());
+    assertTrue(cf.remove("a"));
+    assertFalse(cf.mightContain("a"));
+    assertEquals(0, cf.approximateElementCount());
+    assertFalse(cf.remove("a"));
+  }
+
+  public void testPutAndRemoveMany() {
+    int numInsertions = 100_000;
+    CuckooFilter<Integer> cf = CuckooFilter.create(Funnels.integerFunnel(), numInsertions, 0.01);
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(cf.put(i));
+    }
+    assertEquals(numInsertions, cf.approximateElementCount());
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(cf.mightContain(i));
+    }
+
+    // remove the even elements; the odd ones must remain
+    for (int i = 0; i < numInsertions; i += 2) {
+      assertTrue(cf.remove(i));
+    }
+    assertEquals(numInsertions / 2, cf.approximateElementCount());
+    int falsePositives = 0;
+    for (int i = 0; i < numInsertions; i++) {
+      if (i % 2 == 1) {
+        assertTrue(cf.mightContain(i));
+      } else if (cf.mightContain(i)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(numInsertions / 2 / 100);
+
+    for (int i = 1; i < numInsertions; i += 2) {
+      assertTrue(cf.remove(i));
+    }
+    assertEquals(CuckooFilter.create(Funnels.integerFunnel(), numInsertions, 0.01), cf);
+  }
+
+  public void testFalsePositiveProbability() {
+    for (double fpp : new double[] {0.03, 0.01, 0.001}) {
+      int numInsertions = 100_000;
+      CuckooFilter<Integer> cf = CuckooFilter.create(Funnels.integerFunnel(), numInsertions, fpp);
+      for (int i = 0; i < numInsertions; i++) {
+        assertTrue(cf.put(i));
+      }
+      assertThat(cf.expectedFpp()).isLessThan(fpp);
+      int falsePositives = 0;
+      int trials = 1_000_000;
+      for (int i = 0; i < trials; i++) {
+        if (cf.mightContain(-1 - i)) {
+          falsePositives++;
+        }
+      }
+      double measuredFpp = (double) falsePositives / trials;
+      assertThat(measuredFpp).isLessThan(fpp);
+      assertThat(measuredFpp).isWithin(cf.expectedFpp() * 0.1).of(cf.expectedFpp());
+    }
+  }
+
+  public void testDuplicates() {
+    CuckooFilter<String> cf = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    // both buckets of the element fill up with its fingerprint
+    for (int i = 0; i < 8; i++) {
+      assertTrue(cf.put("a"));
+    }
+    CuckooFilter<String> copy = cf.copy();
+    assertFalse(cf.put("a"));
+    assertEquals(copy, cf);
+    for (int i = 0; i < 8; i++) {
+      assertTrue(cf.mightContain("a"));
+      assertTrue(cf.remove("a"));
+    }
+    assertFalse(cf.mightContain("a"));
+  }
+
+  public void testPutWhenFull() {
+    CuckooFilter<Integer> cf = CuckooFilter.create(Funnels.integerFunnel(), 1000, 0.01);
+    int i = 0;
+    while (cf.put(i)) {
+      i++;
+    }
+    assertThat(i).isAtLeast(1000);
+    assertEquals(i, cf.approximateElementCount());
+
+    // failed puts leave the filter unchanged
+    CuckooFilter<Integer> copy = cf.copy();
+    for (int j = i; j < i + 100; j++) {
+      if (!cf.put(j)) {
+        assertEquals(copy, cf);
+      } else {
+        copy = cf.copy();
+      }
+    }
+    for (int j = 0; j < i; j++) {
+      assertTrue(cf.mightContain(j));
+    }
+  }
+
+  public void testPreconditions() {
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), 1, 0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), 1, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      CuckooFilter.create(Funnels.unencodedCharsFunnel(), Long.MAX_VALUE / 2, 0.01);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100));
+    tester.testAllPublicStaticMethods(CuckooFilter.class);
+  }
+
+  public void testOptimalFingerprintBits() {
+    assertEquals(8, CuckooFilter.optimalFingerprintBits(0.03));
+    assertEquals(10, CuckooFilter.optimalFingerprintBits(0.01));
+    assertEquals(13, CuckooFilter.optimalFingerprintBits(0.001));
+    assertEquals(32, CuckooFilter.optimalFingerprintBits(Double.MIN_VALUE));
+    for (double fpp = 0.9; fpp > 2e-9; fpp /= 1.5) {
+      int bits = CuckooFilter.optimalFingerprintBits(fpp);
+      // the false positive probability of a full filter is below fpp, but wouldn't be with one bit
+      // fewer
+      assertThat(8 * 0.94 / ((1L << bits) - 1)).isAtMost(fpp);
+      assertThat(8 * 0.94 / ((1L << (bits - 1)) - 1)).isGreaterThan(fpp);
+    }
+  }
+
+  public void testFingerprintsStraddlingLongs() {
+    // 13-bit fingerprints often straddle two longs
+    CuckooFilter<Integer> cf = CuckooFilter.create(Funnels.integerFunnel(), 1000, 0.001);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(cf.put(i));
+      assertTrue(cf.mightContain(i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(cf.mightContain(i));
+      assertTrue(cf.remove(i));
+    }
+    assertEquals(CuckooFilter.create(Funnels.integerFunnel(), 1000, 0.001), cf);
+  }
+
+  public void testCopy() {
+    CuckooFilter<String> original = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    CuckooFilter<String> copy = original.copy();
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+    original.put("foo");
+    assertFalse(copy.mightContain("foo"));
+  }
+
+  public void testEquals() {
+    CuckooFilter<String> cf1 = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    cf1.put("1");
+    cf1.put("2");
+
+    CuckooFilter<String> cf2 = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    cf2.put("1");
+    cf2.put("2");
+
+    new EqualsTester()
+        .addEqualityGroup(cf1, cf2, CuckooFilter.synchronizedCuckooFilter(cf2.copy()))
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100))
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 200))
+        .addEqualityGroup(CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100, 0.01))
+        .addEqualityGroup(CuckooFilter.create(Funnels.byteArrayFunnel(), 100))
+        .testEquals();
+  }
+
+  public void testIsCompatible() {
+    CuckooFilter<String> cf = CuckooFilter.create(Funnels.unencodedCharsFunnel(), 100);
+    assertFalse(cf.isCompatible(cf));
+    assertTrue(
+        cf.isCompatible(CuckooFilter.<String>create(Funnels.unencodedCharsFunnel(), 100)));
+    assertFalse(
+        cf.isCompatible(CuckooFilter.<String>create(Funnels.unencodedCharsFunnel(), 200)));
+    assertFalse(
+        cf.isCompatible(CuckooFilter.<String>create(Funnels.unencodedCharsFunnel(), 100, 0.01)));
+  }
+
+  public void testJavaSerialization() {
+    CuckooFilter<byte[]> cf = CuckooFilter.create(Funnels.byteArrayFunnel(), 100);
+    for (int i = 0; i < 10; i++) {
+      cf.put(Ints.toByteArray(i));
+    }
+
+    CuckooFilter<byte[]> copy = SerializableTester.reserialize(cf);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(copy.mightContain(Ints.toByteArray(i)));
+    }
+    assertEquals(cf.approximateElementCount(), copy.approximateElementCount());
+
+    SerializableTester.reserializeAndAssert(cf);
+    SerializableTester.reserializeAndAssert(CuckooFilter.synchronizedCuckooFilter(cf));
+  }
+
+  public void testCustomSerialization() throws Exception {
+    Funnel<byte[]> funnel = Funnels.byteArrayFunnel();
+    CuckooFilter<byte[]> cf = CuckooFilter.create(funnel, 100);
+    for (int i = 0; i < 100; i++) {
+      cf.put(Ints.toByteArray(i));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    cf.writeTo(out);
+
+    CuckooFilter<byte[]> read =
+        CuckooFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel);
+    assertEquals(cf, read);
+    assertEquals(100, read.approximateElementCount());
+    assertTrue(read.remove(Ints.toByteArray(0)));
+  }
+
+  public void testCustomSerialization_invalid() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CuckooFilter.create(Funnels.integerFunnel(), 100).writeTo(out);
+    byte[] serialized = out.toByteArray();
+    serialized[0] = 33; // fingerprint bits
+    try {
+      CuckooFilter.readFrom(new ByteArrayInputStream(serialized), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testSynchronizedCuckooFilter() throws Exception {
+    final int numThreads = 8;
+    final int putsPerThread = 10_000;
+    final CuckooFilter<Integer> cf =
+        CuckooFilter.synchronizedCuckooFilter(
+            CuckooFilter.create(Funnels.integerFunnel(), numThreads * putsPerThread));
+    assertSame(cf, CuckooFilter.synchronizedCuckooFilter(cf));
+    final AtomicInteger nextThread = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                int thread = nextThread.getAndIncrement();
+                for (int i = thread; i < numThreads * putsPerThread; i += numThreads) {
+                  assertTrue(cf.put(i));
+                  // False negative should *never* happen.
+                  assertTrue(cf.mightContain(i));
+                  if (i % 3 == 0) {
+                    assertTrue(cf.remove(i));
+                  }
+                }
+              } catch (Throwable e) {
+                failure.set(e);
+              }
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    assertNull(failure.get());
+
+    CuckooFilter<Integer> expected = CuckooFilter.create(Funnels.integerFunnel(), 80_000);
+    for (int i = 0; i < numThreads * putsPerThread; i++) {
+      if (i % 3 != 0) {
+        assertTrue(cf.mightContain(i));
+        expected.put(i);
+      }
+    }
+    assertEquals(expected.approximateElementCount(), cf.approximateElementCount());
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.primitives.Ints;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/** Tests for {@link ScalableBloomFilter}. */
+public class ScalableBloomFilterTest extends TestCase {
+
+  public void testBasic() {
+    ScalableBloomFilter<String> sbf =
+        ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.01);
+    assertFalse(sbf.mightContain("a"));
+    assertTrue(sbf.put("a"));
+    assertTrue(sbf.mightContain("a"));
+    assertFalse(sbf.put("a"));
+    assertEquals(1, sbf.approximateElementCount());
+    assertEquals(1, sbf.filterCount());
+  }
+
+  public void testGrowth() {
+    double fpp = 0.01;
+    ScalableBloomFilter<Integer> sbf =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, fpp);
+    int numInsertions = 100_000;
+    for (int i = 0; i < numInsertions; i++) {
+      sbf.put(i);
+    }
+    // 100 + 200 + ... + 25600 < 100,000 < 100 + 200 + ... + 51200
+    assertEquals(10, sbf.filterCount());
+    for (int i = 0; i < numInsertions; i++) {
+      assertTrue(sbf.mightContain(i));
+    }
+    assertThat((double) sbf.approximateElementCount())
+        .isWithin(numInsertions * 0.02)
+        .of(numInsertions);
+
+    assertThat(sbf.expectedFpp()).isLessThan(fpp);
+    int falsePositives = 0;
+    int trials = 1_000_000;
+    for (int i = 0; i < trials; i++) {
+      if (sbf.mightContain(-1 - i)) {
+        falsePositives++;
+      }
+    }
+    assertThat((double) falsePositives / trials).isLessThan(fpp);
+
+    // a little more space per element than a Bloom filter sized in advance
+    BloomFilter<Integer> bf = BloomFilter.create(Funnels.integerFunnel(), numInsertions, fpp);
+    assertThat(sbf.bitSize()).isLessThan(3 * bf.bitSize());
+  }
+
+  public void testFilterFpp() {
+    double sum = 0;
+    for (int i = 0; i < 1000; i++) {
+      double filterFpp = ScalableBloomFilter.filterFpp(0.01, i);
+      assertThat(filterFpp).isLessThan(i == 0 ? 0.01 : ScalableBloomFilter.filterFpp(0.01, i - 1));
+      sum += filterFpp;
+    }
+    assertThat(sum).isWithin(1e-12).of(0.01);
+  }
+
+  public void testPreconditions() {
+    try {
+      ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0, 0.01);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(
+        ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.01));
+    tester.testAllPublicStaticMethods(ScalableBloomFilter.class);
+  }
+
+  public void testCopy() {
+    ScalableBloomFilter<Integer> original =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    for (int i = 0; i < 100; i++) {
+      original.put(i);
+    }
+    ScalableBloomFilter<Integer> copy = original.copy();
+    assertNotSame(original, copy);
+    assertEquals(original, copy);
+    original.put(100);
+    assertFalse(copy.mightContain(100));
+  }
+
+  public void testEquals() {
+    ScalableBloomFilter<String> sbf1 =
+        ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.01);
+    sbf1.put("1");
+    sbf1.put("2");
+
+    ScalableBloomFilter<String> sbf2 =
+        ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.01);
+    sbf2.put("1");
+    sbf2.put("2");
+
+    new EqualsTester()
+        .addEqualityGroup(sbf1, sbf2)
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.01))
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 100, 0.01))
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.unencodedCharsFunnel(), 0.02))
+        .addEqualityGroup(ScalableBloomFilter.create(Funnels.byteArrayFunnel(), 0.01))
+        .testEquals();
+  }
+
+  public void testPutAll() {
+    ScalableBloomFilter<Integer> small =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    ScalableBloomFilter<Integer> large =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    for (int i = 0; i < 5; i++) {
+      small.put(i);
+    }
+    for (int i = 100; i < 200; i++) {
+      large.put(i);
+    }
+    assertTrue(small.isCompatible(large));
+    ScalableBloomFilter<Integer> largeCopy = large.copy();
+
+    small.putAll(large);
+    assertEquals(large.filterCount(), small.filterCount());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(small.mightContain(i));
+    }
+    for (int i = 100; i < 200; i++) {
+      assertTrue(small.mightContain(i));
+    }
+    assertEquals(largeCopy, large);
+
+    // the appended filters are copies, so further puts leave the other filter unchanged
+    for (int i = 200; i < 300; i++) {
+      small.put(i);
+    }
+    assertEquals(largeCopy, large);
+
+    large.putAll(ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01));
+    assertEquals(largeCopy, large);
+  }
+
+  public void testPutAll_sameChainLengthGrows() {
+    ScalableBloomFilter<Integer> sbf1 =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    ScalableBloomFilter<Integer> sbf2 =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    for (int i = 0; i < 6; i++) {
+      sbf1.put(i);
+      sbf2.put(i + 100);
+    }
+    assertEquals(1, sbf1.filterCount());
+    sbf1.putAll(sbf2);
+    assertEquals(2, sbf1.filterCount());
+  }
+
+  public void testPutAll_incompatible() {
+    ScalableBloomFilter<Integer> sbf =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.01);
+    assertFalse(sbf.isCompatible(sbf));
+    assertFalse(sbf.isCompatible(ScalableBloomFilter.create(Funnels.integerFunnel(), 20, 0.01)));
+    assertFalse(sbf.isCompatible(ScalableBloomFilter.create(Funnels.integerFunnel(), 10, 0.02)));
+    try {
+      sbf.putAll(sbf);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      sbf.putAll(ScalableBloomFilter.create(Funnels.integerFunnel(), 20, 0.01));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testJavaSerialization() {
+    ScalableBloomFilter<byte[]> sbf =
+        ScalableBloomFilter.create(Funnels.byteArrayFunnel(), 10, 0.01);
+    for (int i = 0; i < 100; i++) {
+      sbf.put(Ints.toByteArray(i));
+    }
+
+    ScalableBloomFilter<byte[]> copy = SerializableTester.reserialize(sbf);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(copy.mightContain(Ints.toByteArray(i)));
+    }
+    assertEquals(sbf.expectedFpp(), copy.expectedFpp());
+
+    SerializableTester.reserializeAndAssert(sbf);
+  }
+
+  public void testCustomSerialization() throws Exception {
+    Funnel<byte[]> funnel = Funnels.byteArrayFunnel();
+    ScalableBloomFilter<byte[]> sbf = ScalableBloomFilter.create(funnel, 10, 0.01);
+    for (int i = 0; i < 100; i++) {
+      sbf.put(Ints.toByteArray(i));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sbf.writeTo(out);
+    ScalableBloomFilter<byte[]> read =
+        ScalableBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel);
+    assertEquals(sbf, read);
+
+    // the read filter grows as the original would
+    for (int i = 100; i < 1000; i++) {
+      sbf.put(Ints.toByteArray(i));
+      read.put(Ints.toByteArray(i));
+    }
+    assertEquals(sbf.filterCount(), read.filterCount());
+    assertEquals(sbf, read);
+  }
+
+  public void testCustomSerialization_invalid() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ScalableBloomFilter.create(Funnels.integerFunnel(), 0.01).writeTo(out);
+    byte[] serialized = out.toByteArray();
+    serialized[27] = 0; // the number of filters
+    try {
+      ScalableBloomFilter.readFrom(new ByteArrayInputStream(serialized), Funnels.integerFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  public void testNoRaceConditions() throws Exception {
+    final int numThreads = 8;
+    final int putsPerThread = 20_000;
+    final ScalableBloomFilter<Integer> sbf =
+        ScalableBloomFilter.create(Funnels.integerFunnel(), 100, 0.01);
+    final AtomicInteger nextThread = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              try {
+                int thread = nextThread.getAndIncrement();
+                for (int i = thread; i < numThreads * putsPerThread; i += numThreads) {
+                  sbf.put(i);
+                  // False negative should *never* happen.
+                  assertTrue(sbf.mightContain(i));
+                }
+              } catch (Throwable e) {
+                failure.set(e);
+              }
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+    assertNull(failure.get());
+    for (int i = 0; i < numThreads * putsPerThread; i++) {
+      assertTrue(sbf.mightContain(i));
+    }
+    assertThat(sbf.expectedFpp()).isLessThan(0.01);
+  }
+}
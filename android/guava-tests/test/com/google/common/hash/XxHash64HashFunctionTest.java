@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import junit.framework.TestCase;
+
+/** Tests for {@link XxHash64HashFunction}. */
+public class XxHash64HashFunctionTest extends TestCase {
+  static final int[] LENGTHS = {
+    0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 31, 32, 33, 63, 64, 65, 96, 97,
+    127, 128, 129, 200, 240, 241, 255, 256, 257, 300, 1023, 1024, 1025, 2048, 4096, 10000
+  };
+
+  static final long SEED = 0x9e3779b97f4a7c15L;
+
+  // Computed by XXH64() of xxHash 0.8.1 over the first LENGTHS[i] bytes of input(), with seeds of
+  // zero and SEED.
+  private static final long[] UNSEEDED = {
+    0xef46db3751d8e999L, 0xa96c7f0ce858bbb7L, 0xac378c5993cd5f9aL, 0x56e6957632a487f9L,
+    0xc60d15b1e3ff8f04L, 0x808815858624dd4eL, 0xcf22b4e87e9bbd00L, 0xafbefc3d6c6f9a8eL,
+    0x3da5c7aa269683e0L, 0x4b17a9ba9e215c09L, 0x6b889090b8a922b8L, 0x1fc070e44716bd8eL,
+    0x8fe8ab1c1fd0666eL, 0x0382284cc19c4abbL, 0x1523f762201ba56eL, 0xae2a37eb9357caa7L,
+    0xa19ad429b02bc413L, 0xfe9f0feb7eeedc09L, 0x4a74f3a1a39ad4a1L, 0x8d57d6a4671cc43dL,
+    0x62c9fd21ed857664L, 0x5c320a0d2707057fL, 0x7bbabbc45729d17eL, 0xf3980c34bae65dc1L,
+    0x1a4b207385051b55L, 0xb8016eeff392be5dL, 0x4822f4e67f60ea91L, 0x725a5b9b3bedfe94L,
+    0x28fc8362643627d7L, 0x95d9a0c977b4b6fbL, 0xd430520ae3ed2fc6L, 0xd3f50496d5bf27e0L,
+    0x2c3db4bb567f731eL, 0x7c1ff7b1d57c10d5L, 0x6ff15897658784e0L, 0x8d2ba0cd7fece76cL,
+    0x4478b44bf84a35dfL, 0x149aa44972cdae00L, 0x2c9d0b038b4a4b35L, 0x6a531ef2d65594ecL,
+    0xe21174be82dc78d9L, 0xb391f8297b8f1500L,
+  };
+
+  private static final long[] SEEDED = {
+    0xc4349fc93c010000L, 0x585882422a6165e7L, 0x641d1a59667ae544L, 0x5acb303e78133c22L,
+    0x7d51d5e2461732b3L, 0x7f8b72856a42bb63L, 0xe9025e4e32c729e4L, 0x2ce9adec2b2c8104L,
+    0x758848f033fa76a2L, 0xd4576cf554b7d929L, 0xe8b41976772424c5L, 0xe96560d0aa53cb57L,
+    0xeaa6d4d803d21fd7L, 0x4cac40dd02bde820L, 0xa2655fff7225fffaL, 0xa18d5c90d722cee3L,
+    0xe3594f9058b426e7L, 0xa0c8a40ef8f3a9f7L, 0x8137041f5af88413L, 0x184ebcf3745cd46cL,
+    0x52fac3c981f3cc2eL, 0x64ef99a2e94cc7bdL, 0xf7f22435fe1ab128L, 0x7a0b76a812617c73L,
+    0x8ca91b1316d13af8L, 0x4ec794aabaaa40f5L, 0x11d73a8219c8c4c5L, 0x766daa420b6c6d5dL,
+    0x34c101f001255e7fL, 0x1ea63f1abd71fb0bL, 0x38d21e4b153c50c9L, 0x71acde7c1adbce38L,
+    0x76dc2ba578c894b9L, 0xaabaf17c38df7868L, 0x6d1a60579e75f807L, 0x1bc6c1a14e9ce6a7L,
+    0x125ae1ed3a7cf6b3L, 0x3ffe1c69f2d78178L, 0x11e09ec612e2aa1dL, 0xcd3d4acfbaec2cd5L,
+    0xe4d8ced124df0294L, 0x87b6f67e6aa5a117L,
+  };
+
+  /** Returns the bytes {@code 7, 38, 69, ...}, which exercise every alignment of every length. */
+  static byte[] input() {
+    byte[] input = new byte[10000];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = (byte) (i * 31 + 7);
+    }
+    return input;
+  }
+
+  public void testKnownValues() {
+    assertEquals(0xef46db3751d8e999L, Hashing.xxHash64().hashBytes(new byte[0]).asLong());
+    assertEquals(0x44bc2cf5ad770999L, Hashing.xxHash64().hashString("abc", UTF_8).asLong());
+    byte[] input = input();
+    for (int i = 0; i < LENGTHS.length; i++) {
+      assertHash(UNSEEDED[i], Hashing.xxHash64(), input, LENGTHS[i]);
+      assertHash(SEEDED[i], Hashing.xxHash64(SEED), input, LENGTHS[i]);
+    }
+  }
+
+  private static void assertHash(long expected, HashFunction function, byte[] input, int len) {
+    String message = function + " of " + len + " bytes";
+    assertEquals(message, expected, function.hashBytes(input, 0, len).asLong());
+    assertEquals(message, expected, function.newHasher().putBytes(input, 0, len).hash().asLong());
+    for (int chunk : new int[] {1, 7, 31, 33, 100}) {
+      Hasher hasher = function.newHasher();
+      for (int off = 0; off < len; off += chunk) {
+        hasher.putBytes(input, off, Math.min(chunk, len - off));
+      }
+      assertEquals(message + " in chunks of " + chunk, expected, hasher.hash().asLong());
+    }
+  }
+
+  public void testSeeds() {
+    assertEquals(Hashing.xxHash64(), Hashing.xxHash64(0));
+    assertFalse(Hashing.xxHash64(1).equals(Hashing.xxHash64(2)));
+    assertEquals("Hashing.xxHash64(" + SEED + ")", Hashing.xxHash64(SEED).toString());
+  }
+
+  public void testInvariants() {
+    HashTestUtils.assertInvariants(Hashing.xxHash64());
+    HashTestUtils.assertInvariants(Hashing.xxHash64(SEED));
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import com.google.common.primitives.Bytes;
 import java.io.BufferedReader;
@@ -526,6 +527,35 @@ public class FilesTest extends IoTestCase {
     assertEquals(i18nHash, Files.hash(i18nFile, Hashing.md5()).toString());
   }
 
+  public void testHashMapped() throws IOException {
+    String asciiHash = "e5df5a39f2b8cb71b24e1d8038f93131";
+    assertEquals(asciiHash, Files.hashMapped(getTestFile("ascii.txt"), Hashing.md5()).toString());
+
+    File file = createTempFile();
+    assertEquals(Hashing.crc32c().hashBytes(new byte[0]), Files.hashMapped(file, Hashing.crc32c()));
+
+    byte[] bytes = newPreFilledByteArray(100000);
+    Files.write(bytes, file);
+    for (HashFunction function :
+        ImmutableList.of(
+            Hashing.murmur3_128(),
+            Hashing.farmHashFingerprint64(),
+            Hashing.crc32c(),
+            Hashing.sha256())) {
+      assertEquals(function.hashBytes(bytes), Files.hashMapped(file, function));
+    }
+  }
+
+  public void testHashMapped_noSuchFile() throws IOException {
+    File file = createTempFile();
+    assertTrue(file.delete());
+    try {
+      Files.hashMapped(file, Hashing.md5());
+      fail();
+    } catch (FileNotFoundException expected) {
+    }
+  }
+
   public void testMap() throws IOException {
     // Test data
     int size = 1024;
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.math;
+
+import static com.google.common.math.StatsTesting.ALLOWED_ERROR;
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.NaN;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import junit.framework.TestCase;
+
+/** Tests for {@link ConcurrentStatsAccumulator}. */
+public class ConcurrentStatsAccumulatorTest extends TestCase {
+
+  public void testEmpty() {
+    ConcurrentStatsAccumulator accumulator = new ConcurrentStatsAccumulator();
+    assertEquals(0, accumulator.count());
+    assertEquals(0, accumulator.snapshot().count());
+    accumulator.addAll(new double[0]);
+    accumulator.addAll(Stats.of());
+    assertEquals(0, accumulator.count());
+  }
+
+  public void testAdd() {
+    ConcurrentStatsAccumulator accumulator = new ConcurrentStatsAccumulator();
+    StatsAccumulator expected = new StatsAccumulator();
+    for (double value : new double[] {1.1, -44.44, 33.33, 555.555, -2.2}) {
+      accumulator.add(value);
+      expected.add(value);
+    }
+    assertEquals(expected.snapshot(), accumulator.snapshot());
+    assertEquals(5, accumulator.count());
+  }
+
+  public void testAddAll() {
+    ConcurrentStatsAccumulator accumulator = new ConcurrentStatsAccumulator();
+    accumulator.addAll(ImmutableList.of(1, 2L, 3.0));
+    accumulator.addAll(ImmutableList.of(4.0f).iterator());
+    accumulator.addAll(5.0, 6.0);
+    accumulator.addAll(7, 8);
+    accumulator.addAll(9L, 10L);
+    accumulator.addAll(Stats.of(11, 12));
+    Stats stats = accumulator.snapshot();
+    Stats expected = Stats.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    assertEquals(12, stats.count());
+    assertThat(stats.mean()).isWithin(ALLOWED_ERROR).of(expected.mean());
+    assertThat(stats.populationVariance())
+        .isWithin(ALLOWED_ERROR)
+        .of(expected.populationVariance());
+    assertEquals(1.0, stats.min());
+    assertEquals(12.0, stats.max());
+  }
+
+  public void testNonFiniteValues() {
+    ConcurrentStatsAccumulator accumulator = new ConcurrentStatsAccumulator();
+    accumulator.addAll(1.0, POSITIVE_INFINITY);
+    assertEquals(POSITIVE_INFINITY, accumulator.snapshot().mean());
+    assertThat(accumulator.snapshot().populationVariance()).isNaN();
+    accumulator.add(NEGATIVE_INFINITY);
+    assertThat(accumulator.snapshot().mean()).isNaN();
+    assertEquals(NEGATIVE_INFINITY, accumulator.snapshot().min());
+
+    accumulator = new ConcurrentStatsAccumulator();
+    accumulator.add(NaN);
+    accumulator.add(1.0);
+    assertThat(accumulator.snapshot().mean()).isNaN();
+    assertThat(accumulator.snapshot().max()).isNaN();
+  }
+
+  public void testConcurrentAdds() throws Exception {
+    final ConcurrentStatsAccumulator accumulator = new ConcurrentStatsAccumulator();
+    final int numThreads = 8;
+    final int addsPerThread = 100_000;
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads.add(
+          new Thread() {
+            @Override
+            public void run() {
+              Uninterruptibles.awaitUninterruptibly(start);
+              for (int i = 0; i < addsPerThread; i++) {
+                if (i % 100 == 0) {
+                  accumulator.addAll(thread, -thread);
+                  i++;
+                } else {
+                  accumulator.add(i % 2 == 0 ? thread : -thread);
+                }
+              }
+            }
+          });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    start.countDown();
+    // snapshots taken while values are being added are consistent with some of them
+    for (int i = 0; i < 100; i++) {
+      Stats stats = accumulator.snapshot();
+      if (stats.count() > 0) {
+        assertThat(stats.min()).isAtLeast(1.0 - numThreads);
+        assertThat(stats.max()).isAtMost(numThreads - 1.0);
+      }
+    }
+    for (Thread thread : threads) {
+      Uninterruptibles.joinUninterruptibly(thread);
+    }
+
+    StatsAccumulator expected = new StatsAccumulator();
+    for (int t = 0; t < numThreads; t++) {
+      for (int i = 0; i < addsPerThread / 2; i++) {
+        expected.addAll(t, -t);
+      }
+    }
+    Stats stats = accumulator.snapshot();
+    assertEquals(numThreads * addsPerThread, accumulator.count());
+    assertEquals(expected.count(), stats.count());
+    assertThat(stats.mean()).isWithin(ALLOWED_ERROR).of(0.0);
+    assertThat(stats.sum()).isWithin(ALLOWED_ERROR).of(0.0);
+    assertThat(stats.populationVariance())
+        .isWithin(ALLOWED_ERROR)
+        .of(expected.populationVariance());
+    assertEquals(1.0 - numThreads, stats.min());
+    assertEquals(numThreads - 1.0, stats.max());
+  }
+}
@@ -21,6 +21,7 @@ import static com.google.common.truth.Truth.assertWithMessage;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -36,9 +37,15 @@ public class QuantilesAlgorithmTest extends TestCase {
   private static final int DATASET_SIZE = 1000;
   private static final double ALLOWED_ERROR = 1.0e-10;
   private static final QuantilesAlgorithm REFERENCE_ALGORITHM = QuantilesAlgorithm.SORTING;
+  /** The algorithms which estimate quantiles, to within a fraction of the dataset in rank. */
+  private static final ImmutableSet<QuantilesAlgorithm> APPROXIMATE_ALGORITHMS =
+      ImmutableSet.of(QuantilesAlgorithm.SKETCH);
+
+  private static final double ALLOWED_RANK_ERROR = 0.03;
   private static final Set<QuantilesAlgorithm> NON_REFERENCE_ALGORITHMS =
       Sets.difference(
-          ImmutableSet.copyOf(QuantilesAlgorithm.values()), ImmutableSet.of(REFERENCE_ALGORITHM));
+          ImmutableSet.copyOf(QuantilesAlgorithm.values()),
+          Sets.union(ImmutableSet.of(REFERENCE_ALGORITHM), APPROXIMATE_ALGORITHMS));
 
   private double[] dataset;
 
@@ -86,4 +93,33 @@ public class QuantilesAlgorithmTest extends TestCase {
       }
     }
   }
+
+  public void testApproximateAlgorithms() {
+    double[] sorted = dataset.clone();
+    Arrays.sort(sorted);
+    ImmutableSet<Integer> indexes = ImmutableSet.of(1, 50, 90, 99);
+    for (QuantilesAlgorithm algorithm : APPROXIMATE_ALGORITHMS) {
+      Map<Integer, Double> quantiles = algorithm.multipleQuantiles(indexes, 100, dataset.clone());
+      assertWithMessage("Wrong keys from " + algorithm).that(quantiles.keySet()).isEqualTo(indexes);
+      for (int i : indexes) {
+        assertWithMessage("Rank mismatch from %s at %s", algorithm, i)
+            .that(rank(sorted, quantiles.get(i)))
+            .isWithin(ALLOWED_RANK_ERROR)
+            .of(i / 100.0);
+        assertWithMessage("Rank mismatch from %s at %s", algorithm, i)
+            .that(rank(sorted, algorithm.singleQuantile(i, 100, dataset.clone())))
+            .isWithin(ALLOWED_RANK_ERROR)
+            .of(i / 100.0);
+      }
+    }
+  }
+
+  /** Returns the fraction of the values in the sorted dataset which are lower than the value. */
+  private static double rank(double[] sorted, double value) {
+    int position = Arrays.binarySearch(sorted, value);
+    if (position < 0) {
+      position = -position - 1;
+    }
+    return (double) position / (sorted.length - 1);
+  }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.math;
+
+import static com.google.common.math.Quantiles.median;
+import static com.google.common.math.Quantiles.percentiles;
+import static com.google.common.math.Quantiles.quartiles;
+import static com.google.common.truth.Truth.assertThat;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.NaN;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link QuantilesSketch}, and for the methods of {@link Quantiles} which compute the
+ * quantiles of a sketch.
+ */
+public class QuantilesSketchTest extends TestCase {
+
+  private static final Random RNG = new Random(7384212L);
+
+  public void testEmpty() {
+    QuantilesSketch sketch = new QuantilesSketch();
+    assertEquals(0, sketch.count());
+    try {
+      sketch.min();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      sketch.max();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      median().compute(sketch);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      percentiles().indexes(50, 90).compute(sketch);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testConstructor_invalidK() {
+    try {
+      new QuantilesSketch(7);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new QuantilesSketch((1 << 16) + 1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testExactUntilCompacted() {
+    for (int size : new int[] {1, 2, 3, 10, 99, 199}) {
+      double[] dataset = randomDataset(size);
+      QuantilesSketch sketch = new QuantilesSketch();
+      sketch.addAll(dataset);
+      assertEquals(size, sketch.retained());
+      for (int scale : new int[] {2, 3, 4, 10, 100}) {
+        for (int index = 0; index <= scale; index++) {
+          assertThat(Quantiles.scale(scale).index(index).compute(sketch))
+              .isEqualTo(Quantiles.scale(scale).index(index).compute(dataset));
+        }
+      }
+      assertThat(percentiles().indexes(0, 50, 90, 99, 100).compute(sketch))
+          .isEqualTo(percentiles().indexes(0, 50, 90, 99, 100).compute(dataset));
+    }
+  }
+
+  public void testNonFiniteValues() {
+    double[] dataset = {NEGATIVE_INFINITY, 1.0, 2.0, POSITIVE_INFINITY};
+    QuantilesSketch sketch = new QuantilesSketch();
+    sketch.addAll(dataset);
+    for (int index = 0; index <= 4; index++) {
+      assertThat(quartiles().index(index).compute(sketch))
+          .isEqualTo(quartiles().index(index).compute(dataset));
+    }
+
+    sketch.add(NaN);
+    assertThat(median().compute(sketch)).isNaN();
+    assertThat(quartiles().indexes(1, 3).compute(sketch)).containsExactly(1, NaN, 3, NaN);
+    assertThat(sketch.min()).isNaN();
+    assertThat(sketch.max()).isNaN();
+    assertEquals(5, sketch.count());
+  }
+
+  public void testAccuracy() {
+    int size = 1_000_000;
+    double[] dataset = randomDataset(size);
+    QuantilesSketch sketch = new QuantilesSketch();
+    sketch.addAll(dataset);
+    assertEquals(size, sketch.count());
+    // 3k, plus up to 8 for each of fewer than 20 levels
+    assertThat(sketch.retained()).isLessThan(3 * 200 + 8 * 20);
+    Arrays.sort(dataset);
+    assertEquals(dataset[0], sketch.min());
+    assertEquals(dataset[size - 1], sketch.max());
+    assertEquals(dataset[0], percentiles().index(0).compute(sketch));
+    assertEquals(dataset[size - 1], percentiles().index(100).compute(sketch));
+    assertWithinRankError(dataset, sketch, 3.0 / 200);
+  }
+
+  public void testAccuracy_sortedInput() {
+    double[] dataset = new double[100_000];
+    for (int i = 0; i < dataset.length; i++) {
+      dataset[i] = i;
+    }
+    QuantilesSketch sketch = new QuantilesSketch(100);
+    sketch.addAll(dataset);
+    assertThat(sketch.retained()).isLessThan(3 * 100 + 8 * 20);
+    assertWithinRankError(dataset, sketch, 3.0 / 100);
+  }
+
+  public void testAddAll_sketch() {
+    double[] dataset = randomDataset(200_000);
+    QuantilesSketch first = new QuantilesSketch();
+    QuantilesSketch second = new QuantilesSketch(100);
+    first.addAll(Arrays.copyOfRange(dataset, 0, 150_000));
+    second.addAll(Arrays.copyOfRange(dataset, 150_000, 200_000));
+    first.addAll(second);
+    assertEquals(200_000, first.count());
+    assertEquals(50_000, second.count());
+    assertThat(first.retained()).isLessThan(3 * 200 + 8 * 20);
+    Arrays.sort(dataset);
+    assertEquals(dataset[0], first.min());
+    assertEquals(dataset[dataset.length - 1], first.max());
+    assertWithinRankError(dataset, first, 3.0 / 100);
+  }
+
+  public void testAddAll_sketchExact() {
+    double[] dataset = randomDataset(150);
+    QuantilesSketch first = new QuantilesSketch();
+    QuantilesSketch second = new QuantilesSketch();
+    first.addAll(Arrays.copyOfRange(dataset, 0, 50));
+    second.addAll(Arrays.copyOfRange(dataset, 50, 150));
+    first.addAll(second);
+    first.addAll(new QuantilesSketch());
+    assertThat(percentiles().indexes(0, 1, 50, 99, 100).compute(first))
+        .isEqualTo(percentiles().indexes(0, 1, 50, 99, 100).compute(dataset));
+
+    QuantilesSketch empty = new QuantilesSketch();
+    empty.addAll(second);
+    assertThat(median().compute(empty))
+        .isEqualTo(median().compute(Arrays.copyOfRange(dataset, 50, 150)));
+  }
+
+  public void testAddAll_self() {
+    QuantilesSketch sketch = new QuantilesSketch();
+    sketch.addAll(1.0, 2.0, 3.0);
+    sketch.addAll(sketch);
+    assertEquals(6, sketch.count());
+    assertThat(median().compute(sketch)).isEqualTo(2.0);
+  }
+
+  public void testAddAll_otherTypes() {
+    QuantilesSketch sketch = new QuantilesSketch();
+    sketch.addAll(ImmutableList.of(1, 2L, 3.0));
+    sketch.addAll(ImmutableList.of(4.0f).iterator());
+    sketch.addAll(5, 6);
+    sketch.addAll(7L, 8L);
+    assertEquals(8, sketch.count());
+    assertThat(median().compute(sketch)).isEqualTo(4.5);
+    assertEquals(1.0, sketch.min());
+    assertEquals(8.0, sketch.max());
+  }
+
+  private static double[] randomDataset(int size) {
+    double[] dataset = new double[size];
+    for (int i = 0; i < size; i++) {
+      dataset[i] = RNG.nextGaussian();
+    }
+    return dataset;
+  }
+
+  /**
+   * Asserts that the rank of each percentile estimated by the sketch in the sorted dataset is
+   * within the given fraction of the dataset of the requested rank.
+   */
+  private static void assertWithinRankError(
+      double[] sortedDataset, QuantilesSketch sketch, double rankError) {
+    Map<Integer, Double> estimates = percentiles().indexes(0, 1, 10, 50, 90, 99).compute(sketch);
+    for (Map.Entry<Integer, Double> estimate : estimates.entrySet()) {
+      int position = Arrays.binarySearch(sortedDataset, estimate.getValue());
+      if (position < 0) {
+        position = -position - 1;
+      }
+      double rank = (double) position / (sortedDataset.length - 1);
+      assertThat(rank).isWithin(rankError).of(estimate.getKey() / 100.0);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.annotations.Immutable;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * An immutable {@link IntObjectMap}, with the compact open-addressing layout of {@link
+ * IntObjectHashMap}. Does not permit null values.
+ *
+ * @param <V> the type of the mapped values
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+@Immutable(containerOf = "V")
+public final class ImmutableIntObjectMap<V> implements IntObjectMap<V> {
+  private static final ImmutableIntObjectMap<Object> EMPTY =
+      new ImmutableIntObjectMap<>(IntObjectHashMap.createWithExpectedSize(0));
+
+  /** Returns the empty map. */
+  @SuppressWarnings("unchecked") // the empty map holds no values
+  public static <V> ImmutableIntObjectMap<V> of() {
+    return (ImmutableIntObjectMap<V>) EMPTY;
+  }
+
+  /** Returns an immutable map containing a single mapping. */
+  public static <V> ImmutableIntObjectMap<V> of(int k1, V v1) {
+    return ImmutableIntObjectMap.<V>builderWithExpectedSize(1).put(k1, v1).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given mappings.
+   *
+   * @throws IllegalArgumentException if duplicate keys are provided
+   */
+  public static <V> ImmutableIntObjectMap<V> of(int k1, V v1, int k2, V v2) {
+    return ImmutableIntObjectMap.<V>builderWithExpectedSize(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /**
+   * Returns an immutable map containing the same mappings as {@code map}. If {@code map} is itself
+   * an {@code ImmutableIntObjectMap}, it is returned without copying.
+   */
+  public static <V> ImmutableIntObjectMap<V> copyOf(IntObjectMap<? extends V> map) {
+    if (map instanceof ImmutableIntObjectMap) {
+      @SuppressWarnings("unchecked") // safe since the map is immutable
+      ImmutableIntObjectMap<V> result = (ImmutableIntObjectMap<V>) map;
+      return result;
+    }
+    return map.isEmpty()
+        ? ImmutableIntObjectMap.<V>of()
+        : new ImmutableIntObjectMap<V>(IntObjectHashMap.create(map));
+  }
+
+  /** Returns a new builder. */
+  public static <V> Builder<V> builder() {
+    return new Builder<>(IntObjectHashMap.<V>create());
+  }
+
+  /**
+   * Returns a new builder, which will hold {@code expectedSize} mappings without resizing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static <V> Builder<V> builderWithExpectedSize(int expectedSize) {
+    checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<>(IntObjectHashMap.<V>createWithExpectedSize(expectedSize));
+  }
+
+  /**
+   * A builder for creating {@code ImmutableIntObjectMap} instances. Builder instances can be
+   * reused; it is safe to call {@link #build} multiple times to build multiple maps in series.
+   *
+   * @since NEXT
+   */
+  public static final class Builder<V> {
+    private final IntObjectHashMap<V> map;
+
+    private Builder(IntObjectHashMap<V> map) {
+      this.map = map;
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map.
+     *
+     * @throws IllegalArgumentException if {@code key} has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder<V> put(int key, V value) {
+      checkNotNull(value);
+      if (map.containsKey(key)) {
+        throw new IllegalArgumentException(
+            "Multiple entries with same key: "
+                + key
+                + "="
+                + map.get(key)
+                + " and "
+                + key
+                + "="
+                + value);
+      }
+      map.put(key, value);
+      return this;
+    }
+
+    /**
+     * Associates all of the mappings of {@code map} in the built map.
+     *
+     * @throws IllegalArgumentException if any of their keys has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder<V> putAll(IntObjectMap<? extends V> map) {
+      map.forEach(
+          new IntObjectMap.EntryConsumer<V>() {
+            @Override
+            public void accept(int key, V value) {
+              put(key, value);
+            }
+          });
+      return this;
+    }
+
+    /** Returns a newly-created immutable map of the mappings put into this builder. */
+    public ImmutableIntObjectMap<V> build() {
+      return map.isEmpty()
+          ? ImmutableIntObjectMap.<V>of()
+          : new ImmutableIntObjectMap<V>(IntObjectHashMap.create(map));
+    }
+  }
+
+  @SuppressWarnings("Immutable") // never modified after construction
+  private final IntObjectHashMap<V> map;
+
+  private ImmutableIntObjectMap(IntObjectHashMap<V> map) {
+    this.map = map;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(int key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  @NullableDecl
+  public V get(int key) {
+    return map.get(key);
+  }
+
+  @Override
+  @NullableDecl
+  public V getOrDefault(int key, @NullableDecl V defaultValue) {
+    return map.getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public V put(int key, V value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public V remove(int key) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void forEach(EntryConsumer<? super V> action) {
+    map.forEach(action);
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    return PrimitiveMaps.equalsImpl(this, object);
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return map.toString();
+  }
+}
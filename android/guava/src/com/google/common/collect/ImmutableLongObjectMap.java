@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.annotations.Immutable;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * An immutable {@link LongObjectMap}, with the compact open-addressing layout of {@link
+ * LongObjectHashMap}. Does not permit null values.
+ *
+ * @param <V> the type of the mapped values
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+@Immutable(containerOf = "V")
+public final class ImmutableLongObjectMap<V> implements LongObjectMap<V> {
+  private static final ImmutableLongObjectMap<Object> EMPTY =
+      new ImmutableLongObjectMap<>(LongObjectHashMap.createWithExpectedSize(0));
+
+  /** Returns the empty map. */
+  @SuppressWarnings("unchecked") // the empty map holds no values
+  public static <V> ImmutableLongObjectMap<V> of() {
+    return (ImmutableLongObjectMap<V>) EMPTY;
+  }
+
+  /** Returns an immutable map containing a single mapping. */
+  public static <V> ImmutableLongObjectMap<V> of(long k1, V v1) {
+    return ImmutableLongObjectMap.<V>builderWithExpectedSize(1).put(k1, v1).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given mappings.
+   *
+   * @throws IllegalArgumentException if duplicate keys are provided
+   */
+  public static <V> ImmutableLongObjectMap<V> of(long k1, V v1, long k2, V v2) {
+    return ImmutableLongObjectMap.<V>builderWithExpectedSize(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /**
+   * Returns an immutable map containing the same mappings as {@code map}. If {@code map} is itself
+   * an {@code ImmutableLongObjectMap}, it is returned without copying.
+   */
+  public static <V> ImmutableLongObjectMap<V> copyOf(LongObjectMap<? extends V> map) {
+    if (map instanceof ImmutableLongObjectMap) {
+      @SuppressWarnings("unchecked") // safe since the map is immutable
+      ImmutableLongObjectMap<V> result = (ImmutableLongObjectMap<V>) map;
+      return result;
+    }
+    return map.isEmpty()
+        ? ImmutableLongObjectMap.<V>of()
+        : new ImmutableLongObjectMap<V>(LongObjectHashMap.create(map));
+  }
+
+  /** Returns a new builder. */
+  public static <V> Builder<V> builder() {
+    return new Builder<>(LongObjectHashMap.<V>create());
+  }
+
+  /**
+   * Returns a new builder, which will hold {@code expectedSize} mappings without resizing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static <V> Builder<V> builderWithExpectedSize(int expectedSize) {
+    checkNonnegative(expectedSize, "expectedSize");
+    return new Builder<>(LongObjectHashMap.<V>createWithExpectedSize(expectedSize));
+  }
+
+  /**
+   * A builder for creating {@code ImmutableLongObjectMap} instances. Builder instances can be
+   * reused; it is safe to call {@link #build} multiple times to build multiple maps in series.
+   *
+   * @since NEXT
+   */
+  public static final class Builder<V> {
+    private final LongObjectHashMap<V> map;
+
+    private Builder(LongObjectHashMap<V> map) {
+      this.map = map;
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map.
+     *
+     * @throws IllegalArgumentException if {@code key} has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder<V> put(long key, V value) {
+      checkNotNull(value);
+      if (map.containsKey(key)) {
+        throw new IllegalArgumentException(
+            "Multiple entries with same key: "
+                + key
+                + "="
+                + map.get(key)
+                + " and "
+                + key
+                + "="
+                + value);
+      }
+      map.put(key, value);
+      return this;
+    }
+
+    /**
+     * Associates all of the mappings of {@code map} in the built map.
+     *
+     * @throws IllegalArgumentException if any of their keys has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder<V> putAll(LongObjectMap<? extends V> map) {
+      map.forEach(
+          new LongObjectMap.EntryConsumer<V>() {
+            @Override
+            public void accept(long key, V value) {
+              put(key, value);
+            }
+          });
+      return this;
+    }
+
+    /** Returns a newly-created immutable map of the mappings put into this builder. */
+    public ImmutableLongObjectMap<V> build() {
+      return map.isEmpty()
+          ? ImmutableLongObjectMap.<V>of()
+          : new ImmutableLongObjectMap<V>(LongObjectHashMap.create(map));
+    }
+  }
+
+  @SuppressWarnings("Immutable") // never modified after construction
+  private final LongObjectHashMap<V> map;
+
+  private ImmutableLongObjectMap(LongObjectHashMap<V> map) {
+    this.map = map;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  @NullableDecl
+  public V get(long key) {
+    return map.get(key);
+  }
+
+  @Override
+  @NullableDecl
+  public V getOrDefault(long key, @NullableDecl V defaultValue) {
+    return map.getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public V put(long key, V value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public V remove(long key) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void forEach(EntryConsumer<? super V> action) {
+    map.forEach(action);
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    return PrimitiveMaps.equalsImpl(this, object);
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return map.toString();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A map from {@code int} keys to non-null values, which stores its keys unboxed. It is like a
+ * {@code Map<Integer, V>}, without the memory and time spent on an {@code Integer} for each key.
+ *
+ * <p>The mutator methods are optional operations; those of an {@link ImmutableIntObjectMap} throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <V> the type of the mapped values
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public interface IntObjectMap<V> {
+
+  /** Returns the number of mappings in this map. */
+  int size();
+
+  /** Returns {@code true} if this map contains no mappings. */
+  boolean isEmpty();
+
+  /** Returns {@code true} if this map contains a mapping for {@code key}. */
+  boolean containsKey(int key);
+
+  /** Returns the value mapped to {@code key}, or {@code null} if there is none. */
+  @NullableDecl
+  V get(int key);
+
+  /** Returns the value mapped to {@code key}, or {@code defaultValue} if there is none. */
+  @NullableDecl
+  V getOrDefault(int key, @NullableDecl V defaultValue);
+
+  /**
+   * Maps {@code key} to {@code value}, returning the value previously mapped to {@code key}, or
+   * {@code null} if there was none.
+   *
+   * @throws NullPointerException if {@code value} is null
+   */
+  @CanIgnoreReturnValue
+  @NullableDecl
+  V put(int key, V value);
+
+  /**
+   * Removes the mapping for {@code key}, returning the value that was mapped to it, or {@code null}
+   * if there was none.
+   */
+  @CanIgnoreReturnValue
+  @NullableDecl
+  V remove(int key);
+
+  /** Removes all of the mappings from this map. */
+  void clear();
+
+  /** Calls {@code action} with each mapping in this map, in no particular order. */
+  void forEach(EntryConsumer<? super V> action);
+
+  /**
+   * Compares the specified object with this map for equality. Returns {@code true} if it is also a
+   * {@code IntObjectMap} with the same mappings, as determined by the values' {@code equals}
+   * methods.
+   */
+  @Override
+  boolean equals(@NullableDecl Object object);
+
+  /**
+   * Returns the hash code for this map: the sum, over its mappings, of {@code key ^
+   * value.hashCode()}, like that of the equivalent {@code Map<Integer, V>}.
+   */
+  @Override
+  int hashCode();
+
+  /** An operation on a mapping of a {@link IntObjectMap}. */
+  interface EntryConsumer<V> {
+    /** Performs this operation on the mapping of {@code key} to {@code value}. */
+    void accept(int key, V value);
+  }
+}
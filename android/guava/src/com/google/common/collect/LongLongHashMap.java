@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Longs;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A {@link LongLongMap} backed by an open-addressing hash table, which stores its keys and values
+ * in two parallel arrays and resolves collisions by linear probing, as {@link LongObjectHashMap}
+ * does. A key of zero marks an empty slot, so a mapping for the key zero is held outside the table.
+ *
+ * <p>The table is kept at most three-quarters full, so a map of {@code n} mappings uses about
+ * {@code 21n} to {@code 43n} bytes for its arrays. This class is not thread-safe.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class LongLongHashMap implements LongLongMap {
+  private static final int DEFAULT_SIZE = 8;
+
+  /** Creates an empty {@code LongLongHashMap}. */
+  public static LongLongHashMap create() {
+    return new LongLongHashMap(DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates an empty {@code LongLongHashMap} with room for {@code expectedSize} mappings without
+   * resizing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static LongLongHashMap createWithExpectedSize(int expectedSize) {
+    return new LongLongHashMap(checkNonnegative(expectedSize, "expectedSize"));
+  }
+
+  /** Creates a mutable {@code LongLongHashMap} with the same mappings as {@code map}. */
+  public static LongLongHashMap create(LongLongMap map) {
+    final LongLongHashMap result = new LongLongHashMap(map.size());
+    map.forEach(
+        new LongLongMap.EntryConsumer() {
+          @Override
+          public void accept(long key, long value) {
+            result.put(key, value);
+          }
+        });
+    return result;
+  }
+
+  /** The keys, or zero for the empty slots. */
+  private long[] keys;
+
+  private long[] values;
+
+  /** The number of mappings in the table, excluding any for the key zero. */
+  private int tableEntries;
+
+  private boolean containsZeroKey;
+  private long zeroKeyValue;
+
+  private LongLongHashMap(int expectedSize) {
+    int tableSize = PrimitiveMaps.tableSize(expectedSize, LongObjectHashMap.LOAD_FACTOR);
+    keys = new long[tableSize];
+    values = new long[tableSize];
+  }
+
+  @Override
+  public int size() {
+    return containsZeroKey ? tableEntries + 1 : tableEntries;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    return (key == 0) ? containsZeroKey : indexOf(key) >= 0;
+  }
+
+  @Override
+  public long getOrDefault(long key, long defaultValue) {
+    if (key == 0) {
+      return containsZeroKey ? zeroKeyValue : defaultValue;
+    }
+    int index = indexOf(key);
+    return (index < 0) ? defaultValue : values[index];
+  }
+
+  @Override
+  public void put(long key, long value) {
+    if (key == 0) {
+      containsZeroKey = true;
+      zeroKeyValue = value;
+    } else {
+      // the insertion may resize the table, so find the slot before reading the array
+      int index = insertionIndexOf(key);
+      values[index] = value;
+    }
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public long addTo(long key, long delta) {
+    if (key == 0) {
+      zeroKeyValue = containsZeroKey ? zeroKeyValue + delta : delta;
+      containsZeroKey = true;
+      return zeroKeyValue;
+    }
+    int index = insertionIndexOf(key);
+    return values[index] += delta;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public boolean remove(long key) {
+    if (key == 0) {
+      boolean removed = containsZeroKey;
+      containsZeroKey = false;
+      return removed;
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return false;
+    }
+    deleteAt(index);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0L);
+    tableEntries = 0;
+    containsZeroKey = false;
+  }
+
+  @Override
+  public void forEach(EntryConsumer action) {
+    checkNotNull(action);
+    if (containsZeroKey) {
+      action.accept(0, zeroKeyValue);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        action.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /** Returns the slot holding the non-zero {@code key}, or -1 if it has no mapping. */
+  private int indexOf(long key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+      if (keys[i] == 0) {
+        return -1;
+      }
+      if (keys[i] == key) {
+        return i;
+      }
+    }
+  }
+
+  /**
+   * Returns the slot holding the non-zero {@code key}, first adding a mapping of it to zero if
+   * there is none.
+   */
+  private int insertionIndexOf(long key) {
+    int mask = keys.length - 1;
+    for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return i;
+      }
+      if (keys[i] == 0) {
+        if (tableEntries + 1 == keys.length) {
+          // keep a slot empty, to end the probes for absent keys
+          throw new IllegalStateException("LongLongHashMap is full");
+        }
+        keys[i] = key;
+        values[i] = 0;
+        if (Hashing.needsResizing(++tableEntries, keys.length, LongObjectHashMap.LOAD_FACTOR)) {
+          resize(keys.length * 2);
+          return indexOf(key);
+        }
+        return i;
+      }
+    }
+  }
+
+  /** Returns the slot at which the probe for {@code key} starts. */
+  private static int slot(long key, int mask) {
+    return Hashing.smear(Longs.hashCode(key)) & mask;
+  }
+
+  /** Empties the slot at {@code gap}, as {@link LongObjectHashMap} does. */
+  private void deleteAt(int gap) {
+    int mask = keys.length - 1;
+    for (int i = (gap + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      int home = slot(keys[i], mask);
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        values[gap] = values[i];
+        gap = i;
+      }
+    }
+    keys[gap] = 0;
+    tableEntries--;
+  }
+
+  private void resize(int newTableSize) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    keys = new long[newTableSize];
+    values = new long[newTableSize];
+    int mask = newTableSize - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != 0) {
+        int i = slot(oldKeys[j], mask);
+        while (keys[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int tableSize() {
+    return keys.length;
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    return PrimitiveMaps.equalsImpl(this, object);
+  }
+
+  @Override
+  public int hashCode() {
+    return PrimitiveMaps.hashCodeImpl(this);
+  }
+
+  @Override
+  public String toString() {
+    return PrimitiveMaps.toStringImpl(this);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A map from {@code long} keys to {@code long} values, which stores both unboxed. It is like a
+ * {@code Map<Long, Long>}, without the memory and time spent on two {@code Long}s for each mapping.
+ *
+ * <p>The mutator methods are optional operations; those of an {@link ImmutableLongLongMap} throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public interface LongLongMap {
+
+  /** Returns the number of mappings in this map. */
+  int size();
+
+  /** Returns {@code true} if this map contains no mappings. */
+  boolean isEmpty();
+
+  /** Returns {@code true} if this map contains a mapping for {@code key}. */
+  boolean containsKey(long key);
+
+  /** Returns the value mapped to {@code key}, or {@code defaultValue} if there is none. */
+  long getOrDefault(long key, long defaultValue);
+
+  /** Maps {@code key} to {@code value}, replacing any value previously mapped to {@code key}. */
+  void put(long key, long value);
+
+  /**
+   * Adds {@code delta} to the value mapped to {@code key}, or maps {@code key} to {@code delta} if
+   * there is no mapping for it, and returns the new value.
+   */
+  @CanIgnoreReturnValue
+  long addTo(long key, long delta);
+
+  /** Removes the mapping for {@code key}, returning {@code true} if there was one. */
+  @CanIgnoreReturnValue
+  boolean remove(long key);
+
+  /** Removes all of the mappings from this map. */
+  void clear();
+
+  /** Calls {@code action} with each mapping in this map, in no particular order. */
+  void forEach(EntryConsumer action);
+
+  /**
+   * Compares the specified object with this map for equality. Returns {@code true} if it is also a
+   * {@code LongLongMap} with the same mappings.
+   */
+  @Override
+  boolean equals(@NullableDecl Object object);
+
+  /**
+   * Returns the hash code for this map: the sum, over its mappings, of {@code Long.hashCode(key) ^
+   * Long.hashCode(value)}, like that of the equivalent {@code Map<Long, Long>}.
+   */
+  @Override
+  int hashCode();
+
+  /** An operation on a mapping of a {@link LongLongMap}. */
+  interface EntryConsumer {
+    /** Performs this operation on the mapping of {@code key} to {@code value}. */
+    void accept(long key, long value);
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.primitives.Ints;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A file of encoded records, memory-mapped for reading, which backs the collections opened by
+ * {@link ImmutableSnapshots}. The layout of the file, whose integers are all big-endian, is:
+ *
+ * <ol>
+ *   <li>the records, in iteration order, each the length of its key, its key, and (for maps) its
+ *       value, which extends to the next record;
+ *   <li>the offset of each record;
+ *   <li>for hashed snapshots, the hash of each record's key, followed by an open-addressing table
+ *       of record indexes plus one, zero for empty slots, probed linearly from the key's hash;
+ *   <li>a footer: the kind of snapshot, the number of records, the size of the table, the offset of
+ *       the record offsets, the format version, and a magic number.
+ * </ol>
+ *
+ * <p>Files are limited to {@link Integer#MAX_VALUE} bytes, the most that can be mapped at once.
+ */
+@GwtIncompatible
+final class MappedSnapshot {
+  static final int MAP = 0;
+  static final int SET = 1;
+  static final int SORTED_MAP = 2;
+
+  static final int VERSION = 1;
+
+  /** "GSNP", the last four bytes of a snapshot file. */
+  static final int MAGIC = 0x47534e50;
+
+  static final int FOOTER_SIZE = 6 * Ints.BYTES;
+
+  /** The maximum ratio of records to table slots, which keeps probes short. */
+  private static final double LOAD_FACTOR = 0.5;
+
+  static boolean isHashed(int kind) {
+    return kind != SORTED_MAP;
+  }
+
+  /**
+   * Returns the hash of an encoded key. {@link Arrays#hashCode(byte[])} is fully specified, so
+   * files may be read by other JVMs than the one that wrote them.
+   */
+  static int hash(byte[] key) {
+    return Hashing.smear(Arrays.hashCode(key));
+  }
+
+  /** Maps the snapshot in {@code file}, which must be of the given {@code kind}. */
+  static MappedSnapshot open(File file, int kind) throws IOException {
+    ByteBuffer buffer;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long length = channel.size();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot too large to map: " + file);
+      }
+      // the mapping remains valid once the channel is closed
+      buffer = channel.map(MapMode.READ_ONLY, 0, length);
+    } finally {
+      raf.close();
+    }
+    return new MappedSnapshot(buffer, kind, file);
+  }
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int tableSize;
+  private final int offsetsPosition;
+  private final int hashesPosition;
+  private final int tablePosition;
+
+  private MappedSnapshot(ByteBuffer buffer, int kind, File file) throws IOException {
+    int footer = buffer.capacity() - FOOTER_SIZE;
+    if (footer < 0
+        || buffer.getInt(footer + 5 * Ints.BYTES) != MAGIC
+        || buffer.getInt(footer + 4 * Ints.BYTES) != VERSION) {
+      throw new IOException("Not a snapshot file: " + file);
+    }
+    if (buffer.getInt(footer) != kind) {
+      throw new IOException("Wrong kind of snapshot: " + file);
+    }
+    int size = buffer.getInt(footer + Ints.BYTES);
+    int tableSize = buffer.getInt(footer + 2 * Ints.BYTES);
+    int offsetsPosition = buffer.getInt(footer + 3 * Ints.BYTES);
+    boolean validTable =
+        isHashed(kind) ? tableSize > size && Integer.bitCount(tableSize) == 1 : tableSize == 0;
+    long indexSize = (long) size * Ints.BYTES * (isHashed(kind) ? 2 : 1);
+    if (size < 0
+        || offsetsPosition < 0
+        || !validTable
+        || offsetsPosition + indexSize + (long) tableSize * Ints.BYTES != footer) {
+      throw new IOException("Corrupt snapshot file: " + file);
+    }
+    this.buffer = buffer;
+    this.size = size;
+    this.tableSize = tableSize;
+    this.offsetsPosition = offsetsPosition;
+    this.hashesPosition = offsetsPosition + size * Ints.BYTES;
+    this.tablePosition = offsetsPosition + (int) indexSize;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int recordStart(int index) {
+    return buffer.getInt(offsetsPosition + index * Ints.BYTES);
+  }
+
+  private int recordEnd(int index) {
+    return (index + 1 < size) ? recordStart(index + 1) : offsetsPosition;
+  }
+
+  /** Returns a copy of the encoded key of the record at {@code index}. */
+  byte[] key(int index) {
+    checkElementIndex(index, size);
+    int start = recordStart(index);
+    return copy(start + Ints.BYTES, buffer.getInt(start));
+  }
+
+  /** Returns a copy of the encoded value of the record at {@code index}. */
+  byte[] value(int index) {
+    checkElementIndex(index, size);
+    int start = recordStart(index);
+    int valueStart = start + Ints.BYTES + buffer.getInt(start);
+    return copy(valueStart, recordEnd(index) - valueStart);
+  }
+
+  private byte[] copy(int position, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    view.get(bytes);
+    return bytes;
+  }
+
+  /** Returns the index of the record whose encoded key is {@code key}, or -1 if there is none. */
+  int indexOf(byte[] key) {
+    int hash = hash(key);
+    int mask = tableSize - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      int index = buffer.getInt(tablePosition + i * Ints.BYTES) - 1;
+      if (index < 0) {
+        return -1;
+      }
+      if (buffer.getInt(hashesPosition + index * Ints.BYTES) == hash && keyEquals(index, key)) {
+        return index;
+      }
+    }
+  }
+
+  private boolean keyEquals(int index, byte[] key) {
+    int start = recordStart(index);
+    if (buffer.getInt(start) != key.length) {
+      return false;
+    }
+    int position = start + Ints.BYTES;
+    for (int i = 0; i < key.length; i++) {
+      if (buffer.get(position + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a snapshot file of a known number of records, which are added in iteration order. The
+   * encoded keys must be distinct, which {@link #finish} checks for hashed snapshots.
+   */
+  static final class Writer implements Closeable {
+    private final File file;
+    private final DataOutputStream out;
+    private final int kind;
+    private final int[] offsets;
+    @NullableDecl private final int[] hashes;
+    private int count;
+    private long position;
+
+    Writer(File file, int kind, int size) throws IOException {
+      this.file = file;
+      this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      this.kind = kind;
+      this.offsets = new int[size];
+      this.hashes = isHashed(kind) ? new int[size] : null;
+    }
+
+    void add(byte[] key, @NullableDecl byte[] value) throws IOException {
+      checkState(count < offsets.length, "more records than expected: %s", offsets.length + 1);
+      checkArgument((value != null) == (kind != SET), "values are required exactly for maps");
+      long end = position + Ints.BYTES + key.length + ((value == null) ? 0 : value.length);
+      checkArgument(end <= Integer.MAX_VALUE - FOOTER_SIZE, "snapshot too large: %s", end);
+      if (hashes != null) {
+        hashes[count] = hash(key);
+      }
+      offsets[count++] = (int) position;
+      out.writeInt(key.length);
+      out.write(key);
+      if (value != null) {
+        out.write(value);
+      }
+      position = end;
+    }
+
+    /**
+     * Writes the index and footer of the snapshot, and closes the file.
+     *
+     * @throws IllegalArgumentException if two records of a hashed snapshot have the same key
+     */
+    void finish() throws IOException {
+      checkState(count == offsets.length, "fewer records than expected: %s", count);
+      long offsetsPosition = position;
+      for (int offset : offsets) {
+        out.writeInt(offset);
+      }
+      int tableSize = 0;
+      if (hashes != null) {
+        tableSize = PrimitiveMaps.tableSize(count, LOAD_FACTOR);
+        int[] table = new int[tableSize];
+        int mask = tableSize - 1;
+        // the keys are read back from the records only for the rare slots with an equal hash
+        out.flush();
+        RandomAccessFile records = new RandomAccessFile(file, "r");
+        try {
+          for (int index = 0; index < count; index++) {
+            int i = hashes[index] & mask;
+            while (table[i] != 0) {
+              int other = table[i] - 1;
+              checkArgument(
+                  hashes[other] != hashes[index]
+                      || !Arrays.equals(readKey(records, other), readKey(records, index)),
+                  "records %s and %s have the same encoded key",
+                  other,
+                  index);
+              i = (i + 1) & mask;
+            }
+            table[i] = index + 1;
+          }
+        } finally {
+          records.close();
+        }
+        for (int hash : hashes) {
+          out.writeInt(hash);
+        }
+        for (int slot : table) {
+          out.writeInt(slot);
+        }
+      }
+      long length =
+          offsetsPosition
+              + (long) count * Ints.BYTES * ((hashes == null) ? 1 : 2)
+              + (long) tableSize * Ints.BYTES
+              + FOOTER_SIZE;
+      checkArgument(length <= Integer.MAX_VALUE, "snapshot too large: %s", length);
+      out.writeInt(kind);
+      out.writeInt(count);
+      out.writeInt(tableSize);
+      out.writeInt((int) offsetsPosition);
+      out.writeInt(VERSION);
+      out.writeInt(MAGIC);
+      out.close();
+    }
+
+    private byte[] readKey(RandomAccessFile records, int index) throws IOException {
+      records.seek(offsets[index]);
+      byte[] key = new byte[records.readInt()];
+      records.readFully(key);
+      return key;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+import static com.google.common.collect.CollectPreconditions.checkRemove;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.checkerframework.checker.nullness.compatqual.MonotonicNonNullDecl;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * Multiset implementation backed by an open-addressing hash table, which stores the count of each
+ * element unboxed in an {@code int} array parallel to the array of elements. Null elements are
+ * supported.
+ *
+ * <p>Where {@link HashMultiset} holds each distinct element in a {@code HashMap} entry pointing to
+ * a separate counter object, about 50 bytes apiece, this multiset holds it in one slot of each of
+ * the two arrays, which are kept at most three-quarters full: about 11 to 21 bytes apiece (with
+ * compressed references), and no objects besides the arrays. Use it to count large numbers of
+ * distinct elements.
+ *
+ * <p>The iteration order is unspecified, and its iterators fail fast on concurrent modification.
+ * This class is not thread-safe; see {@link ConcurrentObjectIntHashMultiset} for a concurrent
+ * equivalent.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class ObjectIntHashMultiset<E> extends AbstractMultiset<E> implements Serializable {
+
+  /** Creates a new, empty {@code ObjectIntHashMultiset} using the default initial capacity. */
+  public static <E> ObjectIntHashMultiset<E> create() {
+    return new ObjectIntHashMultiset<E>(DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates a new, empty {@code ObjectIntHashMultiset} with the specified expected number of
+   * distinct elements.
+   *
+   * @param distinctElements the expected number of distinct elements
+   * @throws IllegalArgumentException if {@code distinctElements} is negative
+   */
+  public static <E> ObjectIntHashMultiset<E> create(int distinctElements) {
+    return new ObjectIntHashMultiset<E>(checkNonnegative(distinctElements, "distinctElements"));
+  }
+
+  /**
+   * Creates a new {@code ObjectIntHashMultiset} containing the specified elements.
+   *
+   * <p>This implementation is highly efficient when {@code elements} is itself a {@link Multiset}.
+   *
+   * @param elements the elements that the multiset should contain
+   */
+  public static <E> ObjectIntHashMultiset<E> create(Iterable<? extends E> elements) {
+    ObjectIntHashMultiset<E> multiset = create(Multisets.inferDistinctElements(elements));
+    Iterables.addAll(multiset, elements);
+    return multiset;
+  }
+
+  private static final double LOAD_FACTOR = 0.75;
+
+  private static final int DEFAULT_SIZE = 8;
+
+  /** Stands for the null element in the table. */
+  private static final Object NULL = new Object();
+
+  /**
+   * Marks a slot whose element was removed. Probes continue past it, and an insertion may reuse
+   * it; elements are never moved by a removal, so that iterators may remove them.
+   */
+  private static final Object REMOVED = new Object();
+
+  /** The elements, or null for the empty slots and {@link #REMOVED} for the removed ones. */
+  @MonotonicNonNullDecl private transient Object[] elements;
+
+  /** The count of the element in each slot, or zero for the empty and removed slots. */
+  @MonotonicNonNullDecl private transient int[] counts;
+
+  private transient int distinctElements;
+
+  /** The number of slots which are not empty, including the removed ones. */
+  private transient int usedSlots;
+
+  /*
+   * Using a long lets us avoid the need for overflow checking and ensures that size() will function
+   * correctly even if the multiset had once been larger than Integer.MAX_VALUE.
+   */
+  private transient long size;
+
+  /** Incremented when elements are added or removed, so that iterators may fail fast. */
+  private transient int modCount;
+
+  private ObjectIntHashMultiset(int distinctElements) {
+    init(distinctElements);
+  }
+
+  /** Pseudoconstructor for serialization support. */
+  private void init(int distinctElements) {
+    int tableSize = PrimitiveMaps.tableSize(distinctElements, LOAD_FACTOR);
+    elements = new Object[tableSize];
+    counts = new int[tableSize];
+  }
+
+  private static Object maskNull(@NullableDecl Object element) {
+    return (element == null) ? NULL : element;
+  }
+
+  @SuppressWarnings("unchecked") // only Es, and NULL for null, are stored in elements
+  @NullableDecl
+  private E elementAt(int index) {
+    Object element = elements[index];
+    return (element == NULL) ? null : (E) element;
+  }
+
+  /** Returns the slot holding {@code element}, or -1 if it is not in the multiset. */
+  private int indexOf(@NullableDecl Object element) {
+    Object key = maskNull(element);
+    Object[] elements = this.elements;
+    int mask = elements.length - 1;
+    for (int i = Hashing.smear(key.hashCode()) & mask; ; i = (i + 1) & mask) {
+      Object candidate = elements[i];
+      if (candidate == null) {
+        return -1;
+      }
+      if (candidate == key || (candidate != REMOVED && key.equals(candidate))) {
+        return i;
+      }
+    }
+  }
+
+  /** Adds {@code element}, which is not in the multiset, with a positive {@code count}. */
+  private void insert(@NullableDecl E element, int count) {
+    if (Hashing.needsResizing(usedSlots + 1, elements.length, LOAD_FACTOR)
+        || usedSlots + 1 == elements.length) {
+      rehash();
+    }
+    Object key = maskNull(element);
+    int mask = elements.length - 1;
+    int i = Hashing.smear(key.hashCode()) & mask;
+    while (elements[i] != null && elements[i] != REMOVED) {
+      i = (i + 1) & mask;
+    }
+    if (elements[i] == null) {
+      usedSlots++;
+    }
+    elements[i] = key;
+    counts[i] = count;
+    distinctElements++;
+    size += count;
+    modCount++;
+  }
+
+  /**
+   * Rebuilds the table without its removed slots, at a size which leaves room for as many more
+   * distinct elements as it holds.
+   */
+  private void rehash() {
+    Object[] oldElements = elements;
+    int[] oldCounts = counts;
+    int tableSize = PrimitiveMaps.tableSize(2 * distinctElements, LOAD_FACTOR);
+    if (distinctElements + 1 >= tableSize) {
+      throw new IllegalStateException("too many distinct elements: " + distinctElements);
+    }
+    elements = new Object[tableSize];
+    counts = new int[tableSize];
+    int mask = tableSize - 1;
+    for (int j = 0; j < oldElements.length; j++) {
+      Object element = oldElements[j];
+      if (element != null && element != REMOVED) {
+        int i = Hashing.smear(element.hashCode()) & mask;
+        while (elements[i] != null) {
+          i = (i + 1) & mask;
+        }
+        elements[i] = element;
+        counts[i] = oldCounts[j];
+      }
+    }
+    usedSlots = distinctElements;
+  }
+
+  /** Removes the element in the slot at {@code index}, with all of its occurrences. */
+  private void removeAt(int index) {
+    size -= counts[index];
+    counts[index] = 0;
+    distinctElements--;
+    modCount++;
+    int mask = elements.length - 1;
+    if (elements[(index + 1) & mask] == null) {
+      // no probe continues past this slot, nor past any removed slots before it
+      for (int i = index; elements[i] == REMOVED || i == index; i = (i - 1) & mask) {
+        elements[i] = null;
+        usedSlots--;
+      }
+    } else {
+      elements[index] = REMOVED;
+    }
+  }
+
+  @Override
+  public int count(@NullableDecl Object element) {
+    int index = indexOf(element);
+    return (index < 0) ? 0 : counts[index];
+  }
+
+  @Override
+  public int size() {
+    return Ints.saturatedCast(size);
+  }
+
+  @Override
+  int distinctElements() {
+    return distinctElements;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if the call would result in more than {@link
+   *     Integer#MAX_VALUE} occurrences of {@code element} in this multiset.
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public int add(@NullableDecl E element, int occurrences) {
+    if (occurrences == 0) {
+      return count(element);
+    }
+    checkArgument(occurrences > 0, "occurrences cannot be negative: %s", occurrences);
+    int index = indexOf(element);
+    if (index < 0) {
+      insert(element, occurrences);
+      return 0;
+    }
+    int oldCount = counts[index];
+    long newCount = (long) oldCount + (long) occurrences;
+    checkArgument(newCount <= Integer.MAX_VALUE, "too many occurrences: %s", newCount);
+    counts[index] = (int) newCount;
+    size += occurrences;
+    return oldCount;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public int remove(@NullableDecl Object element, int occurrences) {
+    if (occurrences == 0) {
+      return count(element);
+    }
+    checkArgument(occurrences > 0, "occurrences cannot be negative: %s", occurrences);
+    int index = indexOf(element);
+    if (index < 0) {
+      return 0;
+    }
+    int oldCount = counts[index];
+    if (oldCount > occurrences) {
+      counts[index] = oldCount - occurrences;
+      size -= occurrences;
+    } else {
+      removeAt(index);
+    }
+    return oldCount;
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public int setCount(@NullableDecl E element, int count) {
+    checkNonnegative(count, "count");
+    int index = indexOf(element);
+    if (index < 0) {
+      if (count > 0) {
+        insert(element, count);
+      }
+      return 0;
+    }
+    int oldCount = counts[index];
+    if (count == 0) {
+      removeAt(index);
+    } else {
+      counts[index] = count;
+      size += count - oldCount;
+    }
+    return oldCount;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(elements, null);
+    Arrays.fill(counts, 0);
+    distinctElements = 0;
+    usedSlots = 0;
+    size = 0L;
+    modCount++;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new MultisetIterator();
+  }
+
+  /** Returns the first slot at or after {@code from} which holds an element, or -1. */
+  private int nextIndex(int from) {
+    for (int i = from; i < counts.length; i++) {
+      if (counts[i] > 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void checkForConcurrentModification(int expectedModCount) {
+    if (modCount != expectedModCount) {
+      throw new ConcurrentModificationException();
+    }
+  }
+
+  /*
+   * Not subclassing Itr because remove() only removes the element once its last occurrence is
+   * removed.
+   */
+  private final class MultisetIterator implements Iterator<E> {
+    int expectedModCount = modCount;
+    int nextIndex = nextIndex(0);
+    int currentIndex = -1;
+    int occurrencesLeft;
+    boolean canRemove;
+
+    @Override
+    public boolean hasNext() {
+      return occurrencesLeft > 0 || nextIndex >= 0;
+    }
+
+    @Override
+    public E next() {
+      checkForConcurrentModification(expectedModCount);
+      if (occurrencesLeft == 0) {
+        if (nextIndex < 0) {
+          throw new NoSuchElementException();
+        }
+        currentIndex = nextIndex;
+        nextIndex = nextIndex(currentIndex + 1);
+        occurrencesLeft = counts[currentIndex];
+      }
+      occurrencesLeft--;
+      canRemove = true;
+      return elementAt(currentIndex);
+    }
+
+    @Override
+    public void remove() {
+      checkForConcurrentModification(expectedModCount);
+      checkRemove(canRemove);
+      int count = counts[currentIndex];
+      if (count <= 0) {
+        throw new ConcurrentModificationException();
+      }
+      if (count == 1) {
+        removeAt(currentIndex);
+        expectedModCount = modCount;
+      } else {
+        counts[currentIndex] = count - 1;
+        size--;
+      }
+      canRemove = false;
+    }
+  }
+
+  @Override
+  Iterator<E> elementIterator() {
+    return new Itr<E>() {
+      @Override
+      E output(int index) {
+        return elementAt(index);
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Invoking {@link Multiset.Entry#getCount} on an entry in the returned set always returns the
+   * current count of that element in the multiset, as opposed to the count at the time the entry
+   * was retrieved.
+   */
+  @Override
+  Iterator<Entry<E>> entryIterator() {
+    return new Itr<Entry<E>>() {
+      @Override
+      Entry<E> output(int index) {
+        return new MultisetEntry(index);
+      }
+    };
+  }
+
+  private final class MultisetEntry extends Multisets.AbstractEntry<E> {
+    @NullableDecl private final E element;
+    private int lastKnownIndex;
+
+    MultisetEntry(int index) {
+      this.element = elementAt(index);
+      this.lastKnownIndex = index;
+    }
+
+    @Override
+    public E getElement() {
+      return element;
+    }
+
+    @Override
+    public int getCount() {
+      Object key = maskNull(element);
+      if (lastKnownIndex < 0
+          || lastKnownIndex >= elements.length
+          || elements[lastKnownIndex] != key) {
+        lastKnownIndex = indexOf(element);
+      }
+      return (lastKnownIndex < 0) ? 0 : counts[lastKnownIndex];
+    }
+  }
+
+  /** Iterates over the slots holding elements, which are not moved by the iterator's removals. */
+  private abstract class Itr<T> implements Iterator<T> {
+    int expectedModCount = modCount;
+    int nextIndex = nextIndex(0);
+    int indexToRemove = -1;
+
+    abstract T output(int index);
+
+    @Override
+    public boolean hasNext() {
+      return nextIndex >= 0;
+    }
+
+    @Override
+    public T next() {
+      checkForConcurrentModification(expectedModCount);
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      indexToRemove = nextIndex;
+      nextIndex = nextIndex(nextIndex + 1);
+      return output(indexToRemove);
+    }
+
+    @Override
+    public void remove() {
+      checkForConcurrentModification(expectedModCount);
+      checkRemove(indexToRemove >= 0);
+      removeAt(indexToRemove);
+      expectedModCount = modCount;
+      indexToRemove = -1;
+    }
+  }
+
+  @VisibleForTesting
+  int tableSize() {
+    return elements.length;
+  }
+
+  /**
+   * @serialData the number of distinct elements, the first element, its count, the second element,
+   *     its count, and so on
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    Serialization.writeMultiset(this, stream);
+  }
+
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    int distinctElements = Serialization.readCount(stream);
+    init(distinctElements);
+    Serialization.populateMultiset(this, stream, distinctElements);
+  }
+
+  private static final long serialVersionUID = 0;
+}
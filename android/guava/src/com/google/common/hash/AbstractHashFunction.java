@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkPositionIndexes;
 import com.google.errorprone.annotations.Immutable;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * Skeleton implementation of {@link HashFunction} in terms of {@link #newHasher()}.
@@ -70,6 +71,31 @@ abstract class AbstractHashFunction implements HashFunction {
     return newHasher(input.remaining()).putBytes(input).hash();
   }
 
+  @Override
+  public void hashInts(int[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hashInt(inputs[i]).padToLong();
+    }
+  }
+
+  @Override
+  public void hashLongs(long[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hashLong(inputs[i]).padToLong();
+    }
+  }
+
+  @Override
+  public void hashUnencodedChars(List<? extends CharSequence> inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.size());
+    int i = 0;
+    for (CharSequence input : inputs) {
+      results[i++] = hashUnencodedChars(input).padToLong();
+    }
+  }
+
   @Override
   public Hasher newHasher(int expectedInputSize) {
     checkArgument(
@@ -15,12 +15,12 @@
 package com.google.common.hash;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.hash.LittleEndianByteArray.load64;
 
 import com.google.common.math.LongMath;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 import java.math.RoundingMode;
-import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLongArray;
 import org.checkerframework.checker.nullness.compatqual.NullableDecl;
 
@@ -45,7 +45,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
   MURMUR128_MITZ_32() {
     @Override
     public <T> boolean put(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits) {
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
       long bitSize = bits.bitSize();
       long hash64 = Hashing.murmur3_128().hashObject(object, funnel).asLong();
       int hash1 = (int) hash64;
@@ -65,7 +65,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
 
     @Override
     public <T> boolean mightContain(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits) {
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
       long bitSize = bits.bitSize();
       long hash64 = Hashing.murmur3_128().hashObject(object, funnel).asLong();
       int hash1 = (int) hash64;
@@ -93,7 +93,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
   MURMUR128_MITZ_64() {
     @Override
     public <T> boolean put(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits) {
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
       long bitSize = bits.bitSize();
       byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
       long hash1 = lowerEight(bytes);
@@ -111,7 +111,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
 
     @Override
     public <T> boolean mightContain(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits) {
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
       long bitSize = bits.bitSize();
       byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
       long hash1 = lowerEight(bytes);
@@ -137,15 +137,163 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
       return Longs.fromBytes(
           bytes[15], bytes[14], bytes[13], bytes[12], bytes[11], bytes[10], bytes[9], bytes[8]);
     }
+  },
+  /**
+   * A blocked Bloom filter, which confines the bits of each element to one block of 512 bits, the
+   * size of a typical cache line, so that each operation touches one or two cache lines rather than
+   * as many as {@code numHashFunctions}. See "Cache-, Hash- and Space-Efficient Bloom Filters" by
+   * Felix Putze, Peter Sanders and Johannes Singler.
+   *
+   * <p>The lower half of {@link Hashing#murmur3_128} chooses the block, and the upper half chooses
+   * the bits within it: each bit is the top 9 bits of the upper half, which is multiplied by an odd
+   * constant, 2^64 divided by the golden ratio, before choosing the next bit. This is cheaper than
+   * double hashing modulo the block size, but doesn't ensure that the bits of an element are
+   * distinct; with the usual numbers of hash functions, coinciding bits are rare. The bit array
+   * must hold a whole number of blocks.
+   */
+  MURMUR128_BLOCKED_512() {
+    @Override
+    public <T> boolean put(
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
+      byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+      long blockStart = blockStart(load64(bytes, 0), bits);
+      long bitHash = load64(bytes, 8);
+
+      boolean bitsChanged = false;
+      for (int i = 0; i < numHashFunctions; i++) {
+        bitsChanged |= bits.set(blockStart + (bitHash >>> -9));
+        bitHash *= 0x9e3779b97f4a7c15L;
+      }
+      return bitsChanged;
+    }
+
+    @Override
+    public <T> boolean mightContain(
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits) {
+      byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+      long blockStart = blockStart(load64(bytes, 0), bits);
+      long bitHash = load64(bytes, 8);
+
+      for (int i = 0; i < numHashFunctions; i++) {
+        if (!bits.get(blockStart + (bitHash >>> -9))) {
+          return false;
+        }
+        bitHash *= 0x9e3779b97f4a7c15L;
+      }
+      return true;
+    }
+
+    private /* static */ long blockStart(long hash1, BitArray bits) {
+      return ((hash1 & Long.MAX_VALUE) % (bits.bitSize() / BLOCK_BITS)) * BLOCK_BITS;
+    }
   };
 
+  /** The number of bits in a block of {@link #MURMUR128_BLOCKED_512}. */
+  static final int BLOCK_BITS = 512;
+
+  /**
+   * An array of bits which may be set concurrently, but never cleared. Bit {@code i} is bit {@code
+   * i % 64} of the long at index {@code i / 64}, as in the serial form of {@link BloomFilter}.
+   */
+  abstract static class BitArray {
+    /** Returns true if the bit changed value. */
+    abstract boolean set(long bitIndex);
+
+    abstract boolean get(long bitIndex);
+
+    /** Number of longs holding the bits. */
+    abstract int dataLength();
+
+    /** Returns the long holding bits {@code 64 * index} through {@code 64 * index + 63}. */
+    abstract long getLong(int index);
+
+    /**
+     * Number of set bits (1s).
+     *
+     * <p>Note that because of concurrent set calls and uses of atomics, this bitCount is a (very)
+     * close *estimate* of the actual number of bits set.
+     */
+    abstract long bitCount();
+
+    /** Number of bits */
+    long bitSize() {
+      return (long) dataLength() * Long.SIZE;
+    }
+
+    /**
+     * Returns the bits as an array of longs. If threads are setting bits while this method is
+     * executing, the array is a "rolling snapshot" of the state of the bit array.
+     */
+    long[] toLongArray() {
+      long[] array = new long[dataLength()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = getLong(i);
+      }
+      return array;
+    }
+
+    /** Returns a copy of this bit array, on the heap. */
+    LockFreeBitArray copy() {
+      return new LockFreeBitArray(toLongArray());
+    }
+
+    /**
+     * Combines the two BitArrays using bitwise OR.
+     *
+     * <p>NOTE: Because of the use of atomics, if the other BitArray is being mutated while this
+     * operation is executing, not all of those new 1's may be set in the final state of this
+     * BitArray. The ONLY guarantee provided is that all the bits that were set in the other
+     * BitArray at the start of this method will be set in this BitArray at the end of this method.
+     */
+    void putAll(BitArray other) {
+      checkArgument(
+          dataLength() == other.dataLength(),
+          "BitArrays must be of equal length (%s != %s)",
+          dataLength(),
+          other.dataLength());
+      for (int i = 0; i < dataLength(); i++) {
+        long otherLong = other.getLong(i);
+        for (long bits = otherLong & ~getLong(i); bits != 0; bits &= bits - 1) {
+          set(i * (long) Long.SIZE + Long.numberOfTrailingZeros(bits));
+        }
+      }
+    }
+
+    @Override
+    public final boolean equals(@NullableDecl Object o) {
+      if (o instanceof BitArray) {
+        BitArray that = (BitArray) o;
+        if (dataLength() != that.dataLength()) {
+          return false;
+        }
+        for (int i = 0; i < dataLength(); i++) {
+          if (getLong(i) != that.getLong(i)) {
+            return false;
+          }
+        }
+        return true;
+      }
+      return false;
+    }
+
+    /** Returns {@link java.util.Arrays#hashCode(long[])} of {@link #toLongArray}. */
+    @Override
+    public final int hashCode() {
+      int result = 1;
+      for (int i = 0; i < dataLength(); i++) {
+        result = 31 * result + Longs.hashCode(getLong(i));
+      }
+      return result;
+    }
+  }
+
   /**
    * Models a lock-free array of bits.
    *
    * <p>We use this instead of java.util.BitSet because we need access to the array of longs and we
    * need compare-and-swap.
    */
-  static final class LockFreeBitArray {
+  static final class LockFreeBitArray extends BitArray {
     private static final int LONG_ADDRESSABLE_BITS = 6;
     final AtomicLongArray data;
     private final LongAddable bitCount;
@@ -166,7 +314,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
       this.bitCount.add(bitCount);
     }
 
-    /** Returns true if the bit changed value. */
+    @Override
     boolean set(long bitIndex) {
       if (get(bitIndex)) {
         return false;
@@ -190,6 +338,7 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
       return true;
     }
 
+    @Override
     boolean get(long bitIndex) {
       return (data.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
     }
@@ -207,44 +356,36 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
       return array;
     }
 
-    /** Number of bits */
-    long bitSize() {
-      return (long) data.length() * Long.SIZE;
+    @Override
+    int dataLength() {
+      return data.length();
+    }
+
+    @Override
+    long getLong(int index) {
+      return data.get(index);
     }
 
     /**
-     * Number of set bits (1s).
+     * {@inheritDoc}
      *
-     * <p>Note that because of concurrent set calls and uses of atomics, this bitCount is a (very)
-     * close *estimate* of the actual number of bits set. It's not possible to do better than an
-     * estimate without locking. Note that the number, if not exactly accurate, is *always*
-     * underestimating, never overestimating.
+     * <p>It's not possible to do better than an estimate without locking. Note that the number, if
+     * not exactly accurate, is *always* underestimating, never overestimating.
      */
+    @Override
     long bitCount() {
       return bitCount.sum();
     }
 
-    LockFreeBitArray copy() {
-      return new LockFreeBitArray(toPlainArray(data));
-    }
-
-    /**
-     * Combines the two BitArrays using bitwise OR.
-     *
-     * <p>NOTE: Because of the use of atomics, if the other LockFreeBitArray is being mutated while
-     * this operation is executing, not all of those new 1's may be set in the final state of this
-     * LockFreeBitArray. The ONLY guarantee provided is that all the bits that were set in the other
-     * LockFreeBitArray at the start of this method will be set in this LockFreeBitArray at the end
-     * of this method.
-     */
-    void putAll(LockFreeBitArray other) {
+    @Override
+    void putAll(BitArray other) {
       checkArgument(
-          data.length() == other.data.length(),
+          data.length() == other.dataLength(),
           "BitArrays must be of equal length (%s != %s)",
           data.length(),
-          other.data.length());
+          other.dataLength());
       for (int i = 0; i < data.length(); i++) {
-        long otherLong = other.data.get(i);
+        long otherLong = other.getLong(i);
 
         long ourLongOld;
         long ourLongNew;
@@ -264,21 +405,5 @@ enum BloomFilterStrategies implements BloomFilter.Strategy {
         }
       }
     }
-
-    @Override
-    public boolean equals(@NullableDecl Object o) {
-      if (o instanceof LockFreeBitArray) {
-        LockFreeBitArray lockFreeBitArray = (LockFreeBitArray) o;
-        // TODO(lowasser): avoid allocation here
-        return Arrays.equals(toPlainArray(data), toPlainArray(lockFreeBitArray.data));
-      }
-      return false;
-    }
-
-    @Override
-    public int hashCode() {
-      // TODO(lowasser): avoid allocation here
-      return Arrays.hashCode(toPlainArray(data));
-    }
   }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilterStrategies.BitArray;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * A {@link BitArray} stored outside the heap, in direct byte buffers holding the longs of the
+ * serial form of {@link BloomFilter} in big-endian order. Bit {@code i} is thus bit {@code i % 8}
+ * of byte {@code 8 * (i / 64) + 7 - (i % 64) / 8}. The buffers may map a file, to which set bits
+ * are then written through.
+ *
+ * <p>The longs are divided among buffers of at most {@link #LONGS_PER_BUFFER} longs, since a {@code
+ * ByteBuffer} holds fewer than 2^31 bytes. Bytes are read and written while holding their buffer's
+ * lock, since Android's {@code sun.misc.Unsafe} cannot compare-and-swap memory outside the heap.
+ */
+final class ByteBufferBitArray extends BitArray {
+  /** The number of longs in each buffer but the last, so that each buffer holds 1 GiB. */
+  static final int LONGS_PER_BUFFER = 1 << 27;
+
+  private final ByteBuffer[] buffers;
+
+  private final int longsPerBufferShift;
+  private final int dataLength;
+  private final boolean readOnly;
+
+  /** The number of bits set by this array, as opposed to set in the buffers beforehand. */
+  private final LongAddable bitsSet = LongAddables.create();
+
+  /** The number of bits set in the buffers beforehand, or -1 if they haven't been counted yet. */
+  private volatile long initialBitCount = -1;
+
+  /** Creates a bit array stored in the given direct buffer, whose capacity is a number of longs. */
+  ByteBufferBitArray(ByteBuffer data) {
+    this(split(data, LONGS_PER_BUFFER), LONGS_PER_BUFFER);
+  }
+
+  /**
+   * Creates a bit array stored in the given direct buffers, each but the last of which holds
+   * exactly {@code longsPerBuffer} longs.
+   */
+  @VisibleForTesting
+  ByteBufferBitArray(ByteBuffer[] buffers, int longsPerBuffer) {
+    checkArgument(buffers.length > 0, "no buffers");
+    checkArgument(
+        Integer.bitCount(longsPerBuffer) == 1,
+        "longsPerBuffer (%s) must be a power of two",
+        longsPerBuffer);
+    long dataLength = 0;
+    boolean readOnly = false;
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = buffers[i];
+      checkArgument(buffer.isDirect(), "buffer must be direct");
+      checkArgument(
+          (i == buffers.length - 1)
+              ? buffer.capacity() > 0 && buffer.capacity() <= longsPerBuffer * 8L
+              : buffer.capacity() == longsPerBuffer * 8L,
+          "buffer %s has %s bytes, but should have %s",
+          i,
+          buffer.capacity(),
+          longsPerBuffer * 8L);
+      checkArgument(buffer.capacity() % 8 == 0, "buffer must hold a whole number of longs");
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      dataLength += buffer.capacity() / 8;
+      readOnly |= buffer.isReadOnly();
+    }
+    checkArgument(dataLength <= Integer.MAX_VALUE, "too many longs: %s", dataLength);
+    this.buffers = buffers;
+    this.longsPerBufferShift = Integer.numberOfTrailingZeros(longsPerBuffer);
+    this.dataLength = (int) dataLength;
+    this.readOnly = readOnly;
+  }
+
+  private static ByteBuffer[] split(ByteBuffer data, int longsPerBuffer) {
+    long bytesPerBuffer = longsPerBuffer * 8L;
+    ByteBuffer[] buffers = new ByteBuffer[(int) ((data.capacity() - 1) / bytesPerBuffer) + 1];
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = data.duplicate();
+      buffer.position((int) (i * bytesPerBuffer));
+      buffer.limit((int) Math.min(data.capacity(), (i + 1) * bytesPerBuffer));
+      buffers[i] = buffer.slice();
+    }
+    return buffers;
+  }
+
+  @Override
+  boolean set(long bitIndex) {
+    if (readOnly) {
+      throw new ReadOnlyBufferException();
+    }
+    if (get(bitIndex)) {
+      return false;
+    }
+    int longIndex = (int) (bitIndex >>> 6);
+    int bufferIndex = longIndex >>> longsPerBufferShift;
+    int byteIndex = byteIndex(longIndex, bitIndex);
+    int mask = 1 << (bitIndex & 7);
+    ByteBuffer buffer = buffers[bufferIndex];
+    synchronized (buffer) {
+      byte b = buffer.get(byteIndex);
+      if ((b & mask) != 0) {
+        return false;
+      }
+      buffer.put(byteIndex, (byte) (b | mask));
+    }
+    bitsSet.increment();
+    return true;
+  }
+
+  @Override
+  boolean get(long bitIndex) {
+    int longIndex = (int) (bitIndex >>> 6);
+    int bufferIndex = longIndex >>> longsPerBufferShift;
+    int byteIndex = byteIndex(longIndex, bitIndex);
+    ByteBuffer buffer = buffers[bufferIndex];
+    int b;
+    synchronized (buffer) {
+      b = buffer.get(byteIndex);
+    }
+    return (b & (1 << (bitIndex & 7))) != 0;
+  }
+
+  /** Returns the index, within its buffer, of the byte holding the bit. */
+  private int byteIndex(int longIndex, long bitIndex) {
+    int longInBuffer = longIndex & ((1 << longsPerBufferShift) - 1);
+    return (longInBuffer << 3) + 7 - (((int) bitIndex & 63) >>> 3);
+  }
+
+  @Override
+  int dataLength() {
+    return dataLength;
+  }
+
+  @Override
+  long getLong(int index) {
+    ByteBuffer buffer = buffers[index >>> longsPerBufferShift];
+    int byteIndex = (index & ((1 << longsPerBufferShift) - 1)) << 3;
+    synchronized (buffer) {
+      return buffer.getLong(byteIndex);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The first call counts the bits already set in the buffers, reading all of them. Bits set
+   * while they are being counted may be counted twice.
+   */
+  @Override
+  long bitCount() {
+    long initialBitCount = this.initialBitCount;
+    if (initialBitCount < 0) {
+      initialBitCount = -bitsSet.sum();
+      for (int i = 0; i < dataLength; i++) {
+        initialBitCount += Long.bitCount(getLong(i));
+      }
+      initialBitCount = Math.max(initialBitCount, 0);
+      this.initialBitCount = initialBitCount;
+    }
+    return initialBitCount + bitsSet.sum();
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.hash.LittleEndianByteArray.load64;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.primitives.Longs;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A Count-Min sketch, which estimates how many times each instance of {@code T} was added to it, in
+ * a fixed amount of space. Estimates are never too low: for an element added {@code n} times, of
+ * {@code N} additions in total, the estimate is at least {@code n}, and with probability at least
+ * {@code 1 - delta} at most {@code n + epsilon * N}.
+ *
+ * <p>The sketch is a table of {@code ceil(ln(1 / delta))} rows of {@code ceil(e / epsilon)}
+ * counters. Each element is hashed with {@link Hashing#murmur3_128()} to one counter in each row,
+ * and adding an element increments all of its counters. Its estimated count is the least of them.
+ * See "An Improved Data Stream Summary: The Count-Min Sketch and its Applications" by Graham
+ * Cormode and S. Muthukrishnan.
+ *
+ * <p>To find the elements added most often, keep those whose estimated count, as returned by
+ * {@link #add(Object, long)}, exceeds a threshold; elements added less often than {@code epsilon
+ * * N} times cannot be told apart from elements never added.
+ *
+ * <p>Sketches with the same funnel and dimensions can be merged with {@link #putAll}, so that
+ * elements can be counted by several machines, each with its own sketch.
+ *
+ * <p>Count-Min sketches are serializable. They also support a more compact serial representation
+ * via the {@link #writeTo} and {@link #readFrom} methods.
+ *
+ * <p>This class is thread-safe, like {@link BloomFilter}. An estimate made while the element is
+ * concurrently added may or may not include that addition.
+ *
+ * @param <T> the type of instances that the {@code CountMinSketch} accepts
+ * @since NEXT
+ */
+@Beta
+public final class CountMinSketch<T> implements Serializable {
+  /** The number of rows of counters. */
+  private final int depth;
+
+  /** The number of counters in each row. */
+  private final int width;
+
+  /** The counters, row by row. */
+  private final AtomicLongArray counters;
+
+  /** The number of times elements have been added. */
+  private final LongAddable totalCount;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private CountMinSketch(
+      int depth,
+      int width,
+      AtomicLongArray counters,
+      LongAddable totalCount,
+      Funnel<? super T> funnel) {
+    this.depth = depth;
+    this.width = width;
+    this.counters = checkNotNull(counters);
+    this.totalCount = checkNotNull(totalCount);
+    this.funnel = checkNotNull(funnel);
+  }
+
+  /**
+   * Creates an empty {@link CountMinSketch} whose estimates exceed the true counts by at most
+   * {@code epsilon} times the total count, with probability at least {@code 1 - delta}.
+   *
+   * <p>The constructed {@code CountMinSketch} will be serializable if the provided {@code
+   * Funnel<T>} is.
+   *
+   * <p>It is recommended that the funnel be implemented as a Java enum. This has the benefit of
+   * ensuring proper serialization and deserialization, which is important since {@link #equals}
+   * also relies on object identity of funnels.
+   *
+   * @param funnel the funnel of T's that the constructed {@code CountMinSketch} will use
+   * @param epsilon the error of estimates, relative to the total count (must be positive and less
+   *     than 1.0). The sketch has {@code ceil(e / epsilon)} counters in each row.
+   * @param delta the probability that an estimate exceeds that error (must be positive and less
+   *     than 1.0). The sketch has {@code ceil(ln(1 / delta))} rows.
+   * @return a {@code CountMinSketch}
+   */
+  public static <T> CountMinSketch<T> create(
+      Funnel<? super T> funnel, double epsilon, double delta) {
+    checkCreateArguments(funnel, epsilon, delta);
+    int width = optimalWidth(epsilon);
+    int depth = optimalDepth(delta);
+    return new CountMinSketch<T>(
+        depth, width, new AtomicLongArray(depth * width), LongAddables.create(), funnel);
+  }
+
+  private static void checkCreateArguments(Funnel<?> funnel, double epsilon, double delta) {
+    checkNotNull(funnel);
+    checkArgument(epsilon > 0.0, "Epsilon (%s) must be > 0.0", epsilon);
+    checkArgument(epsilon < 1.0, "Epsilon (%s) must be < 1.0", epsilon);
+    checkArgument(delta > 0.0, "Delta (%s) must be > 0.0", delta);
+    checkArgument(delta < 1.0, "Delta (%s) must be < 1.0", delta);
+    long width = (long) Math.ceil(Math.E / epsilon);
+    int depth = optimalDepth(delta);
+    checkArgument(
+        width * depth <= Integer.MAX_VALUE,
+        "CountMinSketch of %s rows of %s counters is too large",
+        depth,
+        width);
+  }
+
+  /** Returns the number of counters per row for which an estimate exceeds the error rarely. */
+  private static int optimalWidth(double epsilon) {
+    return (int) Math.ceil(Math.E / epsilon);
+  }
+
+  /** Returns the number of rows for which an estimate exceeds the error with probability delta. */
+  @VisibleForTesting
+  static int optimalDepth(double delta) {
+    return Math.max(1, (int) Math.ceil(-Math.log(delta)));
+  }
+
+  /**
+   * Creates a new {@code CountMinSketch} that's a copy of this instance. The new instance is equal
+   * to this instance but shares no mutable state.
+   */
+  public CountMinSketch<T> copy() {
+    AtomicLongArray counters = new AtomicLongArray(this.counters.length());
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, this.counters.get(i));
+    }
+    LongAddable totalCount = LongAddables.create();
+    totalCount.add(this.totalCount.sum());
+    return new CountMinSketch<T>(depth, width, counters, totalCount, funnel);
+  }
+
+  /**
+   * Adds an occurrence of an element to this {@code CountMinSketch}.
+   *
+   * @return the estimated count of the element, including this occurrence
+   */
+  @CanIgnoreReturnValue
+  public long add(T object) {
+    return add(object, 1);
+  }
+
+  /**
+   * Adds a number of occurrences of an element to this {@code CountMinSketch}.
+   *
+   * @param occurrences the number of occurrences of the element to add. May be zero, in which case
+   *     no change will be made.
+   * @return the estimated count of the element, including these occurrences
+   * @throws IllegalArgumentException if {@code occurrences} is negative
+   */
+  @CanIgnoreReturnValue
+  public long add(T object, long occurrences) {
+    checkArgument(occurrences >= 0, "occurrences cannot be negative: %s", occurrences);
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = load64(bytes, 0);
+    long hash2 = load64(bytes, 8);
+    totalCount.add(occurrences);
+    long estimate = Long.MAX_VALUE;
+    long combinedHash = hash1;
+    for (int row = 0; row < depth; row++) {
+      long count = counters.addAndGet(counter(row, combinedHash), occurrences);
+      estimate = Math.min(estimate, count);
+      combinedHash += hash2;
+    }
+    return estimate;
+  }
+
+  /**
+   * Returns an estimate of the number of times the element was added to this {@code
+   * CountMinSketch}. It is never less than that number, and is very likely at most {@code epsilon}
+   * times the {@linkplain #totalCount total count} more.
+   */
+  public long estimateCount(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = load64(bytes, 0);
+    long hash2 = load64(bytes, 8);
+    long estimate = Long.MAX_VALUE;
+    long combinedHash = hash1;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters.get(counter(row, combinedHash)));
+      combinedHash += hash2;
+    }
+    return estimate;
+  }
+
+  /** Returns the index of the counter in the given row which the given hash selects. */
+  private int counter(int row, long combinedHash) {
+    return row * width + (int) ((combinedHash & Long.MAX_VALUE) % width);
+  }
+
+  /** Returns the number of times elements have been added to this {@code CountMinSketch}. */
+  public long totalCount() {
+    return totalCount.sum();
+  }
+
+  /** Returns the number of counters in this sketch. */
+  @VisibleForTesting
+  long counterCount() {
+    return counters.length();
+  }
+
+  /**
+   * Determines whether a given sketch is compatible with this one, meaning that they can be merged
+   * with {@link #putAll}. Two sketches are compatible if they have the same dimensions and equal
+   * funnels.
+   *
+   * @param that sketch to check for compatibility
+   */
+  public boolean isCompatible(CountMinSketch<T> that) {
+    checkNotNull(that);
+    return this != that
+        && this.depth == that.depth
+        && this.width == that.width
+        && this.funnel.equals(that.funnel);
+  }
+
+  /**
+   * Combines this sketch with another one, so that it estimates the counts of the elements added to
+   * either. The sketches must be compatible.
+   *
+   * @param that the sketch to combine this one with. It is not mutated.
+   * @throws IllegalArgumentException if {@code isCompatible(that) == false}
+   */
+  public void putAll(CountMinSketch<T> that) {
+    checkNotNull(that);
+    checkArgument(this != that, "Cannot combine a CountMinSketch with itself.");
+    checkArgument(
+        this.depth == that.depth && this.width == that.width,
+        "CountMinSketches must have the same dimensions (%s x %s != %s x %s)",
+        this.depth,
+        this.width,
+        that.depth,
+        that.width);
+    checkArgument(
+        this.funnel.equals(that.funnel),
+        "Cannot combine CountMinSketches that have different funnels: %s != %s",
+        this.funnel,
+        that.funnel);
+    for (int i = 0; i < counters.length(); i++) {
+      long count = that.counters.get(i);
+      if (count != 0) {
+        counters.addAndGet(i, count);
+      }
+    }
+    totalCount.add(that.totalCount.sum());
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof CountMinSketch) {
+      CountMinSketch<?> that = (CountMinSketch<?>) object;
+      if (this.depth != that.depth
+          || this.width != that.width
+          || !this.funnel.equals(that.funnel)
+          || this.totalCount.sum() != that.totalCount.sum()) {
+        return false;
+      }
+      for (int i = 0; i < counters.length(); i++) {
+        if (this.counters.get(i) != that.counters.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 1;
+    for (int i = 0; i < counters.length(); i++) {
+      result = 31 * result + Longs.hashCode(counters.get(i));
+    }
+    return Objects.hashCode(depth, width, funnel, result);
+  }
+
+  private Object writeReplace() {
+    return new SerialForm<T>(this);
+  }
+
+  private static class SerialForm<T> implements Serializable {
+    final int depth;
+    final int width;
+    final long[] counters;
+    final long totalCount;
+    final Funnel<? super T> funnel;
+
+    SerialForm(CountMinSketch<T> cms) {
+      this.depth = cms.depth;
+      this.width = cms.width;
+      this.counters = new long[cms.counters.length()];
+      for (int i = 0; i < counters.length; i++) {
+        counters[i] = cms.counters.get(i);
+      }
+      this.totalCount = cms.totalCount.sum();
+      this.funnel = cms.funnel;
+    }
+
+    Object readResolve() {
+      LongAddable totalCount = LongAddables.create();
+      totalCount.add(this.totalCount);
+      return new CountMinSketch<T>(depth, width, new AtomicLongArray(counters), totalCount, funnel);
+    }
+
+    private static final long serialVersionUID = 1;
+  }
+
+  /**
+   * Writes this {@code CountMinSketch} to an output stream, with a custom format (not Java
+   * serialization). Counters are written as varints, so that a sketch of small counts is compact.
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written CountMinSketch.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 big endian int, the number of rows
+    // 1 big endian int, the number of counters in each row
+    // 1 big endian long, the total count
+    // N unsigned varints, the counters, row by row
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeInt(depth);
+    dout.writeInt(width);
+    dout.writeLong(totalCount.sum());
+    for (int i = 0; i < counters.length(); i++) {
+      writeUnsignedVarLong(dout, counters.get(i));
+    }
+  }
+
+  private static void writeUnsignedVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte(((int) value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readUnsignedVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into a {@code
+   * CountMinSketch}.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original sketch!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a CountMinSketch serialized using the {@linkplain #writeTo(OutputStream)}
+   *     method.
+   */
+  public static <T> CountMinSketch<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    int depth = -1;
+    int width = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      depth = din.readInt();
+      width = din.readInt();
+      checkArgument(depth > 0 && width > 0, "Dimensions must be positive");
+      checkArgument((long) depth * width <= Integer.MAX_VALUE, "Too many counters");
+      LongAddable totalCount = LongAddables.create();
+      totalCount.add(din.readLong());
+
+      AtomicLongArray counters = new AtomicLongArray(depth * width);
+      for (int i = 0; i < counters.length(); i++) {
+        counters.set(i, readUnsignedVarLong(din));
+      }
+      return new CountMinSketch<T>(depth, width, counters, totalCount, funnel);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize CountMinSketch from InputStream."
+              + " depth: "
+              + depth
+              + " width: "
+              + width;
+      throw new IOException(message, e);
+    }
+  }
+}
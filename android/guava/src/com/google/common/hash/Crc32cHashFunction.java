@@ -14,12 +14,19 @@
 
 package com.google.common.hash;
 
+import static com.google.common.hash.LittleEndianByteArray.load64;
+
 import com.google.errorprone.annotations.Immutable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * This class generates a CRC32C checksum, defined by RFC 3720, Section 12.1. The generator
  * polynomial for this checksum is {@code 0x11EDC6F41}.
  *
+ * <p>Hashers compute the checksum eight bytes at a time with the slicing-by-8 algorithm.
+ *
  * @author Kurt Alfred Kluever
  */
 @Immutable
@@ -111,6 +118,22 @@ final class Crc32cHashFunction extends AbstractHashFunction {
       0xbe2da0a5, 0x4c4623a6, 0x5f16d052, 0xad7d5351
     };
 
+    /**
+     * The eight tables for slicing-by-8, each of 256 entries. The first is {@link #CRC_TABLE}, and
+     * each entry of the others is the CRC of the same entry of the previous table followed by a
+     * zero byte.
+     */
+    private static final int[] SLICING_TABLE = slicingTable();
+
+    private static int[] slicingTable() {
+      int[] table = Arrays.copyOf(CRC_TABLE, 8 * 256);
+      for (int i = 256; i < table.length; i++) {
+        int previous = table[i - 256];
+        table[i] = (previous >>> 8) ^ CRC_TABLE[previous & 0xFF];
+      }
+      return table;
+    }
+
     private int crc = 0;
 
     @Override
@@ -120,6 +143,62 @@ final class Crc32cHashFunction extends AbstractHashFunction {
       crc = ~((crc >>> 8) ^ CRC_TABLE[(crc ^ b) & 0xFF]);
     }
 
+    @Override
+    protected void update(byte[] b, int off, int len) {
+      int crc = ~this.crc;
+      int end = off + len;
+      for (; end - off >= 8; off += 8) {
+        crc = update8(crc, load64(b, off));
+      }
+      for (; off < end; off++) {
+        crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ b[off]) & 0xFF];
+      }
+      this.crc = ~crc;
+    }
+
+    @Override
+    protected void update(ByteBuffer b) {
+      if (b.hasArray()) {
+        super.update(b);
+        return;
+      }
+      // a direct or memory-mapped buffer is read in place, without advancing it byte by byte
+      ByteOrder order = b.order();
+      b.order(ByteOrder.LITTLE_ENDIAN);
+      try {
+        int crc = ~this.crc;
+        int i = b.position();
+        for (; b.limit() - i >= 8; i += 8) {
+          crc = update8(crc, b.getLong(i));
+        }
+        for (; i < b.limit(); i++) {
+          crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ b.get(i)) & 0xFF];
+        }
+        b.position(b.limit());
+        this.crc = ~crc;
+      } finally {
+        b.order(order);
+      }
+    }
+
+    /**
+     * Returns the complement of the CRC of eight bytes, given as a little-endian {@code long},
+     * continuing from the complement of a CRC.
+     */
+    private static int update8(int crc, long bytes) {
+      int low = crc ^ (int) bytes;
+      int high = (int) (bytes >>> 32);
+      int[] table = SLICING_TABLE;
+      return table[7 * 256 + (low & 0xFF)]
+          ^ table[6 * 256 + ((low >>> 8) & 0xFF)]
+          ^ table[5 * 256 + ((low >>> 16) & 0xFF)]
+          ^ table[4 * 256 + (low >>> 24)]
+          ^ table[3 * 256 + (high & 0xFF)]
+          ^ table[2 * 256 + ((high >>> 8) & 0xFF)]
+          ^ table[256 + ((high >>> 16) & 0xFF)]
+          ^ table[high >>> 24];
+    }
+
     @Override
     public HashCode hash() {
       return HashCode.fromInt(crc);
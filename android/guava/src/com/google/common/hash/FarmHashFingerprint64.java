@@ -20,6 +20,12 @@ import static com.google.common.hash.LittleEndianByteArray.load64;
 import static java.lang.Long.rotateRight;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
 
 /**
  * Implementation of FarmHash Fingerprint64, an open-source fingerprinting algorithm for strings.
@@ -52,6 +58,71 @@ final class FarmHashFingerprint64 extends AbstractNonStreamingHashFunction {
     return HashCode.fromLong(fingerprint(input, off, len));
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation reads an input of more than 64 bytes in place, even from a direct or
+   * memory-mapped buffer.
+   */
+  @Override
+  public HashCode hashBytes(ByteBuffer input) {
+    int length = input.remaining();
+    if (input.hasArray() || length <= 64) {
+      return super.hashBytes(input);
+    }
+    ByteBuffer littleEndian = input.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    long hash = hashLength65Plus(littleEndian, input.position(), length);
+    input.position(input.limit());
+    return HashCode.fromLong(hash);
+  }
+
+  @Override
+  public HashCode hashInt(int input) {
+    return HashCode.fromLong(fingerprint(input));
+  }
+
+  @Override
+  public HashCode hashLong(long input) {
+    return HashCode.fromLong(fingerprint(input));
+  }
+
+  @Override
+  public void hashInts(int[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = fingerprint(inputs[i]);
+    }
+  }
+
+  @Override
+  public void hashLongs(long[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = fingerprint(inputs[i]);
+    }
+  }
+
+  @Override
+  public void hashUnencodedChars(List<? extends CharSequence> inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.size());
+    // the chars of each input are copied to the same array, which grows as needed
+    byte[] bytes = new byte[64];
+    int i = 0;
+    for (CharSequence input : inputs) {
+      int charCount = input.length();
+      int length = Chars.BYTES * charCount;
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, 2 * bytes.length)];
+      }
+      for (int j = 0; j < charCount; j++) {
+        char c = input.charAt(j);
+        bytes[2 * j] = (byte) c;
+        bytes[2 * j + 1] = (byte) (c >>> 8);
+      }
+      results[i++] = fingerprint(bytes, 0, length);
+    }
+  }
+
   @Override
   public int bits() {
     return 64;
@@ -79,6 +150,23 @@ final class FarmHashFingerprint64 extends AbstractNonStreamingHashFunction {
     }
   }
 
+  /** Returns the fingerprint of the little-endian bytes of {@code input}. */
+  private static long fingerprint(int input) {
+    // hashLength0to16 for 4 bytes
+    long a = input & 0xFFFFFFFFL;
+    return hashLength16(Ints.BYTES + (a << 3), a, K2 + Ints.BYTES * 2);
+  }
+
+  /** Returns the fingerprint of the little-endian bytes of {@code input}. */
+  private static long fingerprint(long input) {
+    // hashLength0to16 for 8 bytes
+    long mul = K2 + Longs.BYTES * 2;
+    long a = input + K2;
+    long c = rotateRight(input, 37) * mul + a;
+    long d = (rotateRight(a, 25) + input) * mul;
+    return hashLength16(c, d, mul);
+  }
+
   private static long shiftMix(long val) {
     return val ^ (val >>> 47);
   }
@@ -99,11 +187,31 @@ final class FarmHashFingerprint64 extends AbstractNonStreamingHashFunction {
    */
   private static void weakHashLength32WithSeeds(
       byte[] bytes, int offset, long seedA, long seedB, long[] output) {
-    long part1 = load64(bytes, offset);
-    long part2 = load64(bytes, offset + 8);
-    long part3 = load64(bytes, offset + 16);
-    long part4 = load64(bytes, offset + 24);
+    weakHashLength32WithSeeds(
+        load64(bytes, offset),
+        load64(bytes, offset + 8),
+        load64(bytes, offset + 16),
+        load64(bytes, offset + 24),
+        seedA,
+        seedB,
+        output);
+  }
 
+  /** As above, for 32 bytes of a little-endian buffer from the given index. */
+  private static void weakHashLength32WithSeeds(
+      ByteBuffer bytes, int offset, long seedA, long seedB, long[] output) {
+    weakHashLength32WithSeeds(
+        bytes.getLong(offset),
+        bytes.getLong(offset + 8),
+        bytes.getLong(offset + 16),
+        bytes.getLong(offset + 24),
+        seedA,
+        seedB,
+        output);
+  }
+
+  private static void weakHashLength32WithSeeds(
+      long part1, long part2, long part3, long part4, long seedA, long seedB, long[] output) {
     seedA += part1;
     seedB = rotateRight(seedB + seedA + part4, 21);
     long c = seedA;
@@ -213,4 +321,55 @@ final class FarmHashFingerprint64 extends AbstractNonStreamingHashFunction {
         hashLength16(v[1], w[1], mul) + z,
         mul);
   }
+
+  /*
+   * Compute an 8-byte hash of the bytes of a little-endian buffer from the given index, of length
+   * greater than 64 bytes. This duplicates the method above, so that a direct buffer is hashed in
+   * place without copying it to an array.
+   */
+  private static long hashLength65Plus(ByteBuffer bytes, int offset, int length) {
+    final int seed = 81;
+    // For strings over 64 bytes we loop. Internal state consists of 56 bytes: v, w, x, y, and z.
+    long x = seed;
+    @SuppressWarnings("ConstantOverflow")
+    long y = seed * K1 + 113;
+    long z = shiftMix(y * K2 + 113) * K2;
+    long[] v = new long[2];
+    long[] w = new long[2];
+    x = x * K2 + bytes.getLong(offset);
+
+    // Set end so that after the loop we have 1 to 64 bytes left to process.
+    int end = offset + ((length - 1) / 64) * 64;
+    int last64offset = end + ((length - 1) & 63) - 63;
+    do {
+      x = rotateRight(x + y + v[0] + bytes.getLong(offset + 8), 37) * K1;
+      y = rotateRight(y + v[1] + bytes.getLong(offset + 48), 42) * K1;
+      x ^= w[1];
+      y += v[0] + bytes.getLong(offset + 40);
+      z = rotateRight(z + w[0], 33) * K1;
+      weakHashLength32WithSeeds(bytes, offset, v[1] * K1, x + w[0], v);
+      weakHashLength32WithSeeds(bytes, offset + 32, z + w[1], y + bytes.getLong(offset + 16), w);
+      long tmp = x;
+      x = z;
+      z = tmp;
+      offset += 64;
+    } while (offset != end);
+    long mul = K1 + ((z & 0xFF) << 1);
+    // Operate on the last 64 bytes of input.
+    offset = last64offset;
+    w[0] += ((length - 1) & 63);
+    v[0] += w[0];
+    w[0] += v[0];
+    x = rotateRight(x + y + v[0] + bytes.getLong(offset + 8), 37) * mul;
+    y = rotateRight(y + v[1] + bytes.getLong(offset + 48), 42) * mul;
+    x ^= w[1] * 9;
+    y += v[0] * 9 + bytes.getLong(offset + 40);
+    z = rotateRight(z + w[0], 33) * mul;
+    weakHashLength32WithSeeds(bytes, offset, v[1] * mul, x + w[0], v);
+    weakHashLength32WithSeeds(bytes, offset + 32, z + w[1], y + bytes.getLong(offset + 16), w);
+    return hashLength16(
+        hashLength16(v[0], w[0], mul) + shiftMix(y) * K0 + x,
+        hashLength16(v[1], w[1], mul) + z,
+        mul);
+  }
 }
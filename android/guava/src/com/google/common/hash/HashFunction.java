@@ -19,6 +19,7 @@ import com.google.common.primitives.Ints;
 import com.google.errorprone.annotations.Immutable;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  * A hash function is a collision-averse pure function that maps an arbitrary block of data to a
@@ -215,6 +216,38 @@ public interface HashFunction {
    */
   <T> HashCode hashObject(T instance, Funnel<? super T> funnel);
 
+  /**
+   * Hashes each element of {@code inputs} as if by {@link #hashInt}, and stores the {@linkplain
+   * HashCode#padToLong padded} hash code of {@code inputs[i]} in {@code results[i]}. The
+   * implementations for {@link Hashing#murmur3_32()}, {@link Hashing#murmur3_128()} and {@link
+   * Hashing#farmHashFingerprint64()} allocate nothing for each input, which makes this far cheaper
+   * than hashing the inputs one at a time.
+   *
+   * @throws IllegalArgumentException if {@code results} is shorter than {@code inputs}
+   * @since NEXT
+   */
+  void hashInts(int[] inputs, long[] results);
+
+  /**
+   * Hashes each element of {@code inputs} as if by {@link #hashLong}, and stores the {@linkplain
+   * HashCode#padToLong padded} hash code of {@code inputs[i]} in {@code results[i]}. See {@link
+   * #hashInts}.
+   *
+   * @throws IllegalArgumentException if {@code results} is shorter than {@code inputs}
+   * @since NEXT
+   */
+  void hashLongs(long[] inputs, long[] results);
+
+  /**
+   * Hashes each element of {@code inputs} as if by {@link #hashUnencodedChars(CharSequence)}, and
+   * stores the {@linkplain HashCode#padToLong padded} hash code of {@code inputs.get(i)} in {@code
+   * results[i]}. See {@link #hashInts}.
+   *
+   * @throws IllegalArgumentException if {@code results} is shorter than {@code inputs}
+   * @since NEXT
+   */
+  void hashUnencodedChars(List<? extends CharSequence> inputs, long[] results);
+
   /**
    * Returns the number of bits (a multiple of 32) that each hash code produced by this hash
    * function has.
@@ -430,6 +430,92 @@ public final class Hashing {
     return FarmHashFingerprint64.FARMHASH_FINGERPRINT_64;
   }
 
+  /**
+   * Returns a hash function implementing the <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/doc/xxhash_spec.md">64-bit xxHash
+   * algorithm</a> (XXH64), using a seed value of zero.
+   *
+   * <p>xxHash values are encoded by {@link HashCode#asBytes} in little-endian order, so {@link
+   * HashCode#asLong} returns the same value that XXH64() would for the same input.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxHash64() {
+    return XxHash64HashFunction.XX_HASH_64;
+  }
+
+  /**
+   * Returns a hash function implementing the <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/doc/xxhash_spec.md">64-bit xxHash
+   * algorithm</a> (XXH64), using the given seed value.
+   *
+   * <p>xxHash values are encoded by {@link HashCode#asBytes} in little-endian order, so {@link
+   * HashCode#asLong} returns the same value that XXH64() would for the same input and seed.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxHash64(long seed) {
+    return new XxHash64HashFunction(seed);
+  }
+
+  /**
+   * Returns a hash function implementing the 64-bit variant of <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h">XXH3</a>, using a seed value of
+   * zero. XXH3 is generally faster than {@link #xxHash64()} and {@link #murmur3_128()}, on short
+   * inputs especially.
+   *
+   * <p>The hash codes are encoded by {@link HashCode#asBytes} in little-endian order, so {@link
+   * HashCode#asLong} returns the same value that XXH3_64bits() would for the same input.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxh3_64() {
+    return Xxh3HashFunction.XXH3_64;
+  }
+
+  /**
+   * Returns a hash function implementing the 64-bit variant of <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h">XXH3</a>, using the given seed
+   * value.
+   *
+   * <p>The hash codes are encoded by {@link HashCode#asBytes} in little-endian order, so {@link
+   * HashCode#asLong} returns the same value that XXH3_64bits_withSeed() would for the same input
+   * and seed.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxh3_64(long seed) {
+    return new Xxh3HashFunction(64, seed);
+  }
+
+  /**
+   * Returns a hash function implementing the 128-bit variant of <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h">XXH3</a>, using a seed value of
+   * zero.
+   *
+   * <p>The hash codes are the low 64 bits of the XXH128_hash_t returned by XXH3_128bits() followed
+   * by its high 64 bits, each in little-endian order.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxh3_128() {
+    return Xxh3HashFunction.XXH3_128;
+  }
+
+  /**
+   * Returns a hash function implementing the 128-bit variant of <a
+   * href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h">XXH3</a>, using the given seed
+   * value.
+   *
+   * <p>The hash codes are the low 64 bits of the XXH128_hash_t returned by XXH3_128bits_withSeed()
+   * followed by its high 64 bits, each in little-endian order.
+   *
+   * @since NEXT
+   */
+  public static HashFunction xxh3_128(long seed) {
+    return new Xxh3HashFunction(128, seed);
+  }
+
   /**
    * Assigns to {@code hashCode} a "bucket" in the range {@code [0, buckets)}, in a uniform manner
    * that minimizes the need for remapping as {@code buckets} grows. That is, {@code
@@ -568,6 +654,15 @@ public final class Hashing {
     return (bits + 31) & ~31;
   }
 
+  /** Checks that an array of {@code resultsLength} can hold the hashes of the batched inputs. */
+  static void checkResultsLength(int resultsLength, int inputsLength) {
+    checkArgument(
+        resultsLength >= inputsLength,
+        "results (%s) is shorter than inputs (%s)",
+        resultsLength,
+        inputsLength);
+  }
+
   /**
    * Returns a hash function which computes its hash code by concatenating the hash codes of the
    * underlying hash functions together. This can be useful if you need to generate hash codes of a
@@ -0,0 +1,609 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A HyperLogLog sketch, which estimates the number of distinct instances of {@code T} put into it,
+ * in a fixed amount of space. A sketch of precision {@code p} has {@code 2^p} registers and
+ * estimates with a relative standard error of about {@code 1.04 / sqrt(2^p)}: 0.81% for the
+ * default precision of 14, in 12 KiB when serialized.
+ *
+ * <p>Each element is hashed with {@link Hashing#murmur3_128()}. The first {@code p} bits of the
+ * hash select a register, which keeps the maximum number of leading zeros of the remaining bits
+ * seen so far. See "HyperLogLog: the analysis of a near-optimal cardinality estimation algorithm"
+ * by Philippe Flajolet, Éric Fusy, Olivier Gandouet and Frédéric Meunier.
+ *
+ * <p>As in "HyperLogLog in Practice" by Stefan Heule, Marc Nunkesser and Alexander Hall (HLL++),
+ * a sketch starts out sparse: it keeps a sorted list of the registers of precision 25 which are
+ * set, which is both smaller and more accurate while few elements have been put into it. Once the
+ * list would be larger than the registers of precision {@code p}, the sketch converts to those.
+ * Rather than the empirical bias correction of HLL++, both representations are estimated with the
+ * improved estimator of "New cardinality estimation algorithms for HyperLogLog sketches" by Otmar
+ * Ertl, which is accurate for all cardinalities.
+ *
+ * <p>Sketches with the same funnel and precision can be merged with {@link #putAll}, so that
+ * elements can be counted by several threads or machines, each with its own sketch. A sketch is
+ * not thread-safe.
+ *
+ * <p>Sketches are serializable. They also support a more compact serial representation via the
+ * {@link #writeTo} and {@link #readFrom} methods.
+ *
+ * @param <T> the type of instances that the {@code HyperLogLog} accepts
+ * @since NEXT
+ */
+@Beta
+public final class HyperLogLog<T> implements Serializable {
+  private static final int MIN_PRECISION = 4;
+  private static final int MAX_PRECISION = 18;
+  private static final int DEFAULT_PRECISION = 14;
+
+  /** The precision of the registers in the sparse representation. */
+  private static final int SPARSE_PRECISION = 25;
+
+  /** The number of bits of a sparse entry which hold the register value. */
+  private static final int SPARSE_VALUE_BITS = 6;
+
+  /**
+   * The maximum number of entries in the sparse representation, which bounds the cost of inserting
+   * into it.
+   */
+  private static final int MAX_SPARSE_SIZE = 1 << 12;
+
+  /** The asymptotic bias correction constant of the estimator: {@code 1 / (2 ln 2)}. */
+  private static final double ALPHA_INF = 0.5 / Math.log(2);
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private final int precision;
+
+  /** The registers, or null while the sketch is sparse. */
+  @NullableDecl private byte[] registers;
+
+  /**
+   * The set registers of precision {@link #SPARSE_PRECISION}, in increasing order, as each index
+   * shifted left by {@link #SPARSE_VALUE_BITS} bits, or'd with its value. Null once the sketch is
+   * dense.
+   */
+  @NullableDecl private int[] sparse;
+
+  /** The number of entries in {@link #sparse}. */
+  private int sparseSize;
+
+  private HyperLogLog(
+      Funnel<? super T> funnel,
+      int precision,
+      @NullableDecl byte[] registers,
+      @NullableDecl int[] sparse,
+      int sparseSize) {
+    this.funnel = checkNotNull(funnel);
+    this.precision = precision;
+    this.registers = registers;
+    this.sparse = sparse;
+    this.sparseSize = sparseSize;
+  }
+
+  /**
+   * Creates an empty {@link HyperLogLog} sketch with the given precision.
+   *
+   * <p>The constructed {@code HyperLogLog} will be serializable if the provided {@code Funnel<T>}
+   * is.
+   *
+   * <p>It is recommended that the funnel be implemented as a Java enum. This has the benefit of
+   * ensuring proper serialization and deserialization, which is important since {@link #equals}
+   * also relies on object identity of funnels.
+   *
+   * @param funnel the funnel of T's that the constructed {@code HyperLogLog} will use
+   * @param precision the base 2 logarithm of the number of registers, from 4 to 18. Each increment
+   *     doubles the space used by the sketch, and divides its error by {@code sqrt(2)}.
+   * @return a {@code HyperLogLog}
+   */
+  public static <T> HyperLogLog<T> create(Funnel<? super T> funnel, int precision) {
+    checkNotNull(funnel);
+    checkPrecision(precision);
+    return new HyperLogLog<T>(funnel, precision, null, new int[4], 0);
+  }
+
+  /**
+   * Creates an empty {@link HyperLogLog} sketch with a precision of 14, which estimates with a
+   * relative standard error of 0.81%.
+   *
+   * @param funnel the funnel of T's that the constructed {@code HyperLogLog} will use
+   * @return a {@code HyperLogLog}
+   */
+  public static <T> HyperLogLog<T> create(Funnel<? super T> funnel) {
+    return create(funnel, DEFAULT_PRECISION);
+  }
+
+  private static void checkPrecision(int precision) {
+    checkArgument(
+        precision >= MIN_PRECISION && precision <= MAX_PRECISION,
+        "Precision (%s) must be between %s and %s",
+        precision,
+        MIN_PRECISION,
+        MAX_PRECISION);
+  }
+
+  /**
+   * Creates a new {@code HyperLogLog} that's a copy of this instance. The new instance is equal to
+   * this instance but shares no mutable state.
+   */
+  public HyperLogLog<T> copy() {
+    return new HyperLogLog<T>(
+        funnel,
+        precision,
+        (registers == null) ? null : registers.clone(),
+        (sparse == null) ? null : sparse.clone(),
+        sparseSize);
+  }
+
+  /**
+   * Puts an element into this {@code HyperLogLog}.
+   *
+   * @return true if the sketch changed as a result of this operation, in which case this is
+   *     <i>definitely</i> the first time {@code object} has been put into the sketch. If it is
+   *     false, {@code object} might have been put before.
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    long hash = Hashing.murmur3_128().hashObject(object, funnel).asLong();
+    if (registers != null) {
+      return putRegister(registers, index(hash, precision), value(hash, precision));
+    }
+    boolean changed = putSparse(index(hash, SPARSE_PRECISION), value(hash, SPARSE_PRECISION));
+    if (sparseSize > maxSparseSize()) {
+      densify();
+    }
+    return changed;
+  }
+
+  /** Returns the index of the register which the given hash selects, of {@code 2^p} registers. */
+  private static int index(long hash, int p) {
+    return (int) (hash >>> (Long.SIZE - p));
+  }
+
+  /**
+   * Returns the value of the register which the given hash selects, when there are {@code 2^p}
+   * registers: one more than the number of leading zeros of the bits after the first {@code p}.
+   */
+  private static int value(long hash, int p) {
+    return Math.min(Long.numberOfLeadingZeros(hash << p), Long.SIZE - p) + 1;
+  }
+
+  private static boolean putRegister(byte[] registers, int index, int value) {
+    if (registers[index] < value) {
+      registers[index] = (byte) value;
+      return true;
+    }
+    return false;
+  }
+
+  /** Puts a register of precision {@link #SPARSE_PRECISION} into the sparse representation. */
+  private boolean putSparse(int index, int value) {
+    int[] sparse = this.sparse;
+    int position = Arrays.binarySearch(sparse, 0, sparseSize, index << SPARSE_VALUE_BITS);
+    // register values are positive, so the search never finds an entry
+    position = -position - 1;
+    if (position < sparseSize && sparse[position] >>> SPARSE_VALUE_BITS == index) {
+      if ((sparse[position] & valueMask()) < value) {
+        sparse[position] = (index << SPARSE_VALUE_BITS) | value;
+        return true;
+      }
+      return false;
+    }
+    if (sparseSize == sparse.length) {
+      sparse = this.sparse = Arrays.copyOf(sparse, Math.max(4, sparseSize * 2));
+    }
+    System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+    sparse[position] = (index << SPARSE_VALUE_BITS) | value;
+    sparseSize++;
+    return true;
+  }
+
+  private static int valueMask() {
+    return (1 << SPARSE_VALUE_BITS) - 1;
+  }
+
+  /**
+   * Returns the greatest number of entries of the sparse representation, which are as large as the
+   * registers.
+   */
+  private int maxSparseSize() {
+    return Math.min((1 << precision) / Ints.BYTES, MAX_SPARSE_SIZE);
+  }
+
+  /** Converts this sketch from the sparse to the dense representation. */
+  private void densify() {
+    byte[] registers = new byte[1 << precision];
+    putSparseEntries(registers, sparse, sparseSize, precision);
+    this.registers = registers;
+    this.sparse = null;
+    this.sparseSize = 0;
+  }
+
+  /** Puts the given entries of a sparse representation into registers of the given precision. */
+  private static void putSparseEntries(byte[] registers, int[] sparse, int size, int precision) {
+    int extraBits = SPARSE_PRECISION - precision;
+    for (int i = 0; i < size; i++) {
+      int sparseIndex = sparse[i] >>> SPARSE_VALUE_BITS;
+      int extra = sparseIndex & ((1 << extraBits) - 1);
+      // the extra index bits are the first bits of those counted by a register of lower precision
+      int value =
+          (extra == 0)
+              ? extraBits + (sparse[i] & valueMask())
+              : Integer.numberOfLeadingZeros(extra) - (Integer.SIZE - extraBits) + 1;
+      putRegister(registers, sparseIndex >>> extraBits, value);
+    }
+  }
+
+  /**
+   * Returns an estimate of the number of distinct elements that have been put into this sketch.
+   * Its relative standard error is about {@link #relativeStandardError()}, and less while the
+   * sketch is sparse.
+   */
+  public long approximateElementCount() {
+    return Math.round(estimate());
+  }
+
+  private double estimate() {
+    if (registers == null) {
+      int[] counts = new int[Long.SIZE - SPARSE_PRECISION + 2];
+      counts[0] = (1 << SPARSE_PRECISION) - sparseSize;
+      for (int i = 0; i < sparseSize; i++) {
+        counts[sparse[i] & valueMask()]++;
+      }
+      return estimate(counts, SPARSE_PRECISION);
+    }
+    int[] counts = new int[Long.SIZE - precision + 2];
+    for (byte value : registers) {
+      counts[value]++;
+    }
+    return estimate(counts, precision);
+  }
+
+  /**
+   * Returns Ertl's improved estimate of the cardinality, given the number of the {@code 2^p}
+   * registers with each value.
+   */
+  @VisibleForTesting
+  static double estimate(int[] counts, int p) {
+    double m = 1 << p;
+    int q = Long.SIZE - p;
+    double z = m * tau(1 - counts[q + 1] / m);
+    for (int k = q; k >= 1; k--) {
+      z = 0.5 * (z + counts[k]);
+    }
+    z += m * sigma(counts[0] / m);
+    return ALPHA_INF * m * m / z;
+  }
+
+  private static double sigma(double x) {
+    if (x == 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double y = 1;
+    double z = x;
+    double previous;
+    do {
+      x *= x;
+      previous = z;
+      z += x * y;
+      y += y;
+    } while (z != previous);
+    return z;
+  }
+
+  private static double tau(double x) {
+    if (x == 0 || x == 1) {
+      return 0;
+    }
+    double y = 1;
+    double z = 1 - x;
+    double previous;
+    do {
+      x = Math.sqrt(x);
+      previous = z;
+      y *= 0.5;
+      z -= (1 - x) * (1 - x) * y;
+    } while (z != previous);
+    return z / 3;
+  }
+
+  /**
+   * Returns the relative standard error of {@link #approximateElementCount()} for large numbers of
+   * elements: about {@code 1.04 / sqrt(2^p)}, for a sketch of precision {@code p}.
+   */
+  public double relativeStandardError() {
+    return 1.04 / Math.sqrt(1 << precision);
+  }
+
+  /** Returns whether the sketch is still in the sparse representation. */
+  @VisibleForTesting
+  boolean isSparse() {
+    return registers == null;
+  }
+
+  /**
+   * Determines whether a given sketch is compatible with this one, meaning that they can be merged
+   * with {@link #putAll}. Two sketches are compatible if they have the same precision and equal
+   * funnels.
+   *
+   * @param that sketch to check for compatibility
+   */
+  public boolean isCompatible(HyperLogLog<T> that) {
+    checkNotNull(that);
+    return this != that && this.precision == that.precision && this.funnel.equals(that.funnel);
+  }
+
+  /**
+   * Combines this sketch with another one, so that it estimates the number of distinct elements put
+   * into either. The sketches must be compatible.
+   *
+   * @param that the sketch to combine this one with. It is not mutated.
+   * @throws IllegalArgumentException if {@code isCompatible(that) == false}
+   */
+  public void putAll(HyperLogLog<T> that) {
+    checkNotNull(that);
+    checkArgument(this != that, "Cannot combine a HyperLogLog with itself.");
+    checkArgument(
+        this.precision == that.precision,
+        "HyperLogLogs must have the same precision (%s != %s)",
+        this.precision,
+        that.precision);
+    checkArgument(
+        this.funnel.equals(that.funnel),
+        "Cannot combine HyperLogLogs that have different funnels: %s != %s",
+        this.funnel,
+        that.funnel);
+    if (this.registers == null && that.registers == null) {
+      mergeSparse(that.sparse, that.sparseSize);
+      return;
+    }
+    if (this.registers == null) {
+      densify();
+    }
+    if (that.registers == null) {
+      putSparseEntries(registers, that.sparse, that.sparseSize, precision);
+    } else {
+      for (int i = 0; i < registers.length; i++) {
+        putRegister(registers, i, that.registers[i]);
+      }
+    }
+  }
+
+  /** Merges the given sparse entries into the sparse representation of this sketch. */
+  private void mergeSparse(int[] thatSparse, int thatSize) {
+    int[] merged = new int[sparseSize + thatSize];
+    int size = 0;
+    for (int i = 0, j = 0; i < sparseSize || j < thatSize; ) {
+      int entry;
+      if (j == thatSize || (i < sparseSize && sparse[i] < thatSparse[j])) {
+        entry = sparse[i++];
+      } else {
+        entry = thatSparse[j++];
+      }
+      // entries with the same index are ordered by value, so the later ones replace the earlier
+      if (size > 0 && merged[size - 1] >>> SPARSE_VALUE_BITS == entry >>> SPARSE_VALUE_BITS) {
+        merged[size - 1] = entry;
+      } else {
+        merged[size++] = entry;
+      }
+    }
+    this.sparse = merged;
+    this.sparseSize = size;
+    if (sparseSize > maxSparseSize()) {
+      densify();
+    }
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof HyperLogLog) {
+      HyperLogLog<?> that = (HyperLogLog<?>) object;
+      return this.precision == that.precision
+          && this.funnel.equals(that.funnel)
+          && Arrays.equals(this.registers, that.registers)
+          && Arrays.equals(this.sparseEntries(), that.sparseEntries());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(
+        precision, funnel, Arrays.hashCode(registers), Arrays.hashCode(sparseEntries()));
+  }
+
+  /** Returns the entries of the sparse representation, or null if the sketch is dense. */
+  @NullableDecl
+  private int[] sparseEntries() {
+    return (sparse == null) ? null : Arrays.copyOf(sparse, sparseSize);
+  }
+
+  private Object writeReplace() {
+    return new SerialForm<T>(this);
+  }
+
+  private static class SerialForm<T> implements Serializable {
+    final Funnel<? super T> funnel;
+    final int precision;
+    @NullableDecl final byte[] registers;
+    @NullableDecl final int[] sparse;
+
+    SerialForm(HyperLogLog<T> hll) {
+      this.funnel = hll.funnel;
+      this.precision = hll.precision;
+      this.registers = hll.registers;
+      this.sparse = hll.sparseEntries();
+    }
+
+    Object readResolve() {
+      return new HyperLogLog<T>(
+          funnel, precision, registers, sparse, (sparse == null) ? 0 : sparse.length);
+    }
+
+    private static final long serialVersionUID = 1;
+  }
+
+  /**
+   * Writes this {@code HyperLogLog} to an output stream, with a custom format (not Java
+   * serialization). A sparse sketch is written as the differences between its entries, and a dense
+   * one as six bits per register.
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written HyperLogLog.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 unsigned byte, the precision
+    // 1 unsigned byte, 0 if the sketch is sparse and 1 if it is dense
+    // if sparse:
+    //   1 big endian int, the number of entries
+    //   N unsigned varints, the difference between each entry and the previous one (or 0)
+    // if dense:
+    //   2^precision * 6 / 8 bytes, the registers, 6 big endian bits each
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(precision);
+    if (registers == null) {
+      dout.writeByte(0);
+      dout.writeInt(sparseSize);
+      for (int i = 0, previous = 0; i < sparseSize; i++) {
+        writeUnsignedVarInt(dout, sparse[i] - previous);
+        previous = sparse[i];
+      }
+    } else {
+      dout.writeByte(1);
+      for (int i = 0; i < registers.length; i += 4) {
+        int packed =
+            registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+        dout.writeByte(packed >>> 16);
+        dout.writeByte(packed >>> 8);
+        dout.writeByte(packed);
+      }
+    }
+  }
+
+  private static void writeUnsignedVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readUnsignedVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into a {@code
+   * HyperLogLog}.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original sketch!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a HyperLogLog serialized using the {@linkplain #writeTo(OutputStream)} method.
+   */
+  public static <T> HyperLogLog<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    int precision = -1;
+    int representation = -1;
+    int sparseSize = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      precision = din.readUnsignedByte();
+      checkPrecision(precision);
+      representation = din.readUnsignedByte();
+      if (representation == 0) {
+        HyperLogLog<T> hll = new HyperLogLog<T>(funnel, precision, null, null, 0);
+        sparseSize = din.readInt();
+        checkArgument(sparseSize >= 0 && sparseSize <= hll.maxSparseSize(), "Too many entries");
+        int[] sparse = new int[Math.max(sparseSize, 4)];
+        for (int i = 0, previous = 0; i < sparseSize; i++) {
+          int entry = previous + readUnsignedVarInt(din);
+          checkArgument(
+              (i == 0 || entry >>> SPARSE_VALUE_BITS > previous >>> SPARSE_VALUE_BITS)
+                  && entry >>> SPARSE_VALUE_BITS < 1 << SPARSE_PRECISION
+                  && isValidValue(entry & valueMask(), SPARSE_PRECISION),
+              "Invalid entry: %s",
+              entry);
+          sparse[i] = entry;
+          previous = entry;
+        }
+        hll.sparse = sparse;
+        hll.sparseSize = sparseSize;
+        return hll;
+      }
+      checkArgument(representation == 1, "Invalid representation: %s", representation);
+      byte[] registers = new byte[1 << precision];
+      for (int i = 0; i < registers.length; i += 4) {
+        int packed = din.readUnsignedByte() << 16 | din.readUnsignedByte() << 8;
+        packed |= din.readUnsignedByte();
+        for (int j = 0; j < 4; j++) {
+          int value = (packed >>> (18 - 6 * j)) & 0x3F;
+          checkArgument(
+              value == 0 || isValidValue(value, precision), "Invalid register: %s", value);
+          registers[i + j] = (byte) value;
+        }
+      }
+      return new HyperLogLog<T>(funnel, precision, registers, null, 0);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize HyperLogLog from InputStream."
+              + " precision: "
+              + precision
+              + " representation: "
+              + representation
+              + " sparseSize: "
+              + sparseSize;
+      throw new IOException(message, e);
+    }
+  }
+
+  private static boolean isValidValue(int value, int p) {
+    return value >= 1 && value <= Long.SIZE - p + 1;
+  }
+}
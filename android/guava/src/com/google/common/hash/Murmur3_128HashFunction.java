@@ -27,10 +27,14 @@ package com.google.common.hash;
 
 import static com.google.common.primitives.UnsignedBytes.toInt;
 
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.google.errorprone.annotations.Immutable;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.List;
 import org.checkerframework.checker.nullness.compatqual.NullableDecl;
 
 /**
@@ -83,6 +87,83 @@ final class Murmur3_128HashFunction extends AbstractHashFunction implements Seri
     return getClass().hashCode() ^ seed;
   }
 
+  @Override
+  public void hashInts(int[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hashShort(inputs[i] & 0xFFFFFFFFL, Ints.BYTES);
+    }
+  }
+
+  @Override
+  public void hashLongs(long[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hashShort(inputs[i], Longs.BYTES);
+    }
+  }
+
+  @Override
+  public void hashUnencodedChars(List<? extends CharSequence> inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.size());
+    int i = 0;
+    for (CharSequence input : inputs) {
+      results[i++] = hashFirstHalf(input);
+    }
+  }
+
+  /**
+   * Returns the first half of the hash code of an input of at most 8 bytes, which are the
+   * little-endian bytes of {@code k1}.
+   */
+  private long hashShort(long k1, int length) {
+    long h1 = seed ^ Murmur3_128Hasher.mixK1(k1);
+    return finishFirstHalf(h1, seed, length);
+  }
+
+  /** Returns the first half of the hash code of the chars of {@code input}. */
+  private long hashFirstHalf(CharSequence input) {
+    long h1 = seed;
+    long h2 = seed;
+    int length = input.length();
+    int i = 0;
+    // a block of 16 bytes holds 8 chars
+    for (; i + 8 <= length; i += 8) {
+      h1 ^= Murmur3_128Hasher.mixK1(getCharsLittleEndian(input, i, i + 4));
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= Murmur3_128Hasher.mixK2(getCharsLittleEndian(input, i + 4, i + 8));
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    int middle = Math.min(i + 4, length);
+    h1 ^= Murmur3_128Hasher.mixK1(getCharsLittleEndian(input, i, middle));
+    h2 ^= Murmur3_128Hasher.mixK2(getCharsLittleEndian(input, middle, length));
+    return finishFirstHalf(h1, h2, Chars.BYTES * length);
+  }
+
+  private static long getCharsLittleEndian(CharSequence input, int start, int end) {
+    long result = 0;
+    for (int i = start, shift = 0; i < end; i++, shift += 16) {
+      result |= (long) input.charAt(i) << shift;
+    }
+    return result;
+  }
+
+  /** As {@link Murmur3_128Hasher#makeHash}, but returns only the first half of the hash code. */
+  private static long finishFirstHalf(long h1, long h2, int length) {
+    h1 ^= length;
+    h2 ^= length;
+
+    h1 += h2;
+    h2 += h1;
+
+    return Murmur3_128Hasher.fmix64(h1) + Murmur3_128Hasher.fmix64(h2);
+  }
+
   private static final class Murmur3_128Hasher extends AbstractStreamingHasher {
     private static final int CHUNK_SIZE = 16;
     private static final long C1 = 0x87c37b91114253d5L;
@@ -0,0 +1,494 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.math.LongMath;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * A Bloom filter which grows as elements are put into it, so that it needn't be created with the
+ * number of elements it will hold. Like a {@link BloomFilter}, it offers an approximate containment
+ * test with one-sided error: if it claims that an element is contained in it, this might be in
+ * error, but if it claims that an element is <i>not</i> contained in it, then this is definitely
+ * true.
+ *
+ * <p>A scalable Bloom filter is a chain of Bloom filters. Elements are put into the last one, and
+ * once it holds its expected number of insertions, a new one with twice as many expected
+ * insertions and a lower false positive probability is appended. The false positive probabilities
+ * of the filters in the chain decrease geometrically, so that their sum is at most the false
+ * positive probability given to {@link #create}, however many elements are put into the filter.
+ * Each time the filter doubles in size, it needs a little more space per element. See "Scalable
+ * Bloom Filters" by Paulo Sérgio Almeida, Carlos Baquero, Nuno Preguiça and David Hutchison.
+ *
+ * <p>Scalable Bloom filters are serializable. They also support a more compact serial
+ * representation via the {@link #writeTo} and {@link #readFrom} methods.
+ *
+ * <p>This class is thread-safe, like {@link BloomFilter}. Only appending a new filter to the chain,
+ * and {@link #putAll}, lock.
+ *
+ * @param <T> the type of instances that the {@code ScalableBloomFilter} accepts
+ * @since NEXT
+ */
+@Beta
+public final class ScalableBloomFilter<T> implements Predicate<T>, Serializable {
+  /** The factor by which the expected insertions of each filter exceed those of the previous. */
+  private static final int GROWTH_FACTOR = 2;
+
+  /** The factor by which the false positive probability of each filter is below the previous. */
+  private static final double TIGHTENING_RATIO = 0.8;
+
+  private static final long DEFAULT_INITIAL_EXPECTED_INSERTIONS = 1000;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  private final long initialExpectedInsertions;
+
+  /** The bound on the false positive probability of the whole chain. */
+  private final double fpp;
+
+  /** The chain of filters, the last of which elements are put into. Replaced, never mutated. */
+  private volatile BloomFilter<T>[] filters;
+
+  /** The number of elements put into the last filter. */
+  private final AtomicLong lastFilterCount;
+
+  private ScalableBloomFilter(
+      Funnel<? super T> funnel,
+      long initialExpectedInsertions,
+      double fpp,
+      BloomFilter<T>[] filters,
+      long lastFilterCount) {
+    this.funnel = checkNotNull(funnel);
+    this.initialExpectedInsertions = initialExpectedInsertions;
+    this.fpp = fpp;
+    this.filters = filters;
+    this.lastFilterCount = new AtomicLong(lastFilterCount);
+  }
+
+  /**
+   * Creates a {@link ScalableBloomFilter} which grows beyond the given initial number of expected
+   * insertions, while keeping its false positive probability below the given one.
+   *
+   * <p>The constructed {@code ScalableBloomFilter} will be serializable if the provided {@code
+   * Funnel<T>} is.
+   *
+   * <p>It is recommended that the funnel be implemented as a Java enum. This has the benefit of
+   * ensuring proper serialization and deserialization, which is important since {@link #equals}
+   * also relies on object identity of funnels.
+   *
+   * @param funnel the funnel of T's that the constructed {@code ScalableBloomFilter} will use
+   * @param initialExpectedInsertions the number of expected insertions to the first filter in the
+   *     chain; must be positive. A larger number wastes space if fewer elements are put into the
+   *     filter, and a smaller one wastes a little space per element if more are.
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code ScalableBloomFilter}
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  public static <T> ScalableBloomFilter<T> create(
+      Funnel<? super T> funnel, long initialExpectedInsertions, double fpp) {
+    checkNotNull(funnel);
+    checkArgument(
+        initialExpectedInsertions > 0,
+        "Initial expected insertions (%s) must be > 0",
+        initialExpectedInsertions);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+    BloomFilter<T>[] filters =
+        new BloomFilter[] {newFilter(funnel, initialExpectedInsertions, fpp, 0)};
+    return new ScalableBloomFilter<T>(funnel, initialExpectedInsertions, fpp, filters, 0);
+  }
+
+  /**
+   * Creates a {@link ScalableBloomFilter} with a default initial number of expected insertions,
+   * whose false positive probability stays below the given one.
+   *
+   * @param funnel the funnel of T's that the constructed {@code ScalableBloomFilter} will use
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code ScalableBloomFilter}
+   */
+  public static <T> ScalableBloomFilter<T> create(Funnel<? super T> funnel, double fpp) {
+    return create(funnel, DEFAULT_INITIAL_EXPECTED_INSERTIONS, fpp);
+  }
+
+  /** Creates the filter at the given index of the chain. */
+  private static <T> BloomFilter<T> newFilter(
+      Funnel<? super T> funnel, long initialExpectedInsertions, double fpp, int index) {
+    return BloomFilter.create(
+        funnel, expectedInsertions(initialExpectedInsertions, index), filterFpp(fpp, index));
+  }
+
+  /** Returns the expected insertions of the filter at the given index of the chain. */
+  private static long expectedInsertions(long initialExpectedInsertions, int index) {
+    return LongMath.saturatedMultiply(
+        initialExpectedInsertions, LongMath.saturatedPow(GROWTH_FACTOR, index));
+  }
+
+  /**
+   * Returns the false positive probability of the filter at the given index of the chain. These sum
+   * to {@code fpp}.
+   */
+  @VisibleForTesting
+  static double filterFpp(double fpp, int index) {
+    return fpp * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+  }
+
+  /**
+   * Creates a new {@code ScalableBloomFilter} that's a copy of this instance. The new instance is
+   * equal to this instance but shares no mutable state.
+   */
+  public ScalableBloomFilter<T> copy() {
+    synchronized (this) {
+      BloomFilter<T>[] copies = filters.clone();
+      for (int i = 0; i < copies.length; i++) {
+        copies[i] = copies[i].copy();
+      }
+      return new ScalableBloomFilter<T>(
+          funnel, initialExpectedInsertions, fpp, copies, lastFilterCount.get());
+    }
+  }
+
+  /**
+   * Returns {@code true} if the element <i>might</i> have been put in this Bloom filter, {@code
+   * false} if this is <i>definitely</i> not the case.
+   */
+  public boolean mightContain(T object) {
+    return mightContain(filters, object);
+  }
+
+  private static <T> boolean mightContain(BloomFilter<T>[] filters, T object) {
+    // the last filters are the largest, and so likeliest to contain the element
+    for (int i = filters.length - 1; i >= 0; i--) {
+      if (filters[i].mightContain(object)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @deprecated Provided only to satisfy the {@link Predicate} interface; use {@link #mightContain}
+   *     instead.
+   */
+  @Deprecated
+  @Override
+  public boolean apply(T input) {
+    return mightContain(input);
+  }
+
+  /**
+   * Puts an element into this {@code ScalableBloomFilter}, unless it might already be contained in
+   * it. Ensures that subsequent invocations of {@link #mightContain(Object)} with the same element
+   * will always return {@code true}.
+   *
+   * @return true if the Bloom filter's bits changed as a result of this operation, in which case
+   *     this is <i>definitely</i> the first time {@code object} has been added to the filter. As
+   *     for {@link BloomFilter#put}, this is the <i>opposite</i> of what {@code mightContain(t)}
+   *     would have returned.
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    BloomFilter<T>[] filters = this.filters;
+    if (mightContain(filters, object)) {
+      return false;
+    }
+    BloomFilter<T> last = filters[filters.length - 1];
+    if (!last.put(object)) {
+      return false; // put concurrently
+    }
+    long expectedInsertions = expectedInsertions(initialExpectedInsertions, filters.length - 1);
+    if (lastFilterCount.incrementAndGet() >= expectedInsertions) {
+      grow(filters);
+    }
+    return true;
+  }
+
+  /** Appends a new filter to the chain, unless a concurrent call already has. */
+  private synchronized void grow(BloomFilter<T>[] full) {
+    if (filters != full) {
+      return;
+    }
+    BloomFilter<T>[] grown = Arrays.copyOf(full, full.length + 1);
+    grown[full.length] = newFilter(funnel, initialExpectedInsertions, fpp, full.length);
+    lastFilterCount.set(0);
+    filters = grown;
+  }
+
+  /**
+   * Returns the probability that {@linkplain #mightContain(Object)} will erroneously return {@code
+   * true} for an object that has not actually been put in the {@code ScalableBloomFilter}. This
+   * stays below the {@code fpp} parameter passed to {@link #create}.
+   */
+  public double expectedFpp() {
+    double probabilityOfNoFalsePositive = 1;
+    for (BloomFilter<T> filter : filters) {
+      probabilityOfNoFalsePositive *= 1 - filter.expectedFpp();
+    }
+    return 1 - probabilityOfNoFalsePositive;
+  }
+
+  /**
+   * Returns an estimate for the total number of distinct elements that have been added to this
+   * Bloom filter: the sum of the estimates of the filters in its chain.
+   */
+  public long approximateElementCount() {
+    long count = 0;
+    for (BloomFilter<T> filter : filters) {
+      count += filter.approximateElementCount();
+    }
+    return count;
+  }
+
+  /** Returns the number of filters in the chain. */
+  @VisibleForTesting
+  int filterCount() {
+    return filters.length;
+  }
+
+  /** Returns the number of bits in all the filters of the chain. */
+  @VisibleForTesting
+  long bitSize() {
+    long bitSize = 0;
+    for (BloomFilter<T> filter : filters) {
+      bitSize += filter.bitSize();
+    }
+    return bitSize;
+  }
+
+  /**
+   * Determines whether a given {@code ScalableBloomFilter} is compatible with this one, which is
+   * the case if they're distinct instances created with the same initial number of expected
+   * insertions, false positive probability and funnel. The filters at each index of compatible
+   * chains are then {@linkplain BloomFilter#isCompatible compatible}.
+   *
+   * @param that The {@code ScalableBloomFilter} to check for compatibility.
+   */
+  public boolean isCompatible(ScalableBloomFilter<T> that) {
+    checkNotNull(that);
+    return this != that
+        && this.initialExpectedInsertions == that.initialExpectedInsertions
+        && this.fpp == that.fpp
+        && this.funnel.equals(that.funnel);
+  }
+
+  /**
+   * Combines this {@code ScalableBloomFilter} with another one, by {@linkplain BloomFilter#putAll
+   * combining} the filters at each index of the two chains, and appending copies of any filters
+   * that only the other chain has. The mutations happen to <b>this</b> instance.
+   *
+   * <p>The combined filter's false positive probability stays below the one given to {@link
+   * #create}, but since an element put into both filters is counted twice, its chain may grow
+   * sooner than if all elements had been put into one filter.
+   *
+   * @param that The {@code ScalableBloomFilter} to combine this one with. It is not mutated.
+   * @throws IllegalArgumentException if {@code isCompatible(that) == false}
+   */
+  public void putAll(ScalableBloomFilter<T> that) {
+    checkNotNull(that);
+    checkArgument(this != that, "Cannot combine a ScalableBloomFilter with itself.");
+    checkArgument(
+        this.initialExpectedInsertions == that.initialExpectedInsertions,
+        "ScalableBloomFilters must have the same initial expected insertions (%s != %s)",
+        this.initialExpectedInsertions,
+        that.initialExpectedInsertions);
+    checkArgument(
+        this.fpp == that.fpp,
+        "ScalableBloomFilters must have the same false positive probability (%s != %s)",
+        this.fpp,
+        that.fpp);
+    checkArgument(
+        this.funnel.equals(that.funnel),
+        "ScalableBloomFilters must have equal funnels (%s != %s)",
+        this.funnel,
+        that.funnel);
+    BloomFilter<T>[] theirs;
+    long theirLastFilterCount;
+    synchronized (that) {
+      theirs = that.filters;
+      theirLastFilterCount = that.lastFilterCount.get();
+    }
+    synchronized (this) {
+      BloomFilter<T>[] ours = filters;
+      for (int i = 0; i < Math.min(ours.length, theirs.length); i++) {
+        ours[i].putAll(theirs[i]);
+      }
+      if (theirs.length > ours.length) {
+        BloomFilter<T>[] combined = Arrays.copyOf(ours, theirs.length);
+        for (int i = ours.length; i < theirs.length; i++) {
+          combined[i] = theirs[i].copy();
+        }
+        lastFilterCount.set(theirLastFilterCount);
+        filters = combined;
+      } else if (theirs.length == ours.length) {
+        long expectedInsertions = expectedInsertions(initialExpectedInsertions, ours.length - 1);
+        if (lastFilterCount.addAndGet(theirLastFilterCount) >= expectedInsertions) {
+          grow(ours);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof ScalableBloomFilter) {
+      ScalableBloomFilter<?> that = (ScalableBloomFilter<?>) object;
+      return this.initialExpectedInsertions == that.initialExpectedInsertions
+          && this.fpp == that.fpp
+          && this.funnel.equals(that.funnel)
+          && Arrays.equals(this.filters, that.filters);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(initialExpectedInsertions, fpp, funnel, Arrays.hashCode(filters));
+  }
+
+  private Object writeReplace() {
+    return new SerialForm<T>(this);
+  }
+
+  private static class SerialForm<T> implements Serializable {
+    final Funnel<? super T> funnel;
+    final long initialExpectedInsertions;
+    final double fpp;
+    final List<BloomFilter<T>> filters;
+    final long lastFilterCount;
+
+    SerialForm(ScalableBloomFilter<T> sbf) {
+      synchronized (sbf) {
+        this.funnel = sbf.funnel;
+        this.initialExpectedInsertions = sbf.initialExpectedInsertions;
+        this.fpp = sbf.fpp;
+        this.filters = new ArrayList<>(Arrays.asList(sbf.filters));
+        this.lastFilterCount = sbf.lastFilterCount.get();
+      }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+    Object readResolve() {
+      return new ScalableBloomFilter<T>(
+          funnel,
+          initialExpectedInsertions,
+          fpp,
+          filters.toArray(new BloomFilter[0]),
+          lastFilterCount);
+    }
+
+    private static final long serialVersionUID = 1;
+  }
+
+  /**
+   * Writes this {@code ScalableBloomFilter} to an output stream, with a custom format (not Java
+   * serialization), which includes the serial form of each filter in its chain, as written by
+   * {@link BloomFilter#writeTo}.
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written
+   * ScalableBloomFilter.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 big endian long, the initial number of expected insertions
+    // 1 big endian double, the false positive probability
+    // 1 big endian long, the number of elements put into the last filter
+    // 1 big endian int, the number of filters
+    // the serial forms of the filters, as written by BloomFilter.writeTo
+    BloomFilter<T>[] filters;
+    long lastFilterCount;
+    synchronized (this) {
+      filters = this.filters;
+      lastFilterCount = this.lastFilterCount.get();
+    }
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeLong(initialExpectedInsertions);
+    dout.writeDouble(fpp);
+    dout.writeLong(lastFilterCount);
+    dout.writeInt(filters.length);
+    for (BloomFilter<T> filter : filters) {
+      filter.writeTo(out);
+    }
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into a {@code
+   * ScalableBloomFilter}.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original Bloom filter!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a ScalableBloomFilter serialized using the {@linkplain
+   *     #writeTo(OutputStream)} method.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  public static <T> ScalableBloomFilter<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    long initialExpectedInsertions = -1;
+    double fpp = -1;
+    int filterCount = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      initialExpectedInsertions = din.readLong();
+      fpp = din.readDouble();
+      long lastFilterCount = din.readLong();
+      filterCount = din.readInt();
+      checkArgument(initialExpectedInsertions > 0, "initialExpectedInsertions must be > 0");
+      checkArgument(fpp > 0.0 && fpp < 1.0, "fpp must be in (0, 1)");
+      checkArgument(filterCount > 0, "filterCount must be > 0");
+
+      BloomFilter<T>[] filters = new BloomFilter[filterCount];
+      for (int i = 0; i < filterCount; i++) {
+        filters[i] = BloomFilter.readFrom(in, funnel);
+      }
+      return new ScalableBloomFilter<T>(
+          funnel, initialExpectedInsertions, fpp, filters, lastFilterCount);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize ScalableBloomFilter from InputStream."
+              + " initialExpectedInsertions: "
+              + initialExpectedInsertions
+              + " fpp: "
+              + fpp
+              + " filterCount: "
+              + filterCount;
+      throw new IOException(message, e);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Source:
+ * https://github.com/Cyan4973/xxHash/blob/dev/doc/xxhash_spec.md
+ * (Modified to adapt to Guava coding conventions and to use the HashFunction interface)
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.hash.LittleEndianByteArray.load32;
+import static com.google.common.hash.LittleEndianByteArray.load64;
+
+import com.google.errorprone.annotations.Immutable;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import org.checkerframework.checker.nullness.compatqual.NullableDecl;
+
+/**
+ * Implementation of XXH64, the 64-bit variant of Yann Collet's xxHash. See XXH64 in <a
+ * href="https://github.com/Cyan4973/xxHash/blob/dev/xxhash.h">the C implementation</a>.
+ */
+@Immutable
+final class XxHash64HashFunction extends AbstractHashFunction implements Serializable {
+  static final HashFunction XX_HASH_64 = new XxHash64HashFunction(0);
+
+  static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+  static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+  static final long PRIME64_3 = 0x165667B19E3779F9L;
+  static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+  static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+  private static final int STRIPE_LENGTH = 32;
+
+  private final long seed;
+
+  XxHash64HashFunction(long seed) {
+    this.seed = seed;
+  }
+
+  @Override
+  public int bits() {
+    return 64;
+  }
+
+  @Override
+  public Hasher newHasher() {
+    return new XxHash64Hasher(seed);
+  }
+
+  @Override
+  public HashCode hashBytes(byte[] input, int off, int len) {
+    checkPositionIndexes(off, off + len, input.length);
+    long hash;
+    int end = off + len;
+    if (len >= STRIPE_LENGTH) {
+      long v1 = seed + PRIME64_1 + PRIME64_2;
+      long v2 = seed + PRIME64_2;
+      long v3 = seed;
+      long v4 = seed - PRIME64_1;
+      for (; end - off >= STRIPE_LENGTH; off += STRIPE_LENGTH) {
+        v1 = round(v1, load64(input, off));
+        v2 = round(v2, load64(input, off + 8));
+        v3 = round(v3, load64(input, off + 16));
+        v4 = round(v4, load64(input, off + 24));
+      }
+      hash = mergeAccumulators(v1, v2, v3, v4);
+    } else {
+      hash = seed + PRIME64_5;
+    }
+    hash += len;
+    return HashCode.fromLong(finish(hash, input, off, end - off));
+  }
+
+  @Override
+  public String toString() {
+    return "Hashing.xxHash64(" + seed + ")";
+  }
+
+  @Override
+  public boolean equals(@NullableDecl Object object) {
+    if (object instanceof XxHash64HashFunction) {
+      XxHash64HashFunction other = (XxHash64HashFunction) object;
+      return seed == other.seed;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (getClass().hashCode() ^ seed ^ (seed >>> 32));
+  }
+
+  private static long round(long accumulator, long input) {
+    accumulator += input * PRIME64_2;
+    accumulator = Long.rotateLeft(accumulator, 31);
+    return accumulator * PRIME64_1;
+  }
+
+  private static long mergeRound(long hash, long accumulator) {
+    hash ^= round(0, accumulator);
+    return hash * PRIME64_1 + PRIME64_4;
+  }
+
+  private static long mergeAccumulators(long v1, long v2, long v3, long v4) {
+    long hash =
+        Long.rotateLeft(v1, 1)
+            + Long.rotateLeft(v2, 7)
+            + Long.rotateLeft(v3, 12)
+            + Long.rotateLeft(v4, 18);
+    hash = mergeRound(hash, v1);
+    hash = mergeRound(hash, v2);
+    hash = mergeRound(hash, v3);
+    return mergeRound(hash, v4);
+  }
+
+  /** Consumes the final {@code len < 32} bytes of the input, and avalanches the hash. */
+  private static long finish(long hash, byte[] input, int off, int len) {
+    int end = off + len;
+    for (; end - off >= 8; off += 8) {
+      hash ^= round(0, load64(input, off));
+      hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+    }
+    if (end - off >= 4) {
+      hash ^= (load32(input, off) & 0xFFFFFFFFL) * PRIME64_1;
+      hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+      off += 4;
+    }
+    for (; off < end; off++) {
+      hash ^= (input[off] & 0xFFL) * PRIME64_5;
+      hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+    }
+    return avalanche(hash);
+  }
+
+  static long avalanche(long hash) {
+    hash ^= hash >>> 33;
+    hash *= PRIME64_2;
+    hash ^= hash >>> 29;
+    hash *= PRIME64_3;
+    return hash ^ (hash >>> 32);
+  }
+
+  private static final class XxHash64Hasher extends AbstractStreamingHasher {
+    private final long seed;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long length;
+    private byte[] remaining = new byte[0];
+
+    XxHash64Hasher(long seed) {
+      super(STRIPE_LENGTH);
+      this.seed = seed;
+      this.v1 = seed + PRIME64_1 + PRIME64_2;
+      this.v2 = seed + PRIME64_2;
+      this.v3 = seed;
+      this.v4 = seed - PRIME64_1;
+    }
+
+    @Override
+    protected void process(ByteBuffer bb) {
+      v1 = round(v1, bb.getLong());
+      v2 = round(v2, bb.getLong());
+      v3 = round(v3, bb.getLong());
+      v4 = round(v4, bb.getLong());
+      length += STRIPE_LENGTH;
+    }
+
+    @Override
+    protected void processRemaining(ByteBuffer bb) {
+      remaining = new byte[bb.remaining()];
+      bb.get(remaining);
+    }
+
+    @Override
+    protected HashCode makeHash() {
+      long hash = (length == 0) ? seed + PRIME64_5 : mergeAccumulators(v1, v2, v3, v4);
+      hash += length + remaining.length;
+      return HashCode.fromLong(finish(hash, remaining, 0, remaining.length));
+    }
+  }
+
+  private static final long serialVersionUID = 0L;
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.primitives.Ints;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays synthetic access traces against caches using each {@link EvictionPolicy}, reporting the
+ * hit rate of each combination along with its running time.
+ */
+public class EvictionPolicyBenchmark {
+  @Param({"1000", "10000"})
+  int maximumSize;
+
+  @Param("4")
+  int segments;
+
+  @Param EvictionPolicy policy;
+
+  @Param Trace trace;
+
+  enum Trace {
+    /** Skewed popularity, where a few keys receive most of the requests. */
+    ZIPFIAN {
+      @Override
+      int[] generate(int maximumSize, Random random) {
+        int[] keys = new int[TRACE_LENGTH];
+        for (int i = 0; i < keys.length; i++) {
+          keys[i] = skewedKey(random, 10 * maximumSize);
+        }
+        return keys;
+      }
+    },
+
+    /**
+     * Skewed popularity, interrupted by sequential scans of keys that are each requested only
+     * once, such as a batch job walking a table.
+     */
+    ZIPFIAN_WITH_SCANS {
+      @Override
+      int[] generate(int maximumSize, Random random) {
+        int[] keys = new int[TRACE_LENGTH];
+        int scanKey = Integer.MIN_VALUE;
+        int i = 0;
+        while (i < keys.length) {
+          for (int j = 0; (j < 4 * maximumSize) && (i < keys.length); j++) {
+            keys[i++] = skewedKey(random, 10 * maximumSize);
+          }
+          for (int j = 0; (j < 2 * maximumSize) && (i < keys.length); j++) {
+            keys[i++] = scanKey++;
+          }
+        }
+        return keys;
+      }
+    },
+
+    /** Repeated loops over slightly more keys than fit in the cache; the worst case for LRU. */
+    LOOP {
+      @Override
+      int[] generate(int maximumSize, Random random) {
+        int[] keys = new int[TRACE_LENGTH];
+        int loopSize = maximumSize + maximumSize / 2;
+        for (int i = 0; i < keys.length; i++) {
+          keys[i] = i % loopSize;
+        }
+        return keys;
+      }
+    };
+
+    abstract int[] generate(int maximumSize, Random random);
+  }
+
+  static final int TRACE_LENGTH = 1 << 20;
+
+  // 1 means uniform likelihood of keys; higher means some keys are more popular
+  static final double CONCENTRATION = 2.5;
+
+  int[] keys;
+
+  LoadingCache<Integer, Integer> cache;
+
+  static AtomicLong requests = new AtomicLong(0);
+  static AtomicLong misses = new AtomicLong(0);
+
+  @BeforeExperiment
+  void setUp() {
+    keys = trace.generate(maximumSize, new Random(0));
+    cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(segments)
+            .maximumSize(maximumSize)
+            .evictionPolicy(policy)
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer from) {
+                    misses.incrementAndGet();
+                    return from;
+                  }
+                });
+
+    // replay the trace once to warm the cache, so that only steady-state behavior is measured
+    for (int key : keys) {
+      cache.getUnchecked(key);
+    }
+    requests.set(0);
+    misses.set(0);
+  }
+
+  @Benchmark
+  int replay(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += cache.getUnchecked(keys[i & (TRACE_LENGTH - 1)]);
+    }
+    requests.addAndGet(reps);
+    return dummy;
+  }
+
+  /**
+   * Returns a key in {@code [0, distinctKeys)}, where smaller keys are more likely; see {@link
+   * LoadingCacheSingleThreadBenchmark}.
+   */
+  static int skewedKey(Random random, int distinctKeys) {
+    int max = Ints.saturatedCast((long) Math.pow(distinctKeys, CONCENTRATION));
+    return distinctKeys - 1 - (int) Math.pow(random.nextInt(max), 1.0 / CONCENTRATION);
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    double req = requests.get();
+    double hit = req - misses.get();
+    System.out.println(trace + " " + policy + " hit rate: " + hit / req);
+  }
+}
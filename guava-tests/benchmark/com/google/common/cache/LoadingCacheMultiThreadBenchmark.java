@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.caliper.AfterExperiment;
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded read benchmark for {@link LoadingCache}, where every thread requests keys from the
+ * same skewed (Zipfian) distribution, so that the most popular entries are read concurrently by
+ * all threads. The keys are generated up front so that the benchmark measures the cache rather than
+ * the random number generator; see {@link LoadingCacheSingleThreadBenchmark} for the
+ * single-threaded equivalent.
+ */
+public class LoadingCacheMultiThreadBenchmark {
+  @Param({"1", "2", "4", "8", "16"})
+  int threads;
+
+  @Param("1000")
+  int maximumSize;
+
+  @Param("5000")
+  int distinctKeys;
+
+  @Param({"1", "4", "16"})
+  int segments;
+
+  // 1 means uniform likelihood of keys; higher means some keys are more popular
+  // tweak this to control hit rate
+  @Param("2.5")
+  double concentration;
+
+  static final int KEY_COUNT = 1 << 16;
+
+  int[] keys;
+
+  LoadingCache<Integer, Integer> cache;
+
+  ExecutorService threadPool;
+
+  static AtomicLong requests = new AtomicLong(0);
+  static AtomicLong misses = new AtomicLong(0);
+
+  @BeforeExperiment
+  void setUp() {
+    // random integers will be generated in this range, then raised to the
+    // power of (1/concentration) and floor()ed
+    int max = Ints.checkedCast((long) Math.pow(distinctKeys, concentration));
+    Random random = new Random(0);
+    keys = new int[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = distinctKeys - 1 - (int) Math.pow(random.nextInt(max), 1.0 / concentration);
+    }
+
+    cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(segments)
+            .maximumSize(maximumSize)
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer from) {
+                    misses.incrementAndGet();
+                    return from;
+                  }
+                });
+
+    // warm the cache, so that mostly hits are measured
+    for (int key : keys) {
+      cache.getUnchecked(key);
+    }
+
+    threadPool =
+        Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).build());
+    requests.set(0);
+    misses.set(0);
+  }
+
+  @Benchmark
+  long read(final int reps) throws ExecutionException, InterruptedException {
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int t = 0; t < threads; t++) {
+      final int offset = t * (KEY_COUNT / threads);
+      futures.add(
+          threadPool.submit(
+              new Callable<Long>() {
+                @Override
+                public Long call() {
+                  return readSingleThread(reps, offset);
+                }
+              }));
+    }
+    long total = 0;
+    for (Future<Long> future : futures) {
+      total += future.get();
+    }
+    requests.addAndGet((long) reps * threads);
+    return total;
+  }
+
+  private long readSingleThread(int reps, int offset) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += cache.getUnchecked(keys[(offset + i) & (KEY_COUNT - 1)]);
+    }
+    return dummy;
+  }
+
+  @AfterExperiment
+  void tearDown() {
+    threadPool.shutdown();
+    double req = requests.get();
+    double hit = req - misses.get();
+    System.out.println("hit rate: " + hit / req);
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.common.collect;
 
+import com.google.caliper.BeforeExperiment;
 import com.google.caliper.Benchmark;
 
 /**
@@ -24,6 +25,22 @@ import com.google.caliper.Benchmark;
  * @author Dimitris Andreou
  */
 public class InternersBenchmark {
+  /** Distinct strings, each repeated in {@link #tokens}, as the tokens of a parsed input are. */
+  private static final int DISTINCT_TOKENS = 1 << 12;
+
+  private static final int TOKENS = 1 << 16;
+
+  private String[] tokens;
+
+  @BeforeExperiment
+  void setUp() {
+    tokens = new String[TOKENS];
+    for (int i = 0; i < TOKENS; i++) {
+      // a fresh copy of each token, as a parser would create
+      tokens[i] = new String(Integer.toHexString(i % DISTINCT_TOKENS));
+    }
+  }
+
   @Benchmark
   int weakInterner(int reps) {
     Interner<String> interner = Interners.newWeakInterner();
@@ -42,6 +59,59 @@ public class InternersBenchmark {
     return reps;
   }
 
+  @Benchmark
+  int stripedInterner(int reps) {
+    Interner<String> interner = Interners.newStripedInterner();
+    for (int i = 0; i < reps; i++) {
+      interner.intern(Double.toHexString(Math.random()));
+    }
+    return reps;
+  }
+
+  @Benchmark
+  int boundedStripedInterner(int reps) {
+    Interner<String> interner = Interners.newBuilder().maximumSize(1 << 16).build();
+    for (int i = 0; i < reps; i++) {
+      interner.intern(Double.toHexString(Math.random()));
+    }
+    return reps;
+  }
+
+  @Benchmark
+  int weakInternerHits(int reps) {
+    return internTokens(Interners.newWeakInterner(), reps);
+  }
+
+  @Benchmark
+  int strongInternerHits(int reps) {
+    return internTokens(Interners.newStrongInterner(), reps);
+  }
+
+  @Benchmark
+  int stripedInternerHits(int reps) {
+    return internTokens(Interners.newStripedInterner(), reps);
+  }
+
+  @Benchmark
+  int stripedInternerInternAll(int reps) {
+    Interner<String> interner = Interners.newStripedInterner();
+    int dummy = 0;
+    for (int i = 0; i < reps; i += TOKENS) {
+      String[] batch = tokens.clone();
+      interner.internAll(batch);
+      dummy += System.identityHashCode(batch[i & (TOKENS - 1)]);
+    }
+    return dummy;
+  }
+
+  private int internTokens(Interner<String> interner, int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += System.identityHashCode(interner.intern(tokens[i & (TOKENS - 1)]));
+    }
+    return dummy;
+  }
+
   @Benchmark
   int stringIntern(int reps) {
     for (int i = 0; i < reps; i++) {
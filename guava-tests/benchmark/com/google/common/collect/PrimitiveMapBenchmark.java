@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A microbenchmark that compares {@link LongObjectHashMap} and {@link ImmutableLongObjectMap} with
+ * the boxed {@link HashMap} and {@link ImmutableMap}, in the manner of {@link MapBenchmark}.
+ */
+public class PrimitiveMapBenchmark {
+  @Param({"Hash", "Immutable", "LongObjectHash", "ImmutableLongObject"})
+  private Impl impl;
+
+  @Param({"5", "50", "500", "5000", "50000"})
+  private int size;
+
+  @Param("0.9")
+  private double hitRate;
+
+  enum Impl {
+    Hash {
+      @Override
+      LongMap create(long[] keys) {
+        Map<Long, Object> map = new HashMap<>();
+        for (long key : keys) {
+          map.put(key, Boolean.TRUE);
+        }
+        return map::get;
+      }
+    },
+    Immutable {
+      @Override
+      LongMap create(long[] keys) {
+        ImmutableMap.Builder<Long, Object> builder = ImmutableMap.builder();
+        for (long key : keys) {
+          builder.put(key, Boolean.TRUE);
+        }
+        return builder.build()::get;
+      }
+    },
+    LongObjectHash {
+      @Override
+      LongMap create(long[] keys) {
+        LongObjectHashMap<Object> map = LongObjectHashMap.create();
+        for (long key : keys) {
+          map.put(key, Boolean.TRUE);
+        }
+        return map::get;
+      }
+    },
+    ImmutableLongObject {
+      @Override
+      LongMap create(long[] keys) {
+        ImmutableLongObjectMap.Builder<Object> builder = ImmutableLongObjectMap.builder();
+        for (long key : keys) {
+          builder.put(key, Boolean.TRUE);
+        }
+        return builder.build()::get;
+      }
+    };
+
+    abstract LongMap create(long[] keys);
+  }
+
+  /** The lookup of each implementation; boxing the key is part of the cost of the boxed maps. */
+  interface LongMap {
+    Object get(long key);
+  }
+
+  // the following must be set during setUp
+  private long[] keys;
+  private long[] queries;
+  private LongMap map;
+
+  @BeforeExperiment
+  void setUp() {
+    Random random = new Random(0);
+    keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextLong();
+    }
+    queries = new long[1 << 14];
+    for (int i = 0; i < queries.length; i++) {
+      queries[i] =
+          (random.nextDouble() < hitRate) ? keys[random.nextInt(size)] : random.nextLong();
+    }
+    map = impl.create(keys);
+  }
+
+  @Benchmark
+  boolean get(int reps) {
+    long[] queries = this.queries;
+    LongMap map = this.map;
+    int mask = queries.length - 1;
+    boolean dummy = false;
+    for (int i = 0; i < reps; i++) {
+      dummy ^= map.get(queries[i & mask]) != null;
+    }
+    return dummy;
+  }
+
+  @Benchmark
+  int createAndPopulate(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.create(keys).hashCode();
+    }
+    return dummy;
+  }
+}
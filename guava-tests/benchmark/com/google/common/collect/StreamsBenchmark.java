@@ -33,7 +33,10 @@ import java.util.stream.Stream;
  * @author Louis Wasserman
  */
 public class StreamsBenchmark {
-  @Param({"1", "10", "100", "1000", "10000"})
+  /** Only the operations which build collections are run at the largest size. */
+  private static final int MAX_SIZE_FOR_ALL_OPERATIONS = 10000;
+
+  @Param({"1", "10", "100", "1000", "10000", "10000000"})
   private int size;
 
   enum CollectionType {
@@ -52,13 +55,13 @@ public class StreamsBenchmark {
   enum Operation {
     FIND_FIRST {
       @Override
-      Object operate(Stream<?> stream) {
+      Object operate(Stream<?> stream, int size) {
         return stream.findFirst();
       }
     },
     STREAMS_ONLY_ELEMENT {
       @Override
-      Object operate(Stream<?> stream) {
+      Object operate(Stream<?> stream, int size) {
         try {
           return stream.collect(MoreCollectors.onlyElement());
         } catch (IllegalArgumentException | NoSuchElementException e) {
@@ -68,24 +71,70 @@ public class StreamsBenchmark {
     },
     STREAMS_FIND_LAST {
       @Override
-      Object operate(Stream<?> stream) {
+      Object operate(Stream<?> stream, int size) {
         return Streams.findLast(stream);
       }
     },
     REDUCE_LAST {
       @Override
-      Object operate(Stream<?> stream) {
+      Object operate(Stream<?> stream, int size) {
         return stream.reduce((a, b) -> b);
       }
     },
     REDUCE_LAST_PARALLEL {
       @Override
-      Object operate(Stream<?> stream) {
+      Object operate(Stream<?> stream, int size) {
         return stream.parallel().reduce((a, b) -> b);
       }
+    },
+    TO_IMMUTABLE_SET(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.collect(ImmutableSet.toImmutableSet());
+      }
+    },
+    TO_IMMUTABLE_SET_PRESIZED(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.collect(ImmutableSet.toImmutableSet(size));
+      }
+    },
+    TO_IMMUTABLE_SET_PARALLEL(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.parallel().collect(ImmutableSet.toImmutableSet(size));
+      }
+    },
+    TO_IMMUTABLE_MAP(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.collect(ImmutableMap.toImmutableMap(e -> e, e -> e));
+      }
+    },
+    TO_IMMUTABLE_MAP_PRESIZED(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.collect(ImmutableMap.toImmutableMap(e -> e, e -> e, size));
+      }
+    },
+    TO_IMMUTABLE_MAP_PARALLEL(true) {
+      @Override
+      Object operate(Stream<?> stream, int size) {
+        return stream.parallel().collect(ImmutableMap.toImmutableMap(e -> e, e -> e, size));
+      }
     };
 
-    abstract Object operate(Stream<?> stream);
+    final boolean buildsCollection;
+
+    Operation() {
+      this(false);
+    }
+
+    Operation(boolean buildsCollection) {
+      this.buildsCollection = buildsCollection;
+    }
+
+    abstract Object operate(Stream<?> stream, int size);
   }
 
   @Param private Operation operation;
@@ -94,6 +143,10 @@ public class StreamsBenchmark {
 
   @BeforeExperiment
   void setUp() {
+    if (size > MAX_SIZE_FOR_ALL_OPERATIONS
+        && (source != CollectionType.ARRAY_LIST || !operation.buildsCollection)) {
+      throw new SkipThisScenarioException();
+    }
     collection = source.supplier.get();
     for (int i = 0; i < size; i++) {
       collection.add(new Object());
@@ -104,7 +157,7 @@ public class StreamsBenchmark {
   int runOperation(int reps) {
     int result = 0;
     for (int i = 0; i < reps; i++) {
-      result += System.identityHashCode(operation.operate(collection.stream()));
+      result += System.identityHashCode(operation.operate(collection.stream(), size));
     }
     return result;
   }
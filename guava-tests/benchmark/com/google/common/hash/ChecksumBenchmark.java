@@ -19,6 +19,7 @@ package com.google.common.hash;
 import com.google.caliper.BeforeExperiment;
 import com.google.caliper.Benchmark;
 import com.google.caliper.Param;
+import com.google.caliper.api.SkipThisScenarioException;
 import java.util.Random;
 import java.util.zip.Adler32;
 import java.util.zip.CRC32;
@@ -33,6 +34,9 @@ import java.util.zip.Checksum;
  *   <li>size: The length of the byte array to hash.
  * </ul>
  *
+ * <p>The CRC32C benchmarks compare the JDK's {@code java.util.zip.CRC32C}, which {@link
+ * Hashing#crc32c()} uses on Java 9 and later, with the slicing-by-8 implementation it uses before.
+ *
  * @author Colin Decker
  */
 public class ChecksumBenchmark {
@@ -87,6 +91,37 @@ public class ChecksumBenchmark {
     return result;
   }
 
+  // CRC32C
+
+  @Benchmark
+  byte crc32cHashFunction(int reps) {
+    return runHashFunction(reps, Hashing.crc32c());
+  }
+
+  @Benchmark
+  byte crc32cSlicingBy8(int reps) {
+    byte result = 0x01;
+    for (int i = 0; i < reps; i++) {
+      Hasher hasher = new Crc32cHashFunction.Crc32cHasher();
+      result ^= hasher.putBytes(testBytes).hash().asBytes()[0];
+    }
+    return result;
+  }
+
+  @Benchmark
+  byte crc32cJdkChecksum(int reps) throws Exception {
+    if (Crc32cHashFunction.newJdkCrc32c() == null) {
+      throw new SkipThisScenarioException(); // java.util.zip.CRC32C was added in Java 9
+    }
+    byte result = 0x01;
+    for (int i = 0; i < reps; i++) {
+      Checksum checksum = Crc32cHashFunction.newJdkCrc32c();
+      checksum.update(testBytes, 0, testBytes.length);
+      result = (byte) (result ^ checksum.getValue());
+    }
+    return result;
+  }
+
   // Helpers + main
 
   private byte runHashFunction(int reps, HashFunction hashFunction) {
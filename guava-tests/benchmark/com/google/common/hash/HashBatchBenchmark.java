@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for hashing many small keys one at a time, compared with the batch methods such as
+ * {@link HashFunction#hashLongs}.
+ */
+public class HashBatchBenchmark {
+  private static final Random random = new Random(42);
+
+  @Param({"1000"})
+  private int count;
+
+  @Param({"MURMUR3_32", "MURMUR3_128", "FARMHASH_FINGERPRINT_64", "SHA1"})
+  HashFunctionEnum hashFunctionEnum;
+
+  private int[] ints;
+  private long[] longs;
+  private List<String> strings;
+  private long[] results;
+
+  @BeforeExperiment
+  void setUp() {
+    ints = new int[count];
+    longs = new long[count];
+    strings = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      strings.add(Long.toString(longs[i], 36));
+    }
+    results = new long[count];
+  }
+
+  @Benchmark
+  long hashLongsSingly(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      for (long input : longs) {
+        result ^= hashFunction.hashLong(input).padToLong();
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  long hashLongs(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      hashFunction.hashLongs(longs, results);
+      result ^= results[i % count];
+    }
+    return result;
+  }
+
+  @Benchmark
+  long hashIntsSingly(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      for (int input : ints) {
+        result ^= hashFunction.hashInt(input).padToLong();
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  long hashInts(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      hashFunction.hashInts(ints, results);
+      result ^= results[i % count];
+    }
+    return result;
+  }
+
+  @Benchmark
+  long hashUnencodedCharsSingly(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      for (String input : strings) {
+        result ^= hashFunction.hashUnencodedChars(input).padToLong();
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  long hashUnencodedChars(int reps) {
+    HashFunction hashFunction = hashFunctionEnum.getHashFunction();
+    long result = 37;
+    for (int i = 0; i < reps; i++) {
+      hashFunction.hashUnencodedChars(strings, results);
+      result ^= results[i % count];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.cache.TestingCacheLoaders.bulkLoader;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.TestingCacheLoaders.CountingLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.FakeTicker;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AsyncLoadingCache}.
+ */
+public class AsyncLoadingCacheTest extends TestCase {
+
+  /** A loader whose loads complete only when the test sets the corresponding future. */
+  static class SettableLoader extends AsyncCacheLoader<Integer, Integer> {
+    final Map<Integer, SettableFuture<Integer>> futures = new HashMap<>();
+    final AtomicInteger loadCount = new AtomicInteger();
+
+    @Override
+    public ListenableFuture<Integer> load(Integer key) {
+      loadCount.incrementAndGet();
+      SettableFuture<Integer> future = SettableFuture.create();
+      futures.put(key, future);
+      return future;
+    }
+  }
+
+  public void testGetFuture_hit() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().recordStats().buildAsync(loader);
+    cache.synchronous().put(1, 10);
+
+    ListenableFuture<Integer> future = cache.getFuture(1);
+    assertTrue(future.isDone());
+    assertEquals(10, (int) Futures.getDone(future));
+    assertEquals(0, loader.loadCount.get());
+
+    CacheStats stats = cache.synchronous().stats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(0, stats.missCount());
+  }
+
+  public void testGetFuture_sharesLoad() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().recordStats().buildAsync(loader);
+
+    ListenableFuture<Integer> first = cache.getFuture(1);
+    ListenableFuture<Integer> second = cache.getFuture(1);
+    assertFalse(first.isDone());
+    assertFalse(second.isDone());
+    assertEquals(1, loader.loadCount.get());
+    assertNull(cache.synchronous().getIfPresent(1));
+
+    loader.futures.get(1).set(10);
+    assertEquals(10, (int) Futures.getDone(first));
+    assertEquals(10, (int) Futures.getDone(second));
+    assertEquals(10, (int) cache.synchronous().getIfPresent(1));
+
+    CacheStats stats = cache.synchronous().stats();
+    // two from getFuture, and one from getIfPresent while loading
+    assertEquals(3, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+    assertEquals(0, stats.loadExceptionCount());
+  }
+
+  public void testGetFuture_failure() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().recordStats().buildAsync(loader);
+
+    ListenableFuture<Integer> future = cache.getFuture(1);
+    IOException e = new IOException();
+    loader.futures.get(1).setException(e);
+    try {
+      Futures.getDone(future);
+      fail();
+    } catch (ExecutionException expected) {
+      assertSame(e, expected.getCause());
+    }
+    assertNull(cache.synchronous().getIfPresent(1));
+    assertEquals(0, cache.synchronous().size());
+    assertEquals(1, cache.synchronous().stats().loadExceptionCount());
+
+    // the next request starts a new load
+    cache.getFuture(1);
+    assertEquals(2, loader.loadCount.get());
+  }
+
+  public void testGetFuture_loaderThrows() throws Exception {
+    final RuntimeException e = new IllegalStateException();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    throw e;
+                  }
+                });
+
+    ListenableFuture<Integer> future = cache.getFuture(1);
+    try {
+      Futures.getDone(future);
+      fail();
+    } catch (ExecutionException expected) {
+      assertSame(e, expected.getCause());
+    }
+    assertEquals(0, cache.synchronous().size());
+  }
+
+  public void testGetFuture_nullValue() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache = CacheBuilder.newBuilder().buildAsync(loader);
+
+    ListenableFuture<Integer> first = cache.getFuture(1);
+    ListenableFuture<Integer> second = cache.getFuture(1);
+    loader.futures.get(1).set(null);
+    for (ListenableFuture<Integer> future : ImmutableList.of(first, second)) {
+      try {
+        Futures.getDone(future);
+        fail();
+      } catch (ExecutionException expected) {
+        assertThat(expected.getCause()).isInstanceOf(InvalidCacheLoadException.class);
+      }
+    }
+    assertEquals(0, cache.synchronous().size());
+  }
+
+  public void testGetFuture_nullFuture() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    return null;
+                  }
+                });
+
+    try {
+      Futures.getDone(cache.getFuture(1));
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected.getCause()).isInstanceOf(InvalidCacheLoadException.class);
+    }
+    assertEquals(0, cache.synchronous().size());
+  }
+
+  public void testGetFuture_nullFutureFailsJoinedLoads() throws Exception {
+    final AtomicReference<AsyncLoadingCache<Integer, Integer>> cacheReference =
+        new AtomicReference<>();
+    final AtomicReference<ListenableFuture<Integer>> joined = new AtomicReference<>();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    // joins the load in progress
+                    joined.set(cacheReference.get().getFuture(key));
+                    return null;
+                  }
+                });
+    cacheReference.set(cache);
+
+    ListenableFuture<Integer> first = cache.getFuture(1);
+    for (ListenableFuture<Integer> future : ImmutableList.of(first, joined.get())) {
+      try {
+        Futures.getDone(future);
+        fail();
+      } catch (ExecutionException expected) {
+        assertThat(expected.getCause()).isInstanceOf(InvalidCacheLoadException.class);
+      }
+    }
+    assertEquals(0, cache.synchronous().size());
+  }
+
+  public void testGetFuture_cancelDoesNotCancelLoad() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache = CacheBuilder.newBuilder().buildAsync(loader);
+
+    ListenableFuture<Integer> first = cache.getFuture(1);
+    ListenableFuture<Integer> second = cache.getFuture(1);
+    assertTrue(first.cancel(true));
+    assertFalse(loader.futures.get(1).isCancelled());
+
+    loader.futures.get(1).set(10);
+    assertEquals(10, (int) Futures.getDone(second));
+    assertEquals(10, (int) cache.synchronous().getIfPresent(1));
+  }
+
+  public void testGetFuture_synchronousViewWaitsForLoad() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().buildAsync(identityAsyncLoader());
+
+    LoadingCache<Integer, Integer> synchronous = cache.synchronous();
+    assertEquals(1, (int) synchronous.get(1));
+    assertEquals(1, (int) Futures.getDone(cache.getFuture(1)));
+    assertEquals(ImmutableMap.of(1, 1, 2, 2), synchronous.getAll(ImmutableList.of(1, 2)));
+    assertEquals(ImmutableMap.of(1, 1, 2, 2), synchronous.asMap());
+  }
+
+  public void testSynchronous_failure() throws Exception {
+    final IOException e = new IOException();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    return Futures.immediateFailedFuture(e);
+                  }
+                });
+
+    try {
+      cache.synchronous().get(1);
+      fail();
+    } catch (ExecutionException expected) {
+      assertSame(e, expected.getCause());
+    }
+  }
+
+  public void testSynchronous_refreshUsesAsyncReload() throws Exception {
+    final SettableFuture<Integer> reloaded = SettableFuture.create();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    return Futures.immediateFuture(key);
+                  }
+
+                  @Override
+                  public ListenableFuture<Integer> reload(Integer key, Integer oldValue) {
+                    return reloaded;
+                  }
+                });
+    assertEquals(1, (int) Futures.getDone(cache.getFuture(1)));
+
+    // the old value remains visible until the reload completes
+    cache.synchronous().refresh(1);
+    assertEquals(1, (int) Futures.getDone(cache.getFuture(1)));
+    reloaded.set(2);
+    assertEquals(2, (int) Futures.getDone(cache.getFuture(1)));
+  }
+
+  public void testRefreshAfterWrite_reloadsAsynchronously() throws Exception {
+    final SettableFuture<Integer> reloaded = SettableFuture.create();
+    FakeTicker ticker = new FakeTicker();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .refreshAfterWrite(1, MILLISECONDS)
+            .ticker(ticker)
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    return Futures.immediateFuture(key);
+                  }
+
+                  @Override
+                  public ListenableFuture<Integer> reload(Integer key, Integer oldValue) {
+                    return reloaded;
+                  }
+                });
+    assertEquals(1, (int) Futures.getDone(cache.getFuture(1)));
+
+    ticker.advance(2, MILLISECONDS);
+    ListenableFuture<Integer> stale = cache.getFuture(1);
+    assertTrue(stale.isDone());
+    assertEquals(1, (int) Futures.getDone(stale));
+    reloaded.set(2);
+    assertEquals(2, (int) Futures.getDone(cache.getFuture(1)));
+  }
+
+  public void testGetAllFuture_withoutLoadAll() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().recordStats().buildAsync(loader);
+    cache.synchronous().put(1, 10);
+    ListenableFuture<Integer> loading = cache.getFuture(2);
+
+    ListenableFuture<ImmutableMap<Integer, Integer>> future =
+        cache.getAllFuture(ImmutableList.of(3, 1, 2, 3));
+    assertFalse(future.isDone());
+    // the load in progress for 2 is shared
+    assertEquals(2, loader.loadCount.get());
+
+    loader.futures.get(2).set(20);
+    loader.futures.get(3).set(30);
+    ImmutableMap<Integer, Integer> result = Futures.getDone(future);
+    assertEquals(ImmutableMap.of(3, 30, 1, 10, 2, 20), result);
+    assertThat(result.keySet()).containsExactly(3, 1, 2).inOrder();
+    assertEquals(20, (int) Futures.getDone(loading));
+    assertEquals(30, (int) cache.synchronous().getIfPresent(3));
+  }
+
+  public void testGetAllFuture_allPresent() throws Exception {
+    SettableLoader loader = new SettableLoader();
+    AsyncLoadingCache<Integer, Integer> cache = CacheBuilder.newBuilder().buildAsync(loader);
+    cache.synchronous().putAll(ImmutableMap.of(1, 10, 2, 20));
+
+    ListenableFuture<ImmutableMap<Integer, Integer>> future =
+        cache.getAllFuture(ImmutableList.of(1, 2));
+    assertTrue(future.isDone());
+    assertEquals(ImmutableMap.of(1, 10, 2, 20), Futures.getDone(future));
+    assertEquals(0, loader.loadCount.get());
+  }
+
+  public void testGetAllFuture_withLoadAll() throws Exception {
+    final AtomicInteger loadAllCount = new AtomicInteger();
+    final SettableFuture<Map<Integer, Integer>> loaded = SettableFuture.create();
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .recordStats()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    throw new AssertionError();
+                  }
+
+                  @Override
+                  public ListenableFuture<Map<Integer, Integer>> loadAll(
+                      Iterable<? extends Integer> keys) {
+                    assertThat(keys).containsExactly(1, 2);
+                    loadAllCount.incrementAndGet();
+                    return loaded;
+                  }
+                });
+
+    ListenableFuture<ImmutableMap<Integer, Integer>> future =
+        cache.getAllFuture(ImmutableList.of(1, 2));
+    assertFalse(future.isDone());
+    loaded.set(ImmutableMap.of(1, 1, 2, 2, 3, 3));
+    assertEquals(ImmutableMap.of(1, 1, 2, 2), Futures.getDone(future));
+    assertEquals(1, loadAllCount.get());
+    // extra entries are cached too
+    assertEquals(3, (int) cache.synchronous().getIfPresent(3));
+
+    CacheStats stats = cache.synchronous().stats();
+    assertEquals(2, stats.missCount());
+    assertEquals(1, stats.loadSuccessCount());
+  }
+
+  public void testGetAllFuture_loadAllMissingKey() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(
+                new AsyncCacheLoader<Integer, Integer>() {
+                  @Override
+                  public ListenableFuture<Integer> load(Integer key) {
+                    throw new AssertionError();
+                  }
+
+                  @Override
+                  public ListenableFuture<Map<Integer, Integer>> loadAll(
+                      Iterable<? extends Integer> keys) {
+                    return Futures.<Map<Integer, Integer>>immediateFuture(ImmutableMap.of(1, 1));
+                  }
+                });
+
+    try {
+      Futures.getDone(cache.getAllFuture(ImmutableList.of(1, 2)));
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected.getCause()).isInstanceOf(InvalidCacheLoadException.class);
+    }
+    // the entries that were loaded are still cached
+    assertEquals(1, (int) cache.synchronous().getIfPresent(1));
+  }
+
+  public void testGetAllFuture_fromCacheLoader() throws Exception {
+    CountingLoader countingLoader = new CountingLoader();
+    AsyncLoadingCache<Object, Object> cache =
+        CacheBuilder.newBuilder()
+            .buildAsync(AsyncCacheLoader.from(countingLoader, directExecutor()));
+
+    // CountingLoader doesn't implement loadAll, which is only discovered inside the future
+    ImmutableMap<Object, Object> result =
+        Futures.getDone(cache.getAllFuture(ImmutableList.of(1, 2)));
+    assertThat(result.keySet()).containsExactly(1, 2).inOrder();
+    assertEquals(2, countingLoader.getCount());
+
+    CacheLoader<Integer, Integer> bulkLoader =
+        bulkLoader(TestingCacheLoaders.<Integer>identityLoader());
+    AsyncLoadingCache<Integer, Integer> bulkCache =
+        CacheBuilder.newBuilder().buildAsync(AsyncCacheLoader.from(bulkLoader, directExecutor()));
+    assertEquals(
+        ImmutableMap.of(1, 1, 2, 2),
+        Futures.getDone(bulkCache.getAllFuture(ImmutableList.of(1, 2))));
+  }
+
+  public void testFrom_function() throws Exception {
+    AsyncLoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().buildAsync(identityAsyncLoader());
+    assertEquals(5, (int) Futures.getDone(cache.getFuture(5)));
+  }
+
+  private static AsyncCacheLoader<Integer, Integer> identityAsyncLoader() {
+    return AsyncCacheLoader.from(
+        new AsyncFunction<Integer, Integer>() {
+          @Override
+          public ListenableFuture<Integer> apply(Integer key) {
+            return Futures.immediateFuture(key);
+          }
+        });
+  }
+}
@@ -40,6 +40,7 @@ class CacheBuilderFactory {
   private Set<Integer> concurrencyLevels = Sets.newHashSet((Integer) null);
   private Set<Integer> initialCapacities = Sets.newHashSet((Integer) null);
   private Set<Integer> maximumSizes = Sets.newHashSet((Integer) null);
+  private Set<EvictionPolicy> evictionPolicies = Sets.newHashSet((EvictionPolicy) null);
   private Set<DurationSpec> expireAfterWrites = Sets.newHashSet((DurationSpec) null);
   private Set<DurationSpec> expireAfterAccesses = Sets.newHashSet((DurationSpec) null);
   private Set<DurationSpec> refreshes = Sets.newHashSet((DurationSpec) null);
@@ -61,6 +62,11 @@ class CacheBuilderFactory {
     return this;
   }
 
+  CacheBuilderFactory withEvictionPolicies(Set<EvictionPolicy> evictionPolicies) {
+    this.evictionPolicies = Sets.newLinkedHashSet(evictionPolicies);
+    return this;
+  }
+
   CacheBuilderFactory withExpireAfterWrites(Set<DurationSpec> durations) {
     this.expireAfterWrites = Sets.newLinkedHashSet(durations);
     return this;
@@ -94,6 +100,7 @@ class CacheBuilderFactory {
             concurrencyLevels,
             initialCapacities,
             maximumSizes,
+            evictionPolicies,
             expireAfterWrites,
             expireAfterAccesses,
             refreshes,
@@ -108,11 +115,12 @@ class CacheBuilderFactory {
                 (Integer) combination.get(0),
                 (Integer) combination.get(1),
                 (Integer) combination.get(2),
-                (DurationSpec) combination.get(3),
+                (EvictionPolicy) combination.get(3),
                 (DurationSpec) combination.get(4),
                 (DurationSpec) combination.get(5),
-                (Strength) combination.get(6),
-                (Strength) combination.get(7));
+                (DurationSpec) combination.get(6),
+                (Strength) combination.get(7),
+                (Strength) combination.get(8));
           }
         });
   }
@@ -161,6 +169,7 @@ class CacheBuilderFactory {
       Integer concurrencyLevel,
       Integer initialCapacity,
       Integer maximumSize,
+      EvictionPolicy evictionPolicy,
       DurationSpec expireAfterWrite,
       DurationSpec expireAfterAccess,
       DurationSpec refresh,
@@ -176,6 +185,9 @@ class CacheBuilderFactory {
     }
     if (maximumSize != null) {
       builder.maximumSize(maximumSize);
+      if (evictionPolicy != null) {
+        builder.evictionPolicy(evictionPolicy);
+      }
     }
     if (expireAfterWrite != null) {
       builder.expireAfterWrite(expireAfterWrite.duration, expireAfterWrite.unit);
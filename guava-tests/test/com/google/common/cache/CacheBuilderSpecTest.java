@@ -117,6 +117,32 @@ public class CacheBuilderSpecTest extends TestCase {
     }
   }
 
+  public void testParse_minimumSize() {
+    CacheBuilderSpec spec = parse("maximumSize=9000,minimumSize=1000");
+    assertEquals(9000, spec.maximumSize.longValue());
+    assertEquals(1000, spec.minimumSize.longValue());
+    assertNull(spec.maximumWeight);
+    assertCacheBuilderEquivalence(
+        CacheBuilder.newBuilder().maximumSize(9000).minimumSize(1000), CacheBuilder.from(spec));
+  }
+
+  public void testParse_minimumSizeRepeated() {
+    try {
+      parse("minimumSize=10, minimumSize=20");
+      fail("Expected exception");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testMinimumSize_withoutMaximumSize() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.from(parse("minimumSize=10"));
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   public void testParse_concurrencyLevel() {
     CacheBuilderSpec spec = parse("concurrencyLevel=32");
     assertNull(spec.initialCapacity);
@@ -456,6 +482,8 @@ public class CacheBuilderSpecTest extends TestCase {
         .addEqualityGroup(parse("maximumSize=7"), parse("maximumSize=7"))
         .addEqualityGroup(parse("maximumSize=15"), parse("maximumSize=15"))
         .addEqualityGroup(parse("maximumWeight=7"), parse("maximumWeight=7"))
+        .addEqualityGroup(
+            parse("maximumSize=15,minimumSize=7"), parse("minimumSize=7,maximumSize=15"))
         .addEqualityGroup(parse("maximumWeight=15"), parse("maximumWeight=15"))
         .addEqualityGroup(parse("expireAfterAccess=60s"), parse("expireAfterAccess=1m"))
         .addEqualityGroup(parse("expireAfterAccess=60m"), parse("expireAfterAccess=1h"))
@@ -528,6 +556,7 @@ public class CacheBuilderSpecTest extends TestCase {
     assertEquals("initialCapacity", a.initialCapacity, b.initialCapacity);
     assertEquals("maximumSize", a.maximumSize, b.maximumSize);
     assertEquals("maximumWeight", a.maximumWeight, b.maximumWeight);
+    assertEquals("minimumSize", a.minimumSize, b.minimumSize);
     assertEquals("refreshNanos", a.refreshNanos, b.refreshNanos);
     assertEquals("keyEquivalence", a.keyEquivalence, b.keyEquivalence);
     assertEquals("keyStrength", a.keyStrength, b.keyStrength);
@@ -23,6 +23,7 @@ import static com.google.common.cache.TestingRemovalListeners.nullRemovalListene
 import static com.google.common.cache.TestingRemovalListeners.queuingRemovalListener;
 import static com.google.common.cache.TestingWeighers.constantWeigher;
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -161,6 +162,48 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // minimumSize
+  public void testMinimumSize_negative() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    try {
+      builder.minimumSize(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible // minimumSize
+  public void testMinimumSize_setTwice() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().minimumSize(16);
+    try {
+      builder.minimumSize(16);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // minimumSize
+  public void testMinimumSize_largerThanMaximumSize() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumSize(16).minimumSize(17);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // minimumSize
+  public void testMinimumSize_withMaximumWeight() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().maximumWeight(16).weigher(constantWeigher(1)).minimumSize(8);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   @GwtIncompatible // maximumWeight
   public void testMaximumSize_andWeight() {
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(16);
@@ -240,6 +283,36 @@ public class CacheBuilderTest extends TestCase {
   }
 
   @GwtIncompatible // weakKeys
+  public void testEvictionPolicy_setTwice() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU);
+    try {
+      // even to the same value is not allowed
+      builder.evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  public void testEvictionPolicy_withoutMaximum() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU);
+    try {
+      builder.build(identityLoader());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // maximumWeight
+  public void testEvictionPolicy_withMaximumWeight() {
+    CacheBuilder.newBuilder()
+        .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+        .maximumWeight(1)
+        .weigher(constantWeigher(1))
+        .build(identityLoader());
+  }
+
   public void testKeyStrengthSetTwice() {
     CacheBuilder<Object, Object> builder1 = CacheBuilder.newBuilder().weakKeys();
     try {
@@ -276,6 +349,46 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // offHeapValues
+  public void testOffHeapValues_setTwice() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().offHeapValues(unusedSerializer());
+    try {
+      builder.offHeapValues(unusedSerializer());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // offHeapValues
+  public void testOffHeapValues_withValueStrength() {
+    try {
+      CacheBuilder.newBuilder().weakValues().offHeapValues(unusedSerializer());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      CacheBuilder.newBuilder().offHeapValues(unusedSerializer()).softValues();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // ValueSerializer
+  private static ValueSerializer<Object> unusedSerializer() {
+    return new ValueSerializer<Object>() {
+      @Override
+      public byte[] serialize(Object value) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Object deserialize(java.nio.ByteBuffer bytes) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
   @GwtIncompatible // java.time.Duration
   public void testLargeDurations() {
     java.time.Duration threeHundredYears = java.time.Duration.ofDays(365 * 300);
@@ -321,6 +434,51 @@ public class CacheBuilderTest extends TestCase {
     // well, it didn't blow up.
   }
 
+  @GwtIncompatible // expireAfter
+  public void testExpireAfter_setTwice() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().expireAfter(new TestingExpiry());
+    try {
+      builder.expireAfter(new TestingExpiry());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // expireAfter
+  public void testExpireAfter_withFixedExpiration() {
+    try {
+      CacheBuilder.newBuilder().expireAfter(new TestingExpiry()).expireAfterWrite(1, SECONDS);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      CacheBuilder.newBuilder().expireAfter(new TestingExpiry()).expireAfterAccess(1, SECONDS);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      CacheBuilder.newBuilder().expireAfterWrite(1, SECONDS).expireAfter(new TestingExpiry());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      CacheBuilder.newBuilder().expireAfterAccess(1, SECONDS).expireAfter(new TestingExpiry());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // expireAfter
+  public void testExpireAfter_withRefresh() {
+    CacheBuilder.newBuilder()
+        .expireAfter(new TestingExpiry())
+        .refreshAfterWrite(1, SECONDS)
+        .maximumSize(10)
+        .build(identityLoader());
+    // well, it didn't blow up.
+  }
+
   public void testTimeToLive_setTwice() {
     CacheBuilder<Object, Object> builder =
         CacheBuilder.newBuilder().expireAfterWrite(3600, SECONDS);
@@ -443,6 +601,56 @@ public class CacheBuilderTest extends TestCase {
     }
   }
 
+  @GwtIncompatible // refreshAhead
+  public void testRefreshAhead_setTwice() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().refreshAhead(directExecutor(), 10, 100);
+    try {
+      builder.refreshAhead(directExecutor(), 10, 100);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // refreshAhead
+  public void testRefreshAhead_nonPositive() {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    try {
+      builder.refreshAhead(directExecutor(), 0, 100);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      builder.refreshAhead(directExecutor(), 10, 0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible // refreshAhead
+  public void testRefreshAhead_withoutRefresh() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().refreshAhead(directExecutor(), 10, 100);
+    try {
+      builder.build(identityLoader());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @GwtIncompatible // refreshAhead
+  public void testRefreshAhead_nonLoadingCache() {
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .refreshAfterWrite(1, SECONDS)
+            .refreshAhead(directExecutor(), 10, 100);
+    try {
+      builder.build();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
   public void testTicker_setTwice() {
     Ticker testTicker = Ticker.systemTicker();
     CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().ticker(testTicker);
@@ -750,4 +958,22 @@ public class CacheBuilderTest extends TestCase {
       return key;
     }
   }
+
+  private static final class TestingExpiry implements Expiry<Object, Object> {
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+      return SECONDS.toNanos(1);
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        Object key, Object value, long currentTime, long currentDuration) {
+      return SECONDS.toNanos(1);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
@@ -19,12 +19,15 @@ import static com.google.common.cache.TestingRemovalListeners.countingRemovalLis
 import static com.google.common.cache.TestingWeighers.constantWeigher;
 import static com.google.common.cache.TestingWeighers.intKeyWeigher;
 import static com.google.common.cache.TestingWeighers.intValueWeigher;
+import static com.google.common.collect.DiscreteDomain.integers;
 import static com.google.common.truth.Truth.assertThat;
 import static java.util.Arrays.asList;
 
 import com.google.common.cache.CacheTesting.Receiver;
 import com.google.common.cache.TestingCacheLoaders.IdentityLoader;
 import com.google.common.cache.TestingRemovalListeners.CountingRemovalListener;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.Range;
 import java.util.List;
 import java.util.Set;
 import junit.framework.TestCase;
@@ -409,6 +412,130 @@ public class CacheEvictionTest extends TestCase {
     assertThat(keySet).containsExactly(5, 6, 7, 8, 9, 10, 11, 12);
   }
 
+  public void testEviction_tinyLfu_maxSize() {
+    CountingRemovalListener<Integer, Integer> removalListener = countingRemovalListener();
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .removalListener(removalListener)
+            .build(loader);
+    for (int i = 0; i < 2 * MAX_SIZE; i++) {
+      cache.getUnchecked(i);
+      assertTrue(cache.size() <= MAX_SIZE);
+    }
+
+    assertEquals(MAX_SIZE, CacheTesting.accessQueueSize(cache));
+    assertEquals(MAX_SIZE, cache.size());
+    CacheTesting.processPendingNotifications(cache);
+    assertEquals(MAX_SIZE, removalListener.getCount());
+    CacheTesting.checkValidState(cache);
+  }
+
+  public void testEviction_tinyLfu_maxWeight() {
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(10 * MAX_SIZE)
+            .weigher(intKeyWeigher())
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .build(loader);
+    for (int i = 0; i < 4 * MAX_SIZE; i++) {
+      cache.getUnchecked(i % 50);
+      CacheTesting.drainRecencyQueues(cache);
+      assertThat(CacheTesting.toLocalCache(cache).segments[0].totalWeight)
+          .isAtMost(10L * MAX_SIZE);
+    }
+    CacheTesting.checkValidState(cache);
+  }
+
+  public void testEviction_tinyLfu_scanResistant() {
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(MAX_SIZE)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .build(loader);
+    List<Integer> hotKeys =
+        ContiguousSet.create(Range.closedOpen(0, MAX_SIZE / 2), integers()).asList();
+    for (int i = 0; i < 5; i++) {
+      getAll(cache, hotKeys);
+    }
+
+    // a scan of one-hit wonders flushes an LRU cache, but should not displace popular entries
+    CacheTesting.warmUp(cache, 1000, 1000 + 5 * MAX_SIZE);
+    CacheTesting.drainRecencyQueues(cache);
+    assertThat(cache.asMap().keySet()).containsAllIn(hotKeys);
+    assertEquals(MAX_SIZE, cache.size());
+    CacheTesting.checkValidState(cache);
+  }
+
+  public void testEviction_tinyLfu_admitsFrequent() {
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(10)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .build(loader);
+    CacheTesting.warmUp(cache, 0, 10);
+
+    // each miss is recorded, so a key that keeps being requested is eventually admitted
+    for (int i = 0; i < 5; i++) {
+      getAll(cache, asList(100, 200));
+    }
+    CacheTesting.drainRecencyQueues(cache);
+    assertThat(cache.asMap().keySet()).containsAllOf(100, 200);
+    assertEquals(10, cache.size());
+    CacheTesting.checkValidState(cache);
+  }
+
+  public void testEviction_tinyLfu_recordsMisses() {
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(10)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .build();
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+
+    // the misses count towards the key's frequency, so that it is admitted once put
+    for (int i = 0; i < 5; i++) {
+      assertNull(cache.getIfPresent(100));
+    }
+    cache.put(100, 100);
+    cache.put(101, 101);
+    assertThat(cache.asMap().keySet()).containsAllOf(100, 101);
+    assertEquals(10, cache.size());
+    CacheTesting.checkValidState(cache);
+  }
+
+  public void testEviction_tinyLfu_invalidateAll() {
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(10)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .build(loader);
+    getAll(cache, asList(0, 1, 2, 3, 4));
+    cache.invalidate(0);
+    cache.invalidateAll();
+    CacheTesting.drainRecencyQueues(cache);
+    assertThat(cache.asMap().keySet()).isEmpty();
+    CacheTesting.checkValidState(cache);
+
+    getAll(cache, asList(5, 6, 7, 8, 9, 10, 11, 12));
+    CacheTesting.drainRecencyQueues(cache);
+    assertThat(cache.asMap().keySet()).containsExactly(5, 6, 7, 8, 9, 10, 11, 12);
+    CacheTesting.checkValidState(cache);
+  }
+
   private static void getAll(LoadingCache<Integer, Integer> cache, List<Integer> keys) {
     for (int i : keys) {
       cache.getUnchecked(i);
@@ -26,11 +26,14 @@ import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
 import com.google.common.collect.Iterators;
 import com.google.common.testing.FakeTicker;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import junit.framework.TestCase;
 
 /**
@@ -311,6 +314,30 @@ public class CacheExpirationTest extends TestCase {
     assertThat(keySet).containsExactly(0, 1, 2, 5, 7, 9);
   }
 
+  public void testExpirationOrder_tinyLfu() {
+    FakeTicker ticker = new FakeTicker();
+    IdentityLoader<Integer> loader = identityLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(100)
+            .evictionPolicy(EvictionPolicy.WINDOW_TINY_LFU)
+            .expireAfterAccess(10, MILLISECONDS)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 10; i++) {
+      cache.getUnchecked(i);
+      ticker.advance(1, MILLISECONDS);
+    }
+
+    // candidates that lose to the victim are not moved ahead of it, so expired entries are purged
+    ticker.advance(3, MILLISECONDS);
+    cache.cleanUp();
+    assertEquals(6, cache.size());
+    assertThat(cache.asMap().keySet()).containsExactly(4, 5, 6, 7, 8, 9);
+    CacheTesting.checkValidState(cache);
+  }
+
   public void testExpirationOrder_write() throws ExecutionException {
     // test lru within a single segment
     FakeTicker ticker = new FakeTicker();
@@ -426,6 +453,296 @@ public class CacheExpirationTest extends TestCase {
     assertThat(listener.poll().getCause()).isEqualTo(RemovalCause.EXPIRED);
   }
 
+  public void testExpiration_expireAfter() {
+    FakeTicker ticker = new FakeTicker();
+    CountingRemovalListener<String, Integer> removalListener = countingRemovalListener();
+    WatchedCreatorLoader loader = new WatchedCreatorLoader();
+    LoadingCache<String, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(expireAfterWrite(EXPIRING_TIME))
+            .removalListener(removalListener)
+            .ticker(ticker)
+            .build(loader);
+    checkExpiration(cache, loader, ticker, removalListener);
+  }
+
+  public void testExpiringGet_expireAfter() {
+    FakeTicker ticker = new FakeTicker();
+    CountingRemovalListener<String, Integer> removalListener = countingRemovalListener();
+    WatchedCreatorLoader loader = new WatchedCreatorLoader();
+    LoadingCache<String, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(expireAfterWrite(EXPIRING_TIME))
+            .removalListener(removalListener)
+            .ticker(ticker)
+            .build(loader);
+    runExpirationTest(cache, loader, ticker, removalListener);
+  }
+
+  public void testRemovalScheduler_expireAfter() {
+    FakeTicker ticker = new FakeTicker();
+    CountingRemovalListener<String, Integer> removalListener = countingRemovalListener();
+    WatchedCreatorLoader loader = new WatchedCreatorLoader();
+    LoadingCache<String, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(expireAfterWrite(EXPIRING_TIME))
+            .removalListener(removalListener)
+            .ticker(ticker)
+            .build(loader);
+    runRemovalScheduler(cache, removalListener, loader, ticker, KEY_PREFIX, EXPIRING_TIME);
+  }
+
+  public void testExpireAfter_perEntry() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    // each entry lives for as many seconds as its value
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new Expiry<Integer, Integer>() {
+                  @Override
+                  public long expireAfterCreate(Integer key, Integer value, long currentTime) {
+                    return TimeUnit.SECONDS.toNanos(value);
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Integer key, Integer value, long currentTime, long currentDuration) {
+                    return TimeUnit.SECONDS.toNanos(value);
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Integer key, Integer value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+            .removalListener(listener)
+            .ticker(ticker)
+            .build();
+    for (int i = 1; i <= 5; i++) {
+      cache.put(i, 6 - i);
+    }
+    for (int i = 5; i >= 1; i--) {
+      ticker.advance(1, TimeUnit.SECONDS);
+      cache.cleanUp();
+      RemovalNotification<Integer, Integer> notification = listener.remove();
+      assertEquals(Integer.valueOf(i), notification.getKey());
+      assertEquals(RemovalCause.EXPIRED, notification.getCause());
+      assertTrue(listener.isEmpty());
+      assertEquals(i - 1, cache.size());
+      CacheTesting.checkExpiration(cache);
+    }
+    CacheTesting.checkEmpty(cache);
+  }
+
+  public void testExpireAfter_update() {
+    FakeTicker ticker = new FakeTicker();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(expireAfterWrite(EXPIRING_TIME))
+            .ticker(ticker)
+            .build();
+    cache.put(1, 1);
+    ticker.advance(EXPIRING_TIME - 1, MILLISECONDS);
+    cache.put(1, 2);
+    ticker.advance(EXPIRING_TIME - 1, MILLISECONDS);
+    assertEquals(Integer.valueOf(2), cache.getIfPresent(1));
+    assertEquals(Integer.valueOf(2), cache.asMap().replace(1, 3));
+    ticker.advance(EXPIRING_TIME - 1, MILLISECONDS);
+    cache.cleanUp();
+    assertEquals(Integer.valueOf(3), cache.getIfPresent(1));
+    ticker.advance(1, MILLISECONDS);
+    assertNull(cache.getIfPresent(1));
+    cache.cleanUp();
+    CacheTesting.checkEmpty(cache);
+  }
+
+  public void testExpireAfter_read() {
+    FakeTicker ticker = new FakeTicker();
+    // entries live for a second after being written, and two seconds after being read
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new Expiry<Integer, Integer>() {
+                  @Override
+                  public long expireAfterCreate(Integer key, Integer value, long currentTime) {
+                    return TimeUnit.SECONDS.toNanos(1);
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Integer key, Integer value, long currentTime, long currentDuration) {
+                    return TimeUnit.SECONDS.toNanos(1);
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Integer key, Integer value, long currentTime, long currentDuration) {
+                    return TimeUnit.SECONDS.toNanos(2);
+                  }
+                })
+            .ticker(ticker)
+            .build();
+    cache.put(1, 1);
+    cache.put(2, 2);
+    ticker.advance(500, MILLISECONDS);
+    assertEquals(Integer.valueOf(1), cache.getIfPresent(1));
+    CacheTesting.drainRecencyQueues(cache);
+    ticker.advance(1000, MILLISECONDS);
+    cache.cleanUp();
+    assertThat(cache.asMap().keySet()).containsExactly(1);
+    ticker.advance(1000, MILLISECONDS);
+    cache.cleanUp();
+    assertEquals(0, cache.size());
+    CacheTesting.checkEmpty(cache);
+  }
+
+  public void testExpireAfter_readRacingWrite() {
+    final FakeTicker ticker = new FakeTicker();
+    final AtomicReference<Cache<Integer, Integer>> cacheReference = new AtomicReference<>();
+    final AtomicBoolean writeWhileReading = new AtomicBoolean();
+    // entries live for a second after being written, and two seconds after being read
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new Expiry<Integer, Integer>() {
+                  @Override
+                  public long expireAfterCreate(Integer key, Integer value, long currentTime) {
+                    return TimeUnit.SECONDS.toNanos(1);
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Integer key, Integer value, long currentTime, long currentDuration) {
+                    return TimeUnit.SECONDS.toNanos(1);
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      final Integer key, Integer value, long currentTime, long currentDuration) {
+                    if (writeWhileReading.getAndSet(false)) {
+                      Thread writer =
+                          new Thread() {
+                            @Override
+                            public void run() {
+                              ticker.advance(500, MILLISECONDS);
+                              cacheReference.get().put(key, 2);
+                            }
+                          };
+                      writer.start();
+                      Uninterruptibles.joinUninterruptibly(writer);
+                    }
+                    return TimeUnit.SECONDS.toNanos(2);
+                  }
+                })
+            .ticker(ticker)
+            .build();
+    cacheReference.set(cache);
+    cache.put(1, 1);
+    writeWhileReading.set(true);
+    assertEquals(Integer.valueOf(1), cache.getIfPresent(1));
+    assertFalse(writeWhileReading.get());
+
+    // the write takes precedence over the read it raced with
+    ticker.advance(1200, MILLISECONDS);
+    assertNull(cache.getIfPresent(1));
+  }
+
+  public void testExpireAfter_immediately() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<Integer, Integer> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(expireAfterWrite(0))
+            .removalListener(listener)
+            .ticker(ticker)
+            .build();
+    cache.put(1, 1);
+    assertNull(cache.getIfPresent(1));
+    cache.put(1, 2);
+    cache.cleanUp();
+    assertEquals(0, cache.size());
+    assertEquals(RemovalCause.EXPIRED, listener.remove().getCause());
+    assertEquals(RemovalCause.EXPIRED, listener.remove().getCause());
+    assertTrue(listener.isEmpty());
+  }
+
+  public void testExpireAfter_longDurations() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingRemovalListener<Long, Long> listener = TestingRemovalListeners.queuingRemovalListener();
+    // the value is the entry's lifetime in minutes, reaching each level of the timer wheel
+    Cache<Long, Long> cache =
+        CacheBuilder.newBuilder()
+            .expireAfter(
+                new Expiry<Long, Long>() {
+                  @Override
+                  public long expireAfterCreate(Long key, Long value, long currentTime) {
+                    return TimeUnit.MINUTES.toNanos(value);
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Long key, Long value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Long key, Long value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+            .removalListener(listener)
+            .ticker(ticker)
+            .build();
+    long[] minutes = {1, 5, 90, 2 * 60, 26 * 60, 3 * 24 * 60, 30 * 24 * 60, 365 * 24 * 60L};
+    for (long lifetime : minutes) {
+      cache.put(lifetime, lifetime);
+    }
+    CacheTesting.checkExpiration(cache);
+
+    long elapsed = 0;
+    for (long lifetime : minutes) {
+      ticker.advance(lifetime - elapsed - 1, TimeUnit.MINUTES);
+      ticker.advance(59, TimeUnit.SECONDS);
+      cache.cleanUp();
+      assertTrue(listener.isEmpty());
+      assertTrue(cache.asMap().containsKey(lifetime));
+
+      ticker.advance(1, TimeUnit.SECONDS);
+      cache.cleanUp();
+      RemovalNotification<Long, Long> notification = listener.remove();
+      assertEquals(Long.valueOf(lifetime), notification.getKey());
+      assertEquals(RemovalCause.EXPIRED, notification.getCause());
+      assertTrue(listener.isEmpty());
+      CacheTesting.checkExpiration(cache);
+      elapsed = lifetime;
+    }
+    CacheTesting.checkEmpty(cache);
+  }
+
+  private static <K, V> Expiry<K, V> expireAfterWrite(final long millis) {
+    return new Expiry<K, V>() {
+      @Override
+      public long expireAfterCreate(K key, V value, long currentTime) {
+        return MILLISECONDS.toNanos(millis);
+      }
+
+      @Override
+      public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+        return MILLISECONDS.toNanos(millis);
+      }
+
+      @Override
+      public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+        return currentDuration;
+      }
+    };
+  }
+
   private void runRemovalScheduler(
       LoadingCache<String, Integer> cache,
       CountingRemovalListener<String, Integer> removalListener,
@@ -17,8 +17,18 @@ package com.google.common.cache;
 import static com.google.common.cache.TestingCacheLoaders.incrementingLoader;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import com.google.common.cache.LocalCache.Segment;
 import com.google.common.cache.TestingCacheLoaders.IncrementingLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.testing.FakeTicker;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import junit.framework.TestCase;
 
 /**
@@ -97,4 +107,321 @@ public class CacheRefreshTest extends TestCase {
     assertEquals(expectedLoads, loader.getLoadCount());
     assertEquals(expectedReloads, loader.getReloadCount());
   }
+
+  public void testRefreshAhead_batchesDueEntries() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    BulkLoader loader = new BulkLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .expireAfterWrite(100, MILLISECONDS)
+            .refreshAhead(executor, 2, 10)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), cache.getUnchecked(i));
+    }
+    ticker.advance(4, MILLISECONDS);
+
+    // a stale read returns the old value, and schedules the oldest due entries
+    assertEquals(Integer.valueOf(3), cache.getUnchecked(3));
+    assertEquals(1, executor.tasks.size());
+    cache.cleanUp();
+    cache.cleanUp();
+    assertEquals(3, executor.tasks.size());
+    cache.cleanUp();
+    assertEquals(3, executor.tasks.size());
+    assertEquals(0, loader.reloadCount);
+
+    // requests for entries being refreshed don't wait
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+
+    executor.runAll();
+    assertEquals(
+        ImmutableList.of(ImmutableList.of(0, 1), ImmutableList.of(2, 3), ImmutableList.of(4)),
+        loader.batches);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i + 100), cache.getUnchecked(i));
+    }
+    assertEquals(5, cache.size());
+
+    // refreshed entries are not due again until the refresh interval has elapsed
+    cache.cleanUp();
+    assertEquals(0, executor.tasks.size());
+    ticker.advance(4, MILLISECONDS);
+    cache.cleanUp();
+    assertEquals(1, executor.tasks.size());
+  }
+
+  public void testRefreshAhead_boundsInFlight() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    BulkLoader loader = new BulkLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(executor, 2, 3)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 5; i++) {
+      cache.getUnchecked(i);
+    }
+    ticker.advance(4, MILLISECONDS);
+
+    cache.cleanUp();
+    cache.cleanUp();
+    cache.cleanUp();
+    assertEquals(2, executor.tasks.size());
+    assertEquals(
+        ImmutableList.of(ImmutableList.of(0, 1), ImmutableList.of(2)), executor.runAll(loader));
+
+    cache.cleanUp();
+    assertEquals(ImmutableList.of(ImmutableList.of(3, 4)), executor.runAll(loader));
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i + 100), cache.getUnchecked(i));
+    }
+  }
+
+  public void testRefreshAhead_withoutLoadAll() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    IncrementingLoader loader = incrementingLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(executor, 10, 10)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 3; i++) {
+      cache.getUnchecked(i);
+    }
+    ticker.advance(4, MILLISECONDS);
+
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+    assertEquals(0, loader.getReloadCount());
+    executor.runAll();
+    assertEquals(3, loader.getReloadCount());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Integer.valueOf(i + 1), cache.getUnchecked(i));
+    }
+    assertEquals(3, loader.getLoadCount());
+  }
+
+  public void testRefreshAhead_failureKeepsOldValues() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    BulkLoader loader = new BulkLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(executor, 10, 10)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 3; i++) {
+      cache.getUnchecked(i);
+    }
+    ticker.advance(4, MILLISECONDS);
+
+    loader.failure = new IllegalStateException();
+    cache.cleanUp();
+    executor.runAll();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Integer.valueOf(i), cache.getUnchecked(i));
+    }
+
+    // the entries are still due, but are not refreshed again until the refresh interval elapses
+    cache.cleanUp();
+    assertEquals(0, executor.tasks.size());
+    ticker.advance(4, MILLISECONDS);
+    loader.failure = null;
+    loader.omitted = 1;
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+    executor.runAll();
+    assertEquals(Integer.valueOf(101), cache.getUnchecked(1));
+    assertEquals(Integer.valueOf(102), cache.getUnchecked(2));
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+
+    // an entry missing from the result of loadAll backs off too
+    loader.omitted = 0;
+    cache.cleanUp();
+    assertEquals(0, executor.tasks.size());
+    ticker.advance(4, MILLISECONDS);
+    cache.cleanUp();
+    executor.runAll();
+    assertEquals(Integer.valueOf(100), cache.getUnchecked(0));
+  }
+
+  public void testRefreshAhead_removalForgetsBackoff() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    BulkLoader loader = new BulkLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(executor, 10, 10)
+            .ticker(ticker)
+            .build(loader);
+    for (int i = 0; i < 3; i++) {
+      cache.getUnchecked(i);
+    }
+    ticker.advance(4, MILLISECONDS);
+    loader.failure = new IllegalStateException();
+    cache.cleanUp();
+    executor.runAll();
+    Segment<Integer, Integer> segment = CacheTesting.toLocalCache(cache).segments[0];
+    assertEquals(3, segment.refreshAheadBackoffs.size());
+
+    cache.invalidate(0);
+    cache.asMap().remove(1, 1);
+    assertEquals(1, segment.refreshAheadBackoffs.size());
+    cache.invalidate(2);
+    assertNull(segment.refreshAheadBackoffs);
+  }
+
+  public void testRefreshAhead_staleReadsAvoidLock() {
+    FakeTicker ticker = new FakeTicker();
+    QueuingExecutor executor = new QueuingExecutor();
+    BulkLoader loader = new BulkLoader();
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(executor, 10, 1)
+            .recordDetailedStats()
+            .ticker(ticker)
+            .build(loader);
+    cache.getUnchecked(0);
+    cache.getUnchecked(1);
+    ticker.advance(4, MILLISECONDS);
+    cache.getUnchecked(0);
+    assertEquals(1, executor.tasks.size());
+
+    // no more refreshes may be in flight, so stale reads don't look for entries to refresh
+    long lockCount = lockCount(cache);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(Integer.valueOf(1), cache.getUnchecked(1));
+    }
+    assertEquals(lockCount, lockCount(cache));
+
+    // once refreshes fail, neither entry is due again until the refresh interval elapses
+    loader.failure = new IllegalStateException();
+    executor.runAll();
+    assertEquals(Integer.valueOf(1), cache.getUnchecked(1));
+    executor.runAll();
+    assertTrue(executor.tasks.isEmpty());
+    lockCount = lockCount(cache);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+      assertEquals(Integer.valueOf(1), cache.getUnchecked(1));
+    }
+    assertEquals(lockCount, lockCount(cache));
+    assertTrue(executor.tasks.isEmpty());
+
+    loader.failure = null;
+    ticker.advance(4, MILLISECONDS);
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+    executor.runAll();
+    assertEquals(Integer.valueOf(100), cache.getUnchecked(0));
+  }
+
+  private static long lockCount(Cache<?, ?> cache) {
+    return Iterables.getOnlyElement(DetailedCacheStats.of(cache).segmentStats()).lockCount();
+  }
+
+  public void testRefreshAhead_rejected() {
+    FakeTicker ticker = new FakeTicker();
+    BulkLoader loader = new BulkLoader();
+    Executor rejecting =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            throw new RejectedExecutionException();
+          }
+        };
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .refreshAfterWrite(3, MILLISECONDS)
+            .refreshAhead(rejecting, 10, 1)
+            .ticker(ticker)
+            .build(loader);
+    cache.getUnchecked(0);
+    cache.getUnchecked(1);
+    ticker.advance(4, MILLISECONDS);
+
+    // the in-flight bound of one is released by each rejection
+    cache.cleanUp();
+    cache.cleanUp();
+    assertEquals(Integer.valueOf(0), cache.getUnchecked(0));
+    assertEquals(Integer.valueOf(1), cache.getUnchecked(1));
+    assertTrue(loader.batches.isEmpty());
+  }
+
+  /** An executor that runs tasks only when asked to. */
+  static final class QueuingExecutor implements Executor {
+    final List<Runnable> tasks = Lists.newArrayList();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      List<Runnable> toRun = ImmutableList.copyOf(tasks);
+      tasks.clear();
+      for (Runnable task : toRun) {
+        task.run();
+      }
+    }
+
+    /** Runs all tasks, returning the batches passed to {@code loader} while doing so. */
+    List<List<Integer>> runAll(BulkLoader loader) {
+      loader.batches.clear();
+      runAll();
+      return loader.batches;
+    }
+  }
+
+  /**
+   * Loads each key as itself, and bulk loads each key as itself plus 100, except for the first
+   * {@code omitted} keys of a batch.
+   */
+  static final class BulkLoader extends CacheLoader<Integer, Integer> {
+    final List<List<Integer>> batches = Lists.newArrayList();
+    int reloadCount;
+    int omitted;
+    RuntimeException failure;
+
+    @Override
+    public Integer load(Integer key) {
+      return key;
+    }
+
+    @Override
+    public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+      if (failure != null) {
+        throw failure;
+      }
+      List<Integer> batch = ImmutableList.copyOf(keys);
+      batches.add(batch);
+      Map<Integer, Integer> result = Maps.newHashMap();
+      for (Integer key : batch.subList(Math.min(omitted, batch.size()), batch.size())) {
+        result.put(key, key + 100);
+      }
+      return result;
+    }
+
+    @Override
+    public ListenableFuture<Integer> reload(
+        Integer key, Integer oldValue) throws Exception {
+      reloadCount++;
+      return super.reload(key, oldValue);
+    }
+  }
 }
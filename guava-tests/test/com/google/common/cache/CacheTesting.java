@@ -27,6 +27,7 @@ import static junit.framework.Assert.assertTrue;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.LocalCache.LocalLoadingCache;
 import com.google.common.cache.LocalCache.Segment;
+import com.google.common.cache.LocalCache.TinyLfuAccessQueue;
 import com.google.common.cache.LocalCache.ValueReference;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -246,28 +247,67 @@ class CacheTesting {
       if (cchm.usesAccessQueue()) {
         Set<ReferenceEntry<?, ?>> entries = Sets.newIdentityHashSet();
 
-        ReferenceEntry<?, ?> prev = null;
-        for (ReferenceEntry<?, ?> current : segment.accessQueue) {
-          assertTrue(entries.add(current));
-          if (prev != null) {
-            assertSame(prev, current.getPreviousInAccessQueue());
-            assertSame(prev.getNextInAccessQueue(), current);
-            // read accesses may be slightly misordered
-            assertTrue(
-                prev.getAccessTime() <= current.getAccessTime()
-                    || prev.getAccessTime() - current.getAccessTime() < 1000);
+        for (Iterable<? extends ReferenceEntry<?, ?>> accessOrder : accessOrders(segment)) {
+          ReferenceEntry<?, ?> prev = null;
+          for (ReferenceEntry<?, ?> current : accessOrder) {
+            assertTrue(entries.add(current));
+            if (prev != null) {
+              assertSame(prev, current.getPreviousInAccessQueue());
+              assertSame(prev.getNextInAccessQueue(), current);
+              // read accesses may be slightly misordered; admission reorders the main region
+              assertTrue(
+                  cchm.evictsByFrequency()
+                      || prev.getAccessTime() <= current.getAccessTime()
+                      || prev.getAccessTime() - current.getAccessTime() < 1000);
+            }
+            Object key = current.getKey();
+            if (key != null) {
+              assertSame(current, segment.getEntry(key, current.getHash()));
+            }
+            prev = current;
+          }
+        }
+        assertEquals(segment.count, entries.size());
+        if (cchm.evictsByFrequency()) {
+          TinyLfuAccessQueue<?, ?> queue = tinyLfuAccessQueue(segment);
+          int windowSize = 0;
+          for (ReferenceEntry<?, ?> e : queue.window) {
+            assertTrue(e.isInAdmissionWindow());
+            windowSize++;
+          }
+          for (ReferenceEntry<?, ?> e : queue.main) {
+            assertFalse(e.isInAdmissionWindow());
           }
+          assertEquals(windowSize, queue.windowSize);
+          assertEquals(segment.count, queue.size());
+        }
+      } else {
+        assertTrue(segment.accessQueue.isEmpty());
+      }
+
+      if (cchm.expiresVariably()) {
+        checkTimerWheel(segment);
+      } else {
+        assertNull(segment.timerWheel);
+      }
+    }
+  }
+
+  private static <K, V> void checkTimerWheel(Segment<K, V> segment) {
+    Set<ReferenceEntry<?, ?>> entries = Sets.newIdentityHashSet();
+    for (int level = 0; level < TimerWheel.BUCKETS.length; level++) {
+      for (List<ReferenceEntry<K, V>> bucket : segment.timerWheel.snapshot(level)) {
+        for (ReferenceEntry<K, V> current : bucket) {
+          assertTrue(entries.add(current));
+          assertTrue(segment.timerWheel.contains(current));
           Object key = current.getKey();
           if (key != null) {
             assertSame(current, segment.getEntry(key, current.getHash()));
           }
-          prev = current;
         }
-        assertEquals(segment.count, entries.size());
-      } else {
-        assertTrue(segment.accessQueue.isEmpty());
       }
     }
+    assertEquals(segment.count, entries.size());
   }
 
   /**
@@ -285,29 +325,47 @@ class CacheTesting {
     if (map.evictsBySize()) {
       for (Segment<?, ?> segment : map.segments) {
         drainRecencyQueue(segment);
-        assertEquals(0, segment.recencyQueue.size());
-        assertEquals(0, segment.readCount.get());
-
-        ReferenceEntry<?, ?> prev = null;
-        for (ReferenceEntry<?, ?> current : segment.accessQueue) {
-          if (prev != null) {
-            assertSame(prev, current.getPreviousInAccessQueue());
-            assertSame(prev.getNextInAccessQueue(), current);
+        assertEquals(0, segment.readBuffer.size());
+
+        for (Iterable<? extends ReferenceEntry<?, ?>> accessOrder : accessOrders(segment)) {
+          ReferenceEntry<?, ?> prev = null;
+          for (ReferenceEntry<?, ?> current : accessOrder) {
+            if (prev != null) {
+              assertSame(prev, current.getPreviousInAccessQueue());
+              assertSame(prev.getNextInAccessQueue(), current);
+            }
+            Object key = current.getKey();
+            if (key != null) {
+              assertSame(current, segment.getEntry(key, current.getHash()));
+            }
+            prev = current;
           }
-          Object key = current.getKey();
-          if (key != null) {
-            assertSame(current, segment.getEntry(key, current.getHash()));
-          }
-          prev = current;
         }
       }
     } else {
       for (Segment<?, ?> segment : map.segments) {
-        assertEquals(0, segment.recencyQueue.size());
+        assertEquals(0, segment.readBuffer.size());
       }
     }
   }
 
+  /**
+   * Returns the separately linked lists that make up the segment's access queue, each of which is
+   * internally consistent: the admission window and main region for a frequency-based cache, or
+   * just the access queue otherwise.
+   */
+  static List<Iterable<? extends ReferenceEntry<?, ?>>> accessOrders(Segment<?, ?> segment) {
+    if (segment.accessQueue instanceof TinyLfuAccessQueue) {
+      TinyLfuAccessQueue<?, ?> queue = tinyLfuAccessQueue(segment);
+      return ImmutableList.<Iterable<? extends ReferenceEntry<?, ?>>>of(queue.main, queue.window);
+    }
+    return ImmutableList.<Iterable<? extends ReferenceEntry<?, ?>>>of(segment.accessQueue);
+  }
+
+  static <K, V> TinyLfuAccessQueue<K, V> tinyLfuAccessQueue(Segment<K, V> segment) {
+    return (TinyLfuAccessQueue<K, V>) segment.accessQueue;
+  }
+
   static int segmentSize(Segment<?, ?> segment) {
     Map<?, ?> map = segmentTable(segment);
     return map.size();
@@ -355,8 +413,31 @@ class CacheTesting {
     return segment.accessQueue.size();
   }
 
+  static int timerWheelSize(Cache<?, ?> cache) {
+    LocalCache<?, ?> cchm = toLocalCache(cache);
+    int size = 0;
+    for (Segment<?, ?> segment : cchm.segments) {
+      size += timerWheelSize(segment);
+    }
+    return size;
+  }
+
+  static int timerWheelSize(Segment<?, ?> segment) {
+    if (segment.timerWheel == null) {
+      return 0;
+    }
+    int size = 0;
+    for (int level = 0; level < TimerWheel.BUCKETS.length; level++) {
+      for (List<?> bucket : segment.timerWheel.snapshot(level)) {
+        size += bucket.size();
+      }
+    }
+    return size;
+  }
+
   static int expirationQueueSize(Cache<?, ?> cache) {
-    return Math.max(accessQueueSize(cache), writeQueueSize(cache));
+    return Math.max(
+        Math.max(accessQueueSize(cache), writeQueueSize(cache)), timerWheelSize(cache));
   }
 
   static void processPendingNotifications(Cache<?, ?> cache) {
@@ -428,6 +509,7 @@ class CacheTesting {
       expireEntries(segment, now);
       assertEquals("Expiration queue must be empty by now", 0, writeQueueSize(segment));
       assertEquals("Expiration queue must be empty by now", 0, accessQueueSize(segment));
+      assertEquals("Timer wheel must be empty by now", 0, timerWheelSize(segment));
       assertEquals("Segments must be empty by now", 0, segmentSize(segment));
     }
     cchm.processPendingNotifications();
@@ -471,6 +553,7 @@ class CacheTesting {
         assertEquals(0, segmentSize(segment));
         assertTrue(segment.writeQueue.isEmpty());
         assertTrue(segment.accessQueue.isEmpty());
+        assertEquals(0, timerWheelSize(segment));
       }
     }
   }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.cache.DetailedCacheStats.SegmentStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.NullPointerTester.Visibility;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link DetailedCacheStats}, and for caches built with {@link
+ * CacheBuilder#recordDetailedStats}.
+ */
+public class DetailedCacheStatsTest extends TestCase {
+
+  public void testSegmentStats() {
+    SegmentStats stats = new SegmentStats(10, 4, 100, 200);
+    assertEquals(10, stats.lockCount());
+    assertEquals(4, stats.contendedLockCount());
+    assertEquals(100, stats.totalLockWaitTime());
+    assertEquals(200, stats.totalLockHoldTime());
+    assertEquals(0.4, stats.contentionRate());
+    assertEquals(0.0, new SegmentStats(0, 0, 0, 0).contentionRate());
+  }
+
+  public void testRemovalCounts_missingCausesAreZero() {
+    DetailedCacheStats stats =
+        new DetailedCacheStats(
+            new CacheStats(0, 0, 0, 0, 0, 0),
+            LatencyHistogram.empty(),
+            ImmutableMap.of(RemovalCause.SIZE, 3L),
+            ImmutableList.<SegmentStats>of());
+    assertEquals(3, stats.removalCount(RemovalCause.SIZE));
+    assertEquals(0, stats.removalCount(RemovalCause.EXPLICIT));
+    assertEquals(RemovalCause.values().length, stats.removalCounts().size());
+  }
+
+  public void testEquals() {
+    CacheStats cacheStats = new CacheStats(1, 2, 3, 4, 5, 6);
+    LatencyRecorder recorder = new LatencyRecorder();
+    recorder.record(100);
+    ImmutableList<SegmentStats> segmentStats = ImmutableList.of(new SegmentStats(1, 0, 0, 10));
+    new EqualsTester()
+        .addEqualityGroup(
+            detailedStats(cacheStats, LatencyHistogram.empty(), 0, segmentStats),
+            detailedStats(cacheStats, LatencyHistogram.empty(), 0, segmentStats))
+        .addEqualityGroup(
+            detailedStats(
+                new CacheStats(0, 0, 0, 0, 0, 0), LatencyHistogram.empty(), 0, segmentStats))
+        .addEqualityGroup(detailedStats(cacheStats, recorder.snapshot(), 0, segmentStats))
+        .addEqualityGroup(detailedStats(cacheStats, LatencyHistogram.empty(), 1, segmentStats))
+        .addEqualityGroup(
+            detailedStats(
+                cacheStats, LatencyHistogram.empty(), 0, ImmutableList.<SegmentStats>of()))
+        .testEquals();
+    new EqualsTester()
+        .addEqualityGroup(new SegmentStats(1, 2, 3, 4), new SegmentStats(1, 2, 3, 4))
+        .addEqualityGroup(new SegmentStats(0, 2, 3, 4))
+        .addEqualityGroup(new SegmentStats(1, 0, 3, 4))
+        .addEqualityGroup(new SegmentStats(1, 2, 0, 4))
+        .addEqualityGroup(new SegmentStats(1, 2, 3, 0))
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester =
+        new NullPointerTester()
+            .setDefault(CacheStats.class, new CacheStats(0, 0, 0, 0, 0, 0))
+            .setDefault(LatencyHistogram.class, LatencyHistogram.empty());
+    tester.testConstructors(DetailedCacheStats.class, Visibility.PACKAGE);
+    tester.testAllPublicStaticMethods(DetailedCacheStats.class);
+    tester.testAllPublicInstanceMethods(
+        detailedStats(
+            new CacheStats(0, 0, 0, 0, 0, 0),
+            LatencyHistogram.empty(),
+            0,
+            ImmutableList.<SegmentStats>of()));
+  }
+
+  public void testDetailedStats_notRecorded() {
+    Cache<Object, Object> cache = CacheBuilder.newBuilder().recordStats().build();
+    try {
+      DetailedCacheStats.of(cache);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  public void testDetailedStats_forwarding() {
+    final Cache<Object, Object> cache = CacheBuilder.newBuilder().recordDetailedStats().build();
+    cache.put("a", "b");
+    Cache<Object, Object> forwarding =
+        new ForwardingCache<Object, Object>() {
+          @Override
+          protected Cache<Object, Object> delegate() {
+            return cache;
+          }
+        };
+    assertEquals(DetailedCacheStats.of(cache), DetailedCacheStats.of(forwarding));
+  }
+
+  public void testDetailedStats_loadLatency() {
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .recordDetailedStats()
+            .build(
+                new CacheLoader<Integer, Integer>() {
+                  @Override
+                  public Integer load(Integer key) {
+                    if (key < 0) {
+                      throw new IllegalArgumentException();
+                    }
+                    return key;
+                  }
+                });
+    for (int i = 1; i <= 100; i++) {
+      cache.getUnchecked(i);
+      cache.getUnchecked(i);
+    }
+    try {
+      cache.getUnchecked(-1);
+      fail();
+    } catch (UncheckedExecutionException expected) {
+    }
+
+    DetailedCacheStats stats = DetailedCacheStats.of(cache);
+    assertEquals(201, stats.stats().requestCount());
+    assertEquals(101, stats.stats().loadCount());
+    LatencyHistogram loadLatency = stats.loadLatency();
+    assertEquals(101, loadLatency.count());
+    // load times are measured by a stopwatch, so only their bounds are known
+    assertTrue(loadLatency.max() >= stats.stats().averageLoadPenalty());
+    assertTrue(loadLatency.valueAtPercentile(50) <= loadLatency.max());
+  }
+
+  public void testDetailedStats_removalCounts() {
+    FakeTicker ticker = new FakeTicker();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(10)
+            .expireAfterWrite(1, MILLISECONDS)
+            .ticker(ticker)
+            .recordDetailedStats()
+            .build();
+    for (int i = 0; i < 15; i++) {
+      cache.put(i, i);
+    }
+    cache.put(14, 14);
+    cache.invalidate(13);
+    ticker.advance(2, MILLISECONDS);
+    cache.cleanUp();
+
+    DetailedCacheStats stats = DetailedCacheStats.of(cache);
+    assertEquals(5, stats.removalCount(RemovalCause.SIZE));
+    assertEquals(1, stats.removalCount(RemovalCause.REPLACED));
+    assertEquals(1, stats.removalCount(RemovalCause.EXPLICIT));
+    assertEquals(9, stats.removalCount(RemovalCause.EXPIRED));
+    assertEquals(0, stats.removalCount(RemovalCause.COLLECTED));
+    assertEquals(5 + 9, stats.stats().evictionCount());
+  }
+
+  public void testDetailedStats_segmentStats() {
+    FakeTicker ticker = new FakeTicker();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(4)
+            .ticker(ticker)
+            .recordDetailedStats()
+            .build();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+
+    DetailedCacheStats stats = DetailedCacheStats.of(cache);
+    assertEquals(4, stats.segmentStats().size());
+    long lockCount = 0;
+    for (SegmentStats segmentStats : stats.segmentStats()) {
+      lockCount += segmentStats.lockCount();
+      assertEquals(0, segmentStats.contendedLockCount());
+      assertEquals(0, segmentStats.totalLockWaitTime());
+    }
+    assertTrue(lockCount >= 100);
+    assertEquals(stats.segmentStats(), DetailedCacheStats.of(cache).segmentStats());
+  }
+
+  public void testDetailedStats_lockHoldTime() {
+    final FakeTicker ticker = new FakeTicker();
+    Cache<Integer, Integer> cache =
+        CacheBuilder.newBuilder().concurrencyLevel(1).ticker(ticker).recordDetailedStats().build();
+    SegmentStats before = DetailedCacheStats.of(cache).segmentStats().get(0);
+    cache
+        .asMap()
+        .compute(
+            1,
+            (key, value) -> {
+              ticker.advance(7, MILLISECONDS);
+              return key;
+            });
+    SegmentStats after = DetailedCacheStats.of(cache).segmentStats().get(0);
+    assertEquals(before.lockCount() + 1, after.lockCount());
+    assertEquals(
+        before.totalLockHoldTime() + MILLISECONDS.toNanos(7), after.totalLockHoldTime());
+  }
+
+  private static DetailedCacheStats detailedStats(
+      CacheStats stats,
+      LatencyHistogram loadLatency,
+      long sizeRemovals,
+      ImmutableList<SegmentStats> segmentStats) {
+    return new DetailedCacheStats(
+        stats, loadLatency, ImmutableMap.of(RemovalCause.SIZE, sizeRemovals), segmentStats);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link FrequencySketch}.
+ */
+public class FrequencySketchTest extends TestCase {
+
+  public void testConstruct_negative() {
+    try {
+      new FrequencySketch(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testConstruct_sizing() {
+    assertEquals(1, new FrequencySketch(0).tableSize());
+    assertEquals(512, new FrequencySketch(500).tableSize());
+    assertEquals(512, new FrequencySketch(512).tableSize());
+    assertEquals(10 * 512, new FrequencySketch(512).sampleSize());
+  }
+
+  public void testEnsureCapacity_grows() {
+    FrequencySketch sketch = new FrequencySketch(16);
+    sketch.increment(42);
+    sketch.ensureCapacity(8);
+    assertEquals(16, sketch.tableSize());
+    assertEquals(1, sketch.frequency(42));
+
+    sketch.ensureCapacity(100);
+    assertEquals(128, sketch.tableSize());
+    assertEquals(0, sketch.frequency(42));
+  }
+
+  public void testIncrement_once() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    assertEquals(0, sketch.frequency(42));
+    sketch.increment(42);
+    assertEquals(1, sketch.frequency(42));
+    assertEquals(1, sketch.size());
+  }
+
+  public void testIncrement_saturates() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    for (int i = 0; i < 20; i++) {
+      sketch.increment(42);
+    }
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(42));
+    assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.size());
+  }
+
+  public void testIncrement_distinct() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    sketch.increment(1);
+    sketch.increment(1);
+    sketch.increment(2);
+    assertEquals(2, sketch.frequency(1));
+    assertEquals(1, sketch.frequency(2));
+    assertEquals(0, sketch.frequency(3));
+  }
+
+  public void testReset_halves() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    for (int i = 0; i < 10; i++) {
+      sketch.increment(42);
+    }
+    sketch.reset();
+    assertEquals(5, sketch.frequency(42));
+  }
+
+  public void testReset_automatic() {
+    FrequencySketch sketch = new FrequencySketch(64);
+    Random random = new Random(0);
+    boolean reset = false;
+    for (int i = 0; i < 20 * sketch.sampleSize(); i++) {
+      int before = sketch.size();
+      sketch.increment(random.nextInt());
+      if (sketch.size() < before) {
+        reset = true;
+        assertThat(sketch.size()).isAtMost(sketch.sampleSize() / 2);
+      }
+    }
+    assertTrue(reset);
+  }
+
+  public void testFrequency_heavyHitters() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    for (int i = 100; i < 100_000; i++) {
+      sketch.increment(LocalCache.rehash(i));
+    }
+    for (int i = 0; i < 10; i += 2) {
+      for (int j = 0; j < i; j++) {
+        sketch.increment(LocalCache.rehash(i));
+      }
+    }
+
+    // A perfect popularity count yields an array [0, 0, 2, 0, 4, 0, 6, 0, 8, 0]
+    int[] popularity = new int[10];
+    for (int i = 0; i < 10; i++) {
+      popularity[i] = sketch.frequency(LocalCache.rehash(i));
+    }
+    for (int i = 0; i < popularity.length; i++) {
+      if ((i == 0) || (i == 1) || (i == 3) || (i == 5) || (i == 7) || (i == 9)) {
+        assertThat(popularity[i]).isAtMost(popularity[2]);
+      } else if (i == 2) {
+        assertThat(popularity[2]).isAtMost(popularity[4]);
+      } else if (i == 4) {
+        assertThat(popularity[4]).isAtMost(popularity[6]);
+      } else if (i == 6) {
+        assertThat(popularity[6]).isAtMost(popularity[8]);
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.cache.LatencyHistogram.BUCKETS;
+import static com.google.common.cache.LatencyHistogram.bucketIndex;
+import static com.google.common.cache.LatencyHistogram.highestValue;
+
+import com.google.common.testing.EqualsTester;
+import junit.framework.TestCase;
+
+/** Unit tests for {@link LatencyHistogram} and {@link LatencyRecorder}. */
+public class LatencyHistogramTest extends TestCase {
+
+  public void testBucketIndex_exactBelowSubBuckets() {
+    for (int nanos = 0; nanos < 32; nanos++) {
+      assertEquals(nanos, bucketIndex(nanos));
+      assertEquals(nanos, highestValue(nanos));
+    }
+    assertEquals(0, bucketIndex(-5));
+  }
+
+  public void testBucketIndex_roundTrip() {
+    for (int index = 1; index < BUCKETS; index++) {
+      long highest = highestValue(index);
+      assertEquals(index, bucketIndex(highest));
+      assertEquals(index, bucketIndex(highestValue(index - 1) + 1));
+    }
+    assertEquals(BUCKETS - 1, bucketIndex(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, highestValue(BUCKETS - 1));
+  }
+
+  public void testBucketIndex_relativeError() {
+    for (long nanos = 32; nanos > 0 && nanos < Long.MAX_VALUE / 3; nanos = nanos * 3 + 1) {
+      long highest = highestValue(bucketIndex(nanos));
+      assertTrue(highest >= nanos);
+      assertTrue((double) (highest - nanos) / nanos <= 1.0 / 32);
+    }
+  }
+
+  public void testEmpty() {
+    LatencyHistogram histogram = LatencyHistogram.empty();
+    assertEquals(0, histogram.count());
+    assertEquals(0, histogram.valueAtPercentile(50));
+    assertEquals(0, histogram.max());
+  }
+
+  public void testValueAtPercentile() {
+    LatencyRecorder recorder = new LatencyRecorder();
+    for (int nanos = 1; nanos <= 100; nanos++) {
+      recorder.record(nanos * 1000L);
+    }
+    LatencyHistogram histogram = recorder.snapshot();
+    assertEquals(100, histogram.count());
+    assertWithinBucket(50_000, histogram.valueAtPercentile(50));
+    assertWithinBucket(90_000, histogram.valueAtPercentile(90));
+    assertWithinBucket(99_000, histogram.valueAtPercentile(99));
+    assertWithinBucket(100_000, histogram.max());
+    assertWithinBucket(1_000, histogram.valueAtPercentile(0));
+  }
+
+  public void testValueAtPercentile_outOfRange() {
+    LatencyHistogram histogram = LatencyHistogram.empty();
+    try {
+      histogram.valueAtPercentile(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      histogram.valueAtPercentile(100.5);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testPlusMinus() {
+    LatencyRecorder recorder = new LatencyRecorder();
+    recorder.record(10);
+    LatencyHistogram one = recorder.snapshot();
+    recorder.record(1_000_000);
+    recorder.record(1_000_000);
+    LatencyHistogram three = recorder.snapshot();
+
+    LatencyHistogram diff = three.minus(one);
+    assertEquals(2, diff.count());
+    assertWithinBucket(1_000_000, diff.valueAtPercentile(0));
+    assertEquals(three, diff.plus(one));
+    assertEquals(LatencyHistogram.empty(), one.minus(three));
+  }
+
+  public void testEquals() {
+    LatencyRecorder recorder = new LatencyRecorder();
+    recorder.record(100);
+    LatencyHistogram one = recorder.snapshot();
+    new EqualsTester()
+        .addEqualityGroup(LatencyHistogram.empty(), new LatencyRecorder().snapshot())
+        .addEqualityGroup(one, recorder.snapshot())
+        .testEquals();
+  }
+
+  private static void assertWithinBucket(long expected, long actual) {
+    assertEquals(highestValue(bucketIndex(expected)), actual);
+  }
+}
@@ -575,7 +575,7 @@ public class LocalCacheTest extends TestCase {
 
       checkEvictionQueues(map, segment, readOrder, writeOrder);
       checkExpirationTimes(map);
-      assertTrue(segment.recencyQueue.isEmpty());
+      assertTrue(segment.readBuffer.isEmpty());
 
       // access some of the elements
       Random random = new Random();
@@ -587,10 +587,10 @@ public class LocalCacheTest extends TestCase {
           map.get(entry.getKey(), loader);
           reads.add(entry);
           i.remove();
-          assertTrue(segment.recencyQueue.size() <= DRAIN_THRESHOLD);
+          assertTrue(segment.readBuffer.size() <= DRAIN_THRESHOLD);
         }
       }
-      int undrainedIndex = reads.size() - segment.recencyQueue.size();
+      int undrainedIndex = reads.size() - segment.readBuffer.size();
       checkAndDrainRecencyQueue(map, segment, reads.subList(undrainedIndex, reads.size()));
       readOrder.addAll(reads);
 
@@ -1853,7 +1853,6 @@ public class LocalCacheTest extends TestCase {
     DummyEntry<Object, Object> entry = createDummyEntry(key, hash, value, null);
     segment.recordWrite(entry, 1, map.ticker.read());
     segment.table.set(0, entry);
-    segment.readCount.incrementAndGet();
     segment.count = 1;
     segment.totalWeight = 1;
 
@@ -1865,7 +1864,6 @@ public class LocalCacheTest extends TestCase {
     assertNull(table.get(0));
     assertTrue(segment.accessQueue.isEmpty());
     assertTrue(segment.writeQueue.isEmpty());
-    assertEquals(0, segment.readCount.get());
     assertEquals(0, segment.count);
     assertEquals(0, segment.totalWeight);
   }
@@ -1890,7 +1888,6 @@ public class LocalCacheTest extends TestCase {
     DummyEntry<Object, Object> entry = createDummyEntry(key, hash, value, null);
     segment.recordWrite(entry, 1, map.ticker.read());
     segment.table.set(0, entry);
-    segment.readCount.incrementAndGet();
     segment.count = 1;
     segment.totalWeight = 1;
 
@@ -1902,7 +1899,6 @@ public class LocalCacheTest extends TestCase {
     assertNull(table.get(0));
     assertTrue(segment.accessQueue.isEmpty());
     assertTrue(segment.writeQueue.isEmpty());
-    assertEquals(0, segment.readCount.get());
     assertEquals(0, segment.count);
     assertEquals(0, segment.totalWeight);
     assertNotified(listener, key, value, RemovalCause.EXPLICIT);
@@ -2057,22 +2053,22 @@ public class LocalCacheTest extends TestCase {
       LocalCache<Object, Object> map = makeLocalCache(builder.concurrencyLevel(1));
       Segment<Object, Object> segment = map.segments[0];
 
-      if (segment.recencyQueue != DISCARDING_QUEUE) {
+      if (map.usesAccessQueue()) {
         Object keyOne = new Object();
         Object valueOne = new Object();
         Object keyTwo = new Object();
         Object valueTwo = new Object();
 
         map.put(keyOne, valueOne);
-        assertTrue(segment.recencyQueue.isEmpty());
+        assertTrue(segment.readBuffer.isEmpty());
 
         for (int i = 0; i < DRAIN_THRESHOLD / 2; i++) {
           map.get(keyOne);
         }
-        assertFalse(segment.recencyQueue.isEmpty());
+        assertFalse(segment.readBuffer.isEmpty());
 
         map.put(keyTwo, valueTwo);
-        assertTrue(segment.recencyQueue.isEmpty());
+        assertTrue(segment.readBuffer.isEmpty());
       }
     }
   }
@@ -2082,23 +2078,23 @@ public class LocalCacheTest extends TestCase {
       LocalCache<Object, Object> map = makeLocalCache(builder.concurrencyLevel(1));
       Segment<Object, Object> segment = map.segments[0];
 
-      if (segment.recencyQueue != DISCARDING_QUEUE) {
+      if (map.usesAccessQueue()) {
         Object keyOne = new Object();
         Object valueOne = new Object();
 
         // repeated get of the same key
 
         map.put(keyOne, valueOne);
-        assertTrue(segment.recencyQueue.isEmpty());
+        assertTrue(segment.readBuffer.isEmpty());
 
         for (int i = 0; i < DRAIN_THRESHOLD / 2; i++) {
           map.get(keyOne);
         }
-        assertFalse(segment.recencyQueue.isEmpty());
+        assertFalse(segment.readBuffer.isEmpty());
 
         for (int i = 0; i < DRAIN_THRESHOLD * 2; i++) {
           map.get(keyOne);
-          assertTrue(segment.recencyQueue.size() <= DRAIN_THRESHOLD);
+          assertTrue(segment.readBuffer.size() <= DRAIN_THRESHOLD);
         }
 
         // get over many different keys
@@ -2106,16 +2102,16 @@ public class LocalCacheTest extends TestCase {
         for (int i = 0; i < DRAIN_THRESHOLD * 2; i++) {
           map.put(new Object(), new Object());
         }
-        assertTrue(segment.recencyQueue.isEmpty());
+        assertTrue(segment.readBuffer.isEmpty());
 
         for (int i = 0; i < DRAIN_THRESHOLD / 2; i++) {
           map.get(keyOne);
         }
-        assertFalse(segment.recencyQueue.isEmpty());
+        assertFalse(segment.readBuffer.isEmpty());
 
         for (Object key : map.keySet()) {
           map.get(key);
-          assertTrue(segment.recencyQueue.size() <= DRAIN_THRESHOLD);
+          assertTrue(segment.readBuffer.size() <= DRAIN_THRESHOLD);
         }
       }
     }
@@ -2149,7 +2145,7 @@ public class LocalCacheTest extends TestCase {
       while (i.hasNext()) {
         ReferenceEntry<Object, Object> entry = i.next();
         if (random.nextBoolean()) {
-          segment.recordRead(entry, map.ticker.read());
+          segment.recordRead(entry, entry.getValueReference().get(), map.ticker.read());
           reads.add(entry);
           i.remove();
         }
@@ -2181,7 +2177,7 @@ public class LocalCacheTest extends TestCase {
 
       checkEvictionQueues(map, segment, readOrder, writeOrder);
       checkExpirationTimes(map);
-      assertTrue(segment.recencyQueue.isEmpty());
+      assertTrue(segment.readBuffer.isEmpty());
 
       // access some of the elements
       Random random = new Random();
@@ -2193,10 +2189,10 @@ public class LocalCacheTest extends TestCase {
           map.get(entry.getKey());
           reads.add(entry);
           i.remove();
-          assertTrue(segment.recencyQueue.size() <= DRAIN_THRESHOLD);
+          assertTrue(segment.readBuffer.size() <= DRAIN_THRESHOLD);
         }
       }
-      int undrainedIndex = reads.size() - segment.recencyQueue.size();
+      int undrainedIndex = reads.size() - segment.readBuffer.size();
       checkAndDrainRecencyQueue(map, segment, reads.subList(undrainedIndex, reads.size()));
       readOrder.addAll(reads);
 
@@ -2246,9 +2242,9 @@ public class LocalCacheTest extends TestCase {
   static <K, V> void checkAndDrainRecencyQueue(
       LocalCache<K, V> map, Segment<K, V> segment, List<ReferenceEntry<K, V>> reads) {
     if (map.evictsBySize() || map.expiresAfterAccess()) {
-      assertSameEntries(reads, ImmutableList.copyOf(segment.recencyQueue));
+      assertSameEntries(reads, ImmutableList.copyOf(segment.readBuffer));
     }
-    segment.drainRecencyQueue();
+    segment.drainReadBuffer();
   }
 
   static <K, V> void checkEvictionQueues(
@@ -2284,7 +2280,7 @@ public class LocalCacheTest extends TestCase {
     for (Segment<K, V> segment : map.segments) {
       long lastAccessTime = 0;
       long lastWriteTime = 0;
-      for (ReferenceEntry<K, V> e : segment.recencyQueue) {
+      for (ReferenceEntry<K, V> e : segment.readBuffer) {
         long accessTime = e.getAccessTime();
         assertTrue(accessTime >= lastAccessTime);
         lastAccessTime = accessTime;
@@ -2329,14 +2325,14 @@ public class LocalCacheTest extends TestCase {
     assertSame(entry, segment.writeQueue.peek());
     assertEquals(1, segment.writeQueue.size());
 
-    segment.recordRead(entry, ticker.read());
+    segment.recordRead(entry, value, ticker.read());
     segment.expireEntries(ticker.read());
     assertSame(value, map.get(key));
     assertSame(entry, segment.writeQueue.peek());
     assertEquals(1, segment.writeQueue.size());
 
     ticker.advance(1);
-    segment.recordRead(entry, ticker.read());
+    segment.recordRead(entry, value, ticker.read());
     segment.expireEntries(ticker.read());
     assertSame(value, map.get(key));
     assertSame(entry, segment.writeQueue.peek());
@@ -2370,21 +2366,21 @@ public class LocalCacheTest extends TestCase {
     assertSame(entry, segment.accessQueue.peek());
     assertEquals(1, segment.accessQueue.size());
 
-    segment.recordRead(entry, ticker.read());
+    segment.recordRead(entry, value, ticker.read());
     segment.expireEntries(ticker.read());
     assertTrue(map.containsKey(key));
     assertSame(entry, segment.accessQueue.peek());
     assertEquals(1, segment.accessQueue.size());
 
     ticker.advance(1);
-    segment.recordRead(entry, ticker.read());
+    segment.recordRead(entry, value, ticker.read());
     segment.expireEntries(ticker.read());
     assertTrue(map.containsKey(key));
     assertSame(entry, segment.accessQueue.peek());
     assertEquals(1, segment.accessQueue.size());
 
     ticker.advance(1);
-    segment.recordRead(entry, ticker.read());
+    segment.recordRead(entry, value, ticker.read());
     segment.expireEntries(ticker.read());
     assertTrue(map.containsKey(key));
     assertSame(entry, segment.accessQueue.peek());
@@ -2833,6 +2829,18 @@ public class LocalCacheTest extends TestCase {
       this.previousAccess = previous;
     }
 
+    private boolean inAdmissionWindow;
+
+    @Override
+    public boolean isInAdmissionWindow() {
+      return inAdmissionWindow;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      this.inAdmissionWindow = inAdmissionWindow;
+    }
+
     private long writeTime = Long.MAX_VALUE;
 
     @Override
@@ -2868,6 +2876,51 @@ public class LocalCacheTest extends TestCase {
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       this.previousWrite = previous;
     }
+
+    private long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
+
+    @Override
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      if (expirationTime != expectedTime) {
+        return false;
+      }
+      this.expirationTime = time;
+      return true;
+    }
+
+    private ReferenceEntry<K, V> nextInTimerWheel = nullEntry();
+
+    @Override
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      return nextInTimerWheel;
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      this.nextInTimerWheel = next;
+    }
+
+    private ReferenceEntry<K, V> previousInTimerWheel = nullEntry();
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      return previousInTimerWheel;
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      this.previousInTimerWheel = previous;
+    }
   }
 
   static class DummyValueReference<K, V> implements ValueReference<K, V> {
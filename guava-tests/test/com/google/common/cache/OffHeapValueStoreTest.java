@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.cache.OffHeapValueStore.MIN_BLOCK_SIZE;
+import static com.google.common.cache.OffHeapValueStore.SLAB_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Functions;
+import com.google.common.base.Strings;
+import com.google.common.cache.LocalCache.Segment;
+import com.google.common.cache.LocalCache.ValueReference;
+import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.SerializableTester;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link OffHeapValueStore}, and for caches built with {@link
+ * CacheBuilder#offHeapValues}.
+ */
+public class OffHeapValueStoreTest extends TestCase {
+
+  public void testReferenceValue_roundTrip() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    ValueReference<Object, String> reference = store.referenceValue("hello", 3);
+    assertEquals("hello", reference.get());
+    assertEquals("hello", reference.get());
+    assertEquals(3, reference.getWeight());
+    assertTrue(reference.isActive());
+    assertFalse(reference.isLoading());
+    assertEquals(SLAB_SIZE, store.reservedBytes());
+    assertEquals(MIN_BLOCK_SIZE, store.usedBytes());
+  }
+
+  public void testReferenceValue_empty() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    assertEquals("", store.referenceValue("", 1).get());
+    assertEquals(MIN_BLOCK_SIZE, store.usedBytes());
+  }
+
+  public void testReferenceValue_deserializesReadOnlyBuffer() {
+    OffHeapValueStore<Object, String> store =
+        new OffHeapValueStore<>(
+            new ValueSerializer<String>() {
+              @Override
+              public byte[] serialize(String value) {
+                return StringSerializer.INSTANCE.serialize(value);
+              }
+
+              @Override
+              public String deserialize(ByteBuffer bytes) {
+                assertTrue(bytes.isReadOnly());
+                return StringSerializer.INSTANCE.deserialize(bytes);
+              }
+            });
+    assertEquals("hello", store.referenceValue("hello", 1).get());
+  }
+
+  public void testReferenceValue_roundsUpToPowerOfTwo() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    String value = Strings.repeat("x", 1000);
+    assertEquals(value, store.referenceValue(value, 1).get());
+    assertEquals(1024, store.usedBytes());
+  }
+
+  public void testReferenceValue_largerThanSlab() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    String value = Strings.repeat("x", SLAB_SIZE + 1);
+    ValueReference<Object, String> reference = store.referenceValue(value, 1);
+    assertEquals(value, reference.get());
+    assertEquals(SLAB_SIZE + 1, store.reservedBytes());
+    assertEquals(SLAB_SIZE + 1, store.usedBytes());
+
+    store.release(reference);
+    assertEquals(0, store.reservedBytes());
+    assertEquals(0, store.usedBytes());
+  }
+
+  public void testRelease_unreadable() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    ValueReference<Object, String> reference = store.referenceValue("hello", 1);
+    store.release(reference);
+    assertNull(reference.get());
+    assertEquals(0, store.usedBytes());
+
+    // releasing again does not free the block twice
+    store.release(reference);
+    assertEquals(0, store.usedBytes());
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+  }
+
+  public void testRelease_whileRead() {
+    ReleasingSerializer serializer = new ReleasingSerializer();
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(serializer);
+    ValueReference<Object, String> reference = store.referenceValue("hello", 1);
+    serializer.store = store;
+    serializer.reference = reference;
+
+    // the block is not freed while the value is read
+    assertEquals("hello", reference.get());
+    assertEquals(MIN_BLOCK_SIZE, serializer.usedBytesWhileRead);
+    assertEquals(MIN_BLOCK_SIZE, store.usedBytes());
+    assertNull(reference.get());
+
+    store.drainPendingReleases();
+    assertEquals(0, store.usedBytes());
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+  }
+
+  public void testRelease_reusesBlocks() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    List<ValueReference<Object, String>> references = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      references.add(store.referenceValue("value " + i, 1));
+    }
+    assertEquals(100 * MIN_BLOCK_SIZE, store.usedBytes());
+
+    releaseAll(store, references);
+    assertEquals(0, store.usedBytes());
+    assertEquals(0, store.freeBlockCount(MIN_BLOCK_SIZE));
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+
+    for (int i = 0; i < 100; i++) {
+      references.add(store.referenceValue("other " + i, 1));
+    }
+    assertEquals(0, store.freeBlockCount(MIN_BLOCK_SIZE));
+    assertEquals(SLAB_SIZE, store.reservedBytes());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("other " + i, references.get(i).get());
+    }
+  }
+
+  public void testAllocate_splitsLargerBlocks() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    ValueReference<Object, String> reference = store.referenceValue(Strings.repeat("x", 1000), 1);
+    store.release(reference);
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+
+    reference = store.referenceValue("small", 1);
+    assertEquals(0, store.freeBlockCount(SLAB_SIZE));
+    for (int size = MIN_BLOCK_SIZE; size < SLAB_SIZE; size <<= 1) {
+      assertEquals(1, store.freeBlockCount(size));
+    }
+    assertEquals(MIN_BLOCK_SIZE, store.usedBytes());
+    assertEquals("small", reference.get());
+  }
+
+  public void testAllocate_addsSlabs() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    List<ValueReference<Object, String>> references = new ArrayList<>();
+    references.add(store.referenceValue(Strings.repeat("x", SLAB_SIZE / 2), 1));
+    references.add(store.referenceValue("small", 1));
+    references.add(store.referenceValue(Strings.repeat("y", SLAB_SIZE / 2), 1));
+    assertEquals(2 * SLAB_SIZE, store.reservedBytes());
+    for (int size = MIN_BLOCK_SIZE; size < SLAB_SIZE / 2; size <<= 1) {
+      assertEquals(1, store.freeBlockCount(size));
+    }
+    // the other half of the second slab
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE / 2));
+    assertEquals(Strings.repeat("y", SLAB_SIZE / 2), references.get(2).get());
+  }
+
+  public void testFree_mergesBuddies() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    ValueReference<Object, String> first = store.referenceValue("first", 1);
+    ValueReference<Object, String> second = store.referenceValue("second", 1);
+    ValueReference<Object, String> third = store.referenceValue("third", 1);
+    assertEquals(1, store.freeBlockCount(MIN_BLOCK_SIZE));
+    assertEquals(1, store.freeBlockCount(4 * MIN_BLOCK_SIZE));
+
+    // the buddy of the second block is the first, which is still used
+    store.release(second);
+    assertEquals(2 * MIN_BLOCK_SIZE, store.usedBytes());
+    assertEquals(2, store.freeBlockCount(MIN_BLOCK_SIZE));
+    assertEquals(0, store.freeBlockCount(2 * MIN_BLOCK_SIZE));
+
+    store.release(first);
+    assertEquals(MIN_BLOCK_SIZE, store.usedBytes());
+    assertEquals(1, store.freeBlockCount(MIN_BLOCK_SIZE));
+    assertEquals(1, store.freeBlockCount(2 * MIN_BLOCK_SIZE));
+    assertEquals("third", third.get());
+
+    store.release(third);
+    assertEquals(0, store.usedBytes());
+    for (int size = MIN_BLOCK_SIZE; size < SLAB_SIZE; size <<= 1) {
+      assertEquals(0, store.freeBlockCount(size));
+    }
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+    assertEquals(SLAB_SIZE, store.reservedBytes());
+  }
+
+  public void testFree_releasesEmptySlabs() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    List<ValueReference<Object, String>> references = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      references.add(store.referenceValue(Strings.repeat("x", SLAB_SIZE / 2 + 1), 1));
+    }
+    assertEquals(3 * SLAB_SIZE, store.reservedBytes());
+
+    releaseAll(store, references);
+    assertEquals(SLAB_SIZE, store.reservedBytes());
+    assertEquals(1, store.freeBlockCount(SLAB_SIZE));
+  }
+
+  public void testReservedBytes_boundedWhileCyclingSizes() {
+    OffHeapValueStore<Object, String> store = new OffHeapValueStore<>(StringSerializer.INSTANCE);
+    List<ValueReference<Object, String>> references = new ArrayList<>();
+    for (int round = 0; round < 20; round++) {
+      // a different mix of sizes in each round, of 2 MiB of blocks in all
+      for (int i = 0; store.usedBytes() < 2 * SLAB_SIZE; i++) {
+        int length = (MIN_BLOCK_SIZE << ((round + i) % 12)) - round;
+        references.add(store.referenceValue(Strings.repeat("x", length), 1));
+        assertTrue(store.reservedBytes() <= 3 * SLAB_SIZE);
+      }
+      releaseAll(store, references);
+      assertEquals(0, store.usedBytes());
+      assertEquals(SLAB_SIZE, store.reservedBytes());
+    }
+  }
+
+  public void testCache_getAndPut() {
+    Cache<Integer, String> cache =
+        CacheBuilder.newBuilder().offHeapValues(StringSerializer.INSTANCE).build();
+    String value = "one";
+    cache.put(1, value);
+    String result = cache.getIfPresent(1);
+    assertEquals(value, result);
+    assertNotSame(value, result);
+    assertTrue(cache.asMap().containsValue("one"));
+    assertTrue(cache.asMap().replace(1, "one", "uno"));
+    assertFalse(cache.asMap().replace(1, "one", "eins"));
+    assertEquals("uno", cache.asMap().get(1));
+    assertEquals("uno", cache.asMap().remove(1));
+    assertNull(cache.getIfPresent(1));
+  }
+
+  public void testCache_loading() throws Exception {
+    LoadingCache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .offHeapValues(StringSerializer.INSTANCE)
+            .build(
+                new CacheLoader<Integer, String>() {
+                  @Override
+                  public String load(Integer key) {
+                    return Strings.repeat("v", key);
+                  }
+                });
+    assertEquals("vvv", cache.get(3));
+    cache.refresh(3);
+    assertEquals("vvv", cache.getIfPresent(3));
+    assertEquals(1, cache.size());
+  }
+
+  public void testCache_evictsByBytes() {
+    QueuingRemovalListener<Integer, String> listener =
+        TestingRemovalListeners.queuingRemovalListener();
+    Cache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .offHeapValues(StringSerializer.INSTANCE)
+            .maximumWeight(10_000)
+            .weigher(
+                new Weigher<Integer, String>() {
+                  @Override
+                  public int weigh(Integer key, String value) {
+                    return value.getBytes(UTF_8).length;
+                  }
+                })
+            .removalListener(listener)
+            .build();
+    for (int i = 0; i < 20; i++) {
+      cache.put(i, Strings.repeat("x", 1000));
+    }
+    assertEquals(10, cache.size());
+    assertEquals(10, listener.size());
+    assertEquals(RemovalCause.SIZE, listener.poll().getCause());
+    assertEquals(Strings.repeat("x", 1000), listener.poll().getValue());
+  }
+
+  public void testCache_freesReplacedValues() {
+    LoadingCache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .offHeapValues(StringSerializer.INSTANCE)
+            .build(CacheLoader.from(Functions.toStringFunction()));
+    Segment<Integer, String> segment = CacheTesting.toLocalCache(cache).segments[0];
+    for (int i = 0; i < 100; i++) {
+      cache.put(1, "value " + i);
+      assertEquals(MIN_BLOCK_SIZE, segment.offHeapStore.usedBytes());
+    }
+    assertEquals("value 99", cache.getIfPresent(1));
+  }
+
+  public void testCache_freesExpiredValues() {
+    FakeTicker ticker = new FakeTicker();
+    LoadingCache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .offHeapValues(StringSerializer.INSTANCE)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .build(CacheLoader.from(Functions.toStringFunction()));
+    Segment<Integer, String> segment = CacheTesting.toLocalCache(cache).segments[0];
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, "value " + i);
+    }
+    ticker.advance(2, TimeUnit.MINUTES);
+    cache.cleanUp();
+    assertEquals(0, segment.offHeapStore.usedBytes());
+  }
+
+  public void testCache_freesRemovedValues() {
+    LoadingCache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .offHeapValues(StringSerializer.INSTANCE)
+            .build(CacheLoader.from(Functions.toStringFunction()));
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, "value " + i);
+    }
+    Segment<Integer, String> segment = CacheTesting.toLocalCache(cache).segments[0];
+    assertEquals(100 * MIN_BLOCK_SIZE, segment.offHeapStore.usedBytes());
+
+    cache.invalidateAll();
+    assertEquals(0, segment.offHeapStore.usedBytes());
+    for (int i = 0; i < 50; i++) {
+      cache.put(i, "value " + i);
+    }
+    cache.invalidate(0);
+    assertEquals(49 * MIN_BLOCK_SIZE, segment.offHeapStore.usedBytes());
+    assertEquals(SLAB_SIZE, segment.offHeapStore.reservedBytes());
+    for (int i = 1; i < 50; i++) {
+      assertEquals("value " + i, cache.getIfPresent(i));
+    }
+  }
+
+  public void testCache_serialization() {
+    LoadingCache<Integer, String> cache =
+        CacheBuilder.newBuilder()
+            .offHeapValues(StringSerializer.INSTANCE)
+            .build(CacheLoader.from(Functions.toStringFunction()));
+    LoadingCache<Integer, String> copy = SerializableTester.reserialize(cache);
+    assertTrue(CacheTesting.toLocalCache(copy).storesValuesOffHeap());
+    assertEquals("1", copy.getUnchecked(1));
+  }
+
+  private static void releaseAll(
+      OffHeapValueStore<Object, String> store, List<ValueReference<Object, String>> references) {
+    for (ValueReference<Object, String> reference : references) {
+      store.release(reference);
+    }
+    references.clear();
+  }
+
+  private enum StringSerializer implements ValueSerializer<String> {
+    INSTANCE;
+
+    @Override
+    public byte[] serialize(String value) {
+      return value.getBytes(UTF_8);
+    }
+
+    @Override
+    public String deserialize(ByteBuffer bytes) {
+      byte[] array = new byte[bytes.remaining()];
+      bytes.get(array);
+      return new String(array, UTF_8);
+    }
+  }
+
+  /** Releases a value while it is being read. */
+  private static final class ReleasingSerializer implements ValueSerializer<String> {
+    OffHeapValueStore<Object, String> store;
+    ValueReference<Object, String> reference;
+    long usedBytesWhileRead = -1;
+
+    @Override
+    public byte[] serialize(String value) {
+      return StringSerializer.INSTANCE.serialize(value);
+    }
+
+    @Override
+    public String deserialize(ByteBuffer bytes) {
+      if (reference != null) {
+        store.release(reference);
+        usedBytesWhileRead = store.usedBytes();
+        reference = null;
+      }
+      return StringSerializer.INSTANCE.deserialize(bytes);
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package com.google.common.cache;
 
 import com.google.common.testing.AbstractPackageSanityTests;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Basic sanity tests for the entire package.
@@ -34,6 +36,14 @@ public class PackageSanityTests extends AbstractPackageSanityTests {
             return key;
           }
         });
+    setDefault(
+        AsyncCacheLoader.class,
+        new AsyncCacheLoader<Object, Object>() {
+          @Override
+          public ListenableFuture<Object> load(Object key) {
+            return Futures.immediateFuture(key);
+          }
+        });
     setDefault(LocalCache.class, new LocalCache<Object, Object>(CacheBuilder.newBuilder(), null));
     setDefault(CacheBuilder.class, CacheBuilder.newBuilder());
   }
@@ -320,6 +320,7 @@ public class PopulatedCachesTest extends TestCase {
         .withValueStrengths(ImmutableSet.copyOf(Strength.values()))
         .withConcurrencyLevels(ImmutableSet.of(1, 4, 16, 64))
         .withMaximumSizes(ImmutableSet.of(400, 1000))
+        .withEvictionPolicies(ImmutableSet.copyOf(EvictionPolicy.values()))
         .withInitialCapacities(ImmutableSet.of(0, 1, 10, 100, 1000))
         .withExpireAfterWrites(
             ImmutableSet.of(
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link ReadBuffer}.
+ */
+public class ReadBufferTest extends TestCase {
+
+  public void testConstruct_notPowerOfTwo() {
+    try {
+      new ReadBuffer<Integer>(3);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testOffer_null() {
+    try {
+      new ReadBuffer<Integer>(4).offer(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testOffer_zeroCapacity() {
+    ReadBuffer<Integer> buffer = new ReadBuffer<>(0);
+    assertFalse(buffer.offer(1));
+    assertTrue(buffer.isEmpty());
+    assertNull(buffer.poll());
+  }
+
+  public void testOfferAndPoll_preservesOrder() {
+    ReadBuffer<Integer> buffer = new ReadBuffer<>(8);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertEquals(5, buffer.size());
+    assertEquals(0, (int) buffer.peek());
+    assertThat(buffer).containsExactly(0, 1, 2, 3, 4).inOrder();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, (int) buffer.poll());
+    }
+    assertNull(buffer.poll());
+    assertTrue(buffer.isEmpty());
+  }
+
+  public void testOffer_full() {
+    ReadBuffer<Integer> buffer = new ReadBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+    assertFalse(buffer.offer(4));
+    assertEquals(4, buffer.size());
+
+    assertEquals(0, (int) buffer.poll());
+    assertTrue(buffer.offer(5));
+    assertThat(buffer).containsExactly(1, 2, 3, 5).inOrder();
+  }
+
+  public void testOffer_wrapsAround() {
+    ReadBuffer<Integer> buffer = new ReadBuffer<>(4);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(buffer.offer(i));
+      assertEquals(i, (int) buffer.poll());
+    }
+    assertTrue(buffer.isEmpty());
+  }
+
+  public void testClear() {
+    ReadBuffer<Integer> buffer = new ReadBuffer<>(4);
+    buffer.offer(1);
+    buffer.offer(2);
+    buffer.clear();
+    assertTrue(buffer.isEmpty());
+    assertEquals(0, buffer.size());
+  }
+
+  public void testConcurrentOffers() throws Exception {
+    int nThreads = 8;
+    final int offersPerThread = 10000;
+    final ReadBuffer<Integer> buffer = new ReadBuffer<>(16);
+    final AtomicInteger added = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < nThreads; t++) {
+        futures.add(
+            executor.submit(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    try {
+                      start.await();
+                    } catch (InterruptedException e) {
+                      throw new AssertionError(e);
+                    }
+                    for (int i = 0; i < offersPerThread; i++) {
+                      if (buffer.offer(i)) {
+                        added.incrementAndGet();
+                      }
+                    }
+                  }
+                }));
+      }
+
+      // consume concurrently, as the cache's drain does
+      start.countDown();
+      int polled = 0;
+      boolean done = false;
+      while (!done) {
+        done = true;
+        for (Future<?> future : futures) {
+          done &= future.isDone();
+        }
+        while (buffer.poll() != null) {
+          polled++;
+        }
+      }
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      while (buffer.poll() != null) {
+        polled++;
+      }
+
+      assertEquals(added.get(), polled);
+      assertTrue(buffer.isEmpty());
+      assertThat(buffer.activeStripes()).isAtMost(ReadBuffer.MAXIMUM_STRIPES);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
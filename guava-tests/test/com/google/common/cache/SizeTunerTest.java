@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.cache.LocalCache.Segment;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link SizeTuner}, and for caches built with {@link CacheBuilder#minimumSize}.
+ */
+public class SizeTunerTest extends TestCase {
+
+  public void testInitialState() {
+    SizeTuner tuner = new SizeTuner(100, 1000);
+    assertEquals(1000, tuner.currentMaximum());
+    assertEquals(56, tuner.step());
+    assertEquals(1, new SizeTuner(5, 5).step());
+  }
+
+  public void testWithoutEvictions_holds() {
+    SizeTuner tuner = new SizeTuner(100, 1000);
+    for (int i = 0; i < 10_000; i++) {
+      tuner.recordInsertion(i);
+    }
+    assertEquals(1000, tuner.currentMaximum());
+  }
+
+  public void testScan_shrinksToMinimum() {
+    SizeTuner tuner = new SizeTuner(100, 1000);
+    long previous = tuner.currentMaximum();
+    for (int i = 0; i < 20_000; i++) {
+      tuner.recordInsertion(i);
+      tuner.recordEviction(i - 1000);
+      assertTrue(tuner.currentMaximum() <= previous);
+      previous = tuner.currentMaximum();
+    }
+    assertEquals(100, tuner.currentMaximum());
+  }
+
+  public void testGhostHits_grow() {
+    SizeTuner tuner = new SizeTuner(100, 1000);
+    int key = 0;
+    while (tuner.currentMaximum() > 100) {
+      tuner.recordInsertion(key);
+      tuner.recordEviction(key - 1000);
+      key++;
+    }
+
+    // cycle through 500 keys, each evicted before it is wanted again
+    for (int i = 0; i < 20_000 && tuner.currentMaximum() < 500; i++) {
+      tuner.recordInsertion(i % 500);
+      tuner.recordEviction((i + 1) % 500);
+    }
+    assertTrue(tuner.currentMaximum() >= 500);
+  }
+
+  public void testNeverExceedsBounds() {
+    SizeTuner tuner = new SizeTuner(10, 20);
+    for (int i = 0; i < 10_000; i++) {
+      tuner.recordInsertion(i % 30);
+      tuner.recordEviction(i % 30);
+      assertTrue(tuner.currentMaximum() >= 10);
+      assertTrue(tuner.currentMaximum() <= 20);
+    }
+  }
+
+  public void testCache_adaptsToWorkingSet() {
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumSize(1000)
+            .minimumSize(100)
+            .build(TestingCacheLoaders.<Integer>identityLoader());
+    Segment<Integer, Integer> segment = CacheTesting.toLocalCache(cache).segments[0];
+    assertEquals(1000, segment.sizeTuner.currentMaximum());
+
+    // a scan is never read again, so the cache shrinks
+    for (int i = 0; i < 20_000; i++) {
+      cache.getUnchecked(-i - 1);
+    }
+    assertEquals(100, segment.sizeTuner.currentMaximum());
+    assertEquals(100, cache.size());
+
+    // a loop larger than the cache misses every time, so the cache grows to hold it
+    for (int i = 0; i < 20_000; i++) {
+      cache.getUnchecked(i % 500);
+    }
+    assertTrue(segment.sizeTuner.currentMaximum() >= 500);
+    assertEquals(500, cache.size());
+  }
+
+  public void testCache_withoutMinimumSize() {
+    LoadingCache<Integer, Integer> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build(TestingCacheLoaders.<Integer>identityLoader());
+    for (Segment<Integer, Integer> segment : CacheTesting.toLocalCache(cache).segments) {
+      assertNull(segment.sizeTuner);
+    }
+  }
+}
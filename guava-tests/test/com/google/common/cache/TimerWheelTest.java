@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.cache.LocalCache.Segment;
+import com.google.common.cache.TestingRemovalListeners.QueuingRemovalListener;
+import com.google.common.testing.FakeTicker;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link TimerWheel}, driven through a cache whose values are the lifetimes of their
+ * entries, in nanoseconds.
+ */
+public class TimerWheelTest extends TestCase {
+
+  private FakeTicker ticker;
+  private QueuingRemovalListener<Long, Long> listener;
+  private LocalCache<Long, Long> map;
+  private Segment<Long, Long> segment;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    createCache(new FakeTicker());
+  }
+
+  private void createCache(FakeTicker ticker) {
+    this.ticker = ticker;
+    listener = TestingRemovalListeners.queuingRemovalListener();
+    LoadingCache<Long, Long> cache =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .expireAfter(new ValueExpiry())
+            .removalListener(listener)
+            .ticker(ticker)
+            .build(TestingCacheLoaders.<Long>identityLoader());
+    map = CacheTesting.toLocalCache(cache);
+    segment = map.segments[0];
+  }
+
+  public void testSchedule_levels() {
+    long[] lifetimes = {
+      SECONDS.toNanos(30),
+      MINUTES.toNanos(30),
+      HOURS.toNanos(30),
+      DAYS.toNanos(3),
+      DAYS.toNanos(365),
+    };
+    for (long lifetime : lifetimes) {
+      map.put(lifetime, lifetime);
+    }
+    for (int i = 0; i < lifetimes.length; i++) {
+      assertEquals(i, levelOf(lifetimes[i]));
+    }
+    CacheTesting.checkExpiration(map);
+  }
+
+  public void testSchedule_bucket() {
+    map.put(1L, SECONDS.toNanos(5));
+    List<List<ReferenceEntry<Long, Long>>> buckets = segment.timerWheel.snapshot(0);
+    int index = (int) ((SECONDS.toNanos(5) >>> TimerWheel.SHIFT[0]) & (buckets.size() - 1));
+    assertThat(buckets.get(index)).containsExactly(entry(1L));
+  }
+
+  public void testSchedule_negativeTicker() {
+    createCache(new FakeTicker().advance(-DAYS.toNanos(1)));
+    ticker.advance(-DAYS.toNanos(1));
+    map.put(1L, SECONDS.toNanos(5));
+    assertEquals(0, levelOf(1L));
+    ticker.advance(5, SECONDS);
+    map.cleanUp();
+    assertEquals(1L, (long) listener.remove().getKey());
+  }
+
+  public void testAdvance_cascades() {
+    long lifetime = HOURS.toNanos(2) + SECONDS.toNanos(10);
+    map.put(1L, lifetime);
+    assertEquals(2, levelOf(1L));
+
+    ticker.advance(2, HOURS);
+    map.cleanUp();
+    assertEquals(0, levelOf(1L));
+    assertTrue(listener.isEmpty());
+
+    ticker.advance(10, SECONDS);
+    map.cleanUp();
+    RemovalNotification<Long, Long> notification = listener.remove();
+    assertEquals(1L, (long) notification.getKey());
+    assertEquals(RemovalCause.EXPIRED, notification.getCause());
+    CacheTesting.checkEmpty(map);
+  }
+
+  public void testAdvance_exact() {
+    for (long i = 1; i <= 100; i++) {
+      map.put(i, i * 123_456_789L);
+    }
+    for (long i = 1; i <= 100; i++) {
+      ticker.advance(123_456_788L, NANOSECONDS);
+      map.cleanUp();
+      assertTrue(listener.isEmpty());
+      ticker.advance(1, NANOSECONDS);
+      map.cleanUp();
+      assertEquals(i, (long) listener.remove().getKey());
+      assertTrue(listener.isEmpty());
+      assertEquals(100 - i, map.size());
+    }
+    CacheTesting.checkEmpty(map);
+  }
+
+  public void testAdvance_largeJump() {
+    for (long i = 1; i <= 100; i++) {
+      map.put(i, HOURS.toNanos(i));
+    }
+    ticker.advance(50, HOURS);
+    map.cleanUp();
+    assertEquals(50, map.size());
+    for (long i = 1; i <= 50; i++) {
+      assertFalse(map.containsKey(i));
+    }
+    CacheTesting.checkExpiration(map);
+    ticker.advance(50, HOURS);
+    map.cleanUp();
+    CacheTesting.checkEmpty(map);
+  }
+
+  public void testRemove() {
+    map.put(1L, MINUTES.toNanos(1));
+    map.put(2L, MINUTES.toNanos(1));
+    map.remove(1L);
+    assertEquals(-1, levelOf(1L));
+    assertEquals(1, CacheTesting.timerWheelSize(segment));
+    map.clear();
+    assertEquals(0, CacheTesting.timerWheelSize(segment));
+  }
+
+  public void testUpdate_reschedules() {
+    map.put(1L, DAYS.toNanos(3));
+    assertEquals(3, levelOf(1L));
+    map.put(1L, SECONDS.toNanos(1));
+    assertEquals(0, levelOf(1L));
+    assertEquals(1, CacheTesting.timerWheelSize(segment));
+    CacheTesting.checkExpiration(map);
+  }
+
+  public void testCopyEntry_keepsSchedule() {
+    map.put(1L, MINUTES.toNanos(1));
+    map.put(2L, MINUTES.toNanos(1));
+    map.put(3L, MINUTES.toNanos(1));
+    ReferenceEntry<Long, Long> original = entry(2L);
+    ReferenceEntry<Long, Long> copy;
+    segment.lock();
+    try {
+      copy = segment.copyEntry(original, original.getNext());
+      assertEquals(original.getExpirationTime(), copy.getExpirationTime());
+      assertSame(copy, copy.getPreviousInTimerWheel().getNextInTimerWheel());
+      assertSame(copy, copy.getNextInTimerWheel().getPreviousInTimerWheel());
+    } finally {
+      segment.unlock();
+    }
+    assertFalse(segment.timerWheel.contains(original));
+    assertTrue(segment.timerWheel.contains(copy));
+  }
+
+  private ReferenceEntry<Long, Long> entry(long key) {
+    return segment.getEntry(key, map.hash(key));
+  }
+
+  /** Returns the level of the wheel that holds the entry for {@code key}, or -1 if none does. */
+  private int levelOf(long key) {
+    ReferenceEntry<Long, Long> entry = entry(key);
+    for (int level = 0; level < TimerWheel.BUCKETS.length; level++) {
+      for (List<ReferenceEntry<Long, Long>> bucket : segment.timerWheel.snapshot(level)) {
+        if (bucket.contains(entry)) {
+          return level;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static final class ValueExpiry implements Expiry<Long, Long> {
+    @Override
+    public long expireAfterCreate(Long key, Long value, long currentTime) {
+      return value;
+    }
+
+    @Override
+    public long expireAfterUpdate(Long key, Long value, long currentTime, long currentDuration) {
+      return value;
+    }
+
+    @Override
+    public long expireAfterRead(Long key, Long value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.collect.testing.Helpers.mapEntry;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.testing.SerializableTester;
+import java.util.Map;
+import java.util.Map.Entry;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for {@link FlatImmutableMap}.
+ */
+public class FlatImmutableMapTest extends TestCase {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTest(
+        MapTestSuiteBuilder.using(
+                new TestStringMapGenerator() {
+                  @Override
+                  protected Map<String, String> create(Entry<String, String>[] entries) {
+                    return FlatImmutableMap.create(entries.length, entries);
+                  }
+                })
+            .named("FlatImmutableMap")
+            .withFeatures(
+                CollectionSize.ANY,
+                CollectionFeature.SERIALIZABLE_INCLUDING_VIEWS,
+                CollectionFeature.KNOWN_ORDER,
+                MapFeature.REJECTS_DUPLICATES_AT_CREATION,
+                MapFeature.ALLOWS_ANY_NULL_QUERIES)
+            .createTestSuite());
+    suite.addTestSuite(FlatImmutableMapTest.class);
+    return suite;
+  }
+
+  private static ImmutableMap<Integer, String> buildMap(int size) {
+    ImmutableMap.Builder<Integer, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      builder.put(i, Integer.toString(i));
+    }
+    return builder.build();
+  }
+
+  public void testLargeMapsAreFlat() {
+    assertThat(buildMap(RegularImmutableMap.MIN_FLAT_SIZE - 1))
+        .isInstanceOf(RegularImmutableMap.class);
+    ImmutableMap<Integer, String> map = buildMap(RegularImmutableMap.MIN_FLAT_SIZE);
+    assertThat(map).isInstanceOf(FlatImmutableMap.class);
+    assertEquals(RegularImmutableMap.MIN_FLAT_SIZE, map.size());
+    for (int i = 0; i < map.size(); i++) {
+      assertEquals(Integer.toString(i), map.get(i));
+    }
+    assertNull(map.get(map.size()));
+    assertEquals(ContiguousSet.closedOpen(0, map.size()).asList(), map.keySet().asList());
+    assertEquals(ImmutableMap.copyOf(Maps.newLinkedHashMap(map)), map);
+    assertThat(ImmutableMap.copyOf(map)).isSameAs(map);
+  }
+
+  public void testAlternatingKeysAndValues() {
+    @SuppressWarnings("unchecked")
+    Entry<String, Integer>[] entries = new Entry[] {mapEntry("a", 1), mapEntry("b", 2)};
+    FlatImmutableMap<String, Integer> map =
+        (FlatImmutableMap<String, Integer>) FlatImmutableMap.create(2, entries);
+    assertThat(map.alternatingKeysAndValues).asList().containsExactly("a", 1, "b", 2).inOrder();
+  }
+
+  public void testDuplicateKey() {
+    @SuppressWarnings("unchecked")
+    Entry<String, Integer>[] entries =
+        new Entry[] {mapEntry("a", 1), mapEntry("b", 2), mapEntry("a", 3)};
+    try {
+      FlatImmutableMap.create(3, entries);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected)
+          .hasMessageThat()
+          .isEqualTo("Multiple entries with same key: a=3 and a=1");
+    }
+  }
+
+  public void testNullKeyOrValue() {
+    @SuppressWarnings("unchecked")
+    Entry<String, Integer>[] entries =
+        new Entry[] {mapEntry("a", 1), Maps.immutableEntry("b", null)};
+    try {
+      FlatImmutableMap.create(2, entries);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testHashFlooding() {
+    int size = RegularImmutableMap.MIN_FLAT_SIZE;
+    ImmutableMap.Builder<Object, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      builder.put(new CollidingKey(i), i);
+    }
+    ImmutableMap<Object, Integer> map = builder.build();
+    assertThat(map).isInstanceOf(JdkBackedImmutableMap.class);
+    for (int i = 0; i < size; i++) {
+      assertEquals((Integer) i, map.get(new CollidingKey(i)));
+    }
+  }
+
+  public void testSerialization() {
+    ImmutableMap<Integer, String> map = buildMap(RegularImmutableMap.MIN_FLAT_SIZE);
+    ImmutableMap<Integer, String> copy = SerializableTester.reserializeAndAssert(map);
+    assertEquals(map.entrySet().asList(), copy.entrySet().asList());
+    SerializableTester.reserializeAndAssert(map.keySet());
+    assertEquals(map.values().asList(), SerializableTester.reserialize(map.values()).asList());
+  }
+
+  private static final class CollidingKey {
+    final int value;
+
+    CollidingKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+    }
+  }
+}
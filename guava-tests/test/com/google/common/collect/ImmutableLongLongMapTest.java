@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ImmutableLongLongMap}.
+ */
+public class ImmutableLongLongMapTest extends TestCase {
+
+  public void testBuilder() {
+    ImmutableLongLongMap map = ImmutableLongLongMap.builder().put(0, 1).put(2, 3).build();
+    assertEquals(2, map.size());
+    assertEquals(1, map.getOrDefault(0, -1));
+    assertEquals(3, map.getOrDefault(2, -1));
+    assertEquals(-1, map.getOrDefault(1, -1));
+    assertThat(map.toString()).isAnyOf("{0=1, 2=3}", "{2=3, 0=1}");
+  }
+
+  public void testBuilder_duplicateKey() {
+    try {
+      ImmutableLongLongMap.builder().put(0, 1).put(0, 2);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertEquals("Multiple entries with same key: 0=1 and 0=2", expected.getMessage());
+    }
+  }
+
+  public void testCopyOf() {
+    LongLongHashMap map = LongLongHashMap.create();
+    map.put(1, 2);
+    ImmutableLongLongMap copy = ImmutableLongLongMap.copyOf(map);
+    assertSame(copy, ImmutableLongLongMap.copyOf(copy));
+    map.addTo(1, 1);
+    assertEquals(2, copy.getOrDefault(1, 0));
+  }
+
+  @SuppressWarnings("deprecation")
+  public void testMutators() {
+    ImmutableLongLongMap map = ImmutableLongLongMap.of(0, 1);
+    try {
+      map.put(1, 1);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      map.addTo(0, 1);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      map.remove(0);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    assertEquals(ImmutableLongLongMap.of(0, 1), map);
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(ImmutableLongLongMap.of(), LongLongHashMap.create())
+        .addEqualityGroup(ImmutableLongLongMap.of(1, 2), ImmutableLongLongMap.of(1, 2))
+        .addEqualityGroup(ImmutableLongLongMap.of(1, 2, 3, 4), ImmutableLongLongMap.of(3, 4, 1, 2))
+        .addEqualityGroup(ImmutableLongObjectMap.of(1, 2L))
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(ImmutableLongLongMap.class);
+    tester.testAllPublicInstanceMethods(ImmutableLongLongMap.builder());
+  }
+}
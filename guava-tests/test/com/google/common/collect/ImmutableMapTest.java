@@ -696,6 +696,52 @@ public class ImmutableMapTest extends TestCase {
               mapEntry("three", 3));
     }
 
+    @GwtIncompatible // toImmutableMap(Function, Function, int)
+    public void testToImmutableMap_expectedSize() {
+      for (int expectedSize : new int[] {0, 3, 100}) {
+        Collector<Entry<String, Integer>, ?, ImmutableMap<String, Integer>> collector =
+            ImmutableMap.toImmutableMap(Entry::getKey, Entry::getValue, expectedSize);
+        Equivalence<ImmutableMap<String, Integer>> equivalence =
+            Equivalence.equals()
+                .<Entry<String, Integer>>pairwise()
+                .onResultOf(ImmutableMap::entrySet);
+        CollectorTester.of(collector, equivalence)
+            .expectCollects(
+                ImmutableMap.of("one", 1, "two", 2, "three", 3),
+                mapEntry("one", 1),
+                mapEntry("two", 2),
+                mapEntry("three", 3));
+      }
+    }
+
+    @GwtIncompatible // toImmutableMap(Function, Function, int)
+    public void testToImmutableMap_expectedSizeNegative() {
+      try {
+        ImmutableMap.<Entry<String, Integer>, String, Integer>toImmutableMap(
+            Entry::getKey, Entry::getValue, -1);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+
+    @GwtIncompatible // parallel streams
+    public void testToImmutableMap_parallel() {
+      ImmutableList<Integer> keys = ContiguousSet.closedOpen(0, 100000).asList();
+      ImmutableMap<Integer, String> map =
+          keys.parallelStream()
+              .collect(ImmutableMap.toImmutableMap(i -> i, i -> Integer.toString(i), 100000));
+      assertEquals(keys, map.keySet().asList());
+      for (int i : new int[] {0, 12345, 99999}) {
+        assertEquals(Integer.toString(i), map.get(i));
+      }
+      try {
+        keys.parallelStream()
+            .collect(ImmutableMap.toImmutableMap(i -> i % 50000, i -> i, 100000));
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+
     public void testToImmutableMap_exceptionOnDuplicateKey() {
       Collector<Entry<String, Integer>, ?, ImmutableMap<String, Integer>> collector =
           ImmutableMap.toImmutableMap(Entry::getKey, Entry::getValue);
@@ -309,6 +309,42 @@ public class ImmutableSetTest extends AbstractImmutableSetTest {
         .expectCollects(ImmutableSet.of("a", "b", "c", "d"), "a", "b", "a", "c", "b", "b", "d");
   }
 
+  @GwtIncompatible // toImmutableSet(int)
+  public void testToImmutableSet_expectedSize() {
+    for (int expectedSize : new int[] {0, 2, 4, 100}) {
+      Collector<String, ?, ImmutableSet<String>> collector =
+          ImmutableSet.toImmutableSet(expectedSize);
+      Equivalence<ImmutableSet<String>> equivalence =
+          Equivalence.equals().onResultOf(ImmutableSet::asList);
+      CollectorTester.of(collector, equivalence)
+          .expectCollects(ImmutableSet.of("a", "b", "c", "d"), "a", "b", "a", "c", "b", "b", "d");
+    }
+  }
+
+  @GwtIncompatible // toImmutableSet(int)
+  public void testToImmutableSet_expectedSizeNegative() {
+    try {
+      ImmutableSet.toImmutableSet(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible // parallel streams
+  public void testToImmutableSet_parallel() {
+    ImmutableList<Integer> elements =
+        ContiguousSet.closedOpen(0, 100000).asList().stream()
+            .map(i -> i % 50000)
+            .collect(ImmutableList.toImmutableList());
+    ImmutableSet<Integer> expected = ImmutableSet.copyOf(elements);
+    assertEquals(
+        expected.asList(),
+        elements.parallelStream().collect(ImmutableSet.toImmutableSet(50000)).asList());
+    assertEquals(
+        expected.asList(),
+        elements.parallelStream().collect(ImmutableSet.toImmutableSet()).asList());
+  }
+
   public void testToImmutableSet_duplicates() {
     class TypeWithDuplicates {
       final int a;
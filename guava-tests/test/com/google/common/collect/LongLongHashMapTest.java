@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LongLongHashMap}.
+ */
+public class LongLongHashMapTest extends TestCase {
+
+  public void testZeroKey() {
+    LongLongHashMap map = LongLongHashMap.create();
+    assertFalse(map.containsKey(0));
+    assertEquals(-1, map.getOrDefault(0, -1));
+    map.put(0, 5);
+    assertTrue(map.containsKey(0));
+    assertEquals(1, map.size());
+    assertEquals(5, map.getOrDefault(0, -1));
+    assertEquals(7, map.addTo(0, 2));
+    assertEquals("{0=7}", map.toString());
+    assertTrue(map.remove(0));
+    assertFalse(map.remove(0));
+    assertTrue(map.isEmpty());
+  }
+
+  public void testZeroValue() {
+    LongLongHashMap map = LongLongHashMap.create();
+    map.put(1, 0);
+    assertTrue(map.containsKey(1));
+    assertEquals(0, map.getOrDefault(1, -1));
+  }
+
+  public void testAddTo() {
+    LongLongHashMap map = LongLongHashMap.create();
+    assertEquals(3, map.addTo(10, 3));
+    assertEquals(8, map.addTo(10, 5));
+    assertEquals(-1, map.addTo(11, -1));
+    assertEquals(2, map.size());
+    assertEquals(8, map.getOrDefault(10, 0));
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    LongLongHashMap map = LongLongHashMap.create();
+    Map<Long, Long> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      long key = (random.nextInt(2000) - 1000) * (1L << 36);
+      switch (random.nextInt(4)) {
+        case 0:
+          map.put(key, i);
+          expected.put(key, (long) i);
+          break;
+        case 1:
+          assertEquals(expected.merge(key, (long) i, Long::sum).longValue(), map.addTo(key, i));
+          break;
+        case 2:
+          assertEquals(expected.remove(key) != null, map.remove(key));
+          break;
+        default:
+          assertEquals(expected.getOrDefault(key, -1L).longValue(), map.getOrDefault(key, -1));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    Map<Long, Long> actual = new HashMap<>();
+    map.forEach(actual::put);
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), map.hashCode());
+  }
+
+  public void testClear() {
+    LongLongHashMap map = LongLongHashMap.create();
+    map.put(0, 1);
+    map.put(1, 2);
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertFalse(map.containsKey(0));
+    assertFalse(map.containsKey(1));
+  }
+
+  public void testEquals() {
+    LongLongHashMap map = LongLongHashMap.create();
+    map.put(0, 1);
+    map.put(2, 3);
+    new EqualsTester()
+        .addEqualityGroup(LongLongHashMap.create(), ImmutableLongLongMap.of())
+        .addEqualityGroup(map, ImmutableLongLongMap.of(2, 3, 0, 1), LongLongHashMap.create(map))
+        .addEqualityGroup(ImmutableLongLongMap.of(0, 1))
+        .addEqualityGroup(ImmutableLongObjectMap.of(0, 1L, 2, 3L))
+        .testEquals();
+  }
+
+  public void testNulls() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(LongLongHashMap.class);
+    tester.testAllPublicInstanceMethods(LongLongHashMap.create());
+  }
+}
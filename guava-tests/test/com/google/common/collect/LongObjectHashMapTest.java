@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LongObjectHashMap}.
+ */
+public class LongObjectHashMapTest extends TestCase {
+
+  public void testEmpty() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(0));
+    assertNull(map.get(0));
+    assertEquals("default", map.getOrDefault(0, "default"));
+    assertNull(map.remove(0));
+    assertEquals("{}", map.toString());
+    assertEquals(0, map.hashCode());
+  }
+
+  public void testPutGetRemove() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    assertNull(map.put(1, "a"));
+    assertNull(map.put(-1, "b"));
+    assertNull(map.put(Long.MIN_VALUE, "c"));
+    assertEquals(3, map.size());
+    assertEquals("a", map.get(1));
+    assertEquals("b", map.get(-1));
+    assertEquals("c", map.get(Long.MIN_VALUE));
+    assertNull(map.get(2));
+
+    assertEquals("a", map.put(1, "d"));
+    assertEquals(3, map.size());
+    assertEquals("d", map.get(1));
+
+    assertEquals("b", map.remove(-1));
+    assertEquals(2, map.size());
+    assertFalse(map.containsKey(-1));
+    assertNull(map.remove(-1));
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(1));
+  }
+
+  public void testPut_nullValue() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    try {
+      map.put(1, null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    assertTrue(map.isEmpty());
+  }
+
+  public void testCreateWithExpectedSize() {
+    for (int expectedSize = 0; expectedSize < 100; expectedSize++) {
+      LongObjectHashMap<Integer> map = LongObjectHashMap.createWithExpectedSize(expectedSize);
+      int tableSize = map.tableSize();
+      for (int i = 0; i < expectedSize; i++) {
+        map.put(i, i);
+      }
+      assertEquals(tableSize, map.tableSize());
+    }
+    try {
+      LongObjectHashMap.createWithExpectedSize(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testResize() {
+    LongObjectHashMap<Long> map = LongObjectHashMap.create();
+    for (long i = 0; i < 10000; i++) {
+      map.put(i * 31, i);
+    }
+    assertEquals(10000, map.size());
+    for (long i = 0; i < 10000; i++) {
+      assertEquals(Long.valueOf(i), map.get(i * 31));
+    }
+    assertTrue(map.tableSize() >= 10000 / LongObjectHashMap.LOAD_FACTOR);
+  }
+
+  /** Keys which differ only above the bits of the table's mask all start their probes together. */
+  public void testRemove_collidingKeys() {
+    LongObjectHashMap<Long> map = LongObjectHashMap.createWithExpectedSize(64);
+    long[] keys = new long[12];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = (long) i << 40;
+      map.put(keys[i], keys[i]);
+    }
+    for (int removed = 0; removed < keys.length; removed += 2) {
+      assertEquals(Long.valueOf(keys[removed]), map.remove(keys[removed]));
+      for (int i = 0; i < keys.length; i++) {
+        if (i > removed || i % 2 == 1) {
+          assertEquals(Long.valueOf(keys[i]), map.get(keys[i]));
+        } else {
+          assertFalse(map.containsKey(keys[i]));
+        }
+      }
+    }
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    LongObjectHashMap<Integer> map = LongObjectHashMap.create();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextInt(2000) - 1000;
+      switch (random.nextInt(4)) {
+        case 0:
+        case 1:
+          assertEquals(expected.put(key, i), map.put(key, i));
+          break;
+        case 2:
+          assertEquals(expected.remove(key), map.remove(key));
+          break;
+        default:
+          assertEquals(expected.get(key), map.get(key));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    Map<Long, Integer> actual = new HashMap<>();
+    map.forEach(actual::put);
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), map.hashCode());
+  }
+
+  public void testCreate_copy() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    map.put(1, "a");
+    map.put(2, "b");
+    LongObjectHashMap<String> copy = LongObjectHashMap.create(map);
+    assertEquals(map, copy);
+    copy.put(3, "c");
+    assertFalse(map.containsKey(3));
+  }
+
+  public void testEquals() {
+    LongObjectHashMap<String> map1 = LongObjectHashMap.create();
+    map1.put(1, "a");
+    map1.put(2, "b");
+    LongObjectHashMap<String> map2 = LongObjectHashMap.createWithExpectedSize(100);
+    map2.put(2, "b");
+    map2.put(1, "a");
+    LongObjectHashMap<String> map3 = LongObjectHashMap.create();
+    map3.put(1, "a");
+    map3.put(2, "c");
+    new EqualsTester()
+        .addEqualityGroup(LongObjectHashMap.create(), ImmutableLongObjectMap.of())
+        .addEqualityGroup(map1, map2, ImmutableLongObjectMap.of(1, "a", 2, "b"))
+        .addEqualityGroup(map3)
+        .addEqualityGroup(ImmutableMap.of(1L, "a", 2L, "b"))
+        .testEquals();
+  }
+
+  public void testHashCode_matchesMap() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    map.put(1, "a");
+    map.put(-5000000000L, "b");
+    assertEquals(ImmutableMap.of(1L, "a", -5000000000L, "b").hashCode(), map.hashCode());
+  }
+
+  public void testToString() {
+    LongObjectHashMap<String> map = LongObjectHashMap.create();
+    map.put(1, "a");
+    assertEquals("{1=a}", map.toString());
+    map.put(2, "b");
+    assertThat(map.toString()).isAnyOf("{1=a, 2=b}", "{2=b, 1=a}");
+  }
+
+  public void testNulls() {
+    new NullPointerTester().testAllPublicInstanceMethods(LongObjectHashMap.create());
+  }
+}
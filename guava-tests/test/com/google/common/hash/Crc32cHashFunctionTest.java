@@ -16,7 +16,10 @@ package com.google.common.hash;
 
 import static com.google.common.base.Charsets.UTF_8;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Random;
 import junit.framework.TestCase;
 
 /**
@@ -96,6 +99,59 @@ public class Crc32cHashFunctionTest extends TestCase {
   private static void assertCrc(int expectedCrc, byte[] data) {
     int actualCrc = Hashing.crc32c().hashBytes(data).asInt();
     assertEquals(expectedCrc, actualCrc);
+    assertEquals(expectedCrc, new Crc32cHashFunction.Crc32cHasher().putBytes(data).hash().asInt());
+  }
+
+  public void testSlicingMatchesBytewise() {
+    Random random = new Random(0);
+    for (int size = 0; size < 200; size++) {
+      byte[] bytes = new byte[size + 3];
+      random.nextBytes(bytes);
+      Hasher bytewise = new Crc32cHashFunction.Crc32cHasher();
+      for (int i = 3; i < bytes.length; i++) {
+        bytewise.putByte(bytes[i]);
+      }
+      HashCode expected = bytewise.hash();
+
+      Hasher sliced = new Crc32cHashFunction.Crc32cHasher();
+      sliced.putBytes(bytes, 3, size);
+      assertEquals(expected, sliced.hash());
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes).position(3);
+      direct.order(ByteOrder.BIG_ENDIAN);
+      Hasher slicedDirect = new Crc32cHashFunction.Crc32cHasher();
+      slicedDirect.putBytes(direct);
+      assertEquals(expected, slicedDirect.hash());
+      assertFalse(direct.hasRemaining());
+      assertEquals(ByteOrder.BIG_ENDIAN, direct.order());
+
+      // continuing from a partial checksum
+      Hasher split = new Crc32cHashFunction.Crc32cHasher();
+      split.putBytes(bytes, 3, size / 3);
+      split.putBytes(bytes, 3 + size / 3, size - size / 3);
+      assertEquals(expected, split.hash());
+    }
+  }
+
+  public void testJdkCrc32cMatchesSlicing() {
+    if (Crc32cHashFunction.newJdkCrc32c() == null) {
+      return; // before Java 9
+    }
+    Random random = new Random(0);
+    for (int size = 0; size < 200; size++) {
+      byte[] bytes = new byte[size];
+      random.nextBytes(bytes);
+      HashCode expected = new Crc32cHashFunction.Crc32cHasher().putBytes(bytes).hash();
+      Hasher jdk = new Crc32cHashFunction.JdkCrc32cHasher(Crc32cHashFunction.newJdkCrc32c());
+      assertEquals(expected, jdk.putBytes(bytes).hash());
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(size);
+      direct.put(bytes).flip();
+      Hasher jdkDirect = new Crc32cHashFunction.JdkCrc32cHasher(Crc32cHashFunction.newJdkCrc32c());
+      assertEquals(expected, jdkDirect.putBytes(direct).hash());
+      assertFalse(direct.hasRemaining());
+    }
   }
 
   // From RFC 3720, Section 12.1, the polynomial generator is 0x11EDC6F41.
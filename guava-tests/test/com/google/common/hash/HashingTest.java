@@ -414,6 +414,103 @@ public class HashingTest extends TestCase {
     assertEquals(expected, actual);
   }
 
+  public void testHashDirectByteBuffers() {
+    Random random = new Random(0);
+    List<HashFunction> functions = Lists.newArrayList(Hashing.crc32c());
+    for (HashFunctionEnum hashFunctionEnum : HashFunctionEnum.values()) {
+      functions.add(hashFunctionEnum.getHashFunction());
+    }
+    for (HashFunction function : functions) {
+      for (int size : new int[] {0, 1, 7, 8, 15, 16, 17, 63, 64, 65, 127, 128, 129, 1000, 4099}) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        HashCode expected = function.hashBytes(bytes);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(size + 3);
+        direct.position(3);
+        direct.put(bytes).position(3);
+        assertEquals(function.toString(), expected, function.hashBytes(direct));
+        assertFalse(direct.hasRemaining());
+
+        ByteBuffer readOnly = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        assertEquals(function.toString(), expected, function.hashBytes(readOnly));
+        assertFalse(readOnly.hasRemaining());
+
+        direct.position(3);
+        assertEquals(
+            function.toString(),
+            function.newHasher().putByte((byte) 1).putBytes(bytes).hash(),
+            function.newHasher().putByte((byte) 1).putBytes(direct).hash());
+      }
+    }
+  }
+
+  public void testBatchHashing() {
+    Random random = new Random(0);
+    int[] ints = new int[100];
+    long[] longs = new long[100];
+    List<String> strings = Lists.newLinkedList();
+    for (int i = 0; i < 100; i++) {
+      ints[i] = random.nextInt();
+      longs[i] = random.nextLong();
+      char[] chars = new char[i % 40];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = (char) random.nextInt();
+      }
+      strings.add(new String(chars));
+    }
+    List<HashFunction> functions =
+        Lists.newArrayList(Hashing.murmur3_32(-1), Hashing.murmur3_128(-1), Hashing.crc32c());
+    for (HashFunctionEnum hashFunctionEnum : HashFunctionEnum.values()) {
+      functions.add(hashFunctionEnum.getHashFunction());
+    }
+    for (HashFunction function : functions) {
+      // the results may be longer than the inputs
+      long[] results = new long[101];
+      function.hashInts(ints, results);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(
+            function.toString(),
+            function.newHasher().putInt(ints[i]).hash().padToLong(),
+            results[i]);
+      }
+      function.hashLongs(longs, results);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(
+            function.toString(),
+            function.newHasher().putLong(longs[i]).hash().padToLong(),
+            results[i]);
+      }
+      function.hashUnencodedChars(strings, results);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(
+            function.toString(),
+            function.newHasher().putUnencodedChars(strings.get(i)).hash().padToLong(),
+            results[i]);
+      }
+      assertEquals(0, results[100]);
+    }
+  }
+
+  public void testBatchHashing_resultsTooShort() {
+    HashFunction function = Hashing.murmur3_128();
+    try {
+      function.hashInts(new int[2], new long[1]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      function.hashLongs(new long[2], new long[1]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      function.hashUnencodedChars(ImmutableList.of("a", "b"), new long[1]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   private static final String EMPTY_STRING = "";
   private static final String TQBFJOTLD = "The quick brown fox jumps over the lazy dog";
   private static final String TQBFJOTLDP = "The quick brown fox jumps over the lazy dog.";
@@ -489,6 +586,15 @@ public class HashingTest extends TestCase {
           .put(Hashing.farmHashFingerprint64(), EMPTY_STRING, "4f40902f3b6ae19a")
           .put(Hashing.farmHashFingerprint64(), TQBFJOTLD, "34511b3bf383beab")
           .put(Hashing.farmHashFingerprint64(), TQBFJOTLDP, "737d7e5f8660653e")
+          .put(Hashing.xxHash64(), EMPTY_STRING, "99e9d85137db46ef")
+          .put(Hashing.xxHash64(), TQBFJOTLD, "bc71da1f362d240b")
+          .put(Hashing.xxHash64(), TQBFJOTLDP, "73ad51577033ad44")
+          .put(Hashing.xxh3_64(), EMPTY_STRING, "c294d3380580062d")
+          .put(Hashing.xxh3_64(), TQBFJOTLD, "65b38f41a5197dce")
+          .put(Hashing.xxh3_64(), TQBFJOTLDP, "19db515d22e014b6")
+          .put(Hashing.xxh3_128(), EMPTY_STRING, "7f498d4624c30160d8984701d306aa99")
+          .put(Hashing.xxh3_128(), TQBFJOTLD, "51768a3a2ecca124fae7a35c2050d6dd")
+          .put(Hashing.xxh3_128(), TQBFJOTLDP, "3cc729b82de0f83f156a3e3195826ad0")
           .build();
 
   public void testAllHashFunctionsHaveKnownHashes() throws Exception {
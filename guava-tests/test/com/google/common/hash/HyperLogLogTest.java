@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.stream.LongStream;
+import junit.framework.TestCase;
+
+/** Tests for {@link HyperLogLog}. */
+public class HyperLogLogTest extends TestCase {
+
+  public void testEmpty() {
+    HyperLogLog<Long> hll = HyperLogLog.create(Funnels.longFunnel());
+    assertEquals(0, hll.approximateElementCount());
+    assertTrue(hll.isSparse());
+  }
+
+  public void testPut() {
+    HyperLogLog<String> hll = HyperLogLog.create(Funnels.unencodedCharsFunnel());
+    assertTrue(hll.put("a"));
+    assertFalse(hll.put("a"));
+    assertTrue(hll.put("b"));
+    assertEquals(2, hll.approximateElementCount());
+  }
+
+  public void testAccuracy() {
+    Random random = new Random(0);
+    for (int precision : new int[] {4, 10, 14, 18}) {
+      HyperLogLog<Long> hll = HyperLogLog.create(Funnels.longFunnel(), precision);
+      for (int n = 1, next = 1; n <= 1_000_000; n++) {
+        hll.put(random.nextLong());
+        if (n == next) {
+          // within five standard errors
+          assertThat((double) hll.approximateElementCount())
+              .isWithin(5 * hll.relativeStandardError() * n)
+              .of(n);
+          next *= 3;
+        }
+      }
+      assertFalse(hll.isSparse());
+    }
+  }
+
+  public void testSparseAccuracy() {
+    HyperLogLog<Integer> hll = HyperLogLog.create(Funnels.integerFunnel(), 14);
+    for (int i = 0; i < 4000; i++) {
+      hll.put(i);
+    }
+    assertTrue(hll.isSparse());
+    // the sparse registers have a precision of 25, and so a standard error of 0.02%
+    assertThat((double) hll.approximateElementCount()).isWithin(4000 * 0.001).of(4000);
+    // the sparse representation holds at most 4096 registers
+    for (int i = 4000; i < 4200; i++) {
+      hll.put(i);
+    }
+    assertFalse(hll.isSparse());
+  }
+
+  public void testEstimate() {
+    // no registers are set
+    int[] counts = new int[Long.SIZE - 10 + 2];
+    counts[0] = 1024;
+    assertEquals(0.0, HyperLogLog.estimate(counts, 10));
+
+    // one register is set
+    counts[0] = 1023;
+    counts[1] = 1;
+    assertThat(HyperLogLog.estimate(counts, 10)).isWithin(0.01).of(1);
+
+    // all registers have the maximum value
+    counts[0] = 0;
+    counts[1] = 0;
+    counts[counts.length - 1] = 1024;
+    assertEquals(Double.POSITIVE_INFINITY, HyperLogLog.estimate(counts, 10));
+  }
+
+  public void testPutAll() {
+    for (int n : new int[] {100, 2000, 100_000}) {
+      HyperLogLog<Long> all = HyperLogLog.create(Funnels.longFunnel(), 12);
+      HyperLogLog<Long> even = HyperLogLog.create(Funnels.longFunnel(), 12);
+      HyperLogLog<Long> odd = HyperLogLog.create(Funnels.longFunnel(), 12);
+      HyperLogLog<Long> few = HyperLogLog.create(Funnels.longFunnel(), 12);
+      for (long i = 0; i < n; i++) {
+        all.put(i);
+        (i % 2 == 0 ? even : odd).put(i);
+        if (i < 10) {
+          few.put(i);
+        }
+      }
+      HyperLogLog<Long> merged = even.copy();
+      merged.putAll(odd);
+      assertEquals(all, merged);
+      merged.putAll(few);
+      assertEquals(all, merged);
+
+      // a sparse sketch, merged with a dense one
+      HyperLogLog<Long> fewMerged = few.copy();
+      fewMerged.putAll(all);
+      assertEquals(all, fewMerged);
+    }
+  }
+
+  public void testPutAll_incompatible() {
+    HyperLogLog<Long> hll = HyperLogLog.create(Funnels.longFunnel(), 12);
+    HyperLogLog<Long> otherPrecision = HyperLogLog.create(Funnels.longFunnel(), 13);
+    assertFalse(hll.isCompatible(hll));
+    assertFalse(hll.isCompatible(otherPrecision));
+    assertTrue(hll.isCompatible(HyperLogLog.create(Funnels.longFunnel(), 12)));
+    try {
+      hll.putAll(otherPrecision);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      hll.putAll(hll);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testPreconditions() {
+    try {
+      HyperLogLog.create(Funnels.longFunnel(), 3);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      HyperLogLog.create(Funnels.longFunnel(), 19);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(HyperLogLog.create(Funnels.unencodedCharsFunnel()));
+    tester.testAllPublicStaticMethods(HyperLogLog.class);
+  }
+
+  public void testCopy() {
+    HyperLogLog<Long> original = HyperLogLog.create(Funnels.longFunnel(), 8);
+    HyperLogLog<Long> copy = original.copy();
+    assertEquals(original, copy);
+    original.put(1L);
+    assertEquals(0, copy.approximateElementCount());
+    for (long i = 0; i < 1000; i++) {
+      original.put(i);
+    }
+    copy = original.copy();
+    assertEquals(original, copy);
+    assertFalse(copy.isSparse());
+  }
+
+  public void testEquals() {
+    HyperLogLog<Long> sparse1 = HyperLogLog.create(Funnels.longFunnel(), 8);
+    HyperLogLog<Long> sparse2 = HyperLogLog.create(Funnels.longFunnel(), 8);
+    HyperLogLog<Long> dense1 = HyperLogLog.create(Funnels.longFunnel(), 8);
+    HyperLogLog<Long> dense2 = HyperLogLog.create(Funnels.longFunnel(), 8);
+    for (long i = 0; i < 10; i++) {
+      sparse1.put(i);
+      sparse2.put(9 - i);
+    }
+    for (long i = 0; i < 1000; i++) {
+      dense1.put(i);
+      dense2.put(999 - i);
+    }
+    new EqualsTester()
+        .addEqualityGroup(sparse1, sparse2)
+        .addEqualityGroup(dense1, dense2)
+        .addEqualityGroup(HyperLogLog.create(Funnels.longFunnel(), 8))
+        .addEqualityGroup(HyperLogLog.create(Funnels.longFunnel(), 9))
+        .addEqualityGroup(HyperLogLog.create(Funnels.unencodedCharsFunnel(), 8))
+        .testEquals();
+  }
+
+  public void testCollector() {
+    HyperLogLog<Long> expected = HyperLogLog.create(Funnels.longFunnel(), 12);
+    for (long i = 0; i < 100_000; i++) {
+      expected.put(i);
+    }
+    assertEquals(
+        expected,
+        LongStream.range(0, 100_000)
+            .boxed()
+            .collect(HyperLogLog.toHyperLogLog(Funnels.longFunnel(), 12)));
+    assertEquals(
+        expected,
+        LongStream.range(0, 100_000)
+            .parallel()
+            .boxed()
+            .collect(HyperLogLog.toHyperLogLog(Funnels.longFunnel(), 12)));
+  }
+
+  public void testJavaSerialization() {
+    HyperLogLog<Long> hll = HyperLogLog.create(Funnels.longFunnel(), 10);
+    SerializableTester.reserializeAndAssert(hll);
+    hll.put(1L);
+    SerializableTester.reserializeAndAssert(hll);
+    for (long i = 0; i < 1000; i++) {
+      hll.put(i);
+    }
+    SerializableTester.reserializeAndAssert(hll);
+  }
+
+  public void testCustomSerialization() throws Exception {
+    Funnel<Long> funnel = Funnels.longFunnel();
+    HyperLogLog<Long> hll = HyperLogLog.create(funnel, 14);
+    for (long n : new long[] {0, 1, 100, 1000, 100_000}) {
+      for (long i = 0; i < n; i++) {
+        hll.put(i);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      hll.writeTo(out);
+      HyperLogLog<Long> read =
+          HyperLogLog.readFrom(new ByteArrayInputStream(out.toByteArray()), funnel);
+      assertEquals(hll, read);
+      // the sketch keeps growing as the original would
+      read.put(-1L);
+      assertTrue(read.isCompatible(hll));
+      if (hll.isSparse()) {
+        // varints of the differences between entries, of at most 5 bytes each
+        assertThat((long) out.size()).isAtMost(6 + 5 * hll.approximateElementCount());
+      } else {
+        assertEquals(2 + (1 << 14) * 6 / 8, out.size());
+      }
+    }
+  }
+
+  public void testCustomSerialization_invalid() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HyperLogLog<Long> hll = HyperLogLog.create(Funnels.longFunnel(), 10);
+    hll.put(1L);
+    hll.put(2L);
+    hll.writeTo(out);
+    byte[] serialized = out.toByteArray();
+
+    byte[] badPrecision = serialized.clone();
+    badPrecision[0] = 30;
+    assertReadFails(badPrecision);
+
+    byte[] badRepresentation = serialized.clone();
+    badRepresentation[1] = 2;
+    assertReadFails(badRepresentation);
+
+    byte[] truncated = new byte[serialized.length - 1];
+    System.arraycopy(serialized, 0, truncated, 0, truncated.length);
+    assertReadFails(truncated);
+  }
+
+  private static void assertReadFails(byte[] serialized) {
+    try {
+      HyperLogLog.readFrom(new ByteArrayInputStream(serialized), Funnels.longFunnel());
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+}
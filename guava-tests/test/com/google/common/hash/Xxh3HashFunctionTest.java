@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.hash.XxHash64HashFunctionTest.LENGTHS;
+import static com.google.common.hash.XxHash64HashFunctionTest.SEED;
+import static com.google.common.hash.XxHash64HashFunctionTest.input;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import junit.framework.TestCase;
+
+/** Tests for {@link Xxh3HashFunction}. */
+public class Xxh3HashFunctionTest extends TestCase {
+  // Computed by XXH3_64bits_withSeed() and XXH3_128bits_withSeed() of xxHash 0.8.1 over the first
+  // LENGTHS[i] bytes of XxHash64HashFunctionTest.input(), with seeds of zero and SEED. The 128-bit
+  // hashes are listed as their low and then high halves.
+  private static final long[] XXH3_64_UNSEEDED = {
+    0x2d06800538d394c2L, 0x4c5cca45d0f4811fL, 0xa7e250c97710ff27L, 0x15f7093b173d005cL,
+    0xdca012f95811b6b9L, 0xb290cafc7b254345L, 0x99b2e675fba1e0b5L, 0x7561869c23da3c1bL,
+    0xdec6a9a43575982eL, 0xcbe393399f17ffbdL, 0x02ab330b44074ad1L, 0x32f214df8eed29c2L,
+    0x46aaf92c7550afa4L, 0x9e314510b0dbd95cL, 0x11c33b5547089febL, 0x545e19990471dc37L,
+    0x7e484c18d74895d0L, 0x208bde5ee2bed407L, 0xa937652b0119ca11L, 0x03df0ac5255d1446L,
+    0x199a362122d71f46L, 0x76d4eec1f092847fL, 0xdd30702ab46b3745L, 0xfab36b851b94ce20L,
+    0xd245cd2541582982L, 0x60e3e1d0d43785b3L, 0xa915ed6396db8cc0L, 0xf92b70eaa21a6288L,
+    0xf8f76713f2bb60faL, 0x12fdb864685f344dL, 0xccc7375172c41f03L, 0x0b3b630948ce4a00L,
+    0x89932170686cdd9aL, 0xec85b75bafe6ca74L, 0x12ef0ff633841459L, 0xbaad8e6a5f186ce6L,
+    0xf0d330ce2b3300fbL, 0x23bc880ebf0d29c6L, 0xc09fdfbc398c7d82L, 0x19f6f9c987331373L,
+    0xa3c19f8174cde0bbL, 0x441f01d9711bebedL,
+  };
+
+  private static final long[] XXH3_64_SEEDED = {
+    0x602b0e2cd6662c8bL, 0x2f3acd3805f81de3L, 0xae890deb5ef9a522L, 0x079dd5d54d89480aL,
+    0x1a246e2efb9c9b2eL, 0xf35f0dfbb65fe08fL, 0x22969ed3ef9a1b37L, 0x09e5bec831fa48c0L,
+    0x19ef7d3919108affL, 0x9c98d3e24dc54d34L, 0x2b6fbff391e16357L, 0x6e882d86b6f9e87fL,
+    0xfe2aa65fa753fc49L, 0xa58a3864cf7fd544L, 0xb98df3469f434bdfL, 0x9a393060bce10286L,
+    0xa106510078b0a252L, 0x0b2caf8bf9648effL, 0xe425437c705fbca4L, 0x3acbfdfb7e9f9668L,
+    0x913b37d6b8df6d23L, 0x46497a4a99ad609fL, 0x4490c19c7048a1a1L, 0xe6c2315ab5f5c409L,
+    0xb0d250df3fab2308L, 0x9e127e846b5494c9L, 0x30b3b03d7d3a07c1L, 0x95425530beb89fe8L,
+    0x29fa850b97ed9666L, 0x49dff623641b01b4L, 0x2d882e7899ff64ccL, 0x422e82e8913e49e0L,
+    0x8f2f859ce5068ddfL, 0xb4dbe810e81c3d97L, 0xb87fedcb6c4cd0d3L, 0x67ec12d025965570L,
+    0x642b8b12a22cac34L, 0x7e249adc60e1f9b4L, 0x16cfe055154ff1ddL, 0x060600a6317839f9L,
+    0x224e1aff9c0f0707L, 0xd19cf166bc6207dfL,
+  };
+
+  private static final long[] XXH3_128_UNSEEDED = {
+    0x6001c324468d497fL, 0x99aa06d3014798d8L, 0x4c5cca45d0f4811fL, 0x495b62073ef70ca4L,
+    0xa7e250c97710ff27L, 0x12b2847aa0de5aaaL, 0x15f7093b173d005cL, 0x46f66cb935381565L,
+    0xb987ca5d9241572aL, 0x7fefeeffb4d0eab3L, 0x752a86982353f4f3L, 0x2fbb16712b4bf1d5L,
+    0x6a25095300ac44e1L, 0x278464ce40937bdcL, 0x90d8d40e8b5ca9c4L, 0x9194efbddb0d752cL,
+    0x56bb836ceb6d4baaL, 0x803c675a846cc6c2L, 0x4376673580310154L, 0xd46556872d230f22L,
+    0x38ae16544280f193L, 0xa0588b789a971411L, 0x1696c6f427b4ab16L, 0xbcfc02420941f7dbL,
+    0x2f65dbab90c80af2L, 0x48480c880e4976fdL, 0xbe3c377269892f4dL, 0xd3501e256f11edadL,
+    0xab41516a147df4f9L, 0x215767df9249803fL, 0x571df173bded2e23L, 0x2c612e00ed4f13d9L,
+    0xf853dd94614dfa07L, 0x650fe308c566747dL, 0x78c349fe81b2f26cL, 0x18217300b5132d5aL,
+    0x45e862e1ac921624L, 0xa7591e70669b73f8L, 0x5726e079716c6a62L, 0x3220ff5fe507b3c0L,
+    0x3b25275300c8b44eL, 0x91a4c56ad1b91d88L, 0x87e6bb29553b8e31L, 0x44e1980eb144e6c8L,
+    0x36c5f7e547426bc4L, 0xf9bfa77da0891a96L, 0xd0d1d7884590a330L, 0x5642c5d38e6e787dL,
+    0x63451be079edd707L, 0x59861d1adb3e51a2L, 0xfa4138b7dc44e45bL, 0x0912f66857975b13L,
+    0x8a02b1f75c556ac3L, 0x3117b681087b4ef4L, 0x1e04fad9f0cacb4dL, 0xb4f87b99d2db8a51L,
+    0xc51bc887976aef63L, 0x6881633650cd8924L, 0x60ea018811f9a437L, 0x8d8629a1aef9ef90L,
+    0x93e173833f75ab66L, 0xde57aab31e77a2ffL, 0x0b3b630948ce4a00L, 0x92b991a7192f3f08L,
+    0x89932170686cdd9aL, 0x3e68b7e415ce7e5cL, 0xec85b75bafe6ca74L, 0x24ee30633ca52c6aL,
+    0x12ef0ff633841459L, 0x0f849a4f3e33b6c2L, 0xbaad8e6a5f186ce6L, 0xa0b29158ee3e8112L,
+    0xf0d330ce2b3300fbL, 0x8e8ed756aa1f01faL, 0x23bc880ebf0d29c6L, 0x4c17271c906df792L,
+    0xc09fdfbc398c7d82L, 0x70a4eb1b9691d77fL, 0x19f6f9c987331373L, 0xb318976b177a38c7L,
+    0xa3c19f8174cde0bbL, 0x49d3842b33d51e8aL, 0x441f01d9711bebedL, 0xd53e809be21e616dL,
+  };
+
+  private static final long[] XXH3_128_SEEDED = {
+    0x4ca5176998171787L, 0xd142977a2cca554bL, 0x2f3acd3805f81de3L, 0x00a711eb5a736b26L,
+    0xae890deb5ef9a522L, 0x954e5e6bd54ba0caL, 0x079dd5d54d89480aL, 0xbf6c84df5f76651dL,
+    0x64e9e646b51d20e4L, 0xb51a3f0020dfa57eL, 0x5e9d5339b098317eL, 0x84a390e0ad91cedcL,
+    0x3f8331234ed3c41fL, 0xa83a9bdfb249e7d5L, 0xa8e902caedab477bL, 0xb648d2b52890475eL,
+    0x3edb070ecf3a9343L, 0xc3612dc11470e721L, 0x2d1266ad8e2a983eL, 0xd073a967e56faabbL,
+    0x57ff2759fa72aefbL, 0x46cb7b09c90bbd05L, 0xca36ccd87c57d9beL, 0x7e8dfa1faeb31070L,
+    0x0c278dc54b37aed5L, 0x7f86e998f1ce90c4L, 0x7baf924695e5d84cL, 0x4ef046424793090bL,
+    0xa0d0ba6becdb7f9eL, 0xb123b4716ef5f76eL, 0xb43f96dbdc7044f4L, 0xdeeff95ec796179aL,
+    0x4e683254a04c377fL, 0xbe0f27bac4d1f58fL, 0xec6d60966729df8dL, 0x81d87d7004dc4f98L,
+    0x2c156a0d97bebb12L, 0x7f468a6408973ac4L, 0xec314f4c5eb3f3edL, 0x2f9dc286862d200eL,
+    0x8fe6a0e9b9ce486bL, 0xa7da9f4c0aa58376L, 0xca6d81c633ebae4dL, 0xf8a5598a724991caL,
+    0x617a30ca442d6de3L, 0x6d4d5c56cd67f9f0L, 0xdf39c73784fd230dL, 0x2e9cfc23f941730aL,
+    0x612bf585220b1288L, 0x0442aede343ab5f1L, 0xdeacc0186ad90436L, 0xb00709f5e31608ceL,
+    0x605acd8cadc63975L, 0xe423119abfe77288L, 0x8dd13adf89d20a39L, 0xf1355c6816c0b724L,
+    0xa1c74215b3db7ab4L, 0xb8c736db70349640L, 0x2bd1eb5d960e73f4L, 0x8511e8a53f70bfbfL,
+    0xde896b7f1ae3bc6fL, 0x5b131678a4a9b8f4L, 0x422e82e8913e49e0L, 0xc39cbfb460caf47eL,
+    0x8f2f859ce5068ddfL, 0xa83ad8ee2d42c86fL, 0xb4dbe810e81c3d97L, 0xba6635ddc89f0599L,
+    0xb87fedcb6c4cd0d3L, 0x7eb7dcc911d97a4eL, 0x67ec12d025965570L, 0xe264c4fba4145fc5L,
+    0x642b8b12a22cac34L, 0x83a044468819013aL, 0x7e249adc60e1f9b4L, 0x927c8d2b50d33f53L,
+    0x16cfe055154ff1ddL, 0x0d225711ec9bb344L, 0x060600a6317839f9L, 0x51a684c4afa32172L,
+    0x224e1aff9c0f0707L, 0x95fad31aabba45e1L, 0xd19cf166bc6207dfL, 0x0540bede911260ffL,
+  };
+
+  public void testKnownValues64() {
+    assertEquals(0x2d06800538d394c2L, Hashing.xxh3_64().hashBytes(new byte[0]).asLong());
+    byte[] input = input();
+    for (int i = 0; i < LENGTHS.length; i++) {
+      assertHash(toHashCode(XXH3_64_UNSEEDED[i]), Hashing.xxh3_64(), input, LENGTHS[i]);
+      assertHash(toHashCode(XXH3_64_SEEDED[i]), Hashing.xxh3_64(SEED), input, LENGTHS[i]);
+    }
+  }
+
+  public void testKnownValues128() {
+    assertEquals(
+        toHashCode(0x6001c324468d497fL, 0x99aa06d3014798d8L),
+        Hashing.xxh3_128().hashBytes(new byte[0]));
+    byte[] input = input();
+    for (int i = 0; i < LENGTHS.length; i++) {
+      assertHash(
+          toHashCode(XXH3_128_UNSEEDED[2 * i], XXH3_128_UNSEEDED[2 * i + 1]),
+          Hashing.xxh3_128(),
+          input,
+          LENGTHS[i]);
+      assertHash(
+          toHashCode(XXH3_128_SEEDED[2 * i], XXH3_128_SEEDED[2 * i + 1]),
+          Hashing.xxh3_128(SEED),
+          input,
+          LENGTHS[i]);
+    }
+  }
+
+  private static void assertHash(HashCode expected, HashFunction function, byte[] input, int len) {
+    String message = function + " of " + len + " bytes";
+    assertEquals(message, expected, function.hashBytes(input, 0, len));
+    assertEquals(message, expected, function.newHasher().putBytes(input, 0, len).hash());
+    // the hasher buffers 256 bytes, so these chunks end at and around its boundaries
+    for (int chunk : new int[] {1, 7, 64, 100, 256, 300}) {
+      Hasher hasher = function.newHasher();
+      for (int off = 0; off < len; off += chunk) {
+        hasher.putBytes(input, off, Math.min(chunk, len - off));
+      }
+      assertEquals(message + " in chunks of " + chunk, expected, hasher.hash());
+    }
+    ByteBuffer direct = ByteBuffer.allocateDirect(len);
+    direct.put(input, 0, len).flip();
+    assertEquals(message + " from a direct buffer", expected, function.hashBytes(direct));
+  }
+
+  /** Returns a {@link HashCode} for a sequence of longs, in little-endian order. */
+  private static HashCode toHashCode(long... longs) {
+    ByteBuffer bb = ByteBuffer.wrap(new byte[longs.length * 8]).order(ByteOrder.LITTLE_ENDIAN);
+    for (long x : longs) {
+      bb.putLong(x);
+    }
+    return HashCode.fromBytes(bb.array());
+  }
+
+  public void testSeeds() {
+    assertEquals(Hashing.xxh3_64(), Hashing.xxh3_64(0));
+    assertEquals(Hashing.xxh3_128(), Hashing.xxh3_128(0));
+    assertFalse(Hashing.xxh3_64(SEED).equals(Hashing.xxh3_128(SEED)));
+    assertEquals("Hashing.xxh3_64(" + SEED + ")", Hashing.xxh3_64(SEED).toString());
+    assertEquals("Hashing.xxh3_128(" + SEED + ")", Hashing.xxh3_128(SEED).toString());
+  }
+
+  public void testInvariants() {
+    HashTestUtils.assertInvariants(Hashing.xxh3_64());
+    HashTestUtils.assertInvariants(Hashing.xxh3_64(SEED));
+    HashTestUtils.assertInvariants(Hashing.xxh3_128());
+    HashTestUtils.assertInvariants(Hashing.xxh3_128(SEED));
+  }
+}
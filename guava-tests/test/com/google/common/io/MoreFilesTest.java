@@ -23,7 +23,10 @@ import static com.google.common.truth.Truth.assertThat;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ObjectArrays;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Feature;
 import com.google.common.jimfs.Jimfs;
@@ -34,11 +37,13 @@ import java.nio.file.FileSystemException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.EnumSet;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -196,6 +201,35 @@ public class MoreFilesTest extends TestCase {
     }
   }
 
+  public void testHashMapped() throws IOException {
+    Path file = createTempFile();
+    assertEquals(
+        Hashing.murmur3_128().hashBytes(new byte[0]),
+        MoreFiles.hashMapped(file, Hashing.murmur3_128()));
+
+    byte[] bytes = new byte[100000];
+    new Random(0).nextBytes(bytes);
+    Files.write(file, bytes);
+    for (HashFunction function :
+        ImmutableList.of(
+            Hashing.murmur3_128(),
+            Hashing.farmHashFingerprint64(),
+            Hashing.crc32c(),
+            Hashing.sha256())) {
+      assertEquals(function.hashBytes(bytes), MoreFiles.hashMapped(file, function));
+      assertEquals(
+          MoreFiles.asByteSource(file).hash(function), MoreFiles.hashMapped(file, function));
+    }
+  }
+
+  public void testHashMapped_noSuchFile() throws IOException {
+    try {
+      MoreFiles.hashMapped(tempDir.resolve("missing"), Hashing.md5());
+      fail();
+    } catch (NoSuchFileException expected) {
+    }
+  }
+
   public void testEqual() throws IOException {
     try (FileSystem fs = Jimfs.newFileSystem(Configuration.unix())) {
       Path fooPath = fs.getPath("foo");
@@ -115,6 +115,29 @@ enum QuantilesAlgorithm {
       return Quantiles.scale(scale).indexes(indexes).computeInPlace(dataset);
     }
   },
+
+  /**
+   * Accumulates the dataset in a {@link QuantilesSketch}, as for a stream too large to keep in
+   * memory, and estimates the quantiles from that. Unlike the other algorithms, its results are
+   * approximate.
+   */
+  SKETCH {
+
+    @Override
+    double singleQuantile(int index, int scale, double[] dataset) {
+      QuantilesSketch sketch = new QuantilesSketch();
+      sketch.addAll(dataset);
+      return Quantiles.scale(scale).index(index).compute(sketch);
+    }
+
+    @Override
+    Map<Integer, Double> multipleQuantiles(
+        Collection<Integer> indexes, int scale, double[] dataset) {
+      QuantilesSketch sketch = new QuantilesSketch();
+      sketch.addAll(dataset);
+      return Quantiles.scale(scale).indexes(indexes).compute(sketch);
+    }
+  },
   ;
 
   /**
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.cache.CacheLoader.UnsupportedLoadingOperationException;
+import com.google.common.util.concurrent.AsyncCallable;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Computes or retrieves values asynchronously, based on a key, for use in populating an {@link
+ * AsyncLoadingCache}.
+ *
+ * <p>Most implementations will only need to implement {@link #load}. Other methods may be
+ * overridden as desired.
+ *
+ * <p>Usage example:
+ *
+ * <pre>{@code
+ * AsyncCacheLoader<Key, Graph> loader = new AsyncCacheLoader<Key, Graph>() {
+ *   public ListenableFuture<Graph> load(Key key) {
+ *     return graphService.fetchGraph(key);
+ *   }
+ * };
+ * AsyncLoadingCache<Key, Graph> cache = CacheBuilder.newBuilder().buildAsync(loader);
+ * }</pre>
+ *
+ * <p>An existing, blocking {@link CacheLoader} can be adapted with {@link #from(CacheLoader,
+ * Executor)}.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public abstract class AsyncCacheLoader<K, V> {
+  /** Constructor for use by subclasses. */
+  protected AsyncCacheLoader() {}
+
+  /**
+   * Starts computing or retrieving the value corresponding to {@code key}. This method should not
+   * block; long-running work should be performed asynchronously, such as on an executor.
+   *
+   * @param key the non-null key whose value should be loaded
+   * @return the future value associated with {@code key}; <b>must not be null, must not return
+   *     null</b>
+   * @throws Exception if unable to start loading the result
+   */
+  public abstract ListenableFuture<V> load(K key) throws Exception;
+
+  /**
+   * Starts computing or retrieving a replacement value corresponding to an already-cached {@code
+   * key}. This method is called when an existing cache entry is refreshed by {@link
+   * CacheBuilder#refreshAfterWrite}, or through a call to {@link LoadingCache#refresh} on the
+   * {@linkplain AsyncLoadingCache#synchronous synchronous view} of the cache.
+   *
+   * <p>This implementation delegates to {@link #load}.
+   *
+   * <p><b>Note:</b> <i>all exceptions thrown by this method will be logged and then swallowed</i>.
+   *
+   * @param key the non-null key whose value should be loaded
+   * @param oldValue the non-null old value corresponding to {@code key}
+   * @return the future new value associated with {@code key}; <b>must not be null, must not return
+   *     null</b>
+   * @throws Exception if unable to start reloading the result
+   */
+  public ListenableFuture<V> reload(K key, V oldValue) throws Exception {
+    checkNotNull(key);
+    checkNotNull(oldValue);
+    return load(key);
+  }
+
+  /**
+   * Starts computing or retrieving the values corresponding to {@code keys}. This method is called
+   * by {@link AsyncLoadingCache#getAllFuture}.
+   *
+   * <p>If the returned map doesn't contain all requested {@code keys} then the entries it does
+   * contain will be cached, but the future returned by {@code getAllFuture} will fail. If the
+   * returned map contains extra keys not present in {@code keys} then all returned entries will be
+   * cached, but only the entries for {@code keys} will be returned from {@code getAllFuture}.
+   *
+   * <p>This method should be overridden when bulk retrieval is significantly more efficient than
+   * many individual lookups. Note that {@link AsyncLoadingCache#getAllFuture} will defer to
+   * individual calls to {@link AsyncLoadingCache#getFuture} if this method is not overridden.
+   *
+   * @param keys the unique, non-null keys whose values should be loaded
+   * @return the future map from each key in {@code keys} to the value associated with that key;
+   *     <b>may not contain null values</b>
+   * @throws Exception if unable to start loading the result
+   */
+  public ListenableFuture<Map<K, V>> loadAll(Iterable<? extends K> keys) throws Exception {
+    // This will be caught by getAllFuture(), causing it to fall back to multiple calls to
+    // AsyncLoadingCache.getFuture
+    throw new UnsupportedLoadingOperationException();
+  }
+
+  /**
+   * Returns an asynchronous cache loader that uses {@code function} to load keys, without
+   * supporting bulk loading. This allows creating a cache loader using a lambda expression.
+   *
+   * @param function the function to be used for loading values; must never return {@code null}
+   *     or a future whose value is {@code null}
+   * @return a cache loader that loads values by passing each key to {@code function}
+   */
+  public static <K, V> AsyncCacheLoader<K, V> from(AsyncFunction<K, V> function) {
+    return new FunctionToAsyncCacheLoader<>(function);
+  }
+
+  /**
+   * Returns an asynchronous cache loader which executes calls to {@code loader} using {@code
+   * executor}. Calls to {@link CacheLoader#reload} are also executed using {@code executor}, and so
+   * may block.
+   *
+   * @param loader the blocking cache loader to adapt
+   * @param executor the executor on which {@code loader} is called
+   * @return a cache loader that loads values by calling {@code loader} on {@code executor}
+   */
+  public static <K, V> AsyncCacheLoader<K, V> from(
+      final CacheLoader<K, V> loader, final Executor executor) {
+    checkNotNull(loader);
+    checkNotNull(executor);
+    return new AsyncCacheLoader<K, V>() {
+      @Override
+      public ListenableFuture<V> load(final K key) {
+        ListenableFutureTask<V> task =
+            ListenableFutureTask.create(
+                new Callable<V>() {
+                  @Override
+                  public V call() throws Exception {
+                    return loader.load(key);
+                  }
+                });
+        executor.execute(task);
+        return task;
+      }
+
+      @Override
+      public ListenableFuture<V> reload(final K key, final V oldValue) {
+        return Futures.submitAsync(
+            new AsyncCallable<V>() {
+              @Override
+              public ListenableFuture<V> call() throws Exception {
+                return loader.reload(key, oldValue);
+              }
+            },
+            executor);
+      }
+
+      @Override
+      public ListenableFuture<Map<K, V>> loadAll(final Iterable<? extends K> keys) {
+        ListenableFutureTask<Map<K, V>> task =
+            ListenableFutureTask.create(
+                new Callable<Map<K, V>>() {
+                  @Override
+                  public Map<K, V> call() throws Exception {
+                    return loader.loadAll(keys);
+                  }
+                });
+        executor.execute(task);
+        return task;
+      }
+    };
+  }
+
+  private static final class FunctionToAsyncCacheLoader<K, V> extends AsyncCacheLoader<K, V>
+      implements Serializable {
+    private final AsyncFunction<K, V> computingFunction;
+
+    public FunctionToAsyncCacheLoader(AsyncFunction<K, V> computingFunction) {
+      this.computingFunction = checkNotNull(computingFunction);
+    }
+
+    @Override
+    public ListenableFuture<V> load(K key) throws Exception {
+      return computingFunction.apply(checkNotNull(key));
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A semi-persistent mapping from keys to values, which are loaded asynchronously by an {@link
+ * AsyncCacheLoader}. Requests for values never block; instead, they return a {@link
+ * ListenableFuture} which completes once the value is available. The common way to build instances
+ * is using {@link CacheBuilder#buildAsync}.
+ *
+ * <p>Concurrent requests for a key whose value is still loading share the same load, without
+ * parking a thread for each request. Cancelling a returned future does not cancel the load, which
+ * may be shared with other requests.
+ *
+ * <p>Operations other than loading, such as invalidation, statistics and the {@link
+ * java.util.concurrent.ConcurrentMap} view, are available through the {@linkplain #synchronous
+ * synchronous view} of the cache.
+ *
+ * <p>Implementations of this interface are expected to be thread-safe, and can be safely accessed
+ * by multiple concurrent threads.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public interface AsyncLoadingCache<K, V> {
+
+  /**
+   * Returns a future for the value associated with {@code key} in this cache, first starting to
+   * load that value if necessary. No observable state associated with this cache is modified until
+   * loading completes.
+   *
+   * <p>If the value is already present, the returned future is already complete. If another
+   * request is currently loading the value for {@code key}, the returned future completes when that
+   * load does.
+   *
+   * <p>Newly loaded values are added to the cache using {@code Cache.asMap().putIfAbsent} after
+   * loading has completed; if another value was associated with {@code key} while the new value was
+   * loading then a removal notification will be sent for the new value.
+   *
+   * <p>If the loader fails, or its future fails or returns {@code null}, the returned future fails
+   * with the same exception, or with an {@link CacheLoader.InvalidCacheLoadException} respectively,
+   * and nothing is cached.
+   */
+  ListenableFuture<V> getFuture(K key);
+
+  /**
+   * Returns a future for a map of the values associated with {@code keys}, starting to load those
+   * values if necessary. The returned map contains entries that were already cached, combined with
+   * the newly loaded entries; it will never contain null keys or values.
+   *
+   * <p>Caches loaded by an {@link AsyncCacheLoader} will issue a single request to {@link
+   * AsyncCacheLoader#loadAll} for all keys which are not already present in the cache. If the
+   * loader does not implement {@code loadAll}, this falls back to {@link #getFuture} for each key,
+   * which also shares loads already in progress. All entries returned by {@code loadAll} will be
+   * stored in the cache, over-writing any previously cached values.
+   *
+   * <p>If any key cannot be loaded, the returned future fails, although the values that were
+   * loaded are still cached.
+   */
+  ListenableFuture<ImmutableMap<K, V>> getAllFuture(Iterable<? extends K> keys);
+
+  /**
+   * Returns a view of this cache as a blocking {@link LoadingCache}, sharing the same entries.
+   * Loads started through the view call {@link AsyncCacheLoader#load} and wait for its result,
+   * throwing the same exceptions as {@link LoadingCache#get}: {@link ExecutionException}, {@link
+   * UncheckedExecutionException} or {@link ExecutionError}.
+   */
+  LoadingCache<K, V> synchronous();
+}
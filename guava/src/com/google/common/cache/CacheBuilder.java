@@ -18,6 +18,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.base.Ascii;
@@ -37,10 +38,12 @@ import java.util.ConcurrentModificationException;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A builder of {@link LoadingCache} and {@link Cache} instances having any combination of the
@@ -48,7 +51,7 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
  *
  * <ul>
  *   <li>automatic loading of entries into the cache
- *   <li>least-recently-used eviction when a maximum size is exceeded
+ *   <li>least-recently-used or frequency-biased eviction when a maximum size is exceeded
  *   <li>time-based expiration of entries, measured since last access or last write
  *   <li>keys automatically wrapped in {@linkplain WeakReference weak} references
  *   <li>values automatically wrapped in {@linkplain WeakReference weak} or {@linkplain
@@ -227,14 +230,21 @@ public final class CacheBuilder<K, V> {
   int concurrencyLevel = UNSET_INT;
   long maximumSize = UNSET_INT;
   long maximumWeight = UNSET_INT;
+  long minimumSize = UNSET_INT;
   @MonotonicNonNull Weigher<? super K, ? super V> weigher;
+  @MonotonicNonNull EvictionPolicy evictionPolicy;
 
   @MonotonicNonNull Strength keyStrength;
   @MonotonicNonNull Strength valueStrength;
+  @MonotonicNonNull ValueSerializer<? super V> valueSerializer;
 
   long expireAfterWriteNanos = UNSET_INT;
   long expireAfterAccessNanos = UNSET_INT;
+  @MonotonicNonNull Expiry<? super K, ? super V> expiry;
   long refreshNanos = UNSET_INT;
+  @MonotonicNonNull Executor refreshExecutor;
+  int refreshBatchSize = UNSET_INT;
+  int maxRefreshesInFlight = UNSET_INT;
 
   @MonotonicNonNull Equivalence<Object> keyEquivalence;
   @MonotonicNonNull Equivalence<Object> valueEquivalence;
@@ -243,6 +253,7 @@ public final class CacheBuilder<K, V> {
   @MonotonicNonNull Ticker ticker;
 
   Supplier<? extends StatsCounter> statsCounterSupplier = NULL_STATS_COUNTER;
+  boolean recordsDetailedStats;
 
   private CacheBuilder() {}
 
@@ -434,6 +445,42 @@ public final class CacheBuilder<K, V> {
     return this;
   }
 
+  /**
+   * Specifies that the cache should adapt its maximum size to its traffic, between {@code
+   * minimumSize} and the {@linkplain #maximumSize(long) maximum size}, rather than always holding
+   * up to the maximum size.
+   *
+   * <p>The cache starts at its maximum size. Each segment of the cache remembers a sketch of the
+   * keys it recently evicted for size, and periodically compares how often the keys it loads or
+   * puts were among them: when often, the segment would have served them with more room, so it
+   * grows; when rarely, the entries it holds beyond what its traffic needs are taking memory for
+   * little benefit, so it shrinks. Segments adapt independently, in steps of a sixteenth of the
+   * difference between their minimum and maximum sizes. The sketch is allocated when the cache is
+   * built, so tuning allocates nothing as the cache is used.
+   *
+   * <p>Use of this method requires a corresponding call to {@link #maximumSize(long)} prior to
+   * calling {@link #build}, with a maximum size of at least {@code minimumSize}.
+   *
+   * @param minimumSize the size below which the cache will not shrink
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalArgumentException if {@code minimumSize} is negative
+   * @throws IllegalStateException if a minimum size was already set
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // SizeTuner
+  public CacheBuilder<K, V> minimumSize(long minimumSize) {
+    checkState(
+        this.minimumSize == UNSET_INT, "minimum size was already set to %s", this.minimumSize);
+    checkArgument(minimumSize >= 0, "minimum size must not be negative");
+    this.minimumSize = minimumSize;
+    return this;
+  }
+
+  long getMinimumSize() {
+    return (minimumSize == UNSET_INT) ? UNSET_INT : Math.min(minimumSize, getMaximumWeight());
+  }
+
   /**
    * Specifies the maximum weight of entries the cache may contain. Weight is determined using the
    * {@link Weigher} specified with {@link #weigher}, and use of this method requires a
@@ -534,6 +581,33 @@ public final class CacheBuilder<K, V> {
     return (Weigher<K1, V1>) MoreObjects.firstNonNull(weigher, OneWeigher.INSTANCE);
   }
 
+  /**
+   * Specifies the algorithm used to choose which entries to evict when the cache exceeds its
+   * {@linkplain #maximumSize(long) maximum size} or {@linkplain #maximumWeight(long) maximum
+   * weight}. By default, {@link EvictionPolicy#LEAST_RECENTLY_USED} is used.
+   *
+   * <p>Use of this method requires a corresponding call to {@link #maximumSize(long)} or {@link
+   * #maximumWeight(long)} prior to calling {@link #build}.
+   *
+   * @param evictionPolicy the policy used to select entries for size-based eviction
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if an eviction policy was already set
+   * @since NEXT
+   */
+  @Beta
+  public CacheBuilder<K, V> evictionPolicy(EvictionPolicy evictionPolicy) {
+    checkState(
+        this.evictionPolicy == null,
+        "eviction policy was already set to %s",
+        this.evictionPolicy);
+    this.evictionPolicy = checkNotNull(evictionPolicy);
+    return this;
+  }
+
+  EvictionPolicy getEvictionPolicy() {
+    return MoreObjects.firstNonNull(evictionPolicy, EvictionPolicy.LEAST_RECENTLY_USED);
+  }
+
   /**
    * Specifies that each key (not value) stored in the cache should be wrapped in a {@link
    * WeakReference} (by default, strong references are used).
@@ -614,6 +688,10 @@ public final class CacheBuilder<K, V> {
 
   CacheBuilder<K, V> setValueStrength(Strength strength) {
     checkState(valueStrength == null, "Value strength was already set to %s", valueStrength);
+    checkState(
+        valueSerializer == null || strength == Strength.STRONG,
+        "%s values can not be combined with offHeapValues",
+        strength);
     valueStrength = checkNotNull(strength);
     return this;
   }
@@ -622,6 +700,61 @@ public final class CacheBuilder<K, V> {
     return MoreObjects.firstNonNull(valueStrength, Strength.STRONG);
   }
 
+  /**
+   * Specifies that each value stored in the cache should be serialized by {@code serializer} into
+   * direct memory, outside of the Java heap. Only the keys, and a small reference to the bytes of
+   * each value, are kept on the heap; this reduces the work of the garbage collector for caches of
+   * large values, at the cost of deserializing the value each time it is read.
+   *
+   * <p>The memory is divided into slabs of 1 MiB for each segment of the cache, and each value is
+   * stored in a block of a slab whose size is the value's serialized size rounded up to a power of
+   * two, and at least 64 bytes. Values larger than a slab are each given their own buffer. The
+   * memory of a value is freed as soon as the value is removed, replaced, evicted or expired, or
+   * when a read of it that was in progress then has finished; it is merged with adjacent free
+   * memory, and reused for later values, and a slab which becomes entirely free is released, except
+   * for one in each segment. With {@link #maximumWeight} and a {@link Weigher} that returns the size
+   * of the block of each value, the weights of the entries are therefore accounted in the bytes
+   * they occupy. This does not strictly bound the off-heap memory of the cache, however: a slab is
+   * held for as long as any of its values remains, so the memory held may exceed the total weight
+   * when values of very different sizes are interleaved.
+   *
+   * <p>When this method is used, the values returned by the cache are deserialized copies, which
+   * are compared using {@link Object#equals}.
+   *
+   * <p><b>Warning:</b> after invoking this method, do not continue to use <i>this</i> cache builder
+   * reference; instead use the reference this method <i>returns</i>. At runtime, these point to the
+   * same instance, but only the returned reference has the correct generic type information so as
+   * to ensure type safety.
+   *
+   * @param serializer the serializer used to convert values to and from bytes
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if a serializer was already set, or weak or soft values were
+   *     requested
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // java.nio.ByteBuffer
+  public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> offHeapValues(
+      ValueSerializer<V1> serializer) {
+    checkState(
+        this.valueSerializer == null, "value serializer was already set to %s", valueSerializer);
+    checkState(
+        getValueStrength() == Strength.STRONG,
+        "offHeapValues can not be combined with %s values",
+        valueStrength);
+
+    // safely limiting the kinds of caches this can produce
+    @SuppressWarnings("unchecked")
+    CacheBuilder<K1, V1> me = (CacheBuilder<K1, V1>) this;
+    me.valueSerializer = checkNotNull(serializer);
+    return me;
+  }
+
+  @SuppressWarnings("unchecked") // offHeapValues fixed the value type to that of the serializer
+  <V1 extends V> @Nullable ValueSerializer<V1> getValueSerializer() {
+    return (ValueSerializer<V1>) valueSerializer;
+  }
+
   /**
    * Specifies that each entry should be automatically removed from the cache once a fixed duration
    * has elapsed after the entry's creation, or the most recent replacement of its value.
@@ -676,6 +809,7 @@ public final class CacheBuilder<K, V> {
         expireAfterWriteNanos == UNSET_INT,
         "expireAfterWrite was already set to %s ns",
         expireAfterWriteNanos);
+    checkState(expiry == null, "expireAfterWrite can not be combined with expireAfter");
     checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterWriteNanos = unit.toNanos(duration);
     return this;
@@ -745,6 +879,7 @@ public final class CacheBuilder<K, V> {
         expireAfterAccessNanos == UNSET_INT,
         "expireAfterAccess was already set to %s ns",
         expireAfterAccessNanos);
+    checkState(expiry == null, "expireAfterAccess can not be combined with expireAfter");
     checkArgument(duration >= 0, "duration cannot be negative: %s %s", duration, unit);
     this.expireAfterAccessNanos = unit.toNanos(duration);
     return this;
@@ -756,6 +891,56 @@ public final class CacheBuilder<K, V> {
         : expireAfterAccessNanos;
   }
 
+  /**
+   * Specifies that each entry should be automatically removed from the cache once a duration
+   * calculated by {@code expiry} has elapsed, so that each entry may have its own lifetime. The
+   * duration is calculated when the entry is created, and may be changed when its value is
+   * replaced or read; see {@link Expiry}.
+   *
+   * <p>Expirations are scheduled on a hierarchical timer wheel, which keeps the cost of expiring
+   * entries constant on average however their expiration times are distributed, and the cost of
+   * rescheduling an entry after it is read is deferred like the other bookkeeping for reads.
+   *
+   * <p>Expired entries may be counted in {@link Cache#size}, but will never be visible to read or
+   * write operations. Expired entries are cleaned up as part of the routine maintenance described
+   * in the class javadoc.
+   *
+   * <p><b>Warning:</b> after invoking this method, do not continue to use <i>this</i> cache builder
+   * reference; instead use the reference this method <i>returns</i>. At runtime, these point to the
+   * same instance, but only the returned reference has the correct generic type information so as
+   * to ensure type safety.
+   *
+   * @param expiry the expiry used to calculate when each entry expires
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalStateException if the expiry, the time to live or the time to idle was already
+   *     set
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // TimerWheel
+  public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> expireAfter(
+      Expiry<? super K1, ? super V1> expiry) {
+    checkState(this.expiry == null, "expiry was already set to %s", this.expiry);
+    checkState(
+        expireAfterWriteNanos == UNSET_INT,
+        "expireAfter can not be combined with expireAfterWrite");
+    checkState(
+        expireAfterAccessNanos == UNSET_INT,
+        "expireAfter can not be combined with expireAfterAccess");
+
+    // safely limiting the kinds of caches this can produce
+    @SuppressWarnings("unchecked")
+    CacheBuilder<K1, V1> me = (CacheBuilder<K1, V1>) this;
+    me.expiry = checkNotNull(expiry);
+    return me;
+  }
+
+  // Make a safe contravariant cast now so we don't have to do it over and over.
+  @SuppressWarnings("unchecked")
+  <K1 extends K, V1 extends V> @Nullable Expiry<K1, V1> getExpiry() {
+    return (Expiry<K1, V1>) expiry;
+  }
+
   /**
    * Specifies that active entries are eligible for automatic refresh once a fixed duration has
    * elapsed after the entry's creation, or the most recent replacement of its value. The semantics
@@ -802,7 +987,8 @@ public final class CacheBuilder<K, V> {
    * <p>Currently automatic refreshes are performed when the first stale request for an entry
    * occurs. The request triggering refresh will make a blocking call to {@link CacheLoader#reload}
    * and immediately return the new value if the returned future is complete, and the old value
-   * otherwise.
+   * otherwise. To refresh entries in batches on an executor instead, without blocking requests,
+   * see {@link #refreshAhead}.
    *
    * <p><b>Note:</b> <i>all exceptions thrown during refresh will be logged and then swallowed</i>.
    *
@@ -831,6 +1017,68 @@ public final class CacheBuilder<K, V> {
     return (refreshNanos == UNSET_INT) ? DEFAULT_REFRESH_NANOS : refreshNanos;
   }
 
+  /**
+   * Specifies that entries which have become eligible for refresh (see {@link #refreshAfterWrite})
+   * should be refreshed ahead of the requests for them, in batches loaded on {@code executor}.
+   *
+   * <p>Without this option, an entry is only refreshed when a stale request for it occurs, and each
+   * entry is refreshed by its own call to {@link CacheLoader#reload}, made by the requesting
+   * thread. With this option, the cache's routine maintenance (performed during writes, during
+   * occasional reads, and by {@link Cache#cleanUp}) also finds the entries that have been stale
+   * the longest, and refreshes up to {@code maximumBatchSize} of them at a time with a single call
+   * to {@link CacheLoader#loadAll} on {@code executor}. A stale request never refreshes an entry
+   * itself; it returns the current value, and at most triggers this maintenance. If the loader
+   * does not implement {@code loadAll}, each entry of a batch is refreshed by {@link
+   * CacheLoader#reload} instead, still on {@code executor}.
+   *
+   * <p>No more than {@code maximumInFlight} entries are refreshed at the same time; due entries
+   * beyond that remain stale, and continue to be served, until earlier refreshes complete. Combined
+   * with a longer {@link #expireAfterWrite} duration, this keeps frequently requested entries
+   * loaded without any request having to wait for the loader.
+   *
+   * <p>An entry whose key is missing from the map returned by {@code loadAll}, or whose refresh
+   * otherwise fails, keeps its current value, and is not refreshed again until the refresh interval
+   * has elapsed once more. As with other refreshes, <i>all exceptions thrown during refresh will be
+   * logged and then swallowed</i>, including a {@link
+   * java.util.concurrent.RejectedExecutionException} thrown by {@code executor}.
+   *
+   * @param executor the executor on which batches of entries are refreshed
+   * @param maximumBatchSize the maximum number of keys passed to a single call to {@link
+   *     CacheLoader#loadAll}
+   * @param maximumInFlight the maximum number of entries being refreshed at any time
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @throws IllegalArgumentException if {@code maximumBatchSize} or {@code maximumInFlight} is not
+   *     positive
+   * @throws IllegalStateException if refresh ahead was already set
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // To be supported (synchronously).
+  public CacheBuilder<K, V> refreshAhead(
+      Executor executor, int maximumBatchSize, int maximumInFlight) {
+    checkNotNull(executor);
+    checkState(refreshExecutor == null, "refresh ahead was already set to %s", refreshExecutor);
+    checkArgument(maximumBatchSize > 0, "maximumBatchSize must be positive: %s", maximumBatchSize);
+    checkArgument(maximumInFlight > 0, "maximumInFlight must be positive: %s", maximumInFlight);
+    this.refreshExecutor = executor;
+    this.refreshBatchSize = maximumBatchSize;
+    this.maxRefreshesInFlight = maximumInFlight;
+    return this;
+  }
+
+  @Nullable
+  Executor getRefreshExecutor() {
+    return refreshExecutor;
+  }
+
+  int getRefreshBatchSize() {
+    return (refreshBatchSize == UNSET_INT) ? 0 : refreshBatchSize;
+  }
+
+  int getMaxRefreshesInFlight() {
+    return (maxRefreshesInFlight == UNSET_INT) ? 0 : maxRefreshesInFlight;
+  }
+
   /**
    * Specifies a nanosecond-precision time source for this cache. By default, {@link
    * System#nanoTime} is used.
@@ -912,6 +1160,31 @@ public final class CacheBuilder<K, V> {
     return statsCounterSupplier == CACHE_STATS_COUNTER;
   }
 
+  /**
+   * Enable the accumulation of {@link DetailedCacheStats} during the operation of the cache, as
+   * well as {@link CacheStats}. Without this {@link DetailedCacheStats#of} will throw an exception.
+   *
+   * <p>In addition to the bookkeeping of {@link #recordStats}, the time taken by each load is
+   * counted in a histogram, each removal is counted by its cause, and each acquisition of a
+   * segment's lock is counted and timed. These are single increments and reads of the cache's
+   * ticker, made on loads and writes rather than on reads that find a value, so detailed stats may
+   * be left on under load.
+   *
+   * @return this {@code CacheBuilder} instance (for chaining)
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // LatencyRecorder
+  public CacheBuilder<K, V> recordDetailedStats() {
+    recordStats();
+    recordsDetailedStats = true;
+    return this;
+  }
+
+  boolean isRecordingDetailedStats() {
+    return recordsDetailedStats;
+  }
+
   Supplier<? extends StatsCounter> getStatsCounterSupplier() {
     return statsCounterSupplier;
   }
@@ -931,9 +1204,37 @@ public final class CacheBuilder<K, V> {
   public <K1 extends K, V1 extends V> LoadingCache<K1, V1> build(
       CacheLoader<? super K1, V1> loader) {
     checkWeightWithWeigher();
+    checkEvictionPolicy();
+    checkMinimumSize();
+    checkRefreshAhead();
     return new LocalCache.LocalLoadingCache<>(this, loader);
   }
 
+  /**
+   * Builds a cache which returns a {@link com.google.common.util.concurrent.ListenableFuture} for
+   * the value of a given key, starting to compute or retrieve it using the supplied {@code
+   * AsyncCacheLoader} if it isn't already present. If another request is currently loading the
+   * value for this key, the returned future completes when that load does, without blocking any
+   * thread. Note that multiple values can be loading concurrently for distinct keys.
+   *
+   * <p>This method does not alter the state of this {@code CacheBuilder} instance, so it can be
+   * invoked again to create multiple independent caches.
+   *
+   * @param loader the asynchronous cache loader used to obtain new values
+   * @return a cache having the requested features
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // ListenableFuture
+  public <K1 extends K, V1 extends V> AsyncLoadingCache<K1, V1> buildAsync(
+      AsyncCacheLoader<? super K1, V1> loader) {
+    checkWeightWithWeigher();
+    checkEvictionPolicy();
+    checkMinimumSize();
+    checkRefreshAhead();
+    return new LocalCache.LocalAsyncLoadingCache<>(this, loader);
+  }
+
   /**
    * Builds a cache which does not automatically load values when keys are requested.
    *
@@ -948,7 +1249,10 @@ public final class CacheBuilder<K, V> {
    */
   public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
     checkWeightWithWeigher();
+    checkEvictionPolicy();
+    checkMinimumSize();
     checkNonLoadingCache();
+    checkRefreshAhead();
     return new LocalCache.LocalManualCache<>(this);
   }
 
@@ -970,6 +1274,31 @@ public final class CacheBuilder<K, V> {
     }
   }
 
+  private void checkMinimumSize() {
+    if (minimumSize != UNSET_INT) {
+      checkState(maximumSize != UNSET_INT, "minimumSize requires maximumSize");
+      checkState(
+          minimumSize <= maximumSize,
+          "minimum size %s exceeds maximum size %s",
+          minimumSize,
+          maximumSize);
+    }
+  }
+
+  private void checkRefreshAhead() {
+    if (refreshExecutor != null) {
+      checkState(refreshNanos != UNSET_INT, "refreshAhead requires refreshAfterWrite");
+    }
+  }
+
+  private void checkEvictionPolicy() {
+    if (evictionPolicy != null) {
+      checkState(
+          maximumSize != UNSET_INT || maximumWeight != UNSET_INT,
+          "evictionPolicy requires maximumSize or maximumWeight");
+    }
+  }
+
   /**
    * Returns a string representation for this CacheBuilder instance. The exact form of the returned
    * string is not specified.
@@ -989,18 +1318,34 @@ public final class CacheBuilder<K, V> {
     if (maximumWeight != UNSET_INT) {
       s.add("maximumWeight", maximumWeight);
     }
+    if (minimumSize != UNSET_INT) {
+      s.add("minimumSize", minimumSize);
+    }
+    if (evictionPolicy != null) {
+      s.add("evictionPolicy", Ascii.toLowerCase(evictionPolicy.toString()));
+    }
     if (expireAfterWriteNanos != UNSET_INT) {
       s.add("expireAfterWrite", expireAfterWriteNanos + "ns");
     }
     if (expireAfterAccessNanos != UNSET_INT) {
       s.add("expireAfterAccess", expireAfterAccessNanos + "ns");
     }
+    if (expiry != null) {
+      s.addValue("expiry");
+    }
+    if (refreshExecutor != null) {
+      s.add("refreshAheadBatchSize", refreshBatchSize);
+      s.add("refreshAheadInFlight", maxRefreshesInFlight);
+    }
     if (keyStrength != null) {
       s.add("keyStrength", Ascii.toLowerCase(keyStrength.toString()));
     }
     if (valueStrength != null) {
       s.add("valueStrength", Ascii.toLowerCase(valueStrength.toString()));
     }
+    if (valueSerializer != null) {
+      s.addValue("offHeapValues");
+    }
     if (keyEquivalence != null) {
       s.addValue("keyEquivalence");
     }
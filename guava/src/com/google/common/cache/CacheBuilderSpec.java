@@ -44,6 +44,8 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  *   <li>{@code initialCapacity=[integer]}: sets {@link CacheBuilder#initialCapacity}.
  *   <li>{@code maximumSize=[long]}: sets {@link CacheBuilder#maximumSize}.
  *   <li>{@code maximumWeight=[long]}: sets {@link CacheBuilder#maximumWeight}.
+ *   <li>{@code minimumSize=[long]}: sets {@link CacheBuilder#minimumSize}, which adapts the cache's
+ *       maximum size to its traffic; requires {@code maximumSize}.
  *   <li>{@code expireAfterAccess=[duration]}: sets {@link CacheBuilder#expireAfterAccess}.
  *   <li>{@code expireAfterWrite=[duration]}: sets {@link CacheBuilder#expireAfterWrite}.
  *   <li>{@code refreshAfterWrite=[duration]}: sets {@link CacheBuilder#refreshAfterWrite}.
@@ -96,6 +98,7 @@ public final class CacheBuilderSpec {
           .put("initialCapacity", new InitialCapacityParser())
           .put("maximumSize", new MaximumSizeParser())
           .put("maximumWeight", new MaximumWeightParser())
+          .put("minimumSize", new MinimumSizeParser())
           .put("concurrencyLevel", new ConcurrencyLevelParser())
           .put("weakKeys", new KeyStrengthParser(Strength.WEAK))
           .put("softValues", new ValueStrengthParser(Strength.SOFT))
@@ -110,6 +113,7 @@ public final class CacheBuilderSpec {
   @MonotonicNonNull @VisibleForTesting Integer initialCapacity;
   @MonotonicNonNull @VisibleForTesting Long maximumSize;
   @MonotonicNonNull @VisibleForTesting Long maximumWeight;
+  @MonotonicNonNull @VisibleForTesting Long minimumSize;
   @MonotonicNonNull @VisibleForTesting Integer concurrencyLevel;
   @MonotonicNonNull @VisibleForTesting Strength keyStrength;
   @MonotonicNonNull @VisibleForTesting Strength valueStrength;
@@ -174,6 +178,9 @@ public final class CacheBuilderSpec {
     if (maximumWeight != null) {
       builder.maximumWeight(maximumWeight);
     }
+    if (minimumSize != null) {
+      builder.minimumSize(minimumSize);
+    }
     if (concurrencyLevel != null) {
       builder.concurrencyLevel(concurrencyLevel);
     }
@@ -238,6 +245,7 @@ public final class CacheBuilderSpec {
         initialCapacity,
         maximumSize,
         maximumWeight,
+        minimumSize,
         concurrencyLevel,
         keyStrength,
         valueStrength,
@@ -259,6 +267,7 @@ public final class CacheBuilderSpec {
     return Objects.equal(initialCapacity, that.initialCapacity)
         && Objects.equal(maximumSize, that.maximumSize)
         && Objects.equal(maximumWeight, that.maximumWeight)
+        && Objects.equal(minimumSize, that.minimumSize)
         && Objects.equal(concurrencyLevel, that.concurrencyLevel)
         && Objects.equal(keyStrength, that.keyStrength)
         && Objects.equal(valueStrength, that.valueStrength)
@@ -348,6 +357,15 @@ public final class CacheBuilderSpec {
     }
   }
 
+  /** Parse minimumSize */
+  static class MinimumSizeParser extends LongParser {
+    @Override
+    protected void parseLong(CacheBuilderSpec spec, long value) {
+      checkArgument(spec.minimumSize == null, "minimum size was already set to ", spec.minimumSize);
+      spec.minimumSize = value;
+    }
+  }
+
   /** Parse concurrencyLevel */
   static class ConcurrencyLevelParser extends IntegerParser {
     @Override
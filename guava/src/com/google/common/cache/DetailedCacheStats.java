@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.util.EnumMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Detailed statistics about the performance of a {@link Cache}, for tuning: the {@link CacheStats},
+ * a histogram of the times taken to load values, the number of entries removed for each {@link
+ * RemovalCause}, and how much each segment's lock has been used and contended. Instances of this
+ * class are immutable.
+ *
+ * <p>Detailed statistics are only recorded by caches built with {@link
+ * CacheBuilder#recordDetailedStats}, and are read with {@link #of}.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtCompatible
+public final class DetailedCacheStats {
+  private final CacheStats stats;
+  private final LatencyHistogram loadLatency;
+  private final ImmutableMap<RemovalCause, Long> removalCounts;
+  private final ImmutableList<SegmentStats> segmentStats;
+
+  DetailedCacheStats(
+      CacheStats stats,
+      LatencyHistogram loadLatency,
+      Map<RemovalCause, Long> removalCounts,
+      ImmutableList<SegmentStats> segmentStats) {
+    this.stats = checkNotNull(stats);
+    this.loadLatency = checkNotNull(loadLatency);
+    EnumMap<RemovalCause, Long> counts = new EnumMap<>(RemovalCause.class);
+    for (RemovalCause cause : RemovalCause.values()) {
+      Long count = removalCounts.get(cause);
+      counts.put(cause, (count == null) ? 0L : count);
+    }
+    this.removalCounts = Maps.immutableEnumMap(counts);
+    this.segmentStats = checkNotNull(segmentStats);
+  }
+
+  /**
+   * Returns a current snapshot of the detailed statistics of {@code cache}, which must have been
+   * built by a {@link CacheBuilder}, possibly wrapped in {@link ForwardingCache}s. All statistics
+   * begin at zero and never decrease over the lifetime of the cache.
+   *
+   * <p>This is a static method rather than a method of {@link Cache} so that the {@code Cache}
+   * interface stays the same in every flavor of Guava.
+   *
+   * @throws UnsupportedOperationException if {@code cache} does not record detailed statistics
+   */
+  @GwtIncompatible // LocalCache.LocalManualCache
+  public static DetailedCacheStats of(Cache<?, ?> cache) {
+    checkNotNull(cache);
+    while (cache instanceof ForwardingCache) {
+      cache = ((ForwardingCache<?, ?>) cache).delegate();
+    }
+    if (!(cache instanceof LocalCache.LocalManualCache)) {
+      throw new UnsupportedOperationException(
+          "detailed stats are only recorded by caches built with recordDetailedStats()");
+    }
+    return ((LocalCache.LocalManualCache<?, ?>) cache).detailedStats();
+  }
+
+  /** Returns the cache's basic statistics, as returned by {@link Cache#stats}. */
+  public CacheStats stats() {
+    return stats;
+  }
+
+  /**
+   * Returns a histogram of the times taken to load new values, successfully or not, in nanoseconds.
+   * The histogram's count is {@link CacheStats#loadCount}, and the sum of its latencies is about
+   * {@link CacheStats#totalLoadTime}.
+   */
+  public LatencyHistogram loadLatency() {
+    return loadLatency;
+  }
+
+  /**
+   * Returns the number of entries that have been removed from the cache for {@code cause}. Unlike
+   * {@link CacheStats#evictionCount}, this includes manual removals, by counting removals for the
+   * causes that were not {@linkplain RemovalCause#wasEvicted evictions}.
+   */
+  public long removalCount(RemovalCause cause) {
+    return removalCounts.get(checkNotNull(cause));
+  }
+
+  /** Returns the number of entries that have been removed from the cache, by cause. */
+  public ImmutableMap<RemovalCause, Long> removalCounts() {
+    return removalCounts;
+  }
+
+  /**
+   * Returns the statistics of the lock of each of the cache's segments. The cache is divided into
+   * segments according to its {@linkplain CacheBuilder#concurrencyLevel concurrency level}, and
+   * writes to a segment are serialized by its lock; a segment whose lock is often contended
+   * suggests a higher concurrency level, or a hot key.
+   */
+  public ImmutableList<SegmentStats> segmentStats() {
+    return segmentStats;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(stats, loadLatency, removalCounts, segmentStats);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof DetailedCacheStats) {
+      DetailedCacheStats other = (DetailedCacheStats) object;
+      return stats.equals(other.stats)
+          && loadLatency.equals(other.loadLatency)
+          && removalCounts.equals(other.removalCounts)
+          && segmentStats.equals(other.segmentStats);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("stats", stats)
+        .add("loadLatency", loadLatency)
+        .add("removalCounts", removalCounts)
+        .add("segmentStats", segmentStats)
+        .toString();
+  }
+
+  /**
+   * Statistics about the lock of a segment of a {@link Cache}. Instances of this class are
+   * immutable.
+   *
+   * <p>Only writes, and the maintenance that follows a small fraction of reads, take a segment's
+   * lock; reads that find a value do not.
+   *
+   * @since NEXT
+   */
+  @Beta
+  public static final class SegmentStats {
+    private final long lockCount;
+    private final long contendedLockCount;
+    private final long totalLockWaitTime;
+    private final long totalLockHoldTime;
+
+    @SuppressWarnings("GoodTime") // should accept a java.time.Duration
+    SegmentStats(
+        long lockCount, long contendedLockCount, long totalLockWaitTime, long totalLockHoldTime) {
+      checkArgument(lockCount >= 0);
+      checkArgument(contendedLockCount >= 0);
+      checkArgument(totalLockWaitTime >= 0);
+      checkArgument(totalLockHoldTime >= 0);
+      this.lockCount = lockCount;
+      this.contendedLockCount = contendedLockCount;
+      this.totalLockWaitTime = totalLockWaitTime;
+      this.totalLockHoldTime = totalLockHoldTime;
+    }
+
+    /** Returns the number of times the segment's lock has been acquired. */
+    public long lockCount() {
+      return lockCount;
+    }
+
+    /**
+     * Returns the number of times the segment's lock was held by another thread when a thread
+     * tried to acquire it, and so had to wait for it.
+     */
+    public long contendedLockCount() {
+      return contendedLockCount;
+    }
+
+    /**
+     * Returns the total number of nanoseconds that threads have waited to acquire the segment's
+     * lock.
+     */
+    @SuppressWarnings("GoodTime") // should return a java.time.Duration
+    public long totalLockWaitTime() {
+      return totalLockWaitTime;
+    }
+
+    /** Returns the total number of nanoseconds for which the segment's lock has been held. */
+    @SuppressWarnings("GoodTime") // should return a java.time.Duration
+    public long totalLockHoldTime() {
+      return totalLockHoldTime;
+    }
+
+    /**
+     * Returns the ratio of lock acquisitions which were contended. This is defined as {@code
+     * contendedLockCount / lockCount}, or {@code 0.0} when {@code lockCount == 0}.
+     */
+    public double contentionRate() {
+      return (lockCount == 0) ? 0.0 : (double) contendedLockCount / lockCount;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(lockCount, contendedLockCount, totalLockWaitTime, totalLockHoldTime);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+      if (object instanceof SegmentStats) {
+        SegmentStats other = (SegmentStats) object;
+        return lockCount == other.lockCount
+            && contendedLockCount == other.contendedLockCount
+            && totalLockWaitTime == other.totalLockWaitTime
+            && totalLockHoldTime == other.totalLockHoldTime;
+      }
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return MoreObjects.toStringHelper(this)
+          .add("lockCount", lockCount)
+          .add("contendedLockCount", contendedLockCount)
+          .add("totalLockWaitTime", totalLockWaitTime)
+          .add("totalLockHoldTime", totalLockHoldTime)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+/**
+ * The algorithm used to choose which entries to evict when a cache built with {@link
+ * CacheBuilder#maximumSize} or {@link CacheBuilder#maximumWeight} exceeds its bound. See {@link
+ * CacheBuilder#evictionPolicy}.
+ *
+ * <p>As with the bound itself, the policy is applied independently within each internal segment of
+ * the cache.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtCompatible
+public enum EvictionPolicy {
+  /**
+   * Evicts the entry that was least recently read or written. This is the default policy. It
+   * performs well when recently used entries are likely to be used again soon, but a scan over
+   * many distinct keys that are each used only once can flush every popular entry from the cache.
+   */
+  LEAST_RECENTLY_USED,
+
+  /**
+   * Admits new entries through a small least-recently-used window, and only lets an entry leaving
+   * that window displace an older entry if the newcomer has been requested more often, as
+   * estimated by a compact frequency sketch that is periodically aged. This keeps frequently used
+   * entries resident across scans of one-hit wonders, while the window still captures bursts of
+   * recency. See <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache
+   * Admission Policy</a>.
+   *
+   * <p>The frequency sketch costs roughly eight bytes per entry of the cache's maximum size.
+   */
+  WINDOW_TINY_LFU
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+/**
+ * Calculates when cache entries expire, so that each entry may have its own lifetime; for example,
+ * one taken from the value itself. A duration may be set when an entry is created, and reset when
+ * its value is replaced or read. See {@link CacheBuilder#expireAfter}.
+ *
+ * <p>All durations and times are in nanoseconds, and times are read from the cache's {@link
+ * CacheBuilder#ticker ticker}. Durations greater than approximately 146 years are treated as that
+ * limit, and durations of zero or less expire the entry immediately. To leave an entry's lifetime
+ * unchanged, return {@code currentDuration}.
+ *
+ * <p>These methods should be fast, and must not access the cache. {@link #expireAfterCreate} and
+ * {@link #expireAfterUpdate} are called while the cache holds internal locks. {@link
+ * #expireAfterRead} is called without locking, and may be called for an entry concurrently with
+ * any of these methods. Its result is best-effort: it is discarded if the entry's expiration time
+ * changes while it is computed, whether by a write, whose result takes precedence, or by
+ * another read.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtCompatible
+public interface Expiry<K, V> {
+
+  /**
+   * Returns the duration after which the entry should expire, once it has been created, either by
+   * being loaded or by being explicitly inserted.
+   *
+   * @param key the key of the new entry
+   * @param value the value of the new entry
+   * @param currentTime the current time, in nanoseconds
+   * @return the length of time before the entry expires, in nanoseconds
+   */
+  long expireAfterCreate(K key, V value, long currentTime);
+
+  /**
+   * Returns the duration after which the entry should expire, once its value has been replaced,
+   * either explicitly or by being refreshed.
+   *
+   * @param key the key of the entry
+   * @param value the new value of the entry
+   * @param currentTime the current time, in nanoseconds
+   * @param currentDuration the remaining time before the entry would have expired, in nanoseconds
+   * @return the length of time before the entry expires, in nanoseconds
+   */
+  long expireAfterUpdate(K key, V value, long currentTime, long currentDuration);
+
+  /**
+   * Returns the duration after which the entry should expire, once it has been read.
+   *
+   * @param key the key of the entry
+   * @param value the value of the entry
+   * @param currentTime the current time, in nanoseconds
+   * @param currentDuration the remaining time before the entry would have expired, in nanoseconds
+   * @return the length of time before the entry expires, in nanoseconds
+   */
+  long expireAfterRead(K key, V value, long currentTime, long currentDuration);
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.math.IntMath;
+
+/**
+ * A probabilistic multiset for estimating the popularity of an element within a time window. The
+ * maximum frequency of an element is limited to 15 (4 bits), and an aging process periodically
+ * halves the popularity of all elements so that the sketch tracks recent history.
+ *
+ * <p>The sketch is a count-min sketch with a depth of four, packing sixteen 4-bit counters into
+ * each {@code long}. Elements are identified by their (already spread) hash code only, so that
+ * recording an access never allocates. The sketch is not thread safe; callers are expected to
+ * guard it with the same lock that protects the eviction queues.
+ *
+ * <p>This is the frequency filter used by the TinyLFU admission policy described in <a
+ * href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>.
+ */
+@GwtIncompatible
+final class FrequencySketch {
+
+  /** Multipliers used to derive the four independent counter locations from one hash code. */
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  /** Clears the high bit of each 4-bit counter after a one bit right shift. */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  /** Selects the low bit of each 4-bit counter. */
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  /** The largest value a single counter may hold. */
+  static final int MAX_FREQUENCY = 15;
+
+  /** The number of increments, relative to the table width, after which the sketch is aged. */
+  private static final int SAMPLE_FACTOR = 10;
+
+  /** The largest table this sketch will allocate, so that the index fits in an {@code int}. */
+  private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  /**
+   * Creates a sketch sized to estimate the frequencies of about {@code expectedElements} distinct
+   * elements.
+   */
+  FrequencySketch(long expectedElements) {
+    ensureCapacity(expectedElements);
+  }
+
+  /**
+   * Grows the sketch, if necessary, so that it can accurately estimate the frequencies of {@code
+   * expectedElements} distinct elements. Growing discards all previously recorded frequencies.
+   */
+  void ensureCapacity(long expectedElements) {
+    checkArgument(expectedElements >= 0, "expectedElements (%s) must be >= 0", expectedElements);
+    int tableSize =
+        (expectedElements >= MAXIMUM_TABLE_SIZE)
+            ? MAXIMUM_TABLE_SIZE
+            : IntMath.ceilingPowerOfTwo((int) Math.max(expectedElements, 1));
+    if ((table != null) && (table.length >= tableSize)) {
+      return;
+    }
+    table = new long[tableSize];
+    tableMask = tableSize - 1;
+    sampleSize =
+        (tableSize >= MAXIMUM_TABLE_SIZE / SAMPLE_FACTOR)
+            ? Integer.MAX_VALUE
+            : SAMPLE_FACTOR * tableSize;
+    size = 0;
+  }
+
+  /** Returns the estimated number of occurrences of the element with the given hash, up to 15. */
+  int frequency(int hash) {
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an occurrence of the element with the given hash. All of its counters are incremented
+   * unless they have already reached the maximum; once enough increments have been recorded, the
+   * counters of every element are halved.
+   */
+  void increment(int hash) {
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && (++size == sampleSize)) {
+      reset();
+    }
+  }
+
+  /** Increments the {@code counter}th 4-bit counter of {@code table[index]} unless it is full. */
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter, and adjusts the sample size by the amount lost to truncation. */
+  @VisibleForTesting
+  void reset() {
+    int oddCounters = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounters += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (oddCounters >>> 2);
+  }
+
+  /** Returns the table index of the {@code depth}th counter for the element with the given hash. */
+  private int indexOf(int hash, int depth) {
+    long h = (hash + SEEDS[depth]) * SEEDS[depth];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  @VisibleForTesting
+  int sampleSize() {
+    return sampleSize;
+  }
+
+  @VisibleForTesting
+  int tableSize() {
+    return table.length;
+  }
+
+  /** Returns the number of increments recorded since the sketch was last aged. */
+  @VisibleForTesting
+  int size() {
+    return size;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.base.MoreObjects;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A histogram of latencies, in nanoseconds, such as the times taken to load the values of a cache.
+ * Instances of this class are immutable.
+ *
+ * <p>Latencies are counted in buckets whose width grows with the latency, as in an HDR histogram:
+ * latencies below 32ns are counted exactly, and the buckets for each larger power of two are
+ * divided into 32, so that percentiles are reported to within about 3% of the recorded latency,
+ * however large, and a histogram has a fixed size.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtCompatible
+public final class LatencyHistogram {
+  static final int SUB_BUCKET_BITS = 5;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets, enough for every non-negative {@code long}. */
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private static final LatencyHistogram EMPTY = new LatencyHistogram(new long[BUCKETS]);
+
+  private final long[] counts;
+  private final long count;
+
+  /** Constructs a histogram from the counts of each bucket, which must not be modified. */
+  LatencyHistogram(long[] counts) {
+    checkArgument(counts.length == BUCKETS);
+    long count = 0;
+    for (long bucketCount : counts) {
+      checkArgument(bucketCount >= 0);
+      count += bucketCount;
+    }
+    this.counts = counts;
+    this.count = count;
+  }
+
+  /** Returns a histogram in which no latencies have been recorded. */
+  static LatencyHistogram empty() {
+    return EMPTY;
+  }
+
+  /** Returns the index of the bucket that counts {@code nanos}. */
+  static int bucketIndex(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(nanos, 0);
+    }
+    int shift = (Long.SIZE - 1 - SUB_BUCKET_BITS) - Long.numberOfLeadingZeros(nanos);
+    int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the largest latency counted by the bucket at {@code index}. */
+  static long highestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+
+  /** Returns the number of latencies recorded. */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns the latency, in nanoseconds, at or below which {@code percentile} percent of the
+   * recorded latencies lie, or zero if none have been recorded. The latency is the largest that
+   * would be counted in the same bucket as the latency at that percentile.
+   *
+   * @throws IllegalArgumentException if {@code percentile} is not between 0 and 100, inclusive
+   */
+  @SuppressWarnings("GoodTime") // should return a java.time.Duration
+  public long valueAtPercentile(double percentile) {
+    checkArgument(
+        percentile >= 0.0 && percentile <= 100.0, "percentile out of range: %s", percentile);
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return highestValue(i);
+      }
+    }
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the largest latency recorded, in nanoseconds, to the precision of its bucket, or zero
+   * if none have been recorded.
+   */
+  @SuppressWarnings("GoodTime") // should return a java.time.Duration
+  public long max() {
+    return valueAtPercentile(100.0);
+  }
+
+  /**
+   * Returns a new {@code LatencyHistogram} representing the difference between this histogram and
+   * {@code other}. Negative counts, which aren't supported by {@code LatencyHistogram}, will be
+   * rounded up to zero.
+   */
+  public LatencyHistogram minus(LatencyHistogram other) {
+    long[] difference = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      difference[i] = Math.max(0, counts[i] - other.counts[i]);
+    }
+    return new LatencyHistogram(difference);
+  }
+
+  /**
+   * Returns a new {@code LatencyHistogram} representing the sum of this histogram and {@code
+   * other}.
+   */
+  public LatencyHistogram plus(LatencyHistogram other) {
+    long[] sum = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      sum[i] = counts[i] + other.counts[i];
+    }
+    return new LatencyHistogram(sum);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof LatencyHistogram) {
+      LatencyHistogram other = (LatencyHistogram) object;
+      return Arrays.equals(counts, other.counts);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("count", count)
+        .add("p50", valueAtPercentile(50))
+        .add("p90", valueAtPercentile(90))
+        .add("p99", valueAtPercentile(99))
+        .add("max", max())
+        .toString();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.GwtIncompatible;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies concurrently into the buckets of a {@link LatencyHistogram}. Recording a
+ * latency is a single atomic increment, without allocation or locking.
+ */
+@GwtIncompatible
+final class LatencyRecorder {
+  private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+  /** Records a latency of {@code nanos} nanoseconds. */
+  void record(long nanos) {
+    counts.incrementAndGet(LatencyHistogram.bucketIndex(nanos));
+  }
+
+  /**
+   * Returns a snapshot of the latencies recorded. Note that this may be an inconsistent view, as it
+   * may be interleaved with recording.
+   */
+  LatencyHistogram snapshot() {
+    long[] snapshot = new long[LatencyHistogram.BUCKETS];
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return new LatencyHistogram(snapshot);
+  }
+}
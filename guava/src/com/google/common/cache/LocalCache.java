@@ -18,6 +18,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.cache.CacheBuilder.NULL_TICKER;
 import static com.google.common.cache.CacheBuilder.UNSET_INT;
+import static com.google.common.util.concurrent.Futures.getDone;
 import static com.google.common.util.concurrent.Futures.transform;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
@@ -35,15 +36,20 @@ import com.google.common.cache.CacheBuilder.NullListener;
 import com.google.common.cache.CacheBuilder.OneWeigher;
 import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
 import com.google.common.cache.CacheLoader.UnsupportedLoadingOperationException;
+import com.google.common.cache.DetailedCacheStats.SegmentStats;
 import com.google.common.cache.LocalCache.AbstractCacheSet;
 import com.google.common.collect.AbstractSequentialIterator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
@@ -65,7 +71,9 @@ import java.util.AbstractQueue;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -75,8 +83,10 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
@@ -143,14 +153,30 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   static final int CONTAINS_VALUE_RETRIES = 3;
 
   /**
-   * Number of cache access operations that can be buffered per segment before the cache's recency
-   * ordering information is updated. This is used to avoid lock contention by recording a memento
-   * of reads and delaying a lock acquisition until the threshold is crossed or a mutation occurs.
+   * Number of cache access operations that a thread can buffer per segment before the cache's
+   * recency ordering information is updated. This is used to avoid lock contention by recording a
+   * memento of reads and delaying a lock acquisition until the threshold is crossed or a mutation
+   * occurs.
    *
    * <p>This must be a (2^n)-1 as it is used as a mask.
    */
   static final int DRAIN_THRESHOLD = 0x3F;
 
+  /**
+   * Number of reads that each stripe of a segment's read buffer can hold; reads beyond this are
+   * dropped until the buffer is drained. This allows a thread's reads to be buffered twice over
+   * before any are lost, in case the segment lock was unavailable when the threshold was crossed.
+   *
+   * <p>This must be a power of two.
+   */
+  static final int READ_BUFFER_STRIPE_CAPACITY = 2 * (DRAIN_THRESHOLD + 1);
+
+  /**
+   * The longest duration that an {@link Expiry} may set, about 146 years. Longer durations are
+   * reduced to this, so that adding one to a ticker reading does not overflow.
+   */
+  static final long MAXIMUM_EXPIRY = Long.MAX_VALUE >> 1;
+
   /**
    * Maximum number of entries to be drained in a single cleanup run. This applies independently to
    * the cleanup queue and both reference queues.
@@ -192,21 +218,51 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   /** Strategy for referencing values. */
   final Strength valueStrength;
 
+  /** Serializes values to store them off-heap, or null if values are stored on-heap. */
+  final @Nullable ValueSerializer<V> valueSerializer;
+
   /** The maximum weight of this map. UNSET_INT if there is no maximum. */
   final long maxWeight;
 
+  /**
+   * The weight below which the map's maximum weight is not adapted, when it adapts to its traffic.
+   * UNSET_INT if the maximum weight is fixed.
+   */
+  final long minWeight;
+
   /** Weigher to weigh cache entries. */
   final Weigher<K, V> weigher;
 
+  /** The algorithm used to select entries for size-based eviction. */
+  final EvictionPolicy evictionPolicy;
+
   /** How long after the last access to an entry the map will retain that entry. */
   final long expireAfterAccessNanos;
 
   /** How long after the last write to an entry the map will retain that entry. */
   final long expireAfterWriteNanos;
 
+  /** Calculates the expiration time of each entry, or null if they expire at fixed durations. */
+  final @Nullable Expiry<K, V> expiry;
+
   /** How long after the last write an entry becomes a candidate for refresh. */
   final long refreshNanos;
 
+  /** The executor on which entries are refreshed ahead of reads, or null if they are not. */
+  final @Nullable Executor refreshExecutor;
+
+  /** The maximum number of entries to refresh ahead in a single call to loadAll. */
+  final int refreshBatchSize;
+
+  /** The maximum number of entries that may be refreshed ahead at the same time. */
+  final int maxRefreshesInFlight;
+
+  /** The number of entries currently being refreshed ahead, or reserved to be. */
+  final AtomicInteger refreshesInFlight = new AtomicInteger();
+
+  /** Entries marked for refresh ahead, waiting to be batched and submitted to the executor. */
+  final Queue<PendingRefresh<K, V>> pendingRefreshQueue;
+
   /** Entries waiting to be consumed by the removal listener. */
   // TODO(fry): define a new type which creates event objects and automates the clear logic
   final Queue<RemovalNotification<K, V>> removalNotificationQueue;
@@ -229,6 +285,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
    */
   final StatsCounter globalStatsCounter;
 
+  /** Records the latency of each load, or null if detailed stats are not recorded. */
+  final @Nullable LatencyRecorder loadLatencyRecorder;
+
   /** The default cache loader to use on loading operations. */
   final @Nullable CacheLoader<? super K, V> defaultLoader;
 
@@ -241,15 +300,26 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     keyStrength = builder.getKeyStrength();
     valueStrength = builder.getValueStrength();
+    valueSerializer = builder.getValueSerializer();
 
     keyEquivalence = builder.getKeyEquivalence();
     valueEquivalence = builder.getValueEquivalence();
 
     maxWeight = builder.getMaximumWeight();
+    minWeight = builder.getMinimumSize();
     weigher = builder.getWeigher();
+    evictionPolicy = builder.getEvictionPolicy();
     expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
     expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
+    expiry = builder.getExpiry();
     refreshNanos = builder.getRefreshNanos();
+    refreshExecutor = builder.getRefreshExecutor();
+    refreshBatchSize = builder.getRefreshBatchSize();
+    maxRefreshesInFlight = builder.getMaxRefreshesInFlight();
+    pendingRefreshQueue =
+        refreshesAhead()
+            ? new ConcurrentLinkedQueue<PendingRefresh<K, V>>()
+            : LocalCache.<PendingRefresh<K, V>>discardingQueue();
 
     removalListener = builder.getRemovalListener();
     removalNotificationQueue =
@@ -257,9 +327,13 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             ? LocalCache.<RemovalNotification<K, V>>discardingQueue()
             : new ConcurrentLinkedQueue<RemovalNotification<K, V>>();
 
+    loadLatencyRecorder = builder.isRecordingDetailedStats() ? new LatencyRecorder() : null;
     ticker = builder.getTicker(recordsTime());
-    entryFactory = EntryFactory.getFactory(keyStrength, usesAccessEntries(), usesWriteEntries());
-    globalStatsCounter = builder.getStatsCounterSupplier().get();
+    entryFactory =
+        expiresVariably()
+            ? EntryFactory.getVariableFactory(keyStrength)
+            : EntryFactory.getFactory(keyStrength, usesAccessEntries(), usesWriteEntries());
+    globalStatsCounter = newStatsCounter(builder);
     defaultLoader = loader;
 
     int initialCapacity = Math.min(builder.getInitialCapacity(), MAXIMUM_CAPACITY);
@@ -302,12 +376,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           maxSegmentWeight--;
         }
         this.segments[i] =
-            createSegment(segmentSize, maxSegmentWeight, builder.getStatsCounterSupplier().get());
+            createSegment(segmentSize, maxSegmentWeight, newStatsCounter(builder));
       }
     } else {
       for (int i = 0; i < this.segments.length; ++i) {
         this.segments[i] =
-            createSegment(segmentSize, UNSET_INT, builder.getStatsCounterSupplier().get());
+            createSegment(segmentSize, UNSET_INT, newStatsCounter(builder));
       }
     }
   }
@@ -316,12 +390,20 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     return maxWeight >= 0;
   }
 
+  boolean adaptsSize() {
+    return minWeight != UNSET_INT;
+  }
+
   boolean customWeigher() {
     return weigher != OneWeigher.INSTANCE;
   }
 
+  boolean evictsByFrequency() {
+    return evictsBySize() && evictionPolicy == EvictionPolicy.WINDOW_TINY_LFU;
+  }
+
   boolean expires() {
-    return expiresAfterWrite() || expiresAfterAccess();
+    return expiresAfterWrite() || expiresAfterAccess() || expiresVariably();
   }
 
   boolean expiresAfterWrite() {
@@ -332,16 +414,24 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     return expireAfterAccessNanos > 0;
   }
 
+  boolean expiresVariably() {
+    return expiry != null;
+  }
+
   boolean refreshes() {
     return refreshNanos > 0;
   }
 
+  boolean refreshesAhead() {
+    return refreshes() && refreshExecutor != null;
+  }
+
   boolean usesAccessQueue() {
     return expiresAfterAccess() || evictsBySize();
   }
 
   boolean usesWriteQueue() {
-    return expiresAfterWrite();
+    return expiresAfterWrite() || refreshesAhead();
   }
 
   boolean recordsWrite() {
@@ -353,7 +443,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   }
 
   boolean recordsTime() {
-    return recordsWrite() || recordsAccess();
+    return recordsWrite() || recordsAccess() || expiresVariably() || recordsDetailedStats();
+  }
+
+  boolean recordsDetailedStats() {
+    return loadLatencyRecorder != null;
+  }
+
+  private StatsCounter newStatsCounter(CacheBuilder<? super K, ? super V> builder) {
+    StatsCounter statsCounter = builder.getStatsCounterSupplier().get();
+    return recordsDetailedStats()
+        ? new LatencyRecordingStatsCounter(statsCounter, loadLatencyRecorder)
+        : statsCounter;
   }
 
   boolean usesWriteEntries() {
@@ -372,6 +473,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     return valueStrength != Strength.STRONG;
   }
 
+  boolean storesValuesOffHeap() {
+    return valueSerializer != null;
+  }
+
   enum Strength {
     /*
      * TODO(kevinb): If we strongly reference the value and aren't loading, we needn't wrap the
@@ -542,6 +647,40 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         copyWriteEntry(original, newEntry);
         return newEntry;
       }
+    },
+    STRONG_VARIABLE {
+      @Override
+      <K, V> ReferenceEntry<K, V> newEntry(
+          Segment<K, V> segment, K key, int hash, @Nullable ReferenceEntry<K, V> next) {
+        return new StrongVariableEntry<>(key, hash, next);
+      }
+
+      @Override
+      <K, V> ReferenceEntry<K, V> copyEntry(
+          Segment<K, V> segment, ReferenceEntry<K, V> original, ReferenceEntry<K, V> newNext) {
+        ReferenceEntry<K, V> newEntry = super.copyEntry(segment, original, newNext);
+        copyAccessEntry(original, newEntry);
+        copyWriteEntry(original, newEntry);
+        copyVariableEntry(original, newEntry);
+        return newEntry;
+      }
+    },
+    WEAK_VARIABLE {
+      @Override
+      <K, V> ReferenceEntry<K, V> newEntry(
+          Segment<K, V> segment, K key, int hash, @Nullable ReferenceEntry<K, V> next) {
+        return new WeakVariableEntry<>(segment.keyReferenceQueue, key, hash, next);
+      }
+
+      @Override
+      <K, V> ReferenceEntry<K, V> copyEntry(
+          Segment<K, V> segment, ReferenceEntry<K, V> original, ReferenceEntry<K, V> newNext) {
+        ReferenceEntry<K, V> newEntry = super.copyEntry(segment, original, newNext);
+        copyAccessEntry(original, newEntry);
+        copyWriteEntry(original, newEntry);
+        copyVariableEntry(original, newEntry);
+        return newEntry;
+      }
     };
 
     // Masks used to compute indices in the following table.
@@ -571,6 +710,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       return factories[flags];
     }
 
+    /**
+     * Returns the factory for entries that expire at variable times, which are also access and
+     * write entries.
+     */
+    static EntryFactory getVariableFactory(Strength keyStrength) {
+      return (keyStrength == Strength.WEAK) ? WEAK_VARIABLE : STRONG_VARIABLE;
+    }
+
     /**
      * Creates a new entry.
      *
@@ -599,6 +746,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       // TODO(fry): when we link values instead of entries this method can go
       // away, as can connectAccessOrder, nullifyAccessOrder.
       newEntry.setAccessTime(original.getAccessTime());
+      newEntry.setInAdmissionWindow(original.isInAdmissionWindow());
 
       connectAccessOrder(original.getPreviousInAccessQueue(), newEntry);
       connectAccessOrder(newEntry, original.getNextInAccessQueue());
@@ -617,6 +765,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
       nullifyWriteOrder(original);
     }
+
+    // Guarded By Segment.this
+    <K, V> void copyVariableEntry(ReferenceEntry<K, V> original, ReferenceEntry<K, V> newEntry) {
+      newEntry.setExpirationTime(original.getExpirationTime());
+
+      TimerWheel.connectTimerOrder(original.getPreviousInTimerWheel(), newEntry);
+      TimerWheel.connectTimerOrder(newEntry, original.getNextInTimerWheel());
+
+      TimerWheel.nullifyTimerOrder(original);
+    }
   }
 
   /** A reference to a value. */
@@ -776,6 +934,14 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     @Override
     public void setPreviousInAccessQueue(ReferenceEntry<Object, Object> previous) {}
 
+    @Override
+    public boolean isInAdmissionWindow() {
+      return false;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {}
+
     @Override
     public long getWriteTime() {
       return 0;
@@ -799,6 +965,35 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     @Override
     public void setPreviousInWriteQueue(ReferenceEntry<Object, Object> previous) {}
+
+    @Override
+    public long getExpirationTime() {
+      return 0;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {}
+
+    @Override
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      return false;
+    }
+
+    @Override
+    public ReferenceEntry<Object, Object> getNextInTimerWheel() {
+      return this;
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<Object, Object> next) {}
+
+    @Override
+    public ReferenceEntry<Object, Object> getPreviousInTimerWheel() {
+      return this;
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<Object, Object> previous) {}
   }
 
   abstract static class AbstractReferenceEntry<K, V> implements ReferenceEntry<K, V> {
@@ -857,6 +1052,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isInAdmissionWindow() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public long getWriteTime() {
       throw new UnsupportedOperationException();
@@ -886,6 +1091,41 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInWriteQueue(ReferenceEntry<K, V> previous) {
       throw new UnsupportedOperationException();
     }
+
+    @Override
+    public long getExpirationTime() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      throw new UnsupportedOperationException();
+    }
   }
 
   @SuppressWarnings("unchecked") // impl never uses a parameter or returns any non-null value
@@ -1021,6 +1261,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
       this.previousAccess = previous;
     }
+
+    // Guarded By Segment.this
+    boolean inAdmissionWindow;
+
+    @Override
+    public boolean isInAdmissionWindow() {
+      return inAdmissionWindow;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      this.inAdmissionWindow = inAdmissionWindow;
+    }
   }
 
   static final class StrongWriteEntry<K, V> extends StrongEntry<K, V> {
@@ -1069,7 +1322,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
-  static final class StrongAccessWriteEntry<K, V> extends StrongEntry<K, V> {
+  static class StrongAccessWriteEntry<K, V> extends StrongEntry<K, V> {
     StrongAccessWriteEntry(K key, int hash, @Nullable ReferenceEntry<K, V> next) {
       super(key, hash, next);
     }
@@ -1114,6 +1367,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this.previousAccess = previous;
     }
 
+    // Guarded By Segment.this
+    boolean inAdmissionWindow;
+
+    @Override
+    public boolean isInAdmissionWindow() {
+      return inAdmissionWindow;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      this.inAdmissionWindow = inAdmissionWindow;
+    }
+
     // The code below is exactly the same for each write entry type.
 
     volatile long writeTime = Long.MAX_VALUE;
@@ -1155,6 +1421,62 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /** Used for strongly-referenced keys which expire at variable times. */
+  static final class StrongVariableEntry<K, V> extends StrongAccessWriteEntry<K, V> {
+    @SuppressWarnings("rawtypes") // class literals are raw
+    static final AtomicLongFieldUpdater<StrongVariableEntry> EXPIRATION_TIME_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(StrongVariableEntry.class, "expirationTime");
+
+    StrongVariableEntry(K key, int hash, @Nullable ReferenceEntry<K, V> next) {
+      super(key, hash, next);
+    }
+
+    // The code below is exactly the same for each variable entry type.
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
+    @Override
+    public long getExpirationTime() {
+      return expirationTime;
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
+    }
+
+    @Override
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      return EXPIRATION_TIME_UPDATER.compareAndSet(this, expectedTime, time);
+    }
+
+    // Guarded By Segment.this
+    ReferenceEntry<K, V> nextInTimerWheel = nullEntry();
+
+    @Override
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      return nextInTimerWheel;
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      this.nextInTimerWheel = next;
+    }
+
+    // Guarded By Segment.this
+    ReferenceEntry<K, V> previousInTimerWheel = nullEntry();
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      return previousInTimerWheel;
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      this.previousInTimerWheel = previous;
+    }
+  }
+
   /** Used for weakly-referenced keys. */
   static class WeakEntry<K, V> extends WeakReference<K> implements ReferenceEntry<K, V> {
     WeakEntry(ReferenceQueue<K> queue, K key, int hash, @Nullable ReferenceEntry<K, V> next) {
@@ -1205,6 +1527,16 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isInAdmissionWindow() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      throw new UnsupportedOperationException();
+    }
+
     // null write
 
     @Override
@@ -1237,6 +1569,43 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       throw new UnsupportedOperationException();
     }
 
+    // null timer wheel
+
+    @Override
+    public long getExpirationTime() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setExpirationTime(long time) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      throw new UnsupportedOperationException();
+    }
+
     // The code below is exactly the same for each entry type.
 
     final int hash;
@@ -1308,6 +1677,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     public void setPreviousInAccessQueue(ReferenceEntry<K, V> previous) {
       this.previousAccess = previous;
     }
+
+    // Guarded By Segment.this
+    boolean inAdmissionWindow;
+
+    @Override
+    public boolean isInAdmissionWindow() {
+      return inAdmissionWindow;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      this.inAdmissionWindow = inAdmissionWindow;
+    }
   }
 
   static final class WeakWriteEntry<K, V> extends WeakEntry<K, V> {
@@ -1356,7 +1738,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
-  static final class WeakAccessWriteEntry<K, V> extends WeakEntry<K, V> {
+  static class WeakAccessWriteEntry<K, V> extends WeakEntry<K, V> {
     WeakAccessWriteEntry(
         ReferenceQueue<K> queue, K key, int hash, @Nullable ReferenceEntry<K, V> next) {
       super(queue, key, hash, next);
@@ -1402,6 +1784,19 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this.previousAccess = previous;
     }
 
+    // Guarded By Segment.this
+    boolean inAdmissionWindow;
+
+    @Override
+    public boolean isInAdmissionWindow() {
+      return inAdmissionWindow;
+    }
+
+    @Override
+    public void setInAdmissionWindow(boolean inAdmissionWindow) {
+      this.inAdmissionWindow = inAdmissionWindow;
+    }
+
     // The code below is exactly the same for each write entry type.
 
     volatile long writeTime = Long.MAX_VALUE;
@@ -1443,32 +1838,89 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
-  /** References a weak value. */
-  static class WeakValueReference<K, V> extends WeakReference<V> implements ValueReference<K, V> {
-    final ReferenceEntry<K, V> entry;
+  /** Used for weakly-referenced keys which expire at variable times. */
+  static final class WeakVariableEntry<K, V> extends WeakAccessWriteEntry<K, V> {
+    @SuppressWarnings("rawtypes") // class literals are raw
+    static final AtomicLongFieldUpdater<WeakVariableEntry> EXPIRATION_TIME_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(WeakVariableEntry.class, "expirationTime");
 
-    WeakValueReference(ReferenceQueue<V> queue, V referent, ReferenceEntry<K, V> entry) {
-      super(referent, queue);
-      this.entry = entry;
+    WeakVariableEntry(
+        ReferenceQueue<K> queue, K key, int hash, @Nullable ReferenceEntry<K, V> next) {
+      super(queue, key, hash, next);
     }
 
+    // The code below is exactly the same for each variable entry type.
+
+    volatile long expirationTime = Long.MAX_VALUE;
+
     @Override
-    public int getWeight() {
-      return 1;
+    public long getExpirationTime() {
+      return expirationTime;
     }
 
     @Override
-    public ReferenceEntry<K, V> getEntry() {
-      return entry;
+    public void setExpirationTime(long time) {
+      this.expirationTime = time;
     }
 
     @Override
-    public void notifyNewValue(V newValue) {}
+    public boolean compareAndSetExpirationTime(long expectedTime, long time) {
+      return EXPIRATION_TIME_UPDATER.compareAndSet(this, expectedTime, time);
+    }
+
+    // Guarded By Segment.this
+    ReferenceEntry<K, V> nextInTimerWheel = nullEntry();
 
     @Override
-    public ValueReference<K, V> copyFor(
-        ReferenceQueue<V> queue, V value, ReferenceEntry<K, V> entry) {
-      return new WeakValueReference<>(queue, value, entry);
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      return nextInTimerWheel;
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      this.nextInTimerWheel = next;
+    }
+
+    // Guarded By Segment.this
+    ReferenceEntry<K, V> previousInTimerWheel = nullEntry();
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      return previousInTimerWheel;
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      this.previousInTimerWheel = previous;
+    }
+  }
+
+  /** References a weak value. */
+  static class WeakValueReference<K, V> extends WeakReference<V> implements ValueReference<K, V> {
+    final ReferenceEntry<K, V> entry;
+
+    WeakValueReference(ReferenceQueue<V> queue, V referent, ReferenceEntry<K, V> entry) {
+      super(referent, queue);
+      this.entry = entry;
+    }
+
+    @Override
+    public int getWeight() {
+      return 1;
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getEntry() {
+      return entry;
+    }
+
+    @Override
+    public void notifyNewValue(V newValue) {}
+
+    @Override
+    public ValueReference<K, V> copyFor(
+        ReferenceQueue<V> queue, V value, ReferenceEntry<K, V> entry) {
+      return new WeakValueReference<>(queue, value, entry);
     }
 
     @Override
@@ -1689,7 +2141,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
   @VisibleForTesting
   ValueReference<K, V> newValueReference(ReferenceEntry<K, V> entry, V value, int weight) {
     int hash = entry.getHash();
-    return valueStrength.referenceValue(segmentFor(hash), entry, checkNotNull(value), weight);
+    Segment<K, V> segment = segmentFor(hash);
+    return storesValuesOffHeap()
+        ? segment.offHeapStore.referenceValue(checkNotNull(value), weight)
+        : valueStrength.referenceValue(segment, entry, checkNotNull(value), weight);
   }
 
   int hash(@Nullable Object key) {
@@ -1766,9 +2221,38 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     if (expiresAfterWrite() && (now - entry.getWriteTime() >= expireAfterWriteNanos)) {
       return true;
     }
+    if (expiresVariably() && (now - entry.getExpirationTime() >= 0)) {
+      return true;
+    }
     return false;
   }
 
+  /**
+   * Returns the time at which an entry expires when it is written with {@code value}, as given by
+   * the {@link Expiry}. {@code update} is true if the entry already had a live value.
+   */
+  long expirationTimeAfterWrite(
+      ReferenceEntry<K, V> entry, K key, V value, boolean update, long now) {
+    long duration =
+        update
+            ? expiry.expireAfterUpdate(key, value, now, entry.getExpirationTime() - now)
+            : expiry.expireAfterCreate(key, value, now);
+    return expirationTime(duration, now);
+  }
+
+  /**
+   * Returns the time at which an entry which would have expired at {@code expirationTime} expires
+   * once it is read, as given by the {@link Expiry}.
+   */
+  long expirationTimeAfterRead(K key, V value, long expirationTime, long now) {
+    long currentDuration = expirationTime - now;
+    return expirationTime(expiry.expireAfterRead(key, value, now, currentDuration), now);
+  }
+
+  static long expirationTime(long duration, long now) {
+    return now + Longs.constrainToRange(duration, 0, MAXIMUM_EXPIRY);
+  }
+
   // queues
 
   // Guarded By Segment.this
@@ -1813,6 +2297,186 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /**
+   * Reserves up to {@code count} of the refreshes that may be in flight, returning the number
+   * reserved. Unused reservations must be returned with {@link #refreshesCompleted}.
+   */
+  int reserveRefreshes(int count) {
+    while (true) {
+      int inFlight = refreshesInFlight.get();
+      int reserved = Math.min(count, maxRefreshesInFlight - inFlight);
+      if (reserved <= 0) {
+        return 0;
+      }
+      if (refreshesInFlight.compareAndSet(inFlight, inFlight + reserved)) {
+        return reserved;
+      }
+    }
+  }
+
+  void refreshesCompleted(int count) {
+    if (count != 0) {
+      refreshesInFlight.addAndGet(-count);
+    }
+  }
+
+  /**
+   * Submits the entries marked for refresh ahead to the refresh executor, in batches of up to
+   * {@code refreshBatchSize}. This should be called every time entries may have been marked (once
+   * the lock is released).
+   */
+  void processPendingRefreshes() {
+    List<PendingRefresh<K, V>> batch = null;
+    PendingRefresh<K, V> refresh;
+    while ((refresh = pendingRefreshQueue.poll()) != null) {
+      if (batch == null) {
+        batch = new ArrayList<>(refreshBatchSize);
+      }
+      batch.add(refresh);
+      if (batch.size() == refreshBatchSize) {
+        submitRefreshes(batch);
+        batch = null;
+      }
+    }
+    if (batch != null) {
+      submitRefreshes(batch);
+    }
+  }
+
+  private void submitRefreshes(List<PendingRefresh<K, V>> batch) {
+    RefreshBatch refreshBatch = new RefreshBatch(batch);
+    try {
+      refreshExecutor.execute(refreshBatch);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown while scheduling refresh", t);
+      refreshBatch.fail(t);
+    }
+  }
+
+  /** An entry that has been marked as loading, and is waiting to be refreshed ahead. */
+  static final class PendingRefresh<K, V> {
+    final K key;
+    final int hash;
+    final LoadingValueReference<K, V> loadingValueReference;
+
+    PendingRefresh(K key, int hash, LoadingValueReference<K, V> loadingValueReference) {
+      this.key = key;
+      this.hash = hash;
+      this.loadingValueReference = loadingValueReference;
+    }
+  }
+
+  /**
+   * Refreshes a batch of entries with a single call to {@link CacheLoader#loadAll}, falling back to
+   * {@link CacheLoader#reload} for each entry if the loader does not implement bulk loading.
+   */
+  final class RefreshBatch implements Runnable {
+    final List<PendingRefresh<K, V>> refreshes;
+
+    RefreshBatch(List<PendingRefresh<K, V>> refreshes) {
+      this.refreshes = refreshes;
+    }
+
+    @Override
+    public void run() {
+      List<K> keys = new ArrayList<>(refreshes.size());
+      for (PendingRefresh<K, V> refresh : refreshes) {
+        keys.add(refresh.key);
+      }
+
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      Map<?, V> result;
+      try {
+        result = defaultLoader.loadAll(keys);
+        if (result == null) {
+          throw new InvalidCacheLoadException(defaultLoader + " returned null map from loadAll");
+        }
+      } catch (UnsupportedLoadingOperationException e) {
+        reloadEach();
+        return;
+      } catch (Throwable t) {
+        if (t instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        logger.log(Level.WARNING, "Exception thrown during refresh", t);
+        globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+        fail(t);
+        return;
+      }
+      stopwatch.stop();
+
+      boolean missing = false;
+      try {
+        for (PendingRefresh<K, V> refresh : refreshes) {
+          Segment<K, V> segment = segmentFor(refresh.hash);
+          V value = result.get(refresh.key);
+          if (value == null) {
+            // keep the old value, to be refreshed again later
+            missing = true;
+            String message = "loadAll failed to return a value for " + refresh.key;
+            refresh.loadingValueReference.setException(new InvalidCacheLoadException(message));
+            segment.removeLoadingValue(refresh.key, refresh.hash, refresh.loadingValueReference);
+            segment.refreshAheadFailed(refresh.key, refresh.hash);
+          } else {
+            refresh.loadingValueReference.set(value);
+            segment.storeLoadedValue(
+                refresh.key, refresh.hash, refresh.loadingValueReference, value);
+          }
+        }
+      } finally {
+        refreshesCompleted(refreshes.size());
+      }
+
+      if (missing) {
+        globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+        logger.log(
+            Level.WARNING,
+            "Exception thrown during refresh",
+            new InvalidCacheLoadException(defaultLoader + " returned null values from loadAll"));
+      } else {
+        globalStatsCounter.recordLoadSuccess(stopwatch.elapsed(NANOSECONDS));
+      }
+    }
+
+    /** Refreshes each entry with its own call to {@link CacheLoader#reload}. */
+    private void reloadEach() {
+      for (final PendingRefresh<K, V> refresh : refreshes) {
+        final Segment<K, V> segment = segmentFor(refresh.hash);
+        final ListenableFuture<V> result =
+            segment.loadAsync(
+                refresh.key, refresh.hash, refresh.loadingValueReference, defaultLoader);
+        result.addListener(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  getDone(result);
+                } catch (Throwable t) {
+                  segment.refreshAheadFailed(refresh.key, refresh.hash);
+                } finally {
+                  refreshesCompleted(1);
+                }
+              }
+            },
+            directExecutor());
+      }
+    }
+
+    /** Restores the old values of every entry in the batch, which could not be refreshed. */
+    void fail(Throwable t) {
+      try {
+        for (PendingRefresh<K, V> refresh : refreshes) {
+          refresh.loadingValueReference.setException(t);
+          Segment<K, V> segment = segmentFor(refresh.hash);
+          segment.removeLoadingValue(refresh.key, refresh.hash, refresh.loadingValueReference);
+          segment.refreshAheadFailed(refresh.key, refresh.hash);
+        }
+      } finally {
+        refreshesCompleted(refreshes.size());
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   final Segment<K, V>[] newSegmentArray(int ssize) {
     return new Segment[ssize];
@@ -1902,11 +2566,11 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     final @Nullable ReferenceQueue<V> valueReferenceQueue;
 
     /**
-     * The recency queue is used to record which entries were accessed for updating the access
-     * list's ordering. It is drained as a batch operation when either the DRAIN_THRESHOLD is
-     * crossed or a write occurs on the segment.
+     * The read buffer is used to record which entries were accessed for updating the access list's
+     * ordering, without allocating or taking the lock. It is lossy, and is drained as a batch
+     * operation when either the DRAIN_THRESHOLD is crossed or a write occurs on the segment.
      */
-    final Queue<ReferenceEntry<K, V>> recencyQueue;
+    final ReadBuffer<ReferenceEntry<K, V>> readBuffer;
 
     /**
      * A counter of the number of reads since the last write, used to drain queues on a small
@@ -1923,14 +2587,71 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /**
      * A queue of elements currently in the map, ordered by access time. Elements are added to the
-     * tail of the queue on access (note that writes count as accesses).
+     * tail of the queue on access (note that writes count as accesses). When the cache evicts by
+     * frequency this is a {@link TinyLfuAccessQueue}, whose iteration order is the eviction order.
      */
     @GuardedBy("this")
     final Queue<ReferenceEntry<K, V>> accessQueue;
 
+    /**
+     * The elements currently in the map, bucketed by expiration time, when each entry has its own
+     * expiration time; otherwise null.
+     */
+    @GuardedBy("this")
+    final @Nullable TimerWheel<K, V> timerWheel;
+
+    /** Adapts this segment's maximum weight to its traffic, when the cache does; otherwise null. */
+    @GuardedBy("this")
+    final @Nullable SizeTuner sizeTuner;
+
+    /**
+     * The earliest time at which a stale read should look for entries to refresh ahead, as found by
+     * the last search. Reads check it without locking, so that reads of stale entries which cannot
+     * be refreshed yet don't contend for the lock.
+     */
+    volatile long nextRefreshAheadNanos;
+
+    /**
+     * The times after which entries whose refresh ahead failed may be refreshed again, or null if
+     * no refresh has failed. Entries are removed once their time has passed.
+     */
+    @GuardedBy("this")
+    @Nullable Map<ReferenceEntry<K, V>, Long> refreshAheadBackoffs;
+
+    /** Holds the serialized values when they are stored off-heap; otherwise null. */
+    @GuardedBy("this")
+    final @Nullable OffHeapValueStore<K, V> offHeapStore;
+
     /** Accumulates cache statistics. */
     final StatsCounter statsCounter;
 
+    /**
+     * The number of entries removed from this segment, indexed by {@link RemovalCause#ordinal},
+     * when detailed stats are recorded; otherwise null.
+     */
+    @GuardedBy("this")
+    final long @Nullable [] removalCounts;
+
+    /** The number of times this segment's lock has been acquired, when recording detailed stats. */
+    @GuardedBy("this")
+    long lockCount;
+
+    /** The number of times a thread had to wait for this segment's lock. */
+    @GuardedBy("this")
+    long contendedLockCount;
+
+    /** The total number of nanoseconds that threads have waited for this segment's lock. */
+    @GuardedBy("this")
+    long totalLockWaitTime;
+
+    /** The total number of nanoseconds for which this segment's lock has been held. */
+    @GuardedBy("this")
+    long totalLockHoldTime;
+
+    /** The time at which this segment's lock was last acquired. */
+    @GuardedBy("this")
+    long lockedAt;
+
     Segment(
         LocalCache<K, V> map,
         int initialCapacity,
@@ -1945,20 +2666,115 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
       valueReferenceQueue = map.usesValueReferences() ? new ReferenceQueue<V>() : null;
 
-      recencyQueue =
-          map.usesAccessQueue()
-              ? new ConcurrentLinkedQueue<ReferenceEntry<K, V>>()
-              : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      readBuffer =
+          new ReadBuffer<>(
+              (map.usesAccessQueue() || map.expiresVariably()) ? READ_BUFFER_STRIPE_CAPACITY : 0);
 
       writeQueue =
           map.usesWriteQueue()
               ? new WriteQueue<K, V>()
               : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
 
-      accessQueue =
-          map.usesAccessQueue()
-              ? new AccessQueue<K, V>()
-              : LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      if (!map.usesAccessQueue()) {
+        accessQueue = LocalCache.<ReferenceEntry<K, V>>discardingQueue();
+      } else if (map.evictsByFrequency()) {
+        // size the frequency sketch by entry count; weights may be in arbitrary units
+        long expectedEntries = map.customWeigher() ? initialCapacity : maxSegmentWeight;
+        accessQueue = new TinyLfuAccessQueue<K, V>(expectedEntries);
+      } else {
+        accessQueue = new AccessQueue<K, V>();
+      }
+
+      timerWheel = map.expiresVariably() ? new TimerWheel<K, V>(map.ticker.read()) : null;
+
+      nextRefreshAheadNanos = map.refreshesAhead() ? map.ticker.read() : 0;
+
+      offHeapStore =
+          map.storesValuesOffHeap() ? new OffHeapValueStore<K, V>(map.valueSerializer) : null;
+
+      // scale the cache's minimum to this segment's share of its maximum
+      sizeTuner =
+          map.adaptsSize()
+              ? new SizeTuner(
+                  (map.maxWeight == 0)
+                      ? 0
+                      : (long) ((double) map.minWeight / map.maxWeight * maxSegmentWeight),
+                  maxSegmentWeight)
+              : null;
+
+      removalCounts = map.recordsDetailedStats() ? new long[RemovalCause.values().length] : null;
+    }
+
+    // lock statistics
+
+    /*
+     * When detailed stats are recorded, the segment's lock counts its outermost acquisitions, and
+     * times how long each was waited for and held. An uncontended acquisition costs one extra
+     * tryLock and two ticker reads; the counters are guarded by the lock itself. Snapshots of the
+     * counters take the lock through super.lock(), so that they are not counted.
+     */
+
+    @Override
+    public void lock() {
+      if (!map.recordsDetailedStats()) {
+        super.lock();
+        return;
+      }
+      if (!super.tryLock()) {
+        long waitStart = map.ticker.read();
+        super.lock();
+        contendedLockCount++;
+        totalLockWaitTime += map.ticker.read() - waitStart;
+      }
+      recordLockAcquired();
+    }
+
+    @Override
+    public boolean tryLock() {
+      if (!super.tryLock()) {
+        return false;
+      }
+      if (map.recordsDetailedStats()) {
+        recordLockAcquired();
+      }
+      return true;
+    }
+
+    @Override
+    public void unlock() {
+      if (map.recordsDetailedStats() && getHoldCount() == 1) {
+        totalLockHoldTime += map.ticker.read() - lockedAt;
+      }
+      super.unlock();
+    }
+
+    @GuardedBy("this")
+    private void recordLockAcquired() {
+      if (getHoldCount() == 1) {
+        lockCount++;
+        lockedAt = map.ticker.read();
+      }
+    }
+
+    /** Returns the statistics of this segment's lock. */
+    SegmentStats segmentStats() {
+      super.lock();
+      try {
+        return new SegmentStats(
+            lockCount, contendedLockCount, totalLockWaitTime, totalLockHoldTime);
+      } finally {
+        super.unlock();
+      }
+    }
+
+    /** Returns a copy of the number of entries removed from this segment, by cause. */
+    long[] removalCounts() {
+      super.lock();
+      try {
+        return removalCounts.clone();
+      } finally {
+        super.unlock();
+      }
     }
 
     AtomicReferenceArray<ReferenceEntry<K, V>> newEntryArray(int size) {
@@ -1976,6 +2792,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     @GuardedBy("this")
     ReferenceEntry<K, V> newEntry(K key, int hash, @Nullable ReferenceEntry<K, V> next) {
+      if (sizeTuner != null) {
+        sizeTuner.recordInsertion(hash);
+      }
       return map.entryFactory.newEntry(this, checkNotNull(key), hash, next);
     }
 
@@ -1999,6 +2818,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
       ReferenceEntry<K, V> newEntry = map.entryFactory.copyEntry(this, original, newNext);
       newEntry.setValueReference(valueReference.copyFor(this.valueReferenceQueue, value, newEntry));
+      if (refreshAheadBackoffs != null) {
+        Long retryTime = refreshAheadBackoffs.remove(original);
+        if (retryTime != null) {
+          refreshAheadBackoffs.put(newEntry, retryTime);
+        }
+      }
       return newEntry;
     }
 
@@ -2008,12 +2833,25 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       ValueReference<K, V> previous = entry.getValueReference();
       int weight = map.weigher.weigh(key, value);
       checkState(weight >= 0, "Weights must be non-negative");
+      long expirationTime = 0;
+      if (map.expiresVariably()) {
+        // a loading reference holds the value being refreshed, if any
+        boolean update = previous.get() != null && !map.isExpired(entry, now);
+        expirationTime = map.expirationTimeAfterWrite(entry, key, value, update, now);
+      }
 
       ValueReference<K, V> valueReference =
-          map.valueStrength.referenceValue(this, entry, value, weight);
+          map.storesValuesOffHeap()
+              ? offHeapStore.referenceValue(value, weight)
+              : map.valueStrength.referenceValue(this, entry, value, weight);
       entry.setValueReference(valueReference);
+      if (map.expiresVariably()) {
+        // set after the value, so that an unlocked read which sees this time sees the value too
+        entry.setExpirationTime(expirationTime);
+      }
       recordWrite(entry, weight, now);
       previous.notifyNewValue(value);
+      releaseValue(previous);
     }
 
     // loading
@@ -2029,7 +2867,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             long now = map.ticker.read();
             V value = getLiveValue(e, now);
             if (value != null) {
-              recordRead(e, now);
+              recordRead(e, value, now);
               statsCounter.recordHits(1);
               return scheduleRefresh(e, key, hash, value, now, loader);
             }
@@ -2062,16 +2900,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           long now = map.ticker.read();
           ReferenceEntry<K, V> e = getLiveEntry(key, hash, now);
           if (e == null) {
+            recordMiss(hash);
             return null;
           }
 
           V value = e.getValueReference().get();
           if (value != null) {
-            recordRead(e, now);
+            recordRead(e, value, now);
             return scheduleRefresh(e, e.getKey(), hash, value, now, map.defaultLoader);
           }
           tryDrainReferenceQueues();
         }
+        recordMiss(hash);
         return null;
       } finally {
         postReadCleanup();
@@ -2114,7 +2954,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 enqueueNotification(
                     entryKey, hash, value, valueReference.getWeight(), RemovalCause.EXPIRED);
               } else {
-                recordLockedRead(e, now);
+                recordLockedRead(e, value, now);
                 statsCounter.recordHits(1);
                 // we were concurrent with loading; don't consider refresh
                 return value;
@@ -2123,6 +2963,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
               // immediately reuse invalid entries
               writeQueue.remove(e);
               accessQueue.remove(e);
+              if (map.expiresVariably()) {
+                timerWheel.remove(e);
+              }
+              releaseValue(valueReference);
               this.count = newCount; // write-volatile
             }
             break;
@@ -2177,13 +3021,193 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         }
         // re-read ticker now that loading has completed
         long now = map.ticker.read();
-        recordRead(e, now);
+        recordRead(e, value, now);
         return value;
       } finally {
         statsCounter.recordMisses(1);
       }
     }
 
+    ListenableFuture<V> getFuture(K key, int hash, AsyncCacheLoader<? super K, V> loader) {
+      checkNotNull(key);
+      checkNotNull(loader);
+      try {
+        if (count != 0) { // read-volatile
+          // don't call getLiveEntry, which would ignore loading values
+          ReferenceEntry<K, V> e = getEntry(key, hash);
+          if (e != null) {
+            long now = map.ticker.read();
+            V value = getLiveValue(e, now);
+            if (value != null) {
+              recordRead(e, value, now);
+              statsCounter.recordHits(1);
+              return Futures.immediateFuture(
+                  scheduleRefresh(e, key, hash, value, now, map.defaultLoader));
+            }
+            ValueReference<K, V> valueReference = e.getValueReference();
+            if (valueReference.isLoading()) {
+              return loadingValueFuture(e, key, valueReference);
+            }
+          }
+        }
+
+        // at this point e is either null or expired;
+        return lockedGetOrLoadFuture(key, hash, loader);
+      } finally {
+        postReadCleanup();
+      }
+    }
+
+    /**
+     * Like {@link #lockedGetOrLoad}, but starts loading with {@code loader} rather than waiting
+     * for the value to be loaded.
+     */
+    ListenableFuture<V> lockedGetOrLoadFuture(
+        K key, int hash, AsyncCacheLoader<? super K, V> loader) {
+      ReferenceEntry<K, V> e;
+      ValueReference<K, V> valueReference = null;
+      LoadingValueReference<K, V> loadingValueReference = null;
+      boolean createNewEntry = true;
+
+      lock();
+      try {
+        // re-read ticker once inside the lock
+        long now = map.ticker.read();
+        preWriteCleanup(now);
+
+        int newCount = this.count - 1;
+        AtomicReferenceArray<ReferenceEntry<K, V>> table = this.table;
+        int index = hash & (table.length() - 1);
+        ReferenceEntry<K, V> first = table.get(index);
+
+        for (e = first; e != null; e = e.getNext()) {
+          K entryKey = e.getKey();
+          if (e.getHash() == hash
+              && entryKey != null
+              && map.keyEquivalence.equivalent(key, entryKey)) {
+            valueReference = e.getValueReference();
+            if (valueReference.isLoading()) {
+              createNewEntry = false;
+            } else {
+              V value = valueReference.get();
+              if (value == null) {
+                enqueueNotification(
+                    entryKey, hash, value, valueReference.getWeight(), RemovalCause.COLLECTED);
+              } else if (map.isExpired(e, now)) {
+                // This is a duplicate check, as preWriteCleanup already purged expired
+                // entries, but let's accomodate an incorrect expiration queue.
+                enqueueNotification(
+                    entryKey, hash, value, valueReference.getWeight(), RemovalCause.EXPIRED);
+              } else {
+                recordLockedRead(e, value, now);
+                statsCounter.recordHits(1);
+                // we were concurrent with loading; don't consider refresh
+                return Futures.immediateFuture(value);
+              }
+
+              // immediately reuse invalid entries
+              writeQueue.remove(e);
+              accessQueue.remove(e);
+              if (map.expiresVariably()) {
+                timerWheel.remove(e);
+              }
+              releaseValue(valueReference);
+              this.count = newCount; // write-volatile
+            }
+            break;
+          }
+        }
+
+        if (createNewEntry) {
+          loadingValueReference = new LoadingValueReference<>();
+
+          if (e == null) {
+            e = newEntry(key, hash, first);
+            e.setValueReference(loadingValueReference);
+            table.set(index, e);
+          } else {
+            e.setValueReference(loadingValueReference);
+          }
+        }
+      } finally {
+        unlock();
+        postWriteCleanup();
+      }
+
+      if (createNewEntry) {
+        statsCounter.recordMisses(1);
+        ListenableFuture<V> loadingFuture = loadAsync(key, hash, loadingValueReference, loader);
+        return nonNullValueFuture(key, loadingFuture, null);
+      } else {
+        // The entry already exists. Share its load.
+        return loadingValueFuture(e, key, valueReference);
+      }
+    }
+
+    /**
+     * Starts loading the value for {@code key} with {@code loader}, and stores it once loaded. Load
+     * failures are reported through the returned future.
+     */
+    ListenableFuture<V> loadAsync(
+        final K key,
+        final int hash,
+        final LoadingValueReference<K, V> loadingValueReference,
+        AsyncCacheLoader<? super K, V> loader) {
+      final ListenableFuture<V> loadingFuture = loadingValueReference.loadFuture(key, loader);
+      loadingFuture.addListener(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                getAndRecordStats(key, hash, loadingValueReference, loadingFuture);
+              } catch (Throwable t) {
+                // the failure is reported to whoever is waiting on loadingFuture
+              }
+            }
+          },
+          directExecutor());
+      return loadingFuture;
+    }
+
+    /** Returns a future for the value being loaded by {@code valueReference}, without waiting. */
+    ListenableFuture<V> loadingValueFuture(
+        ReferenceEntry<K, V> e, K key, ValueReference<K, V> valueReference) {
+      if (!valueReference.isLoading()) {
+        throw new AssertionError();
+      }
+      statsCounter.recordMisses(1);
+      // don't consider expiration as we're concurrent with loading
+      ListenableFuture<V> loadingFuture =
+          ((LoadingValueReference<K, V>) valueReference).futureValue;
+      return nonNullValueFuture(key, loadingFuture, e);
+    }
+
+    /**
+     * Returns a future for the result of {@code loadingFuture}, which fails if that result is null.
+     * Cancelling the returned future does not cancel the load, which may be shared. If {@code
+     * entry} is non-null, its read is recorded once loading completes.
+     */
+    ListenableFuture<V> nonNullValueFuture(
+        final K key, ListenableFuture<V> loadingFuture, final @Nullable ReferenceEntry<K, V> e) {
+      return transform(
+          Futures.nonCancellationPropagating(loadingFuture),
+          new com.google.common.base.Function<V, V>() {
+            @Override
+            public V apply(V value) {
+              if (value == null) {
+                throw new InvalidCacheLoadException(
+                    "CacheLoader returned null for key " + key + ".");
+              }
+              if (e != null) {
+                // re-read ticker now that loading has completed
+                recordRead(e, value, map.ticker.read());
+              }
+              return value;
+            }
+          },
+          directExecutor());
+    }
+
     V compute(K key, int hash, BiFunction<? super K, ? super V, ? extends V> function) {
       ReferenceEntry<K, V> e;
       ValueReference<K, V> valueReference = null;
@@ -2221,6 +3245,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             // immediately reuse invalid entries
             writeQueue.remove(e);
             accessQueue.remove(e);
+            if (map.expiresVariably()) {
+              timerWheel.remove(e);
+            }
             createNewEntry = false;
             break;
           }
@@ -2244,6 +3271,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           if (valueReference != null && newValue == valueReference.get()) {
             loadingValueReference.set(newValue);
             e.setValueReference(valueReference);
+            if (map.expiresVariably()) {
+              e.setExpirationTime(map.expirationTimeAfterWrite(e, key, newValue, true, now));
+            }
             recordWrite(e, 0, now); // no change in weight
             return newValue;
           }
@@ -2334,6 +3364,13 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (map.refreshes()
           && (now - entry.getWriteTime() > map.refreshNanos)
           && !entry.getValueReference().isLoading()) {
+        if (map.refreshesAhead()) {
+          // never load inline; let the entries that have been stale the longest go first
+          if (isRefreshAheadDue(now)) {
+            tryRefreshAhead(now);
+          }
+          return oldValue;
+        }
         V newValue = refresh(key, hash, loader, true);
         if (newValue != null) {
           return newValue;
@@ -2422,6 +3459,130 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       }
     }
 
+    // refresh ahead
+
+    /**
+     * Returns whether an entry may be due for refresh ahead, and refreshes are available for it.
+     * Until then, neither reads nor writes scan the write queue for entries to refresh.
+     */
+    boolean isRefreshAheadDue(long now) {
+      return now - nextRefreshAheadNanos >= 0
+          && map.refreshesInFlight.get() < map.maxRefreshesInFlight;
+    }
+
+    /** Marks the entries that are due for refresh when the lock is available. */
+    void tryRefreshAhead(long now) {
+      if (tryLock()) {
+        try {
+          refreshAhead(now);
+        } finally {
+          unlock();
+        }
+      }
+      runUnlockedCleanup();
+    }
+
+    /**
+     * Marks up to a batch of the entries that are due for refresh as loading, and queues them to be
+     * refreshed by the refresh executor once the lock is released. Due entries are found at the
+     * head of the write queue, behind any that are already being refreshed, and any whose last
+     * refresh failed less than the refresh interval ago; these are passed over before any other
+     * work is done for them. Also records when the next entry will be due, before which this method
+     * is not called again.
+     */
+    @GuardedBy("this")
+    void refreshAhead(long now) {
+      // anything written from now on is due no sooner than this
+      long next = now + map.refreshNanos;
+      if (refreshAheadBackoffs != null) {
+        Iterator<Long> retryTimes = refreshAheadBackoffs.values().iterator();
+        while (retryTimes.hasNext()) {
+          long retryTime = retryTimes.next();
+          if (now - retryTime >= 0) {
+            retryTimes.remove();
+          } else if (retryTime - next < 0) {
+            next = retryTime;
+          }
+        }
+        if (refreshAheadBackoffs.isEmpty()) {
+          refreshAheadBackoffs = null;
+        }
+      }
+
+      int reserved = map.reserveRefreshes(map.refreshBatchSize);
+      int marked = 0;
+      for (ReferenceEntry<K, V> e : writeQueue) {
+        if (now - e.getWriteTime() <= map.refreshNanos) {
+          long due = e.getWriteTime() + map.refreshNanos;
+          if (due - next < 0) {
+            next = due;
+          }
+          break;
+        }
+        if (marked == reserved) {
+          // more entries are due; look again once refreshes are available
+          next = now;
+          break;
+        }
+        ValueReference<K, V> valueReference = e.getValueReference();
+        if (valueReference.isLoading()
+            || (refreshAheadBackoffs != null && refreshAheadBackoffs.containsKey(e))) {
+          continue;
+        }
+        K key = e.getKey();
+        if (key == null
+            || (map.usesValueReferences() && valueReference.get() == null)
+            || map.isExpired(e, now)) {
+          // collected or expired, and soon to be removed
+          continue;
+        }
+
+        // continue returning old value while loading
+        ++modCount;
+        LoadingValueReference<K, V> loadingValueReference =
+            new LoadingValueReference<>(valueReference);
+        e.setValueReference(loadingValueReference);
+        map.pendingRefreshQueue.offer(
+            new PendingRefresh<K, V>(key, e.getHash(), loadingValueReference));
+        marked++;
+      }
+      nextRefreshAheadNanos = next;
+      map.refreshesCompleted(reserved - marked);
+    }
+
+    /**
+     * Records that refreshing the entry for {@code key} ahead has failed, so that it is not
+     * refreshed ahead again until the refresh interval has elapsed.
+     */
+    void refreshAheadFailed(K key, int hash) {
+      lock();
+      try {
+        long now = map.ticker.read();
+        ReferenceEntry<K, V> e = getLiveEntry(key, hash, now);
+        if (e != null) {
+          if (refreshAheadBackoffs == null) {
+            refreshAheadBackoffs = Maps.newIdentityHashMap();
+          }
+          refreshAheadBackoffs.put(e, now + map.refreshNanos);
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Forgets when {@code entry} may be refreshed ahead again, as it is being removed from the
+     * table, so that the backoffs don't keep removed entries and their values reachable.
+     */
+    @GuardedBy("this")
+    void removeRefreshAheadBackoff(ReferenceEntry<K, V> entry) {
+      if (refreshAheadBackoffs != null
+          && refreshAheadBackoffs.remove(entry) != null
+          && refreshAheadBackoffs.isEmpty()) {
+        refreshAheadBackoffs = null;
+      }
+    }
+
     // reference queues, for garbage collection cleanup
 
     /** Cleanup collected entries when the lock is available. */
@@ -2437,7 +3598,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     /**
      * Drain the key and value reference queues, cleaning up internal entries containing garbage
-     * collected keys or values.
+     * collected keys or values, and freeing the off-heap memory of values that have been removed.
      */
     @GuardedBy("this")
     void drainReferenceQueues() {
@@ -2447,6 +3608,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (map.usesValueReferences()) {
         drainValueReferenceQueue();
       }
+      if (map.storesValuesOffHeap()) {
+        offHeapStore.drainPendingReleases();
+      }
     }
 
     @GuardedBy("this")
@@ -2495,20 +3659,39 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       while (valueReferenceQueue.poll() != null) {}
     }
 
-    // recency queue, shared by expiration and eviction
+    // read buffer, shared by expiration and eviction
+
+    /**
+     * Records a miss for the key with the given hash in the frequency sketch, when the cache evicts
+     * by frequency, so that keys requested before they are cached build up a frequency. Misses
+     * are recorded lossily, like reads: a miss which finds the lock held is dropped.
+     */
+    void recordMiss(int hash) {
+      if (map.evictsByFrequency() && tryLock()) {
+        try {
+          ((TinyLfuAccessQueue<K, V>) accessQueue).sketch.increment(hash);
+        } finally {
+          unlock();
+        }
+      }
+    }
 
     /**
      * Records the relative order in which this read was performed by adding {@code entry} to the
-     * recency queue. At write-time, or when the queue is full past the threshold, the queue will be
-     * drained and the entries therein processed.
+     * read buffer. At write-time, or when enough reads have been made past the threshold, the
+     * buffer will be drained and the entries therein processed. The read may be dropped if the
+     * buffer is full or contended.
      *
      * <p>Note: locked reads should use {@link #recordLockedRead}.
      */
-    void recordRead(ReferenceEntry<K, V> entry, long now) {
+    void recordRead(ReferenceEntry<K, V> entry, V value, long now) {
       if (map.recordsAccess()) {
         entry.setAccessTime(now);
       }
-      recencyQueue.add(entry);
+      if (map.expiresVariably()) {
+        recordExpirationAfterRead(entry, value, now);
+      }
+      readBuffer.offer(entry);
     }
 
     /**
@@ -2519,11 +3702,36 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
      * eviction queues. Unlocked reads should use {@link #recordRead}.
      */
     @GuardedBy("this")
-    void recordLockedRead(ReferenceEntry<K, V> entry, long now) {
+    void recordLockedRead(ReferenceEntry<K, V> entry, V value, long now) {
       if (map.recordsAccess()) {
         entry.setAccessTime(now);
       }
       accessQueue.add(entry);
+      if (map.expiresVariably()) {
+        recordExpirationAfterRead(entry, value, now);
+        timerWheel.schedule(entry);
+      }
+    }
+
+    /**
+     * Sets the expiration time of {@code entry} after {@code value}, which the caller has just read
+     * from it, was read, so that the value is not read again from its reference. The entry is moved
+     * to the timer wheel bucket for its new time when the read buffer is drained; if the read is
+     * dropped from the buffer, then the entry remains in its earlier bucket, which is harmless if
+     * its expiration was extended, and is corrected by the next locked read or write otherwise.
+     *
+     * <p>This may be called without locking. The new time is set only if the expiration time is
+     * unchanged since it was read here, so that a concurrent write, which sets the time after the
+     * value, takes precedence unless it sets the time before it is read here; of two concurrent
+     * reads, only one takes effect.
+     */
+    void recordExpirationAfterRead(ReferenceEntry<K, V> entry, V value, long now) {
+      long expirationTime = entry.getExpirationTime();
+      K key = entry.getKey();
+      if (key != null) {
+        entry.compareAndSetExpirationTime(
+            expirationTime, map.expirationTimeAfterRead(key, value, expirationTime, now));
+      }
     }
 
     /**
@@ -2532,8 +3740,8 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
      */
     @GuardedBy("this")
     void recordWrite(ReferenceEntry<K, V> entry, int weight, long now) {
-      // we are already under lock, so drain the recency queue immediately
-      drainRecencyQueue();
+      // we are already under lock, so drain the read buffer immediately
+      drainReadBuffer();
       totalWeight += weight;
 
       if (map.recordsAccess()) {
@@ -2544,25 +3752,31 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       }
       accessQueue.add(entry);
       writeQueue.add(entry);
+      if (map.expiresVariably()) {
+        timerWheel.schedule(entry);
+      }
     }
 
     /**
-     * Drains the recency queue, updating eviction metadata that the entries therein were read in
-     * the specified relative order. This currently amounts to adding them to relevant eviction
-     * lists (accounting for the fact that they could have been removed from the map since being
-     * added to the recency queue).
+     * Drains the read buffer, updating eviction metadata that the entries therein were read in the
+     * specified relative order. This currently amounts to adding them to relevant eviction lists
+     * (accounting for the fact that they could have been removed from the map since being added to
+     * the read buffer).
      */
     @GuardedBy("this")
-    void drainRecencyQueue() {
+    void drainReadBuffer() {
       ReferenceEntry<K, V> e;
-      while ((e = recencyQueue.poll()) != null) {
-        // An entry may be in the recency queue despite it being removed from
+      while ((e = readBuffer.poll()) != null) {
+        // An entry may be in the read buffer despite it being removed from
         // the map . This can occur when the entry was concurrently read while a
         // writer is removing it from the segment or after a clear has removed
         // all of the segment's entries.
         if (accessQueue.contains(e)) {
           accessQueue.add(e);
         }
+        if (map.expiresVariably() && timerWheel.contains(e)) {
+          timerWheel.schedule(e);
+        }
       }
     }
 
@@ -2582,7 +3796,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     @GuardedBy("this")
     void expireEntries(long now) {
-      drainRecencyQueue();
+      drainReadBuffer();
 
       ReferenceEntry<K, V> e;
       while ((e = writeQueue.peek()) != null && map.isExpired(e, now)) {
@@ -2595,6 +3809,9 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           throw new AssertionError();
         }
       }
+      if (map.expiresVariably()) {
+        timerWheel.advance(this, now);
+      }
     }
 
     // eviction
@@ -2606,12 +3823,32 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (cause.wasEvicted()) {
         statsCounter.recordEviction();
       }
+      if (removalCounts != null) {
+        removalCounts[cause.ordinal()]++;
+      }
+      if (sizeTuner != null && cause == RemovalCause.SIZE) {
+        sizeTuner.recordEviction(hash);
+      }
       if (map.removalNotificationQueue != DISCARDING_QUEUE) {
         RemovalNotification<K, V> notification = RemovalNotification.create(key, value, cause);
         map.removalNotificationQueue.offer(notification);
       }
     }
 
+    /**
+     * Frees the off-heap memory of a value reference which has been removed from the segment, or
+     * of the value being refreshed by a loading reference which has been replaced.
+     */
+    @GuardedBy("this")
+    void releaseValue(ValueReference<K, V> valueReference) {
+      if (offHeapStore != null) {
+        if (valueReference instanceof LoadingValueReference) {
+          valueReference = ((LoadingValueReference<K, V>) valueReference).getOldValue();
+        }
+        offHeapStore.release(valueReference);
+      }
+    }
+
     /**
      * Performs eviction if the segment is over capacity. Avoids flushing the entire cache if the
      * newest entry exceeds the maximum weight all on its own.
@@ -2624,17 +3861,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         return;
       }
 
-      drainRecencyQueue();
+      drainReadBuffer();
 
+      long tunedMaxWeight = (sizeTuner == null) ? maxSegmentWeight : sizeTuner.currentMaximum();
       // If the newest entry by itself is too heavy for the segment, don't bother evicting
       // anything else, just that
-      if (newest.getValueReference().getWeight() > maxSegmentWeight) {
+      if (newest.getValueReference().getWeight() > tunedMaxWeight) {
         if (!removeEntry(newest, newest.getHash(), RemovalCause.SIZE)) {
           throw new AssertionError();
         }
       }
 
-      while (totalWeight > maxSegmentWeight) {
+      while (totalWeight > tunedMaxWeight) {
         ReferenceEntry<K, V> e = getNextEvictable();
         if (!removeEntry(e, e.getHash(), RemovalCause.SIZE)) {
           throw new AssertionError();
@@ -2645,6 +3883,13 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     // TODO(fry): instead implement this with an eviction head
     @GuardedBy("this")
     ReferenceEntry<K, V> getNextEvictable() {
+      if (map.evictsByFrequency()) {
+        ReferenceEntry<K, V> e = ((TinyLfuAccessQueue<K, V>) accessQueue).nextEvictable();
+        if (e != null) {
+          return e;
+        }
+        throw new AssertionError();
+      }
       for (ReferenceEntry<K, V> e : accessQueue) {
         int weight = e.getValueReference().getWeight();
         if (weight > 0) {
@@ -2807,11 +4052,21 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
               this.count = newCount; // write-volatile
               evictEntries(e);
               return null;
+            } else if (map.expiresVariably() && map.isExpired(e, now)) {
+              // This is a duplicate check, as preWriteCleanup already purged expired
+              // entries, but an unlocked read may extend an entry's expiration without
+              // rescheduling it, so let's accommodate an incorrect expiration order.
+              ++modCount;
+              enqueueNotification(
+                  key, hash, entryValue, valueReference.getWeight(), RemovalCause.EXPIRED);
+              setValue(e, key, value, now);
+              evictEntries(e);
+              return null;
             } else if (onlyIfAbsent) {
               // Mimic
               // "if (!map.containsKey(key)) ...
               // else return map.get(key);
-              recordLockedRead(e, now);
+              recordLockedRead(e, entryValue, now);
               return entryValue;
             } else {
               // clobber existing entry, count remains unchanged
@@ -2958,7 +4213,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
             } else {
               // Mimic
               // "if (map.containsKey(key) && map.get(key).equals(oldValue))..."
-              recordLockedRead(e, now);
+              recordLockedRead(e, entryValue, now);
               return false;
             }
           }
@@ -3198,6 +4453,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
                 enqueueNotification(
                     key, e.getHash(), value, e.getValueReference().getWeight(), cause);
               }
+              releaseValue(e.getValueReference());
             }
           }
           for (int i = 0; i < table.length(); ++i) {
@@ -3206,6 +4462,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           clearReferenceQueues();
           writeQueue.clear();
           accessQueue.clear();
+          if (map.expiresVariably()) {
+            timerWheel.clear();
+          }
+          refreshAheadBackoffs = null;
           readCount.set(0);
 
           ++modCount;
@@ -3230,11 +4490,15 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       enqueueNotification(key, hash, value, valueReference.getWeight(), cause);
       writeQueue.remove(entry);
       accessQueue.remove(entry);
+      if (map.expiresVariably()) {
+        timerWheel.remove(entry);
+      }
 
       if (valueReference.isLoading()) {
         valueReference.notifyNewValue(null);
         return first;
       } else {
+        releaseValue(valueReference);
         return removeEntryFromChain(first, entry);
       }
     }
@@ -3245,6 +4509,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         ReferenceEntry<K, V> first, ReferenceEntry<K, V> entry) {
       int newCount = count;
       ReferenceEntry<K, V> newFirst = entry.getNext();
+      removeRefreshAheadBackoff(entry);
       for (ReferenceEntry<K, V> e = first; e != entry; e = e.getNext()) {
         ReferenceEntry<K, V> next = copyEntry(e, newFirst);
         if (next != null) {
@@ -3266,8 +4531,13 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
           entry.getValueReference().get(),
           entry.getValueReference().getWeight(),
           RemovalCause.COLLECTED);
+      releaseValue(entry.getValueReference());
       writeQueue.remove(entry);
       accessQueue.remove(entry);
+      if (map.expiresVariably()) {
+        timerWheel.remove(entry);
+      }
+      removeRefreshAheadBackoff(entry);
     }
 
     /** Removes an entry whose key has been garbage collected. */
@@ -3448,7 +4718,10 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       if (tryLock()) {
         try {
           drainReferenceQueues();
-          expireEntries(now); // calls drainRecencyQueue
+          expireEntries(now); // calls drainReadBuffer
+          if (map.refreshesAhead() && isRefreshAheadDue(now)) {
+            refreshAhead(now);
+          }
           readCount.set(0);
         } finally {
           unlock();
@@ -3460,6 +4733,7 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       // locked cleanup may generate notifications we can send unlocked
       if (!isHeldByCurrentThread()) {
         map.processPendingNotifications();
+        map.processPendingRefreshes();
       }
     }
   }
@@ -3553,6 +4827,30 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       }
     }
 
+    public ListenableFuture<V> loadFuture(K key, AsyncCacheLoader<? super K, V> loader) {
+      try {
+        stopwatch.start();
+        V previousValue = oldValue.get();
+        ListenableFuture<V> newValue =
+            (previousValue == null) ? loader.load(key) : loader.reload(key, previousValue);
+        if (newValue == null) {
+          // fail futureValue, which callers that joined this load are waiting on
+          futureValue.setException(
+              new InvalidCacheLoadException(
+                  "AsyncCacheLoader returned null future for key " + key + "."));
+          return futureValue;
+        }
+        // waiters share futureValue, so make sure it completes with the loaded value
+        return futureValue.setFuture(newValue) ? futureValue : newValue;
+      } catch (Throwable t) {
+        ListenableFuture<V> result = setException(t) ? futureValue : fullyFailedFuture(t);
+        if (t instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        return result;
+      }
+    }
+
     public V compute(K key, BiFunction<? super K, ? super V, ? extends V> function) {
       stopwatch.start();
       V previousValue;
@@ -3882,6 +5180,250 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  /**
+   * An access queue implementing the Window TinyLFU eviction policy. Entries not yet in the queue
+   * are added to a small admission window, ordered by access, which holds about one percent of the
+   * segment's entries. When the window overflows, its least recently used entry moves to the tail
+   * of the main region, and becomes the candidate for admission. If a {@link FrequencySketch}
+   * estimates that the candidate was used no more often than the main region's least recently used
+   * entry (the victim), the candidate is rejected: it is evicted before the victim, unless it is
+   * used again first. Every offer records an access in the sketch, as does every miss of {@link
+   * Segment#get(Object, int)}.
+   *
+   * <p>Iteration, and hence eviction, proceeds through a rejected candidate, then the main region,
+   * then the window. Entries are only ever added at the tails of the regions, so that each region
+   * stays in access order but for the entries moved from the window, which may have been accessed
+   * before the last entries of the main region. Expiring entries after access from the head of the
+   * older region, as {@link Segment#expireEntries} does, therefore removes every expired entry
+   * except such an entry, whose removal is delayed by no longer than it spent in the window. Reads
+   * check the expiration of each entry, so an expired entry is never returned. Like
+   * {@link AccessQueue}, this relies on the access-order links of {@code ReferenceEntry}, so that
+   * entries may be unlinked or tested for membership without knowing which region holds them. The
+   * region holding an entry is recorded by {@link ReferenceEntry#isInAdmissionWindow}, so that
+   * tracking it allocates nothing.
+   *
+   * <p>The window's share is of the entries currently in the queue, not of the segment's maximum,
+   * so the window follows the maximum when it is changed by a {@link SizeTuner}: once eviction has
+   * brought the segment to its new maximum, the next offer admits entries from the window until it
+   * is within its share again.
+   */
+  static final class TinyLfuAccessQueue<K, V> extends AbstractQueue<ReferenceEntry<K, V>> {
+    /** The share of the queue, in percent, reserved for the admission window. */
+    static final int WINDOW_PERCENT = 1;
+
+    final AccessQueue<K, V> window = new AccessQueue<>();
+    final AccessQueue<K, V> main = new AccessQueue<>();
+    final FrequencySketch sketch;
+    int windowSize;
+    int mainSize;
+
+    /** The entry last moved to the main region, unless it has been used or removed since. */
+    @Nullable ReferenceEntry<K, V> candidate;
+
+    TinyLfuAccessQueue(long expectedEntries) {
+      this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    // implements Queue
+
+    @Override
+    public boolean offer(ReferenceEntry<K, V> entry) {
+      sketch.increment(entry.getHash());
+      if (entry.isInAdmissionWindow()) {
+        window.offer(entry);
+      } else if (main.contains(entry)) {
+        if (entry == candidate) {
+          // used again since it was admitted, so no longer liable to be rejected
+          candidate = null;
+        }
+        main.offer(entry);
+      } else {
+        window.offer(entry);
+        entry.setInAdmissionWindow(true);
+        windowSize++;
+        int size = size();
+        sketch.ensureCapacity(size);
+        int maxWindowSize = Math.max(1, size * WINDOW_PERCENT / 100);
+        while (windowSize > maxWindowSize) {
+          admit(window.peek());
+        }
+      }
+      return true;
+    }
+
+    /** Moves {@code entry} from the window to the tail of the main region, as the candidate. */
+    void admit(ReferenceEntry<K, V> entry) {
+      entry.setInAdmissionWindow(false);
+      windowSize--;
+      main.offer(entry);
+      mainSize++;
+      candidate = entry;
+    }
+
+    /** Returns the candidate if it is to be evicted before the victim, or null otherwise. */
+    @Nullable
+    ReferenceEntry<K, V> rejectedCandidate() {
+      ReferenceEntry<K, V> victim = main.peek();
+      if (candidate != null
+          && candidate != victim
+          && sketch.frequency(candidate.getHash()) <= sketch.frequency(victim.getHash())) {
+        return candidate;
+      }
+      return null;
+    }
+
+    @Override
+    public ReferenceEntry<K, V> peek() {
+      ReferenceEntry<K, V> first = main.peek();
+      ReferenceEntry<K, V> recent = window.peek();
+      if (first == null) {
+        return recent;
+      }
+      // expiration drains from the head, so expose whichever region holds the older access
+      return (recent != null && recent.getAccessTime() < first.getAccessTime()) ? recent : first;
+    }
+
+    @Override
+    public ReferenceEntry<K, V> poll() {
+      ReferenceEntry<K, V> next = peek();
+      if (next != null) {
+        remove(next);
+      }
+      return next;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+      // either region unlinks the entry from whichever list holds it
+      boolean removed = main.remove(o);
+      if (removed) {
+        ReferenceEntry<K, V> e = (ReferenceEntry<K, V>) o;
+        if (e == candidate) {
+          candidate = null;
+        }
+        if (e.isInAdmissionWindow()) {
+          e.setInAdmissionWindow(false);
+          windowSize--;
+        } else {
+          mainSize--;
+        }
+      }
+      return removed;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return main.contains(o);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return main.isEmpty() && window.isEmpty();
+    }
+
+    @Override
+    public int size() {
+      return mainSize + windowSize;
+    }
+
+    @Override
+    public void clear() {
+      for (ReferenceEntry<K, V> e : window) {
+        e.setInAdmissionWindow(false);
+      }
+      main.clear();
+      window.clear();
+      windowSize = 0;
+      mainSize = 0;
+      candidate = null;
+    }
+
+    /**
+     * Returns the first entry with a nonzero weight in iteration order, or null if there is none.
+     * This walks the regions' links directly, so that evicting an entry allocates nothing.
+     */
+    @Nullable
+    ReferenceEntry<K, V> nextEvictable() {
+      ReferenceEntry<K, V> rejected = rejectedCandidate();
+      if (rejected != null && rejected.getValueReference().getWeight() > 0) {
+        return rejected;
+      }
+      ReferenceEntry<K, V> e = firstEvictable(main);
+      return (e != null) ? e : firstEvictable(window);
+    }
+
+    /** Returns the first entry of {@code region} with a nonzero weight, or null if there is none. */
+    @Nullable
+    private static <K, V> ReferenceEntry<K, V> firstEvictable(AccessQueue<K, V> region) {
+      for (ReferenceEntry<K, V> e = region.head.getNextInAccessQueue();
+          e != region.head;
+          e = e.getNextInAccessQueue()) {
+        if (e.getValueReference().getWeight() > 0) {
+          return e;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Iterator<ReferenceEntry<K, V>> iterator() {
+      Iterator<ReferenceEntry<K, V>> entries = Iterators.concat(main.iterator(), window.iterator());
+      ReferenceEntry<K, V> rejected = rejectedCandidate();
+      if (rejected == null) {
+        return entries;
+      }
+      return Iterators.concat(
+          Iterators.singletonIterator(rejected), Iterators.filter(entries, e -> e != rejected));
+    }
+  }
+
+  /**
+   * A stats counter which also records the latency of each load, successful or not, into a
+   * histogram shared by the cache's counters.
+   */
+  static final class LatencyRecordingStatsCounter implements StatsCounter {
+    final StatsCounter delegate;
+    final LatencyRecorder loadLatencyRecorder;
+
+    LatencyRecordingStatsCounter(StatsCounter delegate, LatencyRecorder loadLatencyRecorder) {
+      this.delegate = checkNotNull(delegate);
+      this.loadLatencyRecorder = checkNotNull(loadLatencyRecorder);
+    }
+
+    @Override
+    public void recordHits(int count) {
+      delegate.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+      delegate.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+      delegate.recordLoadSuccess(loadTime);
+      loadLatencyRecorder.record(loadTime);
+    }
+
+    @Override
+    public void recordLoadException(long loadTime) {
+      delegate.recordLoadException(loadTime);
+      loadLatencyRecorder.record(loadTime);
+    }
+
+    @Override
+    public void recordEviction() {
+      delegate.recordEviction();
+    }
+
+    @Override
+    public CacheStats snapshot() {
+      return delegate.snapshot();
+    }
+  }
+
   // Cache support
 
   public void cleanUp() {
@@ -4041,6 +5583,172 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  ListenableFuture<V> getFuture(K key, AsyncCacheLoader<? super K, V> loader) {
+    int hash = hash(checkNotNull(key));
+    return segmentFor(hash).getFuture(key, hash, loader);
+  }
+
+  ListenableFuture<ImmutableMap<K, V>> getAllFuture(
+      Iterable<? extends K> keys, final AsyncCacheLoader<? super K, V> loader) {
+    checkNotNull(loader);
+    int hits = 0;
+
+    final Map<K, V> result = Maps.newLinkedHashMap();
+    final Set<K> keysToLoad = Sets.newLinkedHashSet();
+    for (K key : keys) {
+      V value = get(key);
+      if (!result.containsKey(key)) {
+        result.put(key, value);
+        if (value == null) {
+          keysToLoad.add(key);
+        } else {
+          hits++;
+        }
+      }
+    }
+    globalStatsCounter.recordHits(hits);
+    if (keysToLoad.isEmpty()) {
+      return Futures.immediateFuture(ImmutableMap.copyOf(result));
+    }
+
+    ListenableFuture<Map<K, V>> newEntries;
+    try {
+      newEntries = loadAllFuture(keysToLoad, loader);
+    } catch (UnsupportedLoadingOperationException e) {
+      newEntries = Futures.immediateFailedFuture(e);
+    }
+    // loadAll not implemented, fallback to load
+    newEntries =
+        Futures.catchingAsync(
+            newEntries,
+            UnsupportedLoadingOperationException.class,
+            new AsyncFunction<UnsupportedLoadingOperationException, Map<K, V>>() {
+              @Override
+              public ListenableFuture<Map<K, V>> apply(UnsupportedLoadingOperationException e) {
+                return getEachFuture(keysToLoad, loader);
+              }
+            },
+            directExecutor());
+    return transform(
+        newEntries,
+        new com.google.common.base.Function<Map<K, V>, ImmutableMap<K, V>>() {
+          @Override
+          public ImmutableMap<K, V> apply(Map<K, V> newEntries) {
+            for (K key : keysToLoad) {
+              V value = newEntries.get(key);
+              if (value == null) {
+                throw new InvalidCacheLoadException("loadAll failed to return a value for " + key);
+              }
+              result.put(key, value);
+            }
+            return ImmutableMap.copyOf(result);
+          }
+        },
+        directExecutor());
+  }
+
+  /** Returns a future map of the values of {@code keys}, each obtained by {@link #getFuture}. */
+  private ListenableFuture<Map<K, V>> getEachFuture(
+      final Set<K> keys, AsyncCacheLoader<? super K, V> loader) {
+    List<ListenableFuture<V>> futures = new ArrayList<>(keys.size());
+    for (K key : keys) {
+      futures.add(getFuture(key, loader));
+    }
+    return transform(
+        Futures.allAsList(futures),
+        new com.google.common.base.Function<List<V>, Map<K, V>>() {
+          @Override
+          public Map<K, V> apply(List<V> values) {
+            Map<K, V> result = Maps.newLinkedHashMap();
+            Iterator<V> valueIterator = values.iterator();
+            for (K key : keys) {
+              result.put(key, valueIterator.next());
+            }
+            return result;
+          }
+        },
+        directExecutor());
+  }
+
+  /**
+   * Returns the future result of calling {@link AsyncCacheLoader#loadAll}, whose entries are
+   * stored in the cache once loaded. Throws, or returns a future which fails with, {@link
+   * UnsupportedLoadingOperationException} if {@code loader} doesn't implement {@code loadAll}.
+   */
+  ListenableFuture<Map<K, V>> loadAllFuture(
+      final Set<? extends K> keys, final AsyncCacheLoader<? super K, V> loader) {
+    checkNotNull(loader);
+    checkNotNull(keys);
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    ListenableFuture<Map<K, V>> loading;
+    try {
+      @SuppressWarnings("unchecked") // safe since all keys extend K
+      ListenableFuture<Map<K, V>> future =
+          (ListenableFuture<Map<K, V>>) (ListenableFuture<?>) loader.loadAll(keys);
+      loading =
+          (future != null)
+              ? future
+              : Futures.<Map<K, V>>immediateFailedFuture(
+                  new InvalidCacheLoadException(loader + " returned null future from loadAll"));
+    } catch (UnsupportedLoadingOperationException e) {
+      throw e;
+    } catch (Throwable t) {
+      if (t instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      loading = Futures.immediateFailedFuture(t);
+    }
+
+    ListenableFuture<Map<K, V>> stored =
+        transform(
+            loading,
+            new com.google.common.base.Function<Map<K, V>, Map<K, V>>() {
+              @Override
+              public Map<K, V> apply(Map<K, V> result) {
+                if (result == null) {
+                  throw new InvalidCacheLoadException(loader + " returned null map from loadAll");
+                }
+                stopwatch.stop();
+                boolean nullsPresent = false;
+                for (Entry<K, V> entry : result.entrySet()) {
+                  K key = entry.getKey();
+                  V value = entry.getValue();
+                  if (key == null || value == null) {
+                    // delay failure until non-null entries are stored
+                    nullsPresent = true;
+                  } else {
+                    put(key, value);
+                  }
+                }
+                if (nullsPresent) {
+                  throw new InvalidCacheLoadException(
+                      loader + " returned null keys or values from loadAll");
+                }
+                return result;
+              }
+            },
+            directExecutor());
+    Futures.addCallback(
+        stored,
+        new FutureCallback<Map<K, V>>() {
+          @Override
+          public void onSuccess(Map<K, V> result) {
+            globalStatsCounter.recordMisses(keys.size());
+            globalStatsCounter.recordLoadSuccess(stopwatch.elapsed(NANOSECONDS));
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            if (!(t instanceof UnsupportedLoadingOperationException)) {
+              globalStatsCounter.recordMisses(keys.size());
+              globalStatsCounter.recordLoadException(stopwatch.elapsed(NANOSECONDS));
+            }
+          }
+        },
+        directExecutor());
+    return stored;
+  }
+
   /**
    * Returns the result of calling {@link CacheLoader#loadAll}, or null if {@code loader} doesn't
    * implement {@code loadAll}.
@@ -4689,10 +6397,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
 
     final Strength keyStrength;
     final Strength valueStrength;
+    final @Nullable ValueSerializer<V> valueSerializer;
     final Equivalence<Object> keyEquivalence;
     final Equivalence<Object> valueEquivalence;
     final long expireAfterWriteNanos;
     final long expireAfterAccessNanos;
+    final @Nullable Expiry<K, V> expiry;
     final long maxWeight;
     final Weigher<K, V> weigher;
     final int concurrencyLevel;
@@ -4706,10 +6416,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       this(
           cache.keyStrength,
           cache.valueStrength,
+          cache.valueSerializer,
           cache.keyEquivalence,
           cache.valueEquivalence,
           cache.expireAfterWriteNanos,
           cache.expireAfterAccessNanos,
+          cache.expiry,
           cache.maxWeight,
           cache.weigher,
           cache.concurrencyLevel,
@@ -4721,10 +6433,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     private ManualSerializationProxy(
         Strength keyStrength,
         Strength valueStrength,
+        @Nullable ValueSerializer<V> valueSerializer,
         Equivalence<Object> keyEquivalence,
         Equivalence<Object> valueEquivalence,
         long expireAfterWriteNanos,
         long expireAfterAccessNanos,
+        @Nullable Expiry<K, V> expiry,
         long maxWeight,
         Weigher<K, V> weigher,
         int concurrencyLevel,
@@ -4733,10 +6447,12 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
         CacheLoader<? super K, V> loader) {
       this.keyStrength = keyStrength;
       this.valueStrength = valueStrength;
+      this.valueSerializer = valueSerializer;
       this.keyEquivalence = keyEquivalence;
       this.valueEquivalence = valueEquivalence;
       this.expireAfterWriteNanos = expireAfterWriteNanos;
       this.expireAfterAccessNanos = expireAfterAccessNanos;
+      this.expiry = expiry;
       this.maxWeight = maxWeight;
       this.weigher = weigher;
       this.concurrencyLevel = concurrencyLevel;
@@ -4755,12 +6471,18 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
               .concurrencyLevel(concurrencyLevel)
               .removalListener(removalListener);
       builder.strictParsing = false;
+      if (valueSerializer != null) {
+        builder.offHeapValues(valueSerializer);
+      }
       if (expireAfterWriteNanos > 0) {
         builder.expireAfterWrite(expireAfterWriteNanos, TimeUnit.NANOSECONDS);
       }
       if (expireAfterAccessNanos > 0) {
         builder.expireAfterAccess(expireAfterAccessNanos, TimeUnit.NANOSECONDS);
       }
+      if (expiry != null) {
+        builder.expireAfter(expiry);
+      }
       if (weigher != OneWeigher.INSTANCE) {
         builder.weigher(weigher);
         if (maxWeight != UNSET_INT) {
@@ -4929,6 +6651,31 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
       return aggregator.snapshot();
     }
 
+    DetailedCacheStats detailedStats() {
+      if (!localCache.recordsDetailedStats()) {
+        throw new UnsupportedOperationException(
+            "detailed stats are only recorded by caches built with recordDetailedStats()");
+      }
+      long[] removalCounts = new long[RemovalCause.values().length];
+      ImmutableList.Builder<SegmentStats> segmentStats = ImmutableList.builder();
+      for (Segment<K, V> segment : localCache.segments) {
+        long[] segmentRemovalCounts = segment.removalCounts();
+        for (int i = 0; i < removalCounts.length; i++) {
+          removalCounts[i] += segmentRemovalCounts[i];
+        }
+        segmentStats.add(segment.segmentStats());
+      }
+      EnumMap<RemovalCause, Long> removalCountsByCause = new EnumMap<>(RemovalCause.class);
+      for (RemovalCause cause : RemovalCause.values()) {
+        removalCountsByCause.put(cause, removalCounts[cause.ordinal()]);
+      }
+      return new DetailedCacheStats(
+          stats(),
+          localCache.loadLatencyRecorder.snapshot(),
+          removalCountsByCause,
+          segmentStats.build());
+    }
+
     @Override
     public void cleanUp() {
       localCache.cleanUp();
@@ -4943,6 +6690,84 @@ class LocalCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>
     }
   }
 
+  static final class LocalAsyncLoadingCache<K, V> implements AsyncLoadingCache<K, V> {
+    final LocalCache<K, V> localCache;
+    final AsyncCacheLoader<? super K, V> loader;
+    final LocalLoadingCache<K, V> synchronous;
+
+    LocalAsyncLoadingCache(
+        CacheBuilder<? super K, ? super V> builder, AsyncCacheLoader<? super K, V> loader) {
+      this.loader = checkNotNull(loader);
+      this.synchronous =
+          new LocalLoadingCache<K, V>(builder, new BlockingCacheLoader<K, V>(loader));
+      this.localCache = synchronous.localCache;
+    }
+
+    @Override
+    public ListenableFuture<V> getFuture(K key) {
+      return localCache.getFuture(key, loader);
+    }
+
+    @Override
+    public ListenableFuture<ImmutableMap<K, V>> getAllFuture(Iterable<? extends K> keys) {
+      return localCache.getAllFuture(keys, loader);
+    }
+
+    @Override
+    public LoadingCache<K, V> synchronous() {
+      return synchronous;
+    }
+  }
+
+  /**
+   * Adapts an {@link AsyncCacheLoader} for loads that must block, such as those of the synchronous
+   * view of an {@link AsyncLoadingCache}. Reloads remain asynchronous.
+   */
+  static final class BlockingCacheLoader<K, V> extends CacheLoader<K, V> implements Serializable {
+    final AsyncCacheLoader<? super K, V> loader;
+
+    BlockingCacheLoader(AsyncCacheLoader<? super K, V> loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    public V load(K key) throws Exception {
+      return await(loader.load(key));
+    }
+
+    @Override
+    public ListenableFuture<V> reload(K key, V oldValue) throws Exception {
+      return loader.reload(key, oldValue);
+    }
+
+    @Override
+    public Map<K, V> loadAll(Iterable<? extends K> keys) throws Exception {
+      @SuppressWarnings("unchecked") // safe since all keys extend K
+      Map<K, V> result = (Map<K, V>) await(loader.loadAll(keys));
+      return result;
+    }
+
+    /** Waits for {@code future}, rethrowing the exception that caused it to fail. */
+    private static <T> @Nullable T await(@Nullable ListenableFuture<T> future) throws Exception {
+      if (future == null) {
+        return null;
+      }
+      try {
+        return getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
   static class LocalLoadingCache<K, V> extends LocalManualCache<K, V>
       implements LoadingCache<K, V> {
 
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.LocalCache.ValueReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores the serialized values of a segment in direct memory, outside of the Java heap, so that
+ * only the keys and a reference to the slab, offset and length of each value's bytes remain on the
+ * heap for the garbage collector to trace.
+ *
+ * <p>Memory is allocated in slabs of {@link #SLAB_SIZE} bytes, which are divided into blocks whose
+ * sizes are powers of two, from {@link #MIN_BLOCK_SIZE} bytes, as by a buddy allocator. Free
+ * blocks are kept in a free list for their size and reused, and larger free blocks are split in
+ * halves when no block of the right size is available. A freed block is merged with its other
+ * half, its buddy, whenever that is free too, and a slab which becomes entirely free is released,
+ * unless it is the only slab of the store. Values larger than a slab are each given their own
+ * buffer.
+ *
+ * <p>The segment {@linkplain #release releases} a value when it removes, replaces, evicts or
+ * expires it, and its block is freed right away. Reads are not locked, however, so a value which is
+ * being deserialized when it is released is only freed once that read has finished; the reader
+ * then queues it, and the queue is drained along with the segment's reference queues.
+ *
+ * <p>The store is guarded by the lock of the segment that owns it.
+ */
+@GwtIncompatible
+final class OffHeapValueStore<K, V> {
+
+  static final int SLAB_SHIFT = 20;
+
+  /** The size of each slab of direct memory, 1 MiB. */
+  static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+
+  static final int MIN_BLOCK_SHIFT = 6;
+
+  /** The size of the smallest block, 64 bytes. */
+  static final int MIN_BLOCK_SIZE = 1 << MIN_BLOCK_SHIFT;
+
+  private final ValueSerializer<V> serializer;
+
+  /** The free blocks of each size, indexed by the size's shift less {@link #MIN_BLOCK_SHIFT}. */
+  private final List<Set<Block>> freeBlocks;
+
+  /** The released values whose last reader has since finished, and which have yet to be freed. */
+  private final Queue<OffHeapValueReference<?, ?>> pendingReleases =
+      new ConcurrentLinkedQueue<>();
+
+  /** The number of slabs held by the store. */
+  private int slabCount;
+
+  /** The number of bytes of direct memory held by the store. */
+  private long reservedBytes;
+
+  /** The number of bytes in the blocks of values that have not yet been freed. */
+  private long usedBytes;
+
+  OffHeapValueStore(ValueSerializer<V> serializer) {
+    this.serializer = checkNotNull(serializer);
+    this.freeBlocks = new ArrayList<>(SLAB_SHIFT - MIN_BLOCK_SHIFT + 1);
+    for (int shift = MIN_BLOCK_SHIFT; shift <= SLAB_SHIFT; shift++) {
+      freeBlocks.add(new LinkedHashSet<Block>());
+    }
+  }
+
+  /** Serializes {@code value} into direct memory, returning a reference that reads it back. */
+  ValueReference<K, V> referenceValue(V value, int weight) {
+    byte[] bytes = checkNotNull(serializer.serialize(value), "serializer returned null");
+    ByteBuffer slab;
+    int offset;
+    if (bytes.length > SLAB_SIZE) {
+      slab = ByteBuffer.allocateDirect(bytes.length);
+      offset = 0;
+      reservedBytes += bytes.length;
+    } else {
+      Block block = allocate(bytes.length);
+      slab = block.slab;
+      offset = block.offset;
+    }
+    ByteBuffer view = slab.duplicate();
+    view.position(offset);
+    view.put(bytes);
+    usedBytes += allocatedSize(bytes.length);
+    return new OffHeapValueReference<>(this, slab, offset, bytes.length, weight);
+  }
+
+  /**
+   * Releases the memory of a value which has been removed from the segment. It is freed now, unless
+   * it is still being read, in which case it is freed by {@link #drainPendingReleases} once the
+   * reads have finished. References which do not hold values of this store are ignored.
+   */
+  void release(ValueReference<K, V> valueReference) {
+    if (valueReference instanceof OffHeapValueReference) {
+      OffHeapValueReference<?, ?> reference = (OffHeapValueReference<?, ?>) valueReference;
+      if (reference.store == this && reference.release()) {
+        free(reference);
+      }
+    }
+  }
+
+  /** Frees the memory of the released values whose last reads have finished since. */
+  void drainPendingReleases() {
+    OffHeapValueReference<?, ?> reference;
+    while ((reference = pendingReleases.poll()) != null) {
+      free(reference);
+    }
+  }
+
+  private void free(OffHeapValueReference<?, ?> reference) {
+    usedBytes -= allocatedSize(reference.length);
+    if (reference.length > SLAB_SIZE) {
+      // a buffer of its own, which the garbage collector will free
+      reservedBytes -= reference.length;
+    } else {
+      free(new Block(reference.slab, reference.offset, blockShift(reference.length)));
+    }
+  }
+
+  private static int blockShift(int length) {
+    return (length <= MIN_BLOCK_SIZE)
+        ? MIN_BLOCK_SHIFT
+        : Integer.SIZE - Integer.numberOfLeadingZeros(length - 1);
+  }
+
+  /** Returns the number of bytes held by a value of {@code length} bytes. */
+  private static int allocatedSize(int length) {
+    return (length > SLAB_SIZE) ? length : 1 << blockShift(length);
+  }
+
+  private Block allocate(int length) {
+    int shift = blockShift(length);
+    for (int larger = shift; larger <= SLAB_SHIFT; larger++) {
+      Block block = pollFree(larger);
+      if (block != null) {
+        // keep the first part, and free the rest in halves
+        for (int half = larger - 1; half >= shift; half--) {
+          freeList(half).add(new Block(block.slab, block.offset + (1 << half), half));
+        }
+        return new Block(block.slab, block.offset, shift);
+      }
+    }
+    slabCount++;
+    reservedBytes += SLAB_SIZE;
+    freeList(SLAB_SHIFT).add(new Block(ByteBuffer.allocateDirect(SLAB_SIZE), 0, SLAB_SHIFT));
+    return allocate(length);
+  }
+
+  /** Frees {@code block}, merging it with its buddy for as long as the buddy is free. */
+  private void free(Block block) {
+    while (block.shift < SLAB_SHIFT) {
+      Block buddy = new Block(block.slab, block.offset ^ (1 << block.shift), block.shift);
+      if (!freeList(block.shift).remove(buddy)) {
+        break;
+      }
+      block = new Block(block.slab, Math.min(block.offset, buddy.offset), block.shift + 1);
+    }
+    if (block.shift == SLAB_SHIFT && slabCount > 1) {
+      // an entirely free slab, which the garbage collector will free
+      slabCount--;
+      reservedBytes -= SLAB_SIZE;
+    } else {
+      freeList(block.shift).add(block);
+    }
+  }
+
+  private @Nullable Block pollFree(int shift) {
+    Iterator<Block> free = freeList(shift).iterator();
+    if (!free.hasNext()) {
+      return null;
+    }
+    Block block = free.next();
+    free.remove();
+    return block;
+  }
+
+  private Set<Block> freeList(int shift) {
+    return freeBlocks.get(shift - MIN_BLOCK_SHIFT);
+  }
+
+  /** Returns the number of bytes of direct memory held by this store. */
+  @VisibleForTesting
+  long reservedBytes() {
+    return reservedBytes;
+  }
+
+  /** Returns the number of bytes in the blocks of values that have not yet been freed. */
+  @VisibleForTesting
+  long usedBytes() {
+    return usedBytes;
+  }
+
+  /** Returns the number of free blocks of {@code size} bytes. */
+  @VisibleForTesting
+  int freeBlockCount(int size) {
+    return freeList(Integer.numberOfTrailingZeros(size)).size();
+  }
+
+  /**
+   * A block of a slab, of {@code 1 << shift} bytes from {@code offset}. Blocks are equal if they
+   * are the same part of the same slab.
+   */
+  private static final class Block {
+    final ByteBuffer slab;
+    final int offset;
+    final int shift;
+
+    Block(ByteBuffer slab, int offset, int shift) {
+      this.slab = slab;
+      this.offset = offset;
+      this.shift = shift;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+      if (object instanceof Block) {
+        Block that = (Block) object;
+        return this.slab == that.slab && this.offset == that.offset && this.shift == that.shift;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(slab) + offset;
+    }
+  }
+
+  /**
+   * References a value serialized into direct memory, as {@code length} bytes from {@code offset}
+   * in {@code slab}.
+   */
+  static final class OffHeapValueReference<K, V> implements ValueReference<K, V> {
+    /** Set in {@link #state} once the value has been released. */
+    private static final int RELEASED = Integer.MIN_VALUE;
+
+    @SuppressWarnings("rawtypes") // class literals are raw
+    private static final AtomicIntegerFieldUpdater<OffHeapValueReference> STATE_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(OffHeapValueReference.class, "state");
+
+    final OffHeapValueStore<K, V> store;
+    final ByteBuffer slab;
+    final int offset;
+    final int length;
+    final int weight;
+
+    /** The number of reads in progress, with {@link #RELEASED} set once it has been released. */
+    private volatile int state;
+
+    OffHeapValueReference(
+        OffHeapValueStore<K, V> store, ByteBuffer slab, int offset, int length, int weight) {
+      this.store = store;
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+      this.weight = weight;
+    }
+
+    /** Returns the value, or null if it has been released, and its memory may have been reused. */
+    @Override
+    public @Nullable V get() {
+      int current;
+      do {
+        current = state;
+        if (current < 0) {
+          return null;
+        }
+      } while (!STATE_UPDATER.compareAndSet(this, current, current + 1));
+      try {
+        ByteBuffer bytes = slab.duplicate();
+        bytes.limit(offset + length).position(offset);
+        return store.serializer.deserialize(bytes.slice().asReadOnlyBuffer());
+      } finally {
+        if (STATE_UPDATER.decrementAndGet(this) == RELEASED) {
+          // released while this was read, and no other read is in progress
+          store.pendingReleases.add(this);
+        }
+      }
+    }
+
+    /**
+     * Marks this value as released, so that it can no longer be read. Returns whether its memory
+     * can be freed now, which is when it was not already released and no read is in progress.
+     */
+    boolean release() {
+      int current;
+      do {
+        current = state;
+        if (current < 0) {
+          return false;
+        }
+      } while (!STATE_UPDATER.compareAndSet(this, current, current | RELEASED));
+      return current == 0;
+    }
+
+    @Override
+    public int getWeight() {
+      return weight;
+    }
+
+    @Override
+    public @Nullable ReferenceEntry<K, V> getEntry() {
+      return null;
+    }
+
+    @Override
+    public ValueReference<K, V> copyFor(
+        ReferenceQueue<V> queue, @Nullable V value, ReferenceEntry<K, V> entry) {
+      return this;
+    }
+
+    @Override
+    public boolean isLoading() {
+      return false;
+    }
+
+    @Override
+    public boolean isActive() {
+      return true;
+    }
+
+    @Override
+    public V waitForValue() {
+      return get();
+    }
+
+    @Override
+    public void notifyNewValue(@Nullable V newValue) {}
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.math.IntMath;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A lossy, multiple-producer, single-consumer buffer used to record reads without allocating or
+ * contending on a single memory location. Elements are written to one of several fixed-size ring
+ * buffers ("stripes") chosen by a per-thread hash, in the same manner as {@link Striped64}. When a
+ * stripe is full, or another thread is concurrently writing to it, the element is simply dropped
+ * and {@link #offer} returns {@code false}; a read buffer only needs to capture a representative
+ * sample of the access pattern.
+ *
+ * <p>A single stripe is used until threads are observed to contend on it, after which the number
+ * of active stripes doubles, up to the number of CPUs. Stripes are allocated lazily.
+ *
+ * <p>Only one thread may consume the buffer at a time, by calling {@link #poll} or {@link #clear}
+ * while holding a lock shared by all consumers. Element order is preserved within a stripe, but not
+ * across stripes. The {@link #size} and {@link #iterator} of a buffer that is concurrently written
+ * to are approximate, and are intended for testing.
+ */
+@GwtIncompatible
+final class ReadBuffer<E> extends AbstractQueue<E> {
+
+  /** The maximum number of stripes; a power of two no smaller than the number of CPUs. */
+  static final int MAXIMUM_STRIPES = IntMath.ceilingPowerOfTwo(Striped64.NCPU);
+
+  private final int stripeCapacity;
+  private final AtomicReferenceArray<Stripe<E>> stripes;
+
+  /** The number of stripes in use, a power of two that only grows. */
+  private final AtomicInteger activeStripes = new AtomicInteger(1);
+
+  /** The index of the stripe that the consumer is draining. Guarded by the consumer's lock. */
+  private int drainIndex;
+
+  /**
+   * Creates a buffer whose stripes each hold up to {@code stripeCapacity} elements, which must be
+   * zero or a power of two. A buffer with a capacity of zero discards all elements.
+   */
+  ReadBuffer(int stripeCapacity) {
+    checkArgument(
+        stripeCapacity == 0 || IntMath.isPowerOfTwo(stripeCapacity),
+        "stripeCapacity (%s) must be zero or a power of two",
+        stripeCapacity);
+    this.stripeCapacity = stripeCapacity;
+    this.stripes = new AtomicReferenceArray<>(MAXIMUM_STRIPES);
+  }
+
+  /**
+   * Inserts the element into the current thread's stripe if it has space and is not being written
+   * to by another thread; otherwise, drops the element.
+   *
+   * @return {@code true} if the element was added
+   */
+  @Override
+  public boolean offer(E e) {
+    checkNotNull(e);
+    if (stripeCapacity == 0) {
+      return false;
+    }
+    int[] hc = Striped64.threadHashCode.get();
+    Stripe<E> stripe = stripeFor(hc);
+    switch (stripe.offer(e)) {
+      case Stripe.SUCCESS:
+        return true;
+      case Stripe.CONTENDED:
+        expand(hc);
+        return false;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Removes and returns an element from the buffer, or returns {@code null} if no element is
+   * available. Must only be called by the consumer.
+   */
+  @Override
+  public @Nullable E poll() {
+    int length = stripes.length();
+    for (int i = 0; i < length; i++) {
+      Stripe<E> stripe = stripes.get(drainIndex);
+      if (stripe != null) {
+        E e = stripe.poll();
+        if (e != null) {
+          return e;
+        }
+      }
+      drainIndex = (drainIndex + 1) & (length - 1);
+    }
+    return null;
+  }
+
+  @Override
+  public @Nullable E peek() {
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe<E> stripe = stripes.get(i);
+      if (stripe != null) {
+        E e = stripe.peek();
+        if (e != null) {
+          return e;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe<E> stripe = stripes.get(i);
+      if (stripe != null) {
+        size += stripe.size();
+      }
+    }
+    return (int) size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return peek() == null;
+  }
+
+  /** Returns a snapshot of the elements in the buffer, grouped by stripe. */
+  @Override
+  public Iterator<E> iterator() {
+    List<E> elements = new ArrayList<>();
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe<E> stripe = stripes.get(i);
+      if (stripe != null) {
+        stripe.copyInto(elements);
+      }
+    }
+    return Collections.unmodifiableList(elements).iterator();
+  }
+
+  @VisibleForTesting
+  int activeStripes() {
+    return activeStripes.get();
+  }
+
+  /** Returns the stripe for the given thread hash holder, creating either if necessary. */
+  private Stripe<E> stripeFor(int @Nullable [] hc) {
+    int h;
+    if (hc == null) {
+      Striped64.threadHashCode.set(hc = new int[1]); // Initialize randomly
+      int r = Striped64.rng.nextInt(); // Avoid zero to allow xorShift rehash
+      h = hc[0] = (r == 0) ? 1 : r;
+    } else {
+      h = hc[0];
+    }
+    int index = h & (activeStripes.get() - 1);
+    Stripe<E> stripe = stripes.get(index);
+    if (stripe == null) {
+      stripes.compareAndSet(index, null, new Stripe<E>(stripeCapacity));
+      stripe = stripes.get(index);
+    }
+    return stripe;
+  }
+
+  /** Moves the current thread to another stripe, doubling the number of stripes if allowed. */
+  private void expand(int[] hc) {
+    int h = hc[0];
+    h ^= h << 13; // Rehash
+    h ^= h >>> 17;
+    h ^= h << 5;
+    hc[0] = h;
+
+    int active = activeStripes.get();
+    if (active < MAXIMUM_STRIPES) {
+      activeStripes.compareAndSet(active, active << 1);
+    }
+  }
+
+  /** A bounded ring buffer, written to by CAS on the tail and consumed by a single thread. */
+  static final class Stripe<E> {
+    static final int SUCCESS = 0;
+    static final int FULL = 1;
+    static final int CONTENDED = 2;
+
+    final AtomicReferenceArray<E> buffer;
+    final int mask;
+
+    /** The index of the next element to consume. Only written by the consumer. */
+    final AtomicLong readCounter = new AtomicLong();
+
+    /** The index of the next slot to write. Claimed by producers using CAS. */
+    final AtomicLong writeCounter = new AtomicLong();
+
+    Stripe(int capacity) {
+      buffer = new AtomicReferenceArray<>(capacity);
+      mask = capacity - 1;
+    }
+
+    int offer(E e) {
+      long head = readCounter.get();
+      long tail = writeCounter.get();
+      if (tail - head >= buffer.length()) {
+        return FULL;
+      }
+      if (!writeCounter.compareAndSet(tail, tail + 1)) {
+        return CONTENDED;
+      }
+      buffer.lazySet((int) tail & mask, e);
+      return SUCCESS;
+    }
+
+    @Nullable
+    E poll() {
+      long head = readCounter.get();
+      if (head == writeCounter.get()) {
+        return null;
+      }
+      int index = (int) head & mask;
+      E e = buffer.get(index);
+      if (e == null) {
+        // the slot was claimed, but the producer hasn't finished writing it yet
+        return null;
+      }
+      buffer.lazySet(index, null);
+      readCounter.lazySet(head + 1);
+      return e;
+    }
+
+    @Nullable
+    E peek() {
+      long head = readCounter.get();
+      return (head == writeCounter.get()) ? null : buffer.get((int) head & mask);
+    }
+
+    long size() {
+      return writeCounter.get() - readCounter.get();
+    }
+
+    void copyInto(List<E> elements) {
+      long tail = writeCounter.get();
+      for (long i = readCounter.get(); i < tail; i++) {
+        E e = buffer.get((int) i & mask);
+        if (e != null) {
+          elements.add(e);
+        }
+      }
+    }
+  }
+}
@@ -81,6 +81,15 @@ interface ReferenceEntry<K, V> {
   /** Sets the previous entry in the access queue. */
   void setPreviousInAccessQueue(ReferenceEntry<K, V> previous);
 
+  /**
+   * Returns whether this entry is in the admission window, rather than the main region, of a
+   * Window TinyLFU access queue.
+   */
+  boolean isInAdmissionWindow();
+
+  /** Sets whether this entry is in the admission window of a Window TinyLFU access queue. */
+  void setInAdmissionWindow(boolean inAdmissionWindow);
+
   /*
    * Implemented by entries that use write order. Write entries are maintained in a doubly-linked
    * list. New entries are added at the tail of the list at write time and stale entries are
@@ -104,4 +113,33 @@ interface ReferenceEntry<K, V> {
 
   /** Sets the previous entry in the write queue. */
   void setPreviousInWriteQueue(ReferenceEntry<K, V> previous);
+
+  /*
+   * Implemented by entries that expire at variable times. These entries are maintained in the
+   * doubly-linked buckets of a {@link TimerWheel}, according to their expiration time.
+   */
+
+  /** Returns the time that this entry expires, in ns. */
+  long getExpirationTime();
+
+  /** Sets the entry expiration time in ns. */
+  void setExpirationTime(long time);
+
+  /**
+   * Sets the entry expiration time in ns to {@code time} if it is still {@code expectedTime},
+   * returning whether it was set. Used by reads, which set it without locking.
+   */
+  boolean compareAndSetExpirationTime(long expectedTime, long time);
+
+  /** Returns the next entry in the timer wheel bucket. */
+  ReferenceEntry<K, V> getNextInTimerWheel();
+
+  /** Sets the next entry in the timer wheel bucket. */
+  void setNextInTimerWheel(ReferenceEntry<K, V> next);
+
+  /** Returns the previous entry in the timer wheel bucket. */
+  ReferenceEntry<K, V> getPreviousInTimerWheel();
+
+  /** Sets the previous entry in the timer wheel bucket. */
+  void setPreviousInTimerWheel(ReferenceEntry<K, V> previous);
 }
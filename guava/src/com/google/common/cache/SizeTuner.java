@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.math.LongMath;
+import java.util.Arrays;
+
+/**
+ * Adapts the maximum size of a segment to its traffic, between a minimum and a maximum.
+ *
+ * <p>The tuner remembers the hashes of the entries recently evicted for size in a ghost sketch: a
+ * Bloom filter of two generations, which together hold about as many evictions as a segment of the
+ * largest allowed size would still be holding, plus one step. A new entry whose hash is in the
+ * ghost is a <i>ghost hit</i>: a miss that a larger segment would likely have served.
+ *
+ * <p>The tuner samples one segment-full of insertions at a time. If the segment evicted entries
+ * during a sample, and at least 1 in {@link #GROW_RATIO} of the insertions were ghost hits, it
+ * grows the segment by one step; if fewer than 1 in {@link #SHRINK_RATIO} were, the evicted entries
+ * were rarely wanted again, and it shrinks the segment by one step. Shrinking too far causes ghost
+ * hits, so the size settles where one more step of entries stops paying for itself.
+ *
+ * <p>The tuner allocates all of its memory up front, and is guarded by the lock of the segment
+ * that owns it.
+ */
+@GwtIncompatible
+final class SizeTuner {
+
+  /** The smallest number of insertions in a sample. */
+  static final int MIN_SAMPLE_SIZE = 64;
+
+  /** The number of steps between the minimum and the maximum. */
+  static final int STEPS = 16;
+
+  static final int GROW_RATIO = 16;
+  static final int SHRINK_RATIO = 64;
+
+  /** The number of bits in the ghost for each entry it holds, with {@link #PROBES} probes. */
+  static final int BITS_PER_ENTRY = 16;
+
+  static final int PROBES = 4;
+
+  /** The largest number of bits in a generation of the ghost, 128 KiB. */
+  static final int MAX_GHOST_BITS = 1 << 20;
+
+  private final long minimum;
+  private final long maximum;
+  private final long step;
+
+  /** The generation of the ghost that evictions are added to. */
+  private long[] ghost;
+
+  /** The previous generation of the ghost, which is cleared and reused once the ghost is full. */
+  private long[] previousGhost;
+
+  private final int ghostMask;
+
+  /** The number of evictions added to the current generation of the ghost. */
+  private long ghostSize;
+
+  /** The current maximum size of the segment. */
+  private long currentMaximum;
+
+  private long sampleInsertions;
+  private long sampleEvictions;
+  private long sampleGhostHits;
+
+  SizeTuner(long minimum, long maximum) {
+    checkArgument(minimum >= 0 && minimum <= maximum);
+    this.minimum = minimum;
+    this.maximum = maximum;
+    this.step = Math.max(1, (maximum - minimum) / STEPS);
+    this.currentMaximum = maximum;
+
+    long ghostCapacity =
+        Math.min(LongMath.saturatedAdd(maximum - minimum, step), MAX_GHOST_BITS / BITS_PER_ENTRY);
+    int bits = Math.max(Long.SIZE, (int) ghostCapacity * BITS_PER_ENTRY);
+    bits = Integer.highestOneBit(bits - 1) << 1;
+    this.ghost = new long[bits / Long.SIZE];
+    this.previousGhost = new long[bits / Long.SIZE];
+    this.ghostMask = bits - 1;
+  }
+
+  /** Returns the current maximum size of the segment. */
+  long currentMaximum() {
+    return currentMaximum;
+  }
+
+  /**
+   * Records that an entry with {@code hash} was added to the segment, possibly ending the sample
+   * and adjusting the maximum size.
+   */
+  void recordInsertion(int hash) {
+    if (ghostContains(hash)) {
+      sampleGhostHits++;
+    }
+    if (++sampleInsertions >= Math.max(MIN_SAMPLE_SIZE, currentMaximum)) {
+      adjust();
+    }
+  }
+
+  /** Records that an entry with {@code hash} was evicted from the segment for size. */
+  void recordEviction(int hash) {
+    sampleEvictions++;
+    // the ghost holds the evictions that a segment of the maximum size would still be holding
+    if (++ghostSize > LongMath.saturatedAdd(maximum - currentMaximum, step)) {
+      long[] cleared = previousGhost;
+      Arrays.fill(cleared, 0L);
+      previousGhost = ghost;
+      ghost = cleared;
+      ghostSize = 1;
+    }
+    long mixed = mix(hash);
+    for (int i = 0; i < PROBES; i++) {
+      int bit = probe(mixed, i);
+      ghost[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  private boolean ghostContains(int hash) {
+    long mixed = mix(hash);
+    return contains(ghost, mixed) || contains(previousGhost, mixed);
+  }
+
+  private boolean contains(long[] generation, long mixed) {
+    for (int i = 0; i < PROBES; i++) {
+      int bit = probe(mixed, i);
+      if ((generation[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Spreads the bits of {@code hash}. The hashes of a segment's entries share their high bits,
+   * which select the segment.
+   */
+  private static long mix(int hash) {
+    return hash * 0x9E3779B97F4A7C15L;
+  }
+
+  /** Returns the {@code i}th bit of the ghost to probe, by double hashing. */
+  private int probe(long mixed, int i) {
+    int h1 = (int) (mixed >>> 32);
+    int h2 = (int) mixed | 1;
+    return (h1 + i * h2) & ghostMask;
+  }
+
+  private void adjust() {
+    if (sampleEvictions > 0) {
+      if (sampleGhostHits * GROW_RATIO >= sampleInsertions) {
+        currentMaximum = Math.min(maximum, currentMaximum + step);
+      } else if (sampleGhostHits * SHRINK_RATIO < sampleInsertions) {
+        currentMaximum = Math.max(minimum, currentMaximum - step);
+      }
+    }
+    sampleInsertions = 0;
+    sampleEvictions = 0;
+    sampleGhostHits = 0;
+  }
+
+  @VisibleForTesting
+  long step() {
+    return step;
+  }
+}
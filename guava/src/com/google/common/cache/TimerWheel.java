@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.LocalCache.AbstractReferenceEntry;
+import com.google.common.cache.LocalCache.Segment;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timer wheel, which schedules the expiration of entries that each have their own
+ * expiration time in amortized O(1) time. Each level of the wheel is an array of buckets, where
+ * each bucket is a doubly-linked list of the entries expiring within the bucket's span of time.
+ * The first level has buckets of about one second, and each higher level has buckets as long as
+ * the whole of the level below it: about a minute, an hour, and a day and a half. Entries that
+ * expire even later are kept in a single overflow bucket.
+ *
+ * <p>As time advances, the buckets that have been passed over are emptied: their expired entries
+ * are removed from the segment, and the others are scheduled again, cascading down to a finer
+ * level as their expiration time draws near. The bucket for the current second is always
+ * examined, so that, as with the fixed expiration queues, no expired entry remains in the segment
+ * after {@link #advance}.
+ *
+ * <p>The wheel is guarded by the lock of the segment that owns it. Time is measured relative to
+ * the time the wheel was created, so that tickers reporting negative times are supported.
+ */
+@GwtIncompatible
+final class TimerWheel<K, V> {
+
+  /** The number of buckets in each level of the wheel. */
+  static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+  /**
+   * The span of each bucket, in ns: 1.07s, 1.14m, 1.22h, 1.63d, and 6.5d (the last is the length
+   * of time beyond which entries are kept in the overflow bucket). Each is the total span of the
+   * level below it.
+   */
+  static final long[] SPANS = {1L << 30, 1L << 36, 1L << 42, 1L << 47, 1L << 49};
+
+  /** The base 2 logarithm of each span, to compute bucket indices by shifting. */
+  static final int[] SHIFT = {30, 36, 42, 47, 49};
+
+  private final long origin;
+  private final ReferenceEntry<K, V>[][] wheel;
+
+  /** The entries being expired from a bucket; see {@link #expire}. */
+  private final ReferenceEntry<K, V> expiring = new Sentinel<>();
+
+  /** The time of the last advance, relative to {@link #origin}. */
+  private long time;
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  TimerWheel(long now) {
+    this.origin = now;
+    this.wheel = new ReferenceEntry[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      wheel[i] = new ReferenceEntry[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++) {
+        wheel[i][j] = new Sentinel<>();
+      }
+    }
+  }
+
+  /**
+   * Adds {@code entry} to the bucket for its expiration time, first removing it from any bucket
+   * it is already in.
+   */
+  void schedule(ReferenceEntry<K, V> entry) {
+    remove(entry);
+    link(findBucket(entry.getExpirationTime() - origin), entry);
+  }
+
+  /** Removes {@code entry} from its bucket, if it is in one. */
+  void remove(ReferenceEntry<K, V> entry) {
+    ReferenceEntry<K, V> next = entry.getNextInTimerWheel();
+    if (next != LocalCache.nullEntry()) {
+      connectTimerOrder(entry.getPreviousInTimerWheel(), next);
+      nullifyTimerOrder(entry);
+    }
+  }
+
+  boolean contains(ReferenceEntry<K, V> entry) {
+    return entry.getNextInTimerWheel() != LocalCache.nullEntry();
+  }
+
+  /** Removes all entries from the wheel. */
+  void clear() {
+    for (ReferenceEntry<K, V>[] buckets : wheel) {
+      for (ReferenceEntry<K, V> sentinel : buckets) {
+        unlinkAll(sentinel);
+      }
+    }
+  }
+
+  /**
+   * Advances the wheel to {@code now}, removing the entries that have expired from {@code segment}
+   * and scheduling the others that were in the buckets passed over.
+   */
+  void advance(Segment<K, V> segment, long now) {
+    checkNotNull(segment);
+    long previousTime = time;
+    long currentTime = Math.max(now - origin, previousTime);
+    time = currentTime;
+
+    // cascade from the coarsest level that has moved on, so that entries reach the finer buckets
+    // before those are examined
+    for (int i = SHIFT.length - 1; i >= 0; i--) {
+      long previousTicks = previousTime >>> SHIFT[i];
+      long delta = (currentTime >>> SHIFT[i]) - previousTicks;
+      if (delta > 0 || i == 0) {
+        expire(segment, i, previousTicks, delta, now);
+      }
+    }
+  }
+
+  /** Empties the buckets of {@code level} that were passed over by the last advance. */
+  private void expire(Segment<K, V> segment, int level, long previousTicks, long delta, long now) {
+    ReferenceEntry<K, V>[] buckets = wheel[level];
+    int mask = buckets.length - 1;
+    long steps = Math.min(1 + delta, buckets.length);
+    int start = (int) (previousTicks & mask);
+    for (int i = 0; i < steps; i++) {
+      // Move the bucket's entries into a separate list and take them from its head, as removing an
+      // entry from the segment may replace others in the same list with copies.
+      transferAll(buckets[(start + i) & mask], expiring);
+      ReferenceEntry<K, V> e;
+      while ((e = expiring.getNextInTimerWheel()) != expiring) {
+        remove(e);
+        if (e.getExpirationTime() - now <= 0) {
+          if (!segment.removeEntry(e, e.getHash(), RemovalCause.EXPIRED)) {
+            throw new AssertionError();
+          }
+        } else {
+          link(findBucket(e.getExpirationTime() - origin), e);
+        }
+      }
+    }
+  }
+
+  /** Returns the sentinel of the bucket for the given relative expiration time. */
+  private ReferenceEntry<K, V> findBucket(long expirationTime) {
+    // an entry that has already expired is kept with those expiring now, to be found promptly
+    long bucketTime = Math.max(expirationTime, time);
+    long duration = bucketTime - time;
+    int last = BUCKETS.length - 1;
+    for (int i = 0; i < last; i++) {
+      if (duration < SPANS[i + 1]) {
+        int index = (int) ((bucketTime >>> SHIFT[i]) & (BUCKETS[i] - 1));
+        return wheel[i][index];
+      }
+    }
+    return wheel[last][0];
+  }
+
+  /** Returns the entries in each bucket, in bucket order, for testing. */
+  @VisibleForTesting
+  List<List<ReferenceEntry<K, V>>> snapshot(int level) {
+    List<List<ReferenceEntry<K, V>>> snapshot = new ArrayList<>();
+    for (ReferenceEntry<K, V> sentinel : wheel[level]) {
+      List<ReferenceEntry<K, V>> bucket = new ArrayList<>();
+      for (ReferenceEntry<K, V> e = sentinel.getNextInTimerWheel();
+          e != sentinel;
+          e = e.getNextInTimerWheel()) {
+        bucket.add(e);
+      }
+      snapshot.add(bucket);
+    }
+    return snapshot;
+  }
+
+  private static <K, V> void link(ReferenceEntry<K, V> sentinel, ReferenceEntry<K, V> entry) {
+    connectTimerOrder(sentinel.getPreviousInTimerWheel(), entry);
+    connectTimerOrder(entry, sentinel);
+  }
+
+  private static <K, V> void transferAll(
+      ReferenceEntry<K, V> sentinel, ReferenceEntry<K, V> target) {
+    ReferenceEntry<K, V> first = sentinel.getNextInTimerWheel();
+    if (first == sentinel) {
+      return;
+    }
+    ReferenceEntry<K, V> last = sentinel.getPreviousInTimerWheel();
+    connectTimerOrder(target.getPreviousInTimerWheel(), first);
+    connectTimerOrder(last, target);
+    connectTimerOrder(sentinel, sentinel);
+  }
+
+  private static <K, V> void unlinkAll(ReferenceEntry<K, V> sentinel) {
+    ReferenceEntry<K, V> e = sentinel.getNextInTimerWheel();
+    while (e != sentinel) {
+      ReferenceEntry<K, V> next = e.getNextInTimerWheel();
+      nullifyTimerOrder(e);
+      e = next;
+    }
+    connectTimerOrder(sentinel, sentinel);
+  }
+
+  // Guarded By Segment.this
+  static <K, V> void connectTimerOrder(ReferenceEntry<K, V> previous, ReferenceEntry<K, V> next) {
+    previous.setNextInTimerWheel(next);
+    next.setPreviousInTimerWheel(previous);
+  }
+
+  // Guarded By Segment.this
+  static <K, V> void nullifyTimerOrder(ReferenceEntry<K, V> nulled) {
+    ReferenceEntry<K, V> nullEntry = LocalCache.nullEntry();
+    nulled.setNextInTimerWheel(nullEntry);
+    nulled.setPreviousInTimerWheel(nullEntry);
+  }
+
+  /** The head of a bucket's circular list. */
+  static final class Sentinel<K, V> extends AbstractReferenceEntry<K, V> {
+    ReferenceEntry<K, V> nextInTimerWheel = this;
+    ReferenceEntry<K, V> previousInTimerWheel = this;
+
+    @Override
+    public ReferenceEntry<K, V> getNextInTimerWheel() {
+      return nextInTimerWheel;
+    }
+
+    @Override
+    public void setNextInTimerWheel(ReferenceEntry<K, V> next) {
+      this.nextInTimerWheel = next;
+    }
+
+    @Override
+    public ReferenceEntry<K, V> getPreviousInTimerWheel() {
+      return previousInTimerWheel;
+    }
+
+    @Override
+    public void setPreviousInTimerWheel(ReferenceEntry<K, V> previous) {
+      this.previousInTimerWheel = previous;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.cache;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts cache values to and from bytes, so that they may be stored outside of the Java heap. See
+ * {@link CacheBuilder#offHeapValues}.
+ *
+ * <p>A value is serialized once, when it is stored, and deserialized each time it is read, so
+ * deserialization should be fast. The deserialized value must be equal to the value that was
+ * serialized, as values are compared using {@link Object#equals} (for example, by {@link
+ * java.util.concurrent.ConcurrentMap#replace(Object, Object, Object)}).
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible // java.nio.ByteBuffer
+public interface ValueSerializer<V> {
+
+  /**
+   * Returns the serialized form of {@code value}. The returned array is copied, and may be reused
+   * by the caller once this method returns.
+   */
+  byte[] serialize(V value);
+
+  /**
+   * Returns the value that was serialized into the remaining bytes of {@code bytes}.
+   *
+   * <p>The buffer is read-only, and is only valid for the duration of this call: its memory may be
+   * reused once the value has been removed from the cache, so the returned value must not retain
+   * the buffer or any view of it.
+   */
+  V deserialize(ByteBuffer bytes);
+}
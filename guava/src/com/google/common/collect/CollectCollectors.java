@@ -17,10 +17,12 @@
 package com.google.common.collect;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
 
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.stream.Collector;
 
@@ -63,6 +65,21 @@ final class CollectCollectors {
         ImmutableMap.Builder::build);
   }
 
+  @GwtIncompatible // ForkJoinTask
+  static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
+      Function<? super T, ? extends K> keyFunction,
+      Function<? super T, ? extends V> valueFunction,
+      int expectedSize) {
+    checkNotNull(keyFunction);
+    checkNotNull(valueFunction);
+    checkNonnegative(expectedSize, "expectedSize");
+    return Collector.of(
+        () -> new ImmutableMap.Builder<K, V>(initialCapacity(expectedSize)),
+        (builder, input) -> builder.put(keyFunction.apply(input), valueFunction.apply(input)),
+        ImmutableMap.Builder::combine,
+        ImmutableMap.Builder::build);
+  }
+
   private static final Collector<Object, ?, ImmutableSet<Object>> TO_IMMUTABLE_SET =
       Collector.of(
           ImmutableSet::<Object>builder,
@@ -74,6 +91,29 @@ final class CollectCollectors {
     return (Collector) TO_IMMUTABLE_SET;
   }
 
+  @GwtIncompatible // ForkJoinTask
+  static <E> Collector<E, ?, ImmutableSet<E>> toImmutableSet(int expectedSize) {
+    checkNonnegative(expectedSize, "expectedSize");
+    return Collector.of(
+        () -> new ImmutableSet.Builder<E>(initialCapacity(expectedSize)),
+        ImmutableSet.Builder::add,
+        ImmutableSet.Builder::combine,
+        ImmutableSet.Builder::build);
+  }
+
+  /**
+   * Returns the capacity of a builder accumulating part of a stream expected to contain {@code
+   * expectedSize} elements. A parallel stream accumulates each of its many partial results in a
+   * fork-join pool, and presizing all of them would allocate many times the memory of the result,
+   * so those start at the default capacity, and are presized only when they are combined.
+   */
+  @GwtIncompatible // ForkJoinTask
+  private static int initialCapacity(int expectedSize) {
+    return ForkJoinTask.inForkJoinPool()
+        ? ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY
+        : expectedSize;
+  }
+
   static <T, K, V> Collector<T, ?, ImmutableSortedMap<K, V>> toImmutableSortedMap(
       Comparator<? super K> comparator,
       Function<? super T, ? extends K> keyFunction,
@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+import static com.google.common.collect.CollectPreconditions.checkRemove;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Serialization.FieldSetter;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A multiset that supports concurrent modifications, with the compact layout of {@link
+ * ObjectIntHashMultiset}: the elements are divided among a fixed array of stripes by their hash
+ * codes, and each stripe is an {@code ObjectIntHashMultiset} guarded by its own lock. Every
+ * operation on a single element is atomic. Null elements are not supported.
+ *
+ * <p>Where {@link ConcurrentHashMultiset} holds each distinct element in a {@code
+ * ConcurrentHashMap} entry pointing to an {@code AtomicInteger}, this multiset holds it in two
+ * array slots, and so uses about a third of the memory; in exchange, updates of elements in the
+ * same stripe are serialized. Choose a concurrency level of at least the number of threads that
+ * update the multiset at once.
+ *
+ * <p>The iterators of the multiset and its views are weakly consistent: they copy the entries of
+ * one stripe at a time, never throw {@link java.util.ConcurrentModificationException}, and may or
+ * may not reflect updates made after they were created. Like {@link ConcurrentHashMultiset}, the
+ * results of {@link #size} and the views' sizes are undefined while other threads modify the
+ * multiset.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class ConcurrentObjectIntHashMultiset<E> extends AbstractMultiset<E>
+    implements Serializable {
+
+  /** The default number of stripes. */
+  static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+  /** The largest number of stripes. */
+  static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
+  /**
+   * Creates a new, empty {@code ConcurrentObjectIntHashMultiset} using the default initial capacity
+   * and concurrency level.
+   */
+  public static <E> ConcurrentObjectIntHashMultiset<E> create() {
+    return new ConcurrentObjectIntHashMultiset<E>(DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates a new, empty {@code ConcurrentObjectIntHashMultiset} whose elements are divided among
+   * at least {@code concurrencyLevel} stripes, up to 65,536, each of which may be updated by one
+   * thread at a time.
+   *
+   * @throws IllegalArgumentException if {@code concurrencyLevel} is not positive
+   */
+  public static <E> ConcurrentObjectIntHashMultiset<E> create(int concurrencyLevel) {
+    checkArgument(concurrencyLevel > 0, "concurrencyLevel must be positive: %s", concurrencyLevel);
+    return new ConcurrentObjectIntHashMultiset<E>(concurrencyLevel);
+  }
+
+  /**
+   * Creates a new {@code ConcurrentObjectIntHashMultiset} containing the specified elements, using
+   * the default initial capacity and concurrency level.
+   *
+   * @param elements the elements that the multiset should contain
+   */
+  public static <E> ConcurrentObjectIntHashMultiset<E> create(Iterable<? extends E> elements) {
+    ConcurrentObjectIntHashMultiset<E> multiset = create();
+    Iterables.addAll(multiset, elements);
+    return multiset;
+  }
+
+  // This constant allows the deserialization code to set a final field. This holder class
+  // makes sure it is not initialized unless an instance is deserialized.
+  private static class FieldSettersHolder {
+    @SuppressWarnings("rawtypes") // class literals are raw
+    static final FieldSetter<ConcurrentObjectIntHashMultiset> STRIPES_FIELD_SETTER =
+        Serialization.getFieldSetter(ConcurrentObjectIntHashMultiset.class, "stripes");
+  }
+
+  /** The stripes, each of which is guarded by its own monitor. */
+  private final transient ObjectIntHashMultiset<E>[] stripes;
+
+  private ConcurrentObjectIntHashMultiset(int concurrencyLevel) {
+    this.stripes = newStripes(concurrencyLevel);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  private static <E> ObjectIntHashMultiset<E>[] newStripes(int concurrencyLevel) {
+    int stripeCount = Math.min(concurrencyLevel, MAX_CONCURRENCY_LEVEL);
+    stripeCount = (stripeCount == 1) ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+    ObjectIntHashMultiset<E>[] stripes = new ObjectIntHashMultiset[stripeCount];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = ObjectIntHashMultiset.create();
+    }
+    return stripes;
+  }
+
+  /**
+   * Returns the stripe holding {@code element}, chosen by the high bits of its smeared hash code;
+   * the stripe's table uses the low bits.
+   */
+  private ObjectIntHashMultiset<E> stripeFor(Object element) {
+    int hash = Hashing.smear(element.hashCode());
+    int shift = Integer.numberOfLeadingZeros(stripes.length - 1);
+    return stripes[(hash >>> shift) & (stripes.length - 1)];
+  }
+
+  @VisibleForTesting
+  int stripeCount() {
+    return stripes.length;
+  }
+
+  @Override
+  public int count(@Nullable Object element) {
+    if (element == null) {
+      return 0;
+    }
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      return stripe.count(element);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>If the data in the multiset is modified by any other threads during this method, it is
+   * undefined which (if any) of these modifications will be reflected in the result.
+   */
+  @Override
+  public int size() {
+    long sum = 0L;
+    for (ObjectIntHashMultiset<E> stripe : stripes) {
+      synchronized (stripe) {
+        sum += stripe.size();
+      }
+    }
+    return Ints.saturatedCast(sum);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (ObjectIntHashMultiset<E> stripe : stripes) {
+      synchronized (stripe) {
+        if (!stripe.isEmpty()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  int distinctElements() {
+    int sum = 0;
+    for (ObjectIntHashMultiset<E> stripe : stripes) {
+      synchronized (stripe) {
+        sum += stripe.distinctElements();
+      }
+    }
+    return sum;
+  }
+
+  /*
+   * Note: the superclass toArray() methods assume that size() gives a correct
+   * answer, which ours does not.
+   */
+
+  @Override
+  public Object[] toArray() {
+    return snapshot().toArray();
+  }
+
+  @Override
+  public <T> T[] toArray(T[] array) {
+    return snapshot().toArray(array);
+  }
+
+  private List<E> snapshot() {
+    List<E> list = Lists.newArrayListWithExpectedSize(size());
+    for (Multiset.Entry<E> entry : entrySet()) {
+      E element = entry.getElement();
+      for (int i = entry.getCount(); i > 0; i--) {
+        list.add(element);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Adds a number of occurrences of the specified element to this multiset.
+   *
+   * @param element the element to add
+   * @param occurrences the number of occurrences to add
+   * @return the previous count of the element before the operation; possibly zero
+   * @throws IllegalArgumentException if {@code occurrences} is negative, or if the resulting amount
+   *     would exceed {@link Integer#MAX_VALUE}
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public int add(E element, int occurrences) {
+    checkNotNull(element);
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      return stripe.add(element, occurrences);
+    }
+  }
+
+  /**
+   * Removes a number of occurrences of the specified element from this multiset. If the multiset
+   * contains fewer than this number of occurrences to begin with, all occurrences will be removed.
+   *
+   * @param element the element whose occurrences should be removed
+   * @param occurrences the number of occurrences of the element to remove
+   * @return the count of the element before the operation; possibly zero
+   * @throws IllegalArgumentException if {@code occurrences} is negative
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public int remove(@Nullable Object element, int occurrences) {
+    if (element == null) {
+      checkNonnegative(occurrences, "occurrences");
+      return 0;
+    }
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      return stripe.remove(element, occurrences);
+    }
+  }
+
+  /**
+   * Removes exactly the specified number of occurrences of {@code element}, or makes no change if
+   * this is not possible.
+   *
+   * <p>This method, in contrast to {@link #remove(Object, int)}, has no effect when the element
+   * count is smaller than {@code occurrences}.
+   *
+   * @param element the element to remove
+   * @param occurrences the number of occurrences of {@code element} to remove
+   * @return {@code true} if the removal was possible (including if {@code occurrences} is zero)
+   * @throws IllegalArgumentException if {@code occurrences} is negative
+   */
+  @CanIgnoreReturnValue
+  public boolean removeExactly(@Nullable Object element, int occurrences) {
+    checkNonnegative(occurrences, "occurrences");
+    if (occurrences == 0) {
+      return true;
+    }
+    if (element == null) {
+      return false;
+    }
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      if (stripe.count(element) < occurrences) {
+        return false;
+      }
+      stripe.remove(element, occurrences);
+      return true;
+    }
+  }
+
+  /**
+   * Adds or removes occurrences of {@code element} such that the {@link #count} of the element
+   * becomes {@code count}.
+   *
+   * @return the count of {@code element} in the multiset before this call
+   * @throws IllegalArgumentException if {@code count} is negative
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public int setCount(E element, int count) {
+    checkNotNull(element);
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      return stripe.setCount(element, count);
+    }
+  }
+
+  /**
+   * Sets the number of occurrences of {@code element} to {@code newCount}, but only if the count is
+   * currently {@code expectedOldCount}. If {@code element} does not appear in the multiset exactly
+   * {@code expectedOldCount} times, no changes will be made.
+   *
+   * @return {@code true} if the change was successful. This usually indicates that the multiset has
+   *     been modified, but not always: in the case that {@code expectedOldCount == newCount}, the
+   *     method will return {@code true} if the condition was met.
+   * @throws IllegalArgumentException if {@code expectedOldCount} or {@code newCount} is negative
+   */
+  @CanIgnoreReturnValue
+  @Override
+  public boolean setCount(E element, int expectedOldCount, int newCount) {
+    checkNotNull(element);
+    checkNonnegative(expectedOldCount, "oldCount");
+    checkNonnegative(newCount, "newCount");
+    ObjectIntHashMultiset<E> stripe = stripeFor(element);
+    synchronized (stripe) {
+      if (stripe.count(element) != expectedOldCount) {
+        return false;
+      }
+      stripe.setCount(element, newCount);
+      return true;
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (ObjectIntHashMultiset<E> stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return Multisets.iteratorImpl(this);
+  }
+
+  @Override
+  Iterator<E> elementIterator() {
+    // removing an entry removes all occurrences of its element
+    return Iterators.transform(entryIterator(), Multiset.Entry::getElement);
+  }
+
+  @Override
+  Iterator<Entry<E>> entryIterator() {
+    final Iterator<Entry<E>> readOnlyIterator =
+        new AbstractIterator<Entry<E>>() {
+          private int nextStripe;
+          private Iterator<Entry<E>> stripeEntries = Iterators.emptyIterator();
+
+          @Override
+          protected Entry<E> computeNext() {
+            while (!stripeEntries.hasNext()) {
+              if (nextStripe == stripes.length) {
+                return endOfData();
+              }
+              ObjectIntHashMultiset<E> stripe = stripes[nextStripe++];
+              List<Entry<E>> entries;
+              synchronized (stripe) {
+                entries = Lists.newArrayListWithCapacity(stripe.distinctElements());
+                stripe.forEachEntry(
+                    (element, count) -> entries.add(Multisets.immutableEntry(element, count)));
+              }
+              stripeEntries = entries.iterator();
+            }
+            return stripeEntries.next();
+          }
+        };
+
+    return new ForwardingIterator<Entry<E>>() {
+      private @Nullable Entry<E> last;
+
+      @Override
+      protected Iterator<Entry<E>> delegate() {
+        return readOnlyIterator;
+      }
+
+      @Override
+      public Entry<E> next() {
+        last = super.next();
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        checkRemove(last != null);
+        ConcurrentObjectIntHashMultiset.this.setCount(last.getElement(), 0);
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * @serialData the number of stripes, the number of distinct elements, the first element, its
+   *     count, the second element, its count, and so on
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeInt(stripes.length);
+    Serialization.writeMultiset(this, stream);
+  }
+
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    int stripeCount = stream.readInt();
+    if (stripeCount <= 0) {
+      throw new InvalidObjectException("Invalid stripe count: " + stripeCount);
+    }
+    FieldSettersHolder.STRIPES_FIELD_SETTER.set(this, newStripes(stripeCount));
+    Serialization.populateMultiset(this, stream);
+  }
+
+  private static final long serialVersionUID = 0;
+}
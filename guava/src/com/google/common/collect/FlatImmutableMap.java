@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkEntryNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.j2objc.annotations.Weak;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link ImmutableMap} without an object per entry, used by {@link
+ * RegularImmutableMap#fromEntryArray} for large maps.
+ *
+ * <p>The keys and values are stored alternately in a single array, in iteration order. The hash
+ * table is open-addressed with linear probing, like that of {@link RegularImmutableSet}, save that
+ * it stores the index of each key in that array, and {@code ABSENT} for empty positions, rather
+ * than the key itself. A lookup therefore reads two contiguous arrays, rather than chasing a chain
+ * of entry objects, and the map occupies two references per entry, plus between about 1.4 and 3
+ * {@code int}s, since the table is the smallest power of two that keeps it at most 70% full.
+ *
+ * <p>The entries of the {@link #entrySet} are created on demand.
+ */
+@GwtIncompatible // RegularImmutableMap is emulated
+final class FlatImmutableMap<K, V> extends ImmutableMap<K, V> {
+  private static final int ABSENT = -1;
+
+  /**
+   * Creates an ImmutableMap from the first n entries in entryArray, which is not retained. Falls
+   * back to {@link JdkBackedImmutableMap} if probable hash flooding is detected.
+   */
+  static <K, V> ImmutableMap<K, V> create(int n, Entry<K, V>[] entryArray) {
+    Object[] alternatingKeysAndValues = new Object[2 * n];
+    int tableSize = ImmutableSet.chooseTableSize(n);
+    int[] hashTable = new int[tableSize];
+    Arrays.fill(hashTable, ABSENT);
+    int mask = tableSize - 1;
+    int maxRunBeforeFallback = ImmutableSet.maxRunBeforeFallback(tableSize);
+    for (int i = 0; i < n; i++) {
+      Entry<K, V> entry = entryArray[i];
+      K key = entry.getKey();
+      V value = entry.getValue();
+      checkEntryNotNull(key, value);
+      int h0 = Hashing.smear(key.hashCode());
+      for (int h = h0; ; h++) {
+        if (h - h0 > maxRunBeforeFallback) {
+          return JdkBackedImmutableMap.create(n, entryArray);
+        }
+        int previous = hashTable[h & mask];
+        if (previous == ABSENT) {
+          hashTable[h & mask] = 2 * i;
+          break;
+        } else if (alternatingKeysAndValues[previous].equals(key)) {
+          throw conflictException("key", entry, entryArray[previous / 2]);
+        }
+      }
+      alternatingKeysAndValues[2 * i] = key;
+      alternatingKeysAndValues[2 * i + 1] = value;
+    }
+    if (hashFloodingDetected(hashTable, maxRunBeforeFallback)) {
+      return JdkBackedImmutableMap.create(n, entryArray);
+    }
+    return new FlatImmutableMap<>(hashTable, alternatingKeysAndValues);
+  }
+
+  /**
+   * Checks for a run of occupied positions longer than {@code maxRun}, which no single insertion
+   * need have probed, but which a query could. See {@link ImmutableSet#hashFloodingDetected}.
+   */
+  private static boolean hashFloodingDetected(int[] hashTable, int maxRun) {
+    int mask = hashTable.length - 1;
+    // the table is never full, so start just after an empty position to see every run whole
+    int start = 0;
+    while (hashTable[start] != ABSENT) {
+      start++;
+    }
+    int run = 0;
+    for (int i = 1; i <= hashTable.length; i++) {
+      if (hashTable[(start + i) & mask] == ABSENT) {
+        run = 0;
+      } else if (++run > maxRun) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private final transient int[] hashTable;
+  @VisibleForTesting final transient Object[] alternatingKeysAndValues;
+
+  private FlatImmutableMap(int[] hashTable, Object[] alternatingKeysAndValues) {
+    this.hashTable = hashTable;
+    this.alternatingKeysAndValues = alternatingKeysAndValues;
+  }
+
+  @SuppressWarnings("unchecked") // the odd elements are values
+  @Override
+  public @Nullable V get(@Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    int mask = hashTable.length - 1;
+    for (int h = Hashing.smear(key.hashCode()); ; h++) {
+      int index = hashTable[h & mask];
+      if (index == ABSENT) {
+        return null;
+      } else if (alternatingKeysAndValues[index].equals(key)) {
+        return (V) alternatingKeysAndValues[index + 1];
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked") // keys and values alternate
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    checkNotNull(action);
+    for (int i = 0; i < alternatingKeysAndValues.length; i += 2) {
+      action.accept((K) alternatingKeysAndValues[i], (V) alternatingKeysAndValues[i + 1]);
+    }
+  }
+
+  @Override
+  public int size() {
+    return alternatingKeysAndValues.length / 2;
+  }
+
+  @Override
+  boolean isPartialView() {
+    return false;
+  }
+
+  @Override
+  ImmutableSet<Entry<K, V>> createEntrySet() {
+    return new ImmutableMapEntrySet.RegularEntrySet<>(this, new EntryList());
+  }
+
+  @Override
+  ImmutableSet<K> createKeySet() {
+    return new KeySet<>(this);
+  }
+
+  @Override
+  ImmutableCollection<V> createValues() {
+    return new Values<>(this);
+  }
+
+  private final class EntryList extends ImmutableList<Entry<K, V>> {
+    @SuppressWarnings("unchecked") // keys and values alternate
+    @Override
+    public Entry<K, V> get(int index) {
+      checkElementIndex(index, size());
+      return new ImmutableMapEntry<>(
+          (K) alternatingKeysAndValues[2 * index], (V) alternatingKeysAndValues[2 * index + 1]);
+    }
+
+    @Override
+    public int size() {
+      return FlatImmutableMap.this.size();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+  }
+
+  private static final class KeySet<K> extends IndexedImmutableSet<K> {
+    @Weak private final FlatImmutableMap<K, ?> map;
+
+    KeySet(FlatImmutableMap<K, ?> map) {
+      this.map = map;
+    }
+
+    @SuppressWarnings("unchecked") // the even elements are keys
+    @Override
+    K get(int index) {
+      return (K) map.alternatingKeysAndValues[2 * index];
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      return map.containsKey(object);
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    Object writeReplace() {
+      return new KeySetSerializedForm<K>(map);
+    }
+  }
+
+  private static class KeySetSerializedForm<K> implements Serializable {
+    final ImmutableMap<K, ?> map;
+
+    KeySetSerializedForm(ImmutableMap<K, ?> map) {
+      this.map = map;
+    }
+
+    Object readResolve() {
+      return map.keySet();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final class Values<V> extends ImmutableList<V> {
+    @Weak private final FlatImmutableMap<?, V> map;
+
+    Values(FlatImmutableMap<?, V> map) {
+      this.map = map;
+    }
+
+    @SuppressWarnings("unchecked") // the odd elements are values
+    @Override
+    public V get(int index) {
+      checkElementIndex(index, size());
+      return (V) map.alternatingKeysAndValues[2 * index + 1];
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return true;
+    }
+
+    @Override
+    Object writeReplace() {
+      return new ValuesSerializedForm<V>(map);
+    }
+  }
+
+  private static class ValuesSerializedForm<V> implements Serializable {
+    final ImmutableMap<?, V> map;
+
+    ValuesSerializedForm(ImmutableMap<?, V> map) {
+      this.map = map;
+    }
+
+    Object readResolve() {
+      return map.values();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  // This class is never actually serialized directly, but we have to make the
+  // warning go away (and suppressing would suppress for all nested classes too)
+  private static final long serialVersionUID = 0;
+}
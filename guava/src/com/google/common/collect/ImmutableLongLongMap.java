@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.google.errorprone.annotations.Immutable;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable {@link LongLongMap}, with the compact open-addressing layout of {@link
+ * LongLongHashMap}.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+@Immutable
+public final class ImmutableLongLongMap implements LongLongMap {
+  private static final ImmutableLongLongMap EMPTY =
+      new ImmutableLongLongMap(LongLongHashMap.createWithExpectedSize(0));
+
+  /** Returns the empty map. */
+  public static ImmutableLongLongMap of() {
+    return EMPTY;
+  }
+
+  /** Returns an immutable map containing a single mapping. */
+  public static ImmutableLongLongMap of(long k1, long v1) {
+    return ImmutableLongLongMap.builderWithExpectedSize(1).put(k1, v1).build();
+  }
+
+  /**
+   * Returns an immutable map containing the given mappings.
+   *
+   * @throws IllegalArgumentException if duplicate keys are provided
+   */
+  public static ImmutableLongLongMap of(long k1, long v1, long k2, long v2) {
+    return ImmutableLongLongMap.builderWithExpectedSize(2).put(k1, v1).put(k2, v2).build();
+  }
+
+  /**
+   * Returns an immutable map containing the same mappings as {@code map}. If {@code map} is itself
+   * an {@code ImmutableLongLongMap}, it is returned without copying.
+   */
+  public static ImmutableLongLongMap copyOf(LongLongMap map) {
+    if (map instanceof ImmutableLongLongMap) {
+      return (ImmutableLongLongMap) map;
+    }
+    return map.isEmpty() ? of() : new ImmutableLongLongMap(LongLongHashMap.create(map));
+  }
+
+  /** Returns a new builder. */
+  public static Builder builder() {
+    return new Builder(LongLongHashMap.create());
+  }
+
+  /**
+   * Returns a new builder, which will hold {@code expectedSize} mappings without resizing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static Builder builderWithExpectedSize(int expectedSize) {
+    checkNonnegative(expectedSize, "expectedSize");
+    return new Builder(LongLongHashMap.createWithExpectedSize(expectedSize));
+  }
+
+  /**
+   * A builder for creating {@code ImmutableLongLongMap} instances. Builder instances can be
+   * reused; it is safe to call {@link #build} multiple times to build multiple maps in series.
+   *
+   * @since NEXT
+   */
+  public static final class Builder {
+    private final LongLongHashMap map;
+
+    private Builder(LongLongHashMap map) {
+      this.map = map;
+    }
+
+    /**
+     * Associates {@code key} with {@code value} in the built map.
+     *
+     * @throws IllegalArgumentException if {@code key} has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder put(long key, long value) {
+      if (map.containsKey(key)) {
+        throw new IllegalArgumentException(
+            "Multiple entries with same key: "
+                + key
+                + "="
+                + map.getOrDefault(key, 0)
+                + " and "
+                + key
+                + "="
+                + value);
+      }
+      map.put(key, value);
+      return this;
+    }
+
+    /**
+     * Associates all of the mappings of {@code map} in the built map.
+     *
+     * @throws IllegalArgumentException if any of their keys has already been put
+     */
+    @CanIgnoreReturnValue
+    public Builder putAll(LongLongMap map) {
+      map.forEach(this::put);
+      return this;
+    }
+
+    /** Returns a newly-created immutable map of the mappings put into this builder. */
+    public ImmutableLongLongMap build() {
+      return map.isEmpty() ? of() : new ImmutableLongLongMap(LongLongHashMap.create(map));
+    }
+  }
+
+  @SuppressWarnings("Immutable") // never modified after construction
+  private final LongLongHashMap map;
+
+  private ImmutableLongLongMap(LongLongHashMap map) {
+    this.map = map;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(long key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public long getOrDefault(long key, long defaultValue) {
+    return map.getOrDefault(key, defaultValue);
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public void put(long key, long value) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public long addTo(long key, long delta) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @CanIgnoreReturnValue
+  @Deprecated
+  @Override
+  public boolean remove(long key) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Guaranteed to throw an exception and leave the map unmodified.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Unsupported operation.
+   */
+  @Deprecated
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void forEach(EntryConsumer action) {
+    map.forEach(action);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    return PrimitiveMaps.equalsImpl(this, object);
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return map.toString();
+  }
+}
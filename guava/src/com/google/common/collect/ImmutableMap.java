@@ -23,6 +23,7 @@ import static com.google.common.collect.CollectPreconditions.checkNonnegative;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.concurrent.LazyInit;
@@ -82,6 +83,29 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     return CollectCollectors.toImmutableMap(keyFunction, valueFunction);
   }
 
+  /**
+   * Returns a {@link Collector} like {@link #toImmutableMap(Function, Function)}, which expects the
+   * stream to contain {@code expectedSize} elements. Like {@link #builderWithExpectedSize}, this
+   * lets a sequential stream accumulate its entries without repeatedly growing the builder. A
+   * parallel stream accumulates its partial results at their default size, since it has many of
+   * them, and sizes each combination of partial results for all of their entries at once. A
+   * collector cannot tell whether its stream is parallel, so it treats every stream collected in a
+   * {@link java.util.concurrent.ForkJoinPool} this way; a sequential stream collected in a
+   * fork-join task, such as an operation of another parallel stream, accumulates as with {@link
+   * #toImmutableMap(Function, Function)}.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinTask
+  public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
+      Function<? super T, ? extends K> keyFunction,
+      Function<? super T, ? extends V> valueFunction,
+      int expectedSize) {
+    return CollectCollectors.toImmutableMap(keyFunction, valueFunction, expectedSize);
+  }
+
   /**
    * Returns a {@link Collector} that accumulates elements into an {@code ImmutableMap} whose keys
    * and values are the result of applying the provided mapping functions to the input elements.
@@ -22,6 +22,7 @@ import static com.google.common.collect.CollectPreconditions.checkNonnegative;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.math.IntMath;
 import com.google.common.primitives.Ints;
@@ -67,6 +68,26 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     return CollectCollectors.toImmutableSet();
   }
 
+  /**
+   * Returns a {@code Collector} like {@link #toImmutableSet()}, which expects the stream to contain
+   * {@code expectedSize} distinct elements. Like {@link #builderWithExpectedSize}, this lets a
+   * sequential stream accumulate its elements without repeatedly growing the set's hash table. A
+   * parallel stream accumulates its partial results at their default size, since it has many of
+   * them, and sizes each combination of partial results for all of their elements at once. A
+   * collector cannot tell whether its stream is parallel, so it treats every stream collected in a
+   * {@link java.util.concurrent.ForkJoinPool} this way; a sequential stream collected in a
+   * fork-join task, such as an operation of another parallel stream, accumulates as with {@link
+   * #toImmutableSet()}.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   * @since NEXT
+   */
+  @Beta
+  @GwtIncompatible // ForkJoinTask
+  public static <E> Collector<E, ?, ImmutableSet<E>> toImmutableSet(int expectedSize) {
+    return CollectCollectors.toImmutableSet(expectedSize);
+  }
+
   /**
    * Returns the empty immutable set. Preferred over {@link Collections#emptySet} for code
    * consistency, and because the return type conveys the immutability guarantee.
@@ -570,8 +591,18 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
      */
     abstract SetBuilderImpl<E> add(E e);
 
+    /**
+     * Resizes internal data structures if necessary to store the specified number of distinct
+     * elements without rehashing as they are added.
+     */
+    void presize(int minCapacity) {
+      ensureCapacity(minCapacity);
+    }
+
     /** Adds all the elements from the specified SetBuilderImpl to this SetBuilderImpl. */
     final SetBuilderImpl<E> combine(SetBuilderImpl<E> other) {
+      // Merging large partial results, as a parallel stream does, should rehash at most once.
+      presize(distinct + other.distinct);
       SetBuilderImpl<E> result = this;
       for (int i = 0; i < other.distinct; i++) {
         result = result.add(other.dedupedElements[i]);
@@ -729,13 +760,22 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
 
     void ensureTableCapacity(int minCapacity) {
       if (minCapacity > expandTableThreshold && hashTable.length < MAX_TABLE_SIZE) {
-        int newTableSize = hashTable.length * 2;
+        int newTableSize =
+            (minCapacity < CUTOFF)
+                ? Math.max(hashTable.length * 2, chooseTableSize(minCapacity))
+                : MAX_TABLE_SIZE;
         hashTable = rebuildHashTable(newTableSize, dedupedElements, distinct);
         maxRunBeforeFallback = maxRunBeforeFallback(newTableSize);
         expandTableThreshold = (int) (DESIRED_LOAD_FACTOR * newTableSize);
       }
     }
 
+    @Override
+    void presize(int minCapacity) {
+      super.presize(minCapacity);
+      ensureTableCapacity(minCapacity);
+    }
+
     @Override
     SetBuilderImpl<E> add(E e) {
       checkNotNull(e);
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Converter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.IntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Static methods for writing the contents of maps and sets to <i>snapshot</i> files, and for
+ * opening those files as immutable collections which serve their queries directly from a memory
+ * mapping of the file.
+ *
+ * <p>Opening a snapshot reads only a small footer: the keys and values stay in the file, outside of
+ * the Java heap, and are decoded from it on demand each time they are queried. A large collection
+ * is therefore available as soon as it is opened, and occupies page cache rather than heap; in
+ * exchange, each query decodes the element it returns, and repeated queries return equal but
+ * distinct objects.
+ *
+ * <p>Keys, values and elements are encoded to bytes by a {@link Converter} supplied by the caller,
+ * whose {@linkplain Converter#reverse reverse} decodes them. A key codec must encode equal keys to
+ * equal byte arrays and distinct keys to distinct byte arrays, since hashed snapshots compare keys
+ * by their encodings. A snapshot must be opened with the codecs it was written with.
+ *
+ * <p>A snapshot file is limited to {@link Integer#MAX_VALUE} bytes. Its format is independent of
+ * the JVM that wrote it, but is not otherwise guaranteed to be stable between releases of this
+ * library. The file must not be modified while it is open; the mapping is released when the
+ * collection is garbage collected.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class ImmutableSnapshots {
+  private ImmutableSnapshots() {}
+
+  /**
+   * Writes the mappings of {@code map} to a snapshot {@code file}, replacing any existing contents,
+   * for {@link #openMap}.
+   *
+   * @throws IllegalArgumentException if the snapshot would exceed {@link Integer#MAX_VALUE} bytes,
+   *     or if {@code keyCodec} encodes two keys to the same bytes
+   * @throws IOException if an I/O error occurs
+   */
+  public static <K, V> void writeMap(
+      Map<K, V> map, Converter<K, byte[]> keyCodec, Converter<V, byte[]> valueCodec, File file)
+      throws IOException {
+    writeEntries(map, keyCodec, valueCodec, file, MappedSnapshot.MAP);
+  }
+
+  /**
+   * Writes the elements of {@code set} to a snapshot {@code file}, replacing any existing contents,
+   * for {@link #openSet}.
+   *
+   * @throws IllegalArgumentException if the snapshot would exceed {@link Integer#MAX_VALUE} bytes,
+   *     or if {@code codec} encodes two elements to the same bytes
+   * @throws IOException if an I/O error occurs
+   */
+  public static <E> void writeSet(Set<E> set, Converter<E, byte[]> codec, File file)
+      throws IOException {
+    checkNotNull(set);
+    checkNotNull(codec);
+    checkNotNull(file);
+    try (MappedSnapshot.Writer writer =
+        new MappedSnapshot.Writer(file, MappedSnapshot.SET, set.size())) {
+      for (E element : set) {
+        writer.add(encode(codec, element), null);
+      }
+      writer.finish();
+    }
+  }
+
+  /**
+   * Writes the mappings of {@code map} to a snapshot {@code file} in the order of its keys,
+   * replacing any existing contents, for {@link #openSortedMap}.
+   *
+   * @throws IllegalArgumentException if the snapshot would exceed {@link Integer#MAX_VALUE} bytes
+   * @throws IOException if an I/O error occurs
+   */
+  public static <K, V> void writeSortedMap(
+      SortedMap<K, V> map,
+      Converter<K, byte[]> keyCodec,
+      Converter<V, byte[]> valueCodec,
+      File file)
+      throws IOException {
+    writeEntries(map, keyCodec, valueCodec, file, MappedSnapshot.SORTED_MAP);
+  }
+
+  private static <K, V> void writeEntries(
+      Map<K, V> map,
+      Converter<K, byte[]> keyCodec,
+      Converter<V, byte[]> valueCodec,
+      File file,
+      int kind)
+      throws IOException {
+    checkNotNull(map);
+    checkNotNull(keyCodec);
+    checkNotNull(valueCodec);
+    checkNotNull(file);
+    try (MappedSnapshot.Writer writer = new MappedSnapshot.Writer(file, kind, map.size())) {
+      for (Entry<K, V> entry : map.entrySet()) {
+        writer.add(encode(keyCodec, entry.getKey()), encode(valueCodec, entry.getValue()));
+      }
+      writer.finish();
+    }
+  }
+
+  private static <T> byte[] encode(Converter<T, byte[]> codec, T value) {
+    return checkNotNull(codec.convert(checkNotNull(value)), "codec encoded %s as null", value);
+  }
+
+  /**
+   * Opens a snapshot {@code file} written by {@link #writeMap} as an immutable map, which iterates
+   * in the order in which the mappings were written. Looking up a key encodes it, and finds its
+   * mapping by hashing the encoding; only the value found is decoded.
+   *
+   * @throws IOException if an I/O error occurs, or if {@code file} is not a map snapshot
+   */
+  public static <K, V> ImmutableMap<K, V> openMap(
+      File file, Converter<K, byte[]> keyCodec, Converter<V, byte[]> valueCodec)
+      throws IOException {
+    checkNotNull(keyCodec);
+    checkNotNull(valueCodec);
+    checkNotNull(file);
+    MappedSnapshot snapshot = MappedSnapshot.open(file, MappedSnapshot.MAP);
+    return (snapshot.size() == 0)
+        ? ImmutableMap.<K, V>of()
+        : new MappedImmutableMap<K, V>(snapshot, keyCodec, valueCodec);
+  }
+
+  /**
+   * Opens a snapshot {@code file} written by {@link #writeSet} as an immutable set, which iterates
+   * in the order in which the elements were written. Testing whether it contains an element encodes
+   * the element, and looks it up by hashing the encoding.
+   *
+   * @throws IOException if an I/O error occurs, or if {@code file} is not a set snapshot
+   */
+  public static <E> ImmutableSet<E> openSet(File file, Converter<E, byte[]> codec)
+      throws IOException {
+    checkNotNull(codec);
+    checkNotNull(file);
+    MappedSnapshot snapshot = MappedSnapshot.open(file, MappedSnapshot.SET);
+    return (snapshot.size() == 0)
+        ? ImmutableSet.<E>of()
+        : new MappedImmutableSet<E>(snapshot, codec);
+  }
+
+  /**
+   * Opens a snapshot {@code file} written by {@link #writeSortedMap} as an immutable sorted map.
+   * Looking up a key binary searches the snapshot, decoding the keys it compares {@code key} with.
+   *
+   * @param comparator the comparator the snapshot's keys were sorted by when it was written
+   * @throws IOException if an I/O error occurs, or if {@code file} is not a sorted map snapshot
+   */
+  public static <K, V> ImmutableSortedMap<K, V> openSortedMap(
+      File file,
+      Comparator<? super K> comparator,
+      Converter<K, byte[]> keyCodec,
+      Converter<V, byte[]> valueCodec)
+      throws IOException {
+    checkNotNull(file);
+    checkNotNull(comparator);
+    Converter<byte[], K> keyDecoder = keyCodec.reverse();
+    Converter<byte[], V> valueDecoder = valueCodec.reverse();
+    MappedSnapshot snapshot = MappedSnapshot.open(file, MappedSnapshot.SORTED_MAP);
+    if (snapshot.size() == 0) {
+      return ImmutableSortedMap.emptyMap(comparator);
+    }
+    ImmutableList<K> keys =
+        new MappedList<K>(snapshot.size(), index -> keyDecoder.convert(snapshot.key(index)));
+    ImmutableList<V> values =
+        new MappedList<V>(snapshot.size(), index -> valueDecoder.convert(snapshot.value(index)));
+    return new ImmutableSortedMap<K, V>(
+        new RegularImmutableSortedSet<K>(keys, comparator), values);
+  }
+
+  /**
+   * Returns the encoding of {@code key} by {@code codec}, or null if {@code key} is null or of the
+   * wrong type.
+   */
+  @SuppressWarnings("unchecked") // the codec rejects keys of the wrong type
+  private static <K> byte @Nullable [] encodeQuery(
+      Converter<K, byte[]> codec, @Nullable Object key) {
+    if (key == null) {
+      return null;
+    }
+    try {
+      return codec.convert((K) key);
+    } catch (ClassCastException e) {
+      return null;
+    }
+  }
+
+  private static final class MappedImmutableMap<K, V>
+      extends ImmutableMap.IteratorBasedImmutableMap<K, V> {
+    private final MappedSnapshot snapshot;
+    private final Converter<K, byte[]> keyCodec;
+    private final Converter<byte[], K> keyDecoder;
+    private final Converter<byte[], V> valueDecoder;
+
+    MappedImmutableMap(
+        MappedSnapshot snapshot, Converter<K, byte[]> keyCodec, Converter<V, byte[]> valueCodec) {
+      this.snapshot = snapshot;
+      this.keyCodec = keyCodec;
+      this.keyDecoder = keyCodec.reverse();
+      this.valueDecoder = valueCodec.reverse();
+    }
+
+    @Override
+    public @Nullable V get(@Nullable Object key) {
+      byte[] encoded = encodeQuery(keyCodec, key);
+      int index = (encoded == null) ? -1 : snapshot.indexOf(encoded);
+      return (index < 0) ? null : valueDecoder.convert(snapshot.value(index));
+    }
+
+    @Override
+    UnmodifiableIterator<Entry<K, V>> entryIterator() {
+      return new AbstractIndexedListIterator<Entry<K, V>>(snapshot.size()) {
+        @Override
+        protected Entry<K, V> get(int index) {
+          return Maps.immutableEntry(
+              keyDecoder.convert(snapshot.key(index)), valueDecoder.convert(snapshot.value(index)));
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return snapshot.size();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+  }
+
+  private static final class MappedImmutableSet<E> extends ImmutableSet.Indexed<E> {
+    private final MappedSnapshot snapshot;
+    private final Converter<E, byte[]> codec;
+    private final Converter<byte[], E> decoder;
+
+    MappedImmutableSet(MappedSnapshot snapshot, Converter<E, byte[]> codec) {
+      this.snapshot = snapshot;
+      this.codec = codec;
+      this.decoder = codec.reverse();
+    }
+
+    @Override
+    E get(int index) {
+      return decoder.convert(snapshot.key(index));
+    }
+
+    @Override
+    public boolean contains(@Nullable Object object) {
+      byte[] encoded = encodeQuery(codec, object);
+      return encoded != null && snapshot.indexOf(encoded) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return snapshot.size();
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+  }
+
+  /** A list which decodes each of its elements from a snapshot when it is requested. */
+  private static final class MappedList<E> extends ImmutableList<E> {
+    private final int size;
+    private final IntFunction<E> decoder;
+
+    MappedList(int size, IntFunction<E> decoder) {
+      this.size = size;
+      this.decoder = decoder;
+    }
+
+    @Override
+    public E get(int index) {
+      checkElementIndex(index, size);
+      return decoder.apply(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    boolean isPartialView() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.CollectPreconditions.checkNonnegative;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link IntObjectMap} backed by an open-addressing hash table, which stores its keys and values
+ * in two parallel arrays and resolves collisions by linear probing.
+ *
+ * <p>Lookups probe consecutive slots of the key array from a slot chosen by the same hash spreading
+ * as Guava's other hash-based collections, so they touch no memory but the two arrays, and neither
+ * lookups nor updates allocate unless the table is resized. Removal shifts later entries back
+ * rather than leaving a marker, so the table never fills with deleted slots.
+ *
+ * <p>The table is kept at most {@linkplain #LOAD_FACTOR three-quarters} full, so a map of {@code n}
+ * mappings uses about {@code 11n} to {@code 22n} bytes for its arrays (with compressed references).
+ * This class is not thread-safe.
+ *
+ * @param <V> the type of the mapped values
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class IntObjectHashMap<V> implements IntObjectMap<V> {
+  /** The maximum ratio of mappings to slots. */
+  static final double LOAD_FACTOR = 0.75;
+
+  private static final int DEFAULT_SIZE = 8;
+
+  /** Creates an empty {@code IntObjectHashMap}. */
+  public static <V> IntObjectHashMap<V> create() {
+    return new IntObjectHashMap<>(DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates an empty {@code IntObjectHashMap} with room for {@code expectedSize} mappings without
+   * resizing.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static <V> IntObjectHashMap<V> createWithExpectedSize(int expectedSize) {
+    return new IntObjectHashMap<>(checkNonnegative(expectedSize, "expectedSize"));
+  }
+
+  /** Creates a mutable {@code IntObjectHashMap} with the same mappings as {@code map}. */
+  public static <V> IntObjectHashMap<V> create(IntObjectMap<? extends V> map) {
+    final IntObjectHashMap<V> result = new IntObjectHashMap<>(map.size());
+    map.forEach(result::put);
+    return result;
+  }
+
+  private int[] keys;
+
+  /** The values, or null for the empty slots. */
+  private @Nullable Object[] values;
+
+  private int size;
+
+  private IntObjectHashMap(int expectedSize) {
+    int tableSize = PrimitiveMaps.tableSize(expectedSize, LOAD_FACTOR);
+    keys = new int[tableSize];
+    values = new Object[tableSize];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public boolean containsKey(int key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public @Nullable V get(int key) {
+    int index = indexOf(key);
+    return (index < 0) ? null : valueAt(index);
+  }
+
+  @Override
+  public @Nullable V getOrDefault(int key, @Nullable V defaultValue) {
+    int index = indexOf(key);
+    return (index < 0) ? defaultValue : valueAt(index);
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public @Nullable V put(int key, V value) {
+    checkNotNull(value);
+    int mask = values.length - 1;
+    for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+      if (values[i] == null) {
+        keys[i] = key;
+        values[i] = value;
+        if (Hashing.needsResizing(++size, values.length, LOAD_FACTOR)) {
+          resize(values.length * 2);
+        } else if (size == values.length) {
+          // keep a slot empty, to end the probes for absent keys
+          values[i] = null;
+          size--;
+          throw new IllegalStateException("IntObjectHashMap is full");
+        }
+        return null;
+      }
+      if (keys[i] == key) {
+        V previous = valueAt(i);
+        values[i] = value;
+        return previous;
+      }
+    }
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public @Nullable V remove(int key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    V previous = valueAt(index);
+    deleteAt(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  @Override
+  public void forEach(EntryConsumer<? super V> action) {
+    checkNotNull(action);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        action.accept(keys[i], valueAt(i));
+      }
+    }
+  }
+
+  /** Returns the slot holding {@code key}, or -1 if it has no mapping. */
+  private int indexOf(int key) {
+    int mask = values.length - 1;
+    for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+      if (values[i] == null) {
+        return -1;
+      }
+      if (keys[i] == key) {
+        return i;
+      }
+    }
+  }
+
+  /** Returns the slot at which the probe for {@code key} starts. */
+  private static int slot(int key, int mask) {
+    return Hashing.smear(key) & mask;
+  }
+
+  @SuppressWarnings("unchecked") // only Vs are stored in values
+  private V valueAt(int index) {
+    return (V) values[index];
+  }
+
+  /**
+   * Empties the slot at {@code gap}, moving back each later entry of its run that may no longer be
+   * found once the slot is empty: those whose probes start cyclically at or before the gap.
+   */
+  private void deleteAt(int gap) {
+    int mask = values.length - 1;
+    for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+      int home = slot(keys[i], mask);
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        values[gap] = values[i];
+        gap = i;
+      }
+    }
+    values[gap] = null;
+    size--;
+  }
+
+  private void resize(int newTableSize) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[newTableSize];
+    values = new Object[newTableSize];
+    int mask = newTableSize - 1;
+    for (int j = 0; j < oldValues.length; j++) {
+      if (oldValues[j] != null) {
+        int i = slot(oldKeys[j], mask);
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int tableSize() {
+    return values.length;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    return PrimitiveMaps.equalsImpl(this, object);
+  }
+
+  @Override
+  public int hashCode() {
+    return PrimitiveMaps.hashCodeImpl(this);
+  }
+
+  @Override
+  public String toString() {
+    return PrimitiveMaps.toStringImpl(this);
+  }
+}
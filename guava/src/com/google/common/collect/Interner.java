@@ -44,4 +44,19 @@ public interface Interner<E> {
    */
   @CanIgnoreReturnValue // TODO(cpovirk): Consider removing this?
   E intern(E sample);
+
+  /**
+   * Replaces each element of {@code samples} with its representative instance, as if by calling
+   * {@link #intern} on each of them in turn. Implementations may intern a large array of samples
+   * considerably faster than separate calls would.
+   *
+   * @throws NullPointerException if {@code samples} contains a null element, in which case some of
+   *     its other elements may already have been replaced
+   * @since NEXT
+   */
+  default void internAll(E[] samples) {
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = intern(samples[i]);
+    }
+  }
 }
@@ -14,7 +14,9 @@
 
 package com.google.common.collect;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtIncompatible;
@@ -43,6 +45,8 @@ public final class Interners {
   public static class InternerBuilder {
     private final MapMaker mapMaker = new MapMaker();
     private boolean strong = true;
+    private boolean striped = false;
+    private long maximumSize = StripedInterner.UNBOUNDED;
 
     private InternerBuilder() {}
 
@@ -77,7 +81,50 @@ public final class Interners {
       return this;
     }
 
+    /**
+     * Instructs the {@link InternerBuilder} to build a strong interner which finds instances it
+     * has already interned without locking or allocating, and only locks to intern a new instance.
+     * This performs considerably better than the default strong interner when most calls to {@link
+     * Interner#intern} find an instance that was interned before, as when interning the tokens of
+     * a large input, and it also interns arrays of samples in bulk with {@link
+     * Interner#internAll}.
+     *
+     * @since NEXT
+     */
+    public InternerBuilder striped() {
+      this.striped = true;
+      return this;
+    }
+
+    /**
+     * Instructs the {@link InternerBuilder} to build a striped interner which retains at most about
+     * {@code maximumSize} instances, discarding approximately the least recently interned instance
+     * to make room for a new one. Once an instance is discarded, {@code intern} may return a
+     * different instance equal to it, as a weak interner may once an instance is
+     * garbage-collected.
+     *
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive
+     * @see #striped()
+     * @since NEXT
+     */
+    public InternerBuilder maximumSize(long maximumSize) {
+      checkArgument(maximumSize > 0, "maximumSize must be positive but was %s", maximumSize);
+      this.maximumSize = maximumSize;
+      this.striped = true;
+      return this;
+    }
+
+    /**
+     * Builds an interner as instructed.
+     *
+     * @throws IllegalStateException if a weak interner was requested, along with {@link #striped}
+     *     or {@link #maximumSize}
+     */
     public <E> Interner<E> build() {
+      if (striped) {
+        checkState(strong, "weak interners cannot be striped or bounded");
+        return new StripedInterner<E>(mapMaker.getConcurrencyLevel(), maximumSize);
+      }
       if (!strong) {
         mapMaker.weakKeys();
       }
@@ -110,6 +157,18 @@ public final class Interners {
     return newBuilder().weak().build();
   }
 
+  /**
+   * Returns a new thread-safe interner which retains a strong reference to each instance it has
+   * interned, like {@link #newStrongInterner}, but which returns an instance it has already
+   * interned without locking.
+   *
+   * @see InternerBuilder#striped()
+   * @since NEXT
+   */
+  public static <E> Interner<E> newStripedInterner() {
+    return newBuilder().striped().build();
+  }
+
   @VisibleForTesting
   static final class InternerImpl<E> implements Interner<E> {
     // MapMaker is our friend, we know about this type
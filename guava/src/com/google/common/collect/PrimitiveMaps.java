@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementations of {@code equals}, {@code hashCode} and {@code toString}, and of table sizing,
+ * shared by the maps with primitive keys: {@link IntObjectMap}, {@link LongObjectMap} and {@link
+ * LongLongMap}.
+ */
+@GwtIncompatible
+final class PrimitiveMaps {
+  private PrimitiveMaps() {}
+
+  /**
+   * Returns the size of the smallest table, a power of two, that holds {@code expectedSize}
+   * mappings without exceeding {@code loadFactor}.
+   */
+  static int tableSize(int expectedSize, double loadFactor) {
+    int tableSize = Hashing.closedTableSize(expectedSize, loadFactor);
+    // closedTableSize may return a table that is fuller than loadFactor
+    return Hashing.needsResizing(expectedSize, tableSize, loadFactor) ? tableSize * 2 : tableSize;
+  }
+
+  static boolean equalsImpl(IntObjectMap<?> map, @Nullable Object object) {
+    if (object == map) {
+      return true;
+    }
+    if (!(object instanceof IntObjectMap)) {
+      return false;
+    }
+    final IntObjectMap<?> other = (IntObjectMap<?>) object;
+    if (map.size() != other.size()) {
+      return false;
+    }
+    final boolean[] equal = {true};
+    map.forEach(
+        (key, value) -> {
+          if (equal[0] && !value.equals(other.get(key))) {
+            equal[0] = false;
+          }
+        });
+    return equal[0];
+  }
+
+  static boolean equalsImpl(LongObjectMap<?> map, @Nullable Object object) {
+    if (object == map) {
+      return true;
+    }
+    if (!(object instanceof LongObjectMap)) {
+      return false;
+    }
+    final LongObjectMap<?> other = (LongObjectMap<?>) object;
+    if (map.size() != other.size()) {
+      return false;
+    }
+    final boolean[] equal = {true};
+    map.forEach(
+        (key, value) -> {
+          if (equal[0] && !value.equals(other.get(key))) {
+            equal[0] = false;
+          }
+        });
+    return equal[0];
+  }
+
+  static boolean equalsImpl(LongLongMap map, @Nullable Object object) {
+    if (object == map) {
+      return true;
+    }
+    if (!(object instanceof LongLongMap)) {
+      return false;
+    }
+    final LongLongMap other = (LongLongMap) object;
+    if (map.size() != other.size()) {
+      return false;
+    }
+    final boolean[] equal = {true};
+    map.forEach(
+        (key, value) -> {
+          if (equal[0] && (!other.containsKey(key) || other.getOrDefault(key, 0) != value)) {
+            equal[0] = false;
+          }
+        });
+    return equal[0];
+  }
+
+  static int hashCodeImpl(IntObjectMap<?> map) {
+    final int[] hash = {0};
+    map.forEach((key, value) -> hash[0] += key ^ value.hashCode());
+    return hash[0];
+  }
+
+  static int hashCodeImpl(LongObjectMap<?> map) {
+    final int[] hash = {0};
+    map.forEach((key, value) -> hash[0] += Long.hashCode(key) ^ value.hashCode());
+    return hash[0];
+  }
+
+  static int hashCodeImpl(LongLongMap map) {
+    final int[] hash = {0};
+    map.forEach((key, value) -> hash[0] += Long.hashCode(key) ^ Long.hashCode(value));
+    return hash[0];
+  }
+
+  static String toStringImpl(IntObjectMap<?> map) {
+    final StringBuilder sb = Collections2.newStringBuilderForCollection(map.size()).append('{');
+    map.forEach((key, value) -> appendEntry(sb, key, value));
+    return sb.append('}').toString();
+  }
+
+  static String toStringImpl(LongObjectMap<?> map) {
+    final StringBuilder sb = Collections2.newStringBuilderForCollection(map.size()).append('{');
+    map.forEach((key, value) -> appendEntry(sb, key, value));
+    return sb.append('}').toString();
+  }
+
+  static String toStringImpl(LongLongMap map) {
+    final StringBuilder sb = Collections2.newStringBuilderForCollection(map.size()).append('{');
+    map.forEach((key, value) -> appendEntry(sb, key, value));
+    return sb.append('}').toString();
+  }
+
+  private static void appendEntry(StringBuilder sb, long key, Object value) {
+    if (sb.length() > 1) {
+      sb.append(", ");
+    }
+    sb.append(key).append('=').append(value);
+  }
+}
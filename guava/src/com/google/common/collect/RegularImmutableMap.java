@@ -63,6 +63,13 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
    */
   @VisibleForTesting static final int MAX_HASH_BUCKET_LENGTH = 8;
 
+  /**
+   * Minimum size of a map to be stored as a {@link FlatImmutableMap}, which needs much less memory
+   * and has better locality than a table of entry objects, but creates an entry object for every
+   * entry its entry set returns.
+   */
+  @VisibleForTesting static final int MIN_FLAT_SIZE = 1024;
+
   // entries in insertion order
   @VisibleForTesting final transient Entry<K, V>[] entries;
   // array of linked lists of entries
@@ -84,6 +91,9 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
     if (n == 0) {
       return (RegularImmutableMap<K, V>) EMPTY;
     }
+    if (n >= MIN_FLAT_SIZE) {
+      return FlatImmutableMap.create(n, entryArray);
+    }
     Entry<K, V>[] entries;
     if (n == entryArray.length) {
       entries = entryArray;
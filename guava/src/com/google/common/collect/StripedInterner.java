@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.concurrent.GuardedBy;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A strong {@link Interner} that finds previously interned instances without locking.
+ *
+ * <p>Instances are divided among segments by the high bits of their smeared hash codes. Each
+ * segment is an open-addressed hash table with linear probing, whose slots are read with volatile
+ * semantics, so that {@link #intern} returns an instance already in the table without locking or
+ * allocating. Only a miss locks the segment, which looks again before inserting; a reader which
+ * raced with a concurrent insertion or resize merely misses, and finds the instance under the lock.
+ *
+ * <p>If the interner is bounded, each segment holds at most its share of the maximum size, and
+ * evicts by the CLOCK approximation of least-recently-used order: a successful lookup marks the
+ * instance's slot as referenced, and eviction sweeps the table, sparing and unmarking each marked
+ * slot once. The marks are written without synchronization, since a lost mark only makes eviction a
+ * little less accurate. Removed instances leave a tombstone, so that concurrent readers never see
+ * an instance move, and tombstones are purged when the table is rehashed.
+ */
+@GwtIncompatible
+final class StripedInterner<E> implements Interner<E> {
+  static final long UNBOUNDED = -1;
+
+  /** Marks a slot whose instance was evicted, which lookups must probe past. */
+  private static final Object REMOVED = new Object();
+
+  private static final double LOAD_FACTOR = 0.75;
+
+  private static final int MAX_SEGMENTS = 1 << 16;
+
+  private static final int DEFAULT_SEGMENT_CAPACITY = 16;
+
+  private final Segment<E>[] segments;
+  private final int segmentShift;
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+  StripedInterner(int concurrencyLevel, long maximumSize) {
+    concurrencyLevel = Math.min(concurrencyLevel, MAX_SEGMENTS);
+    boolean bounded = maximumSize != UNBOUNDED;
+    // as in CacheBuilder, keep the segments of a small bounded interner from being tiny
+    int segmentCount = 1;
+    int shift = 0;
+    while (segmentCount < concurrencyLevel && (!bounded || segmentCount * 20L <= maximumSize)) {
+      segmentCount <<= 1;
+      shift++;
+    }
+    this.segmentShift = 32 - shift;
+    this.segments = new Segment[segmentCount];
+    int maxSegmentSize =
+        bounded
+            ? (int) Math.min(maximumSize / segmentCount + 1, Ints.MAX_POWER_OF_TWO / 4)
+            : Integer.MAX_VALUE;
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<E>(maxSegmentSize);
+    }
+  }
+
+  private Segment<E> segmentFor(int hash) {
+    // the table index uses the low bits of the hash; choose segments by the high ones
+    return (segmentShift == 32) ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  @Override
+  public E intern(E sample) {
+    int hash = Hashing.smear(sample.hashCode());
+    Segment<E> segment = segmentFor(hash);
+    E canonical = segment.get(sample, hash);
+    return (canonical != null) ? canonical : segment.putIfAbsent(sample, hash);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation first looks up all of the samples without locking, and then locks each
+   * segment at most once to insert the samples it was missing.
+   */
+  @Override
+  public void internAll(E[] samples) {
+    int[] misses = null;
+    int[] missHashes = null;
+    int missCount = 0;
+    for (int i = 0; i < samples.length; i++) {
+      E sample = checkNotNull(samples[i]);
+      int hash = Hashing.smear(sample.hashCode());
+      E canonical = segmentFor(hash).get(sample, hash);
+      if (canonical != null) {
+        samples[i] = canonical;
+      } else {
+        if (misses == null) {
+          misses = new int[samples.length - i];
+          missHashes = new int[samples.length - i];
+        }
+        misses[missCount] = i;
+        missHashes[missCount++] = hash;
+      }
+    }
+    if (missCount == 0) {
+      return;
+    }
+    // Counting sort the misses by segment, so that each segment is locked once.
+    int[] starts = new int[segments.length + 1];
+    for (int m = 0; m < missCount; m++) {
+      starts[segmentIndex(missHashes[m]) + 1]++;
+    }
+    for (int s = 0; s < segments.length; s++) {
+      starts[s + 1] += starts[s];
+    }
+    int[] bySegment = new int[missCount];
+    int[] next = starts.clone();
+    for (int m = 0; m < missCount; m++) {
+      bySegment[next[segmentIndex(missHashes[m])]++] = m;
+    }
+    for (int s = 0; s < segments.length; s++) {
+      if (starts[s] < starts[s + 1]) {
+        Segment<E> segment = segments[s];
+        synchronized (segment) {
+          for (int j = starts[s]; j < starts[s + 1]; j++) {
+            int m = bySegment[j];
+            samples[misses[m]] = segment.putIfAbsent(samples[misses[m]], missHashes[m]);
+          }
+        }
+      }
+    }
+  }
+
+  private int segmentIndex(int hash) {
+    return (segmentShift == 32) ? 0 : hash >>> segmentShift;
+  }
+
+  @VisibleForTesting
+  int segmentCount() {
+    return segments.length;
+  }
+
+  /** Returns the number of instances currently interned. */
+  @VisibleForTesting
+  long size() {
+    long size = 0;
+    for (Segment<E> segment : segments) {
+      synchronized (segment) {
+        size += segment.count;
+      }
+    }
+    return size;
+  }
+
+  private static final class Segment<E> {
+    /** A hash table and, if its segment is bounded, the CLOCK marks of its slots. */
+    private static final class Table {
+      final AtomicReferenceArray<Object> slots;
+      final boolean @Nullable [] referenced;
+
+      Table(int size, boolean bounded) {
+        this.slots = new AtomicReferenceArray<>(size);
+        this.referenced = bounded ? new boolean[size] : null;
+      }
+    }
+
+    private final int maxSize;
+
+    private volatile Table table;
+
+    @GuardedBy("this")
+    private int count;
+
+    /** The number of slots holding an instance or {@link #REMOVED}. */
+    @GuardedBy("this")
+    private int usedSlots;
+
+    /** The slot at which the next eviction sweep starts. */
+    @GuardedBy("this")
+    private int clockHand;
+
+    Segment(int maxSize) {
+      this.maxSize = maxSize;
+      int initialSize = Math.min(maxSize, DEFAULT_SEGMENT_CAPACITY);
+      this.table = new Table(PrimitiveMaps.tableSize(initialSize, LOAD_FACTOR), isBounded());
+    }
+
+    private boolean isBounded() {
+      return maxSize != Integer.MAX_VALUE;
+    }
+
+    /** Returns the interned instance equal to {@code sample}, or null, without locking. */
+    @SuppressWarnings("unchecked") // only instances of E are inserted
+    @Nullable
+    E get(E sample, int hash) {
+      Table table = this.table;
+      AtomicReferenceArray<Object> slots = table.slots;
+      int mask = slots.length() - 1;
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        Object candidate = slots.get(i);
+        if (candidate == null) {
+          return null;
+        } else if (candidate != REMOVED && sample.equals(candidate)) {
+          if (table.referenced != null && !table.referenced[i]) {
+            table.referenced[i] = true;
+          }
+          return (E) candidate;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked") // only instances of E are inserted
+    synchronized E putIfAbsent(E sample, int hash) {
+      AtomicReferenceArray<Object> slots = table.slots;
+      int mask = slots.length() - 1;
+      int firstRemoved = -1;
+      int i;
+      for (i = hash & mask; ; i = (i + 1) & mask) {
+        Object candidate = slots.get(i);
+        if (candidate == null) {
+          break;
+        } else if (candidate == REMOVED) {
+          if (firstRemoved < 0) {
+            firstRemoved = i;
+          }
+        } else if (sample.equals(candidate)) {
+          return (E) candidate;
+        }
+      }
+      if (count >= maxSize) {
+        evict();
+      }
+      if (firstRemoved >= 0) {
+        slots.set(firstRemoved, sample);
+      } else if (usedSlots + 1 > LOAD_FACTOR * slots.length()) {
+        rehash();
+        insert(table, sample, hash);
+        usedSlots++;
+      } else {
+        slots.set(i, sample);
+        usedSlots++;
+      }
+      count++;
+      return sample;
+    }
+
+    /** Removes the least recently used instance, approximately. */
+    @GuardedBy("this")
+    private void evict() {
+      Table table = this.table;
+      int mask = table.slots.length() - 1;
+      while (true) {
+        int i = clockHand;
+        clockHand = (i + 1) & mask;
+        Object candidate = table.slots.get(i);
+        if (candidate == null || candidate == REMOVED) {
+          continue;
+        }
+        if (table.referenced[i]) {
+          table.referenced[i] = false;
+        } else {
+          table.slots.set(i, REMOVED);
+          count--;
+          return;
+        }
+      }
+    }
+
+    /**
+     * Replaces the table with one sized for twice as many instances as this segment holds, purging
+     * tombstones. A full bounded segment therefore evicts many instances between rehashes.
+     */
+    @GuardedBy("this")
+    private void rehash() {
+      AtomicReferenceArray<Object> oldSlots = table.slots;
+      int capacity = Math.max(2 * count, DEFAULT_SEGMENT_CAPACITY);
+      Table newTable = new Table(PrimitiveMaps.tableSize(capacity, LOAD_FACTOR), isBounded());
+      for (int i = 0; i < oldSlots.length(); i++) {
+        Object element = oldSlots.get(i);
+        if (element != null && element != REMOVED) {
+          insert(newTable, element, Hashing.smear(element.hashCode()));
+        }
+      }
+      usedSlots = count;
+      clockHand = 0;
+      table = newTable;
+    }
+
+    /** Inserts an element known to be absent into a table with room for it. */
+    private static void insert(Table table, Object element, int hash) {
+      AtomicReferenceArray<Object> slots = table.slots;
+      int mask = slots.length() - 1;
+      int i = hash & mask;
+      while (slots.get(i) != null) {
+        i = (i + 1) & mask;
+      }
+      slots.set(i, element);
+    }
+  }
+}
@@ -70,8 +70,20 @@ abstract class AbstractNonStreamingHashFunction extends AbstractHashFunction {
   @Override
   public abstract HashCode hashBytes(byte[] input, int off, int len);
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation hashes the backing array of a buffer which has an accessible one in
+   * place, and otherwise copies the buffer's remaining bytes to an array.
+   */
   @Override
   public HashCode hashBytes(ByteBuffer input) {
+    if (input.hasArray()) {
+      HashCode hash =
+          hashBytes(input.array(), input.arrayOffset() + input.position(), input.remaining());
+      input.position(input.limit());
+      return hash;
+    }
     return newHasher(input.remaining()).putBytes(input).hash();
   }
 
@@ -115,11 +115,13 @@ abstract class AbstractStreamingHasher extends AbstractHasher {
     }
 
     // First add just enough to fill buffer size, and munch that
-    int bytesToCopy = bufferSize - buffer.position();
-    for (int i = 0; i < bytesToCopy; i++) {
-      buffer.put(readBuffer.get());
+    if (buffer.position() > 0) {
+      int limit = readBuffer.limit();
+      readBuffer.limit(readBuffer.position() + bufferSize - buffer.position());
+      buffer.put(readBuffer);
+      readBuffer.limit(limit);
+      munch(); // buffer becomes empty here, since chunkSize divides bufferSize
     }
-    munch(); // buffer becomes empty here, since chunkSize divides bufferSize
 
     // Now process directly from the rest of the input buffer
     while (readBuffer.remaining() >= chunkSize) {
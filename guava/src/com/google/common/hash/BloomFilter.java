@@ -21,18 +21,26 @@ import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.hash.BloomFilterStrategies.BitArray;
 import com.google.common.hash.BloomFilterStrategies.LockFreeBitArray;
 import com.google.common.math.DoubleMath;
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
 import com.google.common.primitives.SignedBytes;
 import com.google.common.primitives.UnsignedBytes;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.stream.Collector;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -58,6 +66,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * <p>As of Guava 23.0, this class is thread-safe and lock-free. It internally uses atomics and
  * compare-and-swap to ensure correctness when multiple threads are used to access it.
  *
+ * <p>A Bloom filter too large for the heap can instead be kept in its compact serial form in a
+ * memory-mapped file or a direct {@link ByteBuffer}, without reading it; see {@link #map}, {@link
+ * #createMapped} and {@link #wrap}.
+ *
  * @param <T> the type of instances that the {@code BloomFilter} accepts
  * @author Dimitris Andreou
  * @author Kevin Bourrillion
@@ -78,14 +90,14 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
      * <p>Returns whether any bits changed as a result of this operation.
      */
     <T> boolean put(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits);
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits);
 
     /**
      * Queries {@code numHashFunctions} bits of the given bit array, by hashing a user element;
      * returns {@code true} if and only if all selected bits are set.
      */
     <T> boolean mightContain(
-        T object, Funnel<? super T> funnel, int numHashFunctions, LockFreeBitArray bits);
+        T object, Funnel<? super T> funnel, int numHashFunctions, BitArray bits);
 
     /**
      * Identifier used to encode this strategy, when marshalled as part of a BloomFilter. Only
@@ -98,7 +110,7 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
   }
 
   /** The bit set of the BloomFilter (not necessarily power of 2!) */
-  private final LockFreeBitArray bits;
+  private final BitArray bits;
 
   /** Number of hashes per element */
   private final int numHashFunctions;
@@ -111,10 +123,17 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
 
   /** Creates a BloomFilter. */
   private BloomFilter(
-      LockFreeBitArray bits, int numHashFunctions, Funnel<? super T> funnel, Strategy strategy) {
+      BitArray bits, int numHashFunctions, Funnel<? super T> funnel, Strategy strategy) {
     checkArgument(numHashFunctions > 0, "numHashFunctions (%s) must be > 0", numHashFunctions);
     checkArgument(
         numHashFunctions <= 255, "numHashFunctions (%s) must be <= 255", numHashFunctions);
+    // a blocked filter read by readFrom, wrap or map could otherwise have no whole block
+    checkArgument(
+        strategy != BloomFilterStrategies.MURMUR128_BLOCKED_512
+            || bits.bitSize() % BloomFilterStrategies.BLOCK_BITS == 0,
+        "a blocked filter must have a whole number of %s-bit blocks, not %s bits",
+        BloomFilterStrategies.BLOCK_BITS,
+        bits.bitSize());
     this.bits = checkNotNull(bits);
     this.numHashFunctions = numHashFunctions;
     this.funnel = checkNotNull(funnel);
@@ -409,10 +428,7 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
   static <T> BloomFilter<T> create(
       Funnel<? super T> funnel, long expectedInsertions, double fpp, Strategy strategy) {
     checkNotNull(funnel);
-    checkArgument(
-        expectedInsertions >= 0, "Expected insertions (%s) must be >= 0", expectedInsertions);
-    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
-    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+    checkCreateArguments(expectedInsertions, fpp);
     checkNotNull(strategy);
 
     if (expectedInsertions == 0) {
@@ -423,7 +439,10 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
      * is proportional to -log(p), but there is not much of a point after all, e.g.
      * optimalM(1000, 0.0000000000000001) = 76680 which is less than 10kb. Who cares!
      */
-    long numBits = optimalNumOfBits(expectedInsertions, fpp);
+    long numBits =
+        (strategy == BloomFilterStrategies.MURMUR128_BLOCKED_512)
+            ? optimalNumOfBlockedBits(expectedInsertions, fpp)
+            : optimalNumOfBits(expectedInsertions, fpp);
     int numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, numBits);
     try {
       return new BloomFilter<T>(new LockFreeBitArray(numBits), numHashFunctions, funnel, strategy);
@@ -432,6 +451,49 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     }
   }
 
+  private static void checkCreateArguments(long expectedInsertions, double fpp) {
+    checkArgument(
+        expectedInsertions >= 0, "Expected insertions (%s) must be >= 0", expectedInsertions);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+  }
+
+  /**
+   * Creates a blocked {@link BloomFilter} with the expected number of insertions and expected false
+   * positive probability. A blocked Bloom filter sets and queries all of the bits of an element
+   * within a single block of 512 bits, the size of a typical cache line, rather than across the
+   * whole filter. {@link #put} and {@link #mightContain} therefore touch one or two cache lines
+   * rather than one for each hash function, which makes them several times faster on filters too
+   * large for the processor's caches.
+   *
+   * <p>The cost is space: since elements are unevenly spread among the blocks, a blocked filter
+   * needs more bits than an ordinary one to achieve the same false positive probability. This
+   * method sizes the filter to achieve {@code fpp} all the same, which takes about 6% more bits for
+   * an {@code fpp} of 1%, 10% more for 0.1%, and 17% more for 0.01%.
+   *
+   * <p>Blocked filters are compatible only with other blocked filters, and {@link #writeTo} and
+   * {@link #readFrom} preserve their layout. Their {@link #expectedFpp} and {@link
+   * #approximateElementCount} are estimated as for ordinary filters, and so are a little
+   * optimistic.
+   *
+   * <p>Note that overflowing a {@code BloomFilter} with significantly more elements than specified,
+   * will result in its saturation, and a sharp deterioration of its false positive probability.
+   *
+   * <p>The constructed {@code BloomFilter} will be serializable if the provided {@code Funnel<T>}
+   * is.
+   *
+   * @param funnel the funnel of T's that the constructed {@code BloomFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     BloomFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @return a {@code BloomFilter}
+   * @since NEXT
+   */
+  public static <T> BloomFilter<T> createBlocked(
+      Funnel<? super T> funnel, long expectedInsertions, double fpp) {
+    return create(funnel, expectedInsertions, fpp, BloomFilterStrategies.MURMUR128_BLOCKED_512);
+  }
+
   /**
    * Creates a {@link BloomFilter} with the expected number of insertions and a default expected
    * false positive probability of 3%.
@@ -524,6 +586,55 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
   }
 
+  /**
+   * Computes m for a filter using {@link BloomFilterStrategies#MURMUR128_BLOCKED_512}: the least
+   * whole number of blocks, give or take 3%, for which {@link #blockedFpp} is at most {@code p}.
+   *
+   * @param n expected insertions (must be positive)
+   * @param p false positive rate (must be 0 < p < 1)
+   */
+  @VisibleForTesting
+  static long optimalNumOfBlockedBits(long n, double p) {
+    int blockBits = BloomFilterStrategies.BLOCK_BITS;
+    long blocks = LongMath.divide(optimalNumOfBits(n, p), blockBits, RoundingMode.CEILING);
+    while (blockedFpp(n, blocks * blockBits) > p) {
+      blocks += Math.max(1, blocks / 32);
+    }
+    return blocks * blockBits;
+  }
+
+  /**
+   * Computes the false positive probability of a blocked Bloom filter of m bits, holding n elements
+   * with the optimal number of hash functions. The number of elements in a block is approximately
+   * Poisson distributed, and a block of B bits which holds j elements has the false positive
+   * probability of an ordinary Bloom filter of B bits holding j elements, (1 - (1 - 1/B)^(jk))^k.
+   * This assumes that the k bits of an element are distinct, which {@link
+   * BloomFilterStrategies#MURMUR128_BLOCKED_512} does not ensure, so the result is slightly
+   * optimistic.
+   *
+   * @param n expected insertions (must be positive)
+   * @param m total number of bits in Bloom filter, a positive multiple of the block size
+   */
+  @VisibleForTesting
+  static double blockedFpp(long n, long m) {
+    int blockBits = BloomFilterStrategies.BLOCK_BITS;
+    int k = optimalNumOfHashFunctions(n, m);
+    double mean = (double) n * blockBits / m;
+    double logBitClearAfterOneElement = k * Math.log1p(-1.0 / blockBits);
+    // the Poisson probability of j elements, in logarithms to avoid underflow for large means
+    double logProbability = -mean;
+    double fpp = 0;
+    long maxElements = (long) (mean + 10 * Math.sqrt(mean) + 20);
+    for (long j = 0; j <= maxElements; j++) {
+      if (j > 0) {
+        logProbability += Math.log(mean / j);
+      }
+      double bitSetProbability = -Math.expm1(j * logBitClearAfterOneElement);
+      fpp += Math.exp(logProbability) * Math.pow(bitSetProbability, k);
+    }
+    return fpp;
+  }
+
   private Object writeReplace() {
     return new SerialForm<T>(this);
   }
@@ -535,7 +646,7 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     final Strategy strategy;
 
     SerialForm(BloomFilter<T> bf) {
-      this.data = LockFreeBitArray.toPlainArray(bf.bits.data);
+      this.data = bf.bits.toLongArray();
       this.numHashFunctions = bf.numHashFunctions;
       this.funnel = bf.funnel;
       this.strategy = bf.strategy;
@@ -564,9 +675,9 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
     DataOutputStream dout = new DataOutputStream(out);
     dout.writeByte(SignedBytes.checkedCast(strategy.ordinal()));
     dout.writeByte(UnsignedBytes.checkedCast(numHashFunctions)); // note: checked at the c'tor
-    dout.writeInt(bits.data.length());
-    for (int i = 0; i < bits.data.length(); i++) {
-      dout.writeLong(bits.data.get(i));
+    dout.writeInt(bits.dataLength());
+    for (int i = 0; i < bits.dataLength(); i++) {
+      dout.writeLong(bits.getLong(i));
     }
   }
 
@@ -615,4 +726,174 @@ public final class BloomFilter<T> implements Predicate<T>, Serializable {
       throw new IOException(message, e);
     }
   }
+
+  /** The number of bytes preceding the longs in the serial form written by {@link #writeTo}. */
+  private static final int HEADER_LENGTH = 6;
+
+  /**
+   * Returns a Bloom filter stored in a direct buffer, whose remaining bytes begin with a Bloom
+   * filter serialized by {@linkplain #writeTo(OutputStream)}, without reading its bits. The bits
+   * are read and set in place, so elements put into the returned filter are written through to the
+   * buffer, which must not be deallocated while the filter is in use. If the buffer is read-only,
+   * {@link #put} throws {@link java.nio.ReadOnlyBufferException}. The buffer's position and limit
+   * are not changed.
+   *
+   * <p>The returned filter is thread-safe, and sets its bits without locking, like other Bloom
+   * filters. Its {@link #copy} is on the heap.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the buffer, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original Bloom filter!
+   *
+   * @throws IllegalArgumentException if the buffer is not direct, or if its remaining bytes do not
+   *     appear to begin with a BloomFilter serialized using the {@linkplain #writeTo(OutputStream)}
+   *     method
+   * @since NEXT
+   */
+  public static <T> BloomFilter<T> wrap(ByteBuffer buffer, Funnel<? super T> funnel) {
+    checkNotNull(funnel, "Funnel");
+    checkArgument(buffer.isDirect(), "buffer must be direct");
+    checkArgument(
+        buffer.remaining() >= HEADER_LENGTH,
+        "buffer has %s bytes remaining, which is too few for a BloomFilter",
+        buffer.remaining());
+    int position = buffer.position();
+    int strategyOrdinal = buffer.get(position);
+    int numHashFunctions = UnsignedBytes.toInt(buffer.get(position + 1));
+    int dataLength =
+        Ints.fromBytes(
+            buffer.get(position + 2),
+            buffer.get(position + 3),
+            buffer.get(position + 4),
+            buffer.get(position + 5));
+    checkArgument(
+        strategyOrdinal >= 0 && strategyOrdinal < BloomFilterStrategies.values().length,
+        "unknown strategy ordinal: %s",
+        strategyOrdinal);
+    checkArgument(
+        dataLength > 0 && dataLength <= (buffer.remaining() - HEADER_LENGTH) / 8,
+        "buffer has %s bytes remaining, which is too few for %s longs",
+        buffer.remaining(),
+        dataLength);
+    ByteBuffer data = buffer.duplicate();
+    data.position(position + HEADER_LENGTH);
+    data.limit(position + HEADER_LENGTH + dataLength * 8);
+    return new BloomFilter<T>(
+        new ByteBufferBitArray(data.slice()),
+        numHashFunctions,
+        funnel,
+        BloomFilterStrategies.values()[strategyOrdinal]);
+  }
+
+  /**
+   * Maps a file, which was written by {@linkplain #writeTo(OutputStream)}, into memory, and returns
+   * a Bloom filter stored in the mapping. Unlike {@link #readFrom}, this doesn't read the bits of
+   * the filter, nor keep them on the heap: the operating system pages them in as they are used, so
+   * that even a filter of many gigabytes is ready at once. Elements put into the returned filter
+   * are written through to the file, which the operating system updates at a time of its choosing,
+   * and at the latest when the mapping is garbage collected.
+   *
+   * <p>The returned filter is thread-safe, and sets its bits without locking, like other Bloom
+   * filters. Its {@link #copy} is on the heap.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the file, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original Bloom filter!
+   *
+   * @throws IOException if the file cannot be opened for reading and writing, or mapped, or if its
+   *     data does not appear to be a BloomFilter serialized using the {@linkplain
+   *     #writeTo(OutputStream)} method
+   * @since NEXT
+   */
+  public static <T> BloomFilter<T> map(File file, Funnel<? super T> funnel) throws IOException {
+    checkNotNull(file, "File");
+    checkNotNull(funnel, "Funnel");
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    int strategyOrdinal = -1;
+    int numHashFunctions = -1;
+    int dataLength = -1;
+    try {
+      strategyOrdinal = raf.readByte();
+      numHashFunctions = UnsignedBytes.toInt(raf.readByte());
+      dataLength = raf.readInt();
+      checkArgument(dataLength > 0, "dataLength must be > 0");
+      checkArgument(
+          raf.length() >= HEADER_LENGTH + dataLength * 8L,
+          "file has %s bytes, which is too few",
+          raf.length());
+
+      Strategy strategy = BloomFilterStrategies.values()[strategyOrdinal];
+      return new BloomFilter<T>(
+          mapBits(raf.getChannel(), dataLength), numHashFunctions, funnel, strategy);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to map BloomFilter from file."
+              + " strategyOrdinal: "
+              + strategyOrdinal
+              + " numHashFunctions: "
+              + numHashFunctions
+              + " dataLength: "
+              + dataLength;
+      throw new IOException(message, e);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Creates a {@link BloomFilter} like {@link #create(Funnel, long, double)}, but stored in the
+   * given file, as by {@link #map}. The file is replaced by the serial form of the empty filter, as
+   * written by {@linkplain #writeTo(OutputStream)}, which is never on the heap; on most file
+   * systems, the file is sparse until elements are put into the filter.
+   *
+   * @param file the file to store the filter in, which is created or replaced
+   * @param funnel the funnel of T's that the constructed {@code BloomFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     BloomFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0)
+   * @throws IOException if the file cannot be written or mapped
+   * @since NEXT
+   */
+  public static <T> BloomFilter<T> createMapped(
+      File file, Funnel<? super T> funnel, long expectedInsertions, double fpp)
+      throws IOException {
+    checkNotNull(file);
+    checkNotNull(funnel);
+    checkCreateArguments(expectedInsertions, fpp);
+
+    if (expectedInsertions == 0) {
+      expectedInsertions = 1;
+    }
+    Strategy strategy = BloomFilterStrategies.MURMUR128_MITZ_64;
+    long numBits = optimalNumOfBits(expectedInsertions, fpp);
+    int numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, numBits);
+    int dataLength = Ints.checkedCast(LongMath.divide(numBits, 64, RoundingMode.CEILING));
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      raf.setLength(HEADER_LENGTH + dataLength * 8L);
+      raf.writeByte(SignedBytes.checkedCast(strategy.ordinal()));
+      raf.writeByte(UnsignedBytes.checkedCast(numHashFunctions));
+      raf.writeInt(dataLength);
+      return new BloomFilter<T>(
+          mapBits(raf.getChannel(), dataLength), numHashFunctions, funnel, strategy);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Maps the longs of the serial form written by {@link #writeTo} in the file, in as many buffers
+   * as they need. The mappings remain valid after the channel is closed.
+   */
+  private static BitArray mapBits(FileChannel channel, int dataLength) throws IOException {
+    int longsPerBuffer = ByteBufferBitArray.LONGS_PER_BUFFER;
+    ByteBuffer[] buffers = new ByteBuffer[(dataLength - 1) / longsPerBuffer + 1];
+    for (int i = 0; i < buffers.length; i++) {
+      long firstLong = (long) i * longsPerBuffer;
+      long longs = Math.min(longsPerBuffer, dataLength - firstLong);
+      buffers[i] = channel.map(MapMode.READ_WRITE, HEADER_LENGTH + firstLong * 8, longs * 8);
+    }
+    return new ByteBufferBitArray(buffers, longsPerBuffer, true);
+  }
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.hash.LittleEndianByteArray.UnsafeByteArray.theUnsafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilterStrategies.BitArray;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * A {@link BitArray} stored outside the heap, in direct byte buffers holding the longs of the
+ * serial form of {@link BloomFilter} in big-endian order. Bit {@code i} is thus bit {@code i % 8}
+ * of byte {@code 8 * (i / 64) + 7 - (i % 64) / 8}. The buffers may map a file, to which set bits
+ * are then written through.
+ *
+ * <p>The longs are divided among buffers of at most {@link #LONGS_PER_BUFFER} longs, since a {@code
+ * ByteBuffer} holds fewer than 2^31 bytes. Bits are set without locking by compare-and-swap of the
+ * aligned int containing their byte, using {@code sun.misc.Unsafe}. The few bytes whose aligned int
+ * extends past either end of their buffer, and all bytes if Unsafe is not available, are instead
+ * read and written while holding their buffer's lock.
+ */
+final class ByteBufferBitArray extends BitArray {
+  /** The number of longs in each buffer but the last, so that each buffer holds 1 GiB. */
+  static final int LONGS_PER_BUFFER = 1 << 27;
+
+  private final ByteBuffer[] buffers;
+
+  /** The addresses of the buffers, or null if they are accessed by locking. */
+  private final long[] addresses;
+
+  private final int longsPerBufferShift;
+  private final int dataLength;
+  private final boolean readOnly;
+
+  /** The number of bits set by this array, as opposed to set in the buffers beforehand. */
+  private final LongAddable bitsSet = LongAddables.create();
+
+  /** The number of bits set in the buffers beforehand, or -1 if they haven't been counted yet. */
+  private volatile long initialBitCount = -1;
+
+  /** Creates a bit array stored in the given direct buffer, whose capacity is a number of longs. */
+  ByteBufferBitArray(ByteBuffer data) {
+    this(split(data, LONGS_PER_BUFFER), LONGS_PER_BUFFER, true);
+  }
+
+  /**
+   * Creates a bit array stored in the given direct buffers, each but the last of which holds
+   * exactly {@code longsPerBuffer} longs.
+   */
+  @VisibleForTesting
+  ByteBufferBitArray(ByteBuffer[] buffers, int longsPerBuffer, boolean useUnsafe) {
+    checkArgument(buffers.length > 0, "no buffers");
+    checkArgument(
+        Integer.bitCount(longsPerBuffer) == 1,
+        "longsPerBuffer (%s) must be a power of two",
+        longsPerBuffer);
+    long dataLength = 0;
+    boolean readOnly = false;
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = buffers[i];
+      checkArgument(buffer.isDirect(), "buffer must be direct");
+      checkArgument(
+          (i == buffers.length - 1)
+              ? buffer.capacity() > 0 && buffer.capacity() <= longsPerBuffer * 8L
+              : buffer.capacity() == longsPerBuffer * 8L,
+          "buffer %s has %s bytes, but should have %s",
+          i,
+          buffer.capacity(),
+          longsPerBuffer * 8L);
+      checkArgument(buffer.capacity() % 8 == 0, "buffer must hold a whole number of longs");
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      dataLength += buffer.capacity() / 8;
+      readOnly |= buffer.isReadOnly();
+    }
+    checkArgument(dataLength <= Integer.MAX_VALUE, "too many longs: %s", dataLength);
+    this.buffers = buffers;
+    this.longsPerBufferShift = Integer.numberOfTrailingZeros(longsPerBuffer);
+    this.dataLength = (int) dataLength;
+    this.readOnly = readOnly;
+    if (useUnsafe && UnsafeAccess.AVAILABLE) {
+      addresses = new long[buffers.length];
+      for (int i = 0; i < buffers.length; i++) {
+        addresses[i] = UnsafeAccess.address(buffers[i]);
+      }
+    } else {
+      addresses = null;
+    }
+  }
+
+  private static ByteBuffer[] split(ByteBuffer data, int longsPerBuffer) {
+    long bytesPerBuffer = longsPerBuffer * 8L;
+    ByteBuffer[] buffers = new ByteBuffer[(int) ((data.capacity() - 1) / bytesPerBuffer) + 1];
+    for (int i = 0; i < buffers.length; i++) {
+      ByteBuffer buffer = data.duplicate();
+      buffer.position((int) (i * bytesPerBuffer));
+      buffer.limit((int) Math.min(data.capacity(), (i + 1) * bytesPerBuffer));
+      buffers[i] = buffer.slice();
+    }
+    return buffers;
+  }
+
+  @Override
+  boolean set(long bitIndex) {
+    if (readOnly) {
+      throw new ReadOnlyBufferException();
+    }
+    if (get(bitIndex)) {
+      return false;
+    }
+    int longIndex = (int) (bitIndex >>> 6);
+    int bufferIndex = longIndex >>> longsPerBufferShift;
+    int byteIndex = byteIndex(longIndex, bitIndex);
+    int mask = 1 << (bitIndex & 7);
+    boolean changed =
+        (addresses == null)
+            ? setLocked(buffers[bufferIndex], byteIndex, mask)
+            : setAtomically(buffers[bufferIndex], addresses[bufferIndex], byteIndex, mask);
+    if (changed) {
+      bitsSet.increment();
+    }
+    return changed;
+  }
+
+  @Override
+  boolean get(long bitIndex) {
+    int longIndex = (int) (bitIndex >>> 6);
+    int bufferIndex = longIndex >>> longsPerBufferShift;
+    int byteIndex = byteIndex(longIndex, bitIndex);
+    int b;
+    if (addresses == null) {
+      ByteBuffer buffer = buffers[bufferIndex];
+      synchronized (buffer) {
+        b = buffer.get(byteIndex);
+      }
+    } else {
+      b = theUnsafe.getByteVolatile(null, addresses[bufferIndex] + byteIndex);
+    }
+    return (b & (1 << (bitIndex & 7))) != 0;
+  }
+
+  /** Returns the index, within its buffer, of the byte holding the bit. */
+  private int byteIndex(int longIndex, long bitIndex) {
+    int longInBuffer = longIndex & ((1 << longsPerBufferShift) - 1);
+    return (longInBuffer << 3) + 7 - (((int) bitIndex & 63) >>> 3);
+  }
+
+  private static boolean setLocked(ByteBuffer buffer, int byteIndex, int mask) {
+    synchronized (buffer) {
+      byte b = buffer.get(byteIndex);
+      if ((b & mask) != 0) {
+        return false;
+      }
+      buffer.put(byteIndex, (byte) (b | mask));
+      return true;
+    }
+  }
+
+  private static boolean setAtomically(ByteBuffer buffer, long address, int byteIndex, int mask) {
+    long byteAddress = address + byteIndex;
+    long intAddress = byteAddress & ~3L;
+    if (intAddress < address || intAddress + 4 > address + buffer.capacity()) {
+      return setLocked(buffer, byteIndex, mask);
+    }
+    int byteInInt = (int) (byteAddress & 3);
+    int shift = 8 * (UnsafeAccess.BIG_ENDIAN ? 3 - byteInInt : byteInInt);
+    int intMask = mask << shift;
+    int oldValue;
+    do {
+      oldValue = theUnsafe.getIntVolatile(null, intAddress);
+      if ((oldValue & intMask) != 0) {
+        return false;
+      }
+    } while (!theUnsafe.compareAndSwapInt(null, intAddress, oldValue, oldValue | intMask));
+    return true;
+  }
+
+  @Override
+  int dataLength() {
+    return dataLength;
+  }
+
+  @Override
+  long getLong(int index) {
+    ByteBuffer buffer = buffers[index >>> longsPerBufferShift];
+    int byteIndex = (index & ((1 << longsPerBufferShift) - 1)) << 3;
+    if (addresses == null) {
+      synchronized (buffer) {
+        return buffer.getLong(byteIndex);
+      }
+    }
+    return buffer.getLong(byteIndex);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The first call counts the bits already set in the buffers, reading all of them. Bits set
+   * while they are being counted may be counted twice.
+   */
+  @Override
+  long bitCount() {
+    long initialBitCount = this.initialBitCount;
+    if (initialBitCount < 0) {
+      initialBitCount = -bitsSet.sum();
+      for (int i = 0; i < dataLength; i++) {
+        initialBitCount += Long.bitCount(getLong(i));
+      }
+      initialBitCount = Math.max(initialBitCount, 0);
+      this.initialBitCount = initialBitCount;
+    }
+    return initialBitCount + bitsSet.sum();
+  }
+
+  /**
+   * Access to the buffers through the {@code sun.misc.Unsafe} of {@link LittleEndianByteArray},
+   * which may fail to initialize.
+   */
+  private static final class UnsafeAccess {
+    static final boolean AVAILABLE;
+    static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+      long addressOffset;
+      try {
+        addressOffset = theUnsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+      } catch (Throwable t) { // we really want to catch *everything*
+        addressOffset = -1;
+      }
+      ADDRESS_OFFSET = addressOffset;
+      AVAILABLE = addressOffset >= 0;
+    }
+
+    static long address(ByteBuffer buffer) {
+      return theUnsafe.getLong(buffer, ADDRESS_OFFSET);
+    }
+  }
+}
@@ -14,18 +14,73 @@
 
 package com.google.common.hash;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.hash.LittleEndianByteArray.load64;
+import static java.lang.invoke.MethodType.methodType;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.errorprone.annotations.Immutable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * This class generates a CRC32C checksum, defined by RFC 3720, Section 12.1. The generator
  * polynomial for this checksum is {@code 0x11EDC6F41}.
  *
+ * <p>On Java 9 and later, hashers delegate to {@code java.util.zip.CRC32C}, which most JVMs compute
+ * with dedicated CPU instructions. Otherwise they compute the checksum eight bytes at a time with
+ * the slicing-by-8 algorithm.
+ *
  * @author Kurt Alfred Kluever
  */
 @Immutable
 final class Crc32cHashFunction extends AbstractHashFunction {
   static final HashFunction CRC_32_C = new Crc32cHashFunction();
 
+  /** Creates a {@code java.util.zip.CRC32C}, or null if that class is not available. */
+  private static final @Nullable MethodHandle NEW_JDK_CRC32C;
+
+  /** {@code Checksum.update(ByteBuffer)}, available if {@link #NEW_JDK_CRC32C} is. */
+  private static final @Nullable MethodHandle UPDATE_JDK_CRC32C;
+
+  static {
+    MethodHandle newJdkCrc32c = null;
+    MethodHandle updateJdkCrc32c = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      newJdkCrc32c =
+          lookup
+              .findConstructor(Class.forName("java.util.zip.CRC32C"), methodType(void.class))
+              .asType(methodType(Checksum.class));
+      updateJdkCrc32c =
+          lookup.findVirtual(Checksum.class, "update", methodType(void.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException e) {
+      newJdkCrc32c = null; // Java 8
+    }
+    NEW_JDK_CRC32C = newJdkCrc32c;
+    UPDATE_JDK_CRC32C = updateJdkCrc32c;
+  }
+
+  /** Returns a new {@code java.util.zip.CRC32C}, or null before Java 9. */
+  @VisibleForTesting
+  static @Nullable Checksum newJdkCrc32c() {
+    if (NEW_JDK_CRC32C == null) {
+      return null;
+    }
+    try {
+      return (Checksum) NEW_JDK_CRC32C.invokeExact();
+    } catch (Throwable t) {
+      Throwables.throwIfUnchecked(t);
+      throw new AssertionError(t);
+    }
+  }
+
   @Override
   public int bits() {
     return 32;
@@ -33,7 +88,8 @@ final class Crc32cHashFunction extends AbstractHashFunction {
 
   @Override
   public Hasher newHasher() {
-    return new Crc32cHasher();
+    Checksum jdkCrc32c = newJdkCrc32c();
+    return (jdkCrc32c == null) ? new Crc32cHasher() : new JdkCrc32cHasher(jdkCrc32c);
   }
 
   @Override
@@ -41,6 +97,46 @@ final class Crc32cHashFunction extends AbstractHashFunction {
     return "Hashing.crc32c()";
   }
 
+  /** A hasher which delegates to a {@code java.util.zip.CRC32C}. */
+  @VisibleForTesting
+  static final class JdkCrc32cHasher extends AbstractByteHasher {
+    private final Checksum checksum;
+
+    JdkCrc32cHasher(Checksum checksum) {
+      this.checksum = checkNotNull(checksum);
+    }
+
+    @Override
+    protected void update(byte b) {
+      checksum.update(b);
+    }
+
+    @Override
+    protected void update(byte[] b, int off, int len) {
+      checksum.update(b, off, len);
+    }
+
+    @Override
+    protected void update(ByteBuffer b) {
+      if (b.hasArray()) {
+        super.update(b);
+        return;
+      }
+      try {
+        UPDATE_JDK_CRC32C.invokeExact(checksum, b);
+      } catch (Throwable t) {
+        Throwables.throwIfUnchecked(t);
+        throw new AssertionError(t);
+      }
+    }
+
+    @Override
+    public HashCode hash() {
+      return HashCode.fromInt((int) checksum.getValue());
+    }
+  }
+
+  /** A hasher which computes the checksum itself, for Java 8. */
   static final class Crc32cHasher extends AbstractByteHasher {
 
     // The CRC table, generated from the polynomial 0x11EDC6F41.
@@ -111,6 +207,22 @@ final class Crc32cHashFunction extends AbstractHashFunction {
       0xbe2da0a5, 0x4c4623a6, 0x5f16d052, 0xad7d5351
     };
 
+    /**
+     * The eight tables for slicing-by-8, each of 256 entries. The first is {@link #CRC_TABLE}, and
+     * each entry of the others is the CRC of the same entry of the previous table followed by a
+     * zero byte.
+     */
+    private static final int[] SLICING_TABLE = slicingTable();
+
+    private static int[] slicingTable() {
+      int[] table = Arrays.copyOf(CRC_TABLE, 8 * 256);
+      for (int i = 256; i < table.length; i++) {
+        int previous = table[i - 256];
+        table[i] = (previous >>> 8) ^ CRC_TABLE[previous & 0xFF];
+      }
+      return table;
+    }
+
     private int crc = 0;
 
     @Override
@@ -120,6 +232,62 @@ final class Crc32cHashFunction extends AbstractHashFunction {
       crc = ~((crc >>> 8) ^ CRC_TABLE[(crc ^ b) & 0xFF]);
     }
 
+    @Override
+    protected void update(byte[] b, int off, int len) {
+      int crc = ~this.crc;
+      int end = off + len;
+      for (; end - off >= 8; off += 8) {
+        crc = update8(crc, load64(b, off));
+      }
+      for (; off < end; off++) {
+        crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ b[off]) & 0xFF];
+      }
+      this.crc = ~crc;
+    }
+
+    @Override
+    protected void update(ByteBuffer b) {
+      if (b.hasArray()) {
+        super.update(b);
+        return;
+      }
+      // a direct or memory-mapped buffer is read in place, without advancing it byte by byte
+      ByteOrder order = b.order();
+      b.order(ByteOrder.LITTLE_ENDIAN);
+      try {
+        int crc = ~this.crc;
+        int i = b.position();
+        for (; b.limit() - i >= 8; i += 8) {
+          crc = update8(crc, b.getLong(i));
+        }
+        for (; i < b.limit(); i++) {
+          crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ b.get(i)) & 0xFF];
+        }
+        b.position(b.limit());
+        this.crc = ~crc;
+      } finally {
+        b.order(order);
+      }
+    }
+
+    /**
+     * Returns the complement of the CRC of eight bytes, given as a little-endian {@code long},
+     * continuing from the complement of a CRC.
+     */
+    private static int update8(int crc, long bytes) {
+      int low = crc ^ (int) bytes;
+      int high = (int) (bytes >>> 32);
+      int[] table = SLICING_TABLE;
+      return table[7 * 256 + (low & 0xFF)]
+          ^ table[6 * 256 + ((low >>> 8) & 0xFF)]
+          ^ table[5 * 256 + ((low >>> 16) & 0xFF)]
+          ^ table[4 * 256 + (low >>> 24)]
+          ^ table[3 * 256 + (high & 0xFF)]
+          ^ table[2 * 256 + ((high >>> 8) & 0xFF)]
+          ^ table[256 + ((high >>> 16) & 0xFF)]
+          ^ table[high >>> 24];
+    }
+
     @Override
     public HashCode hash() {
       return HashCode.fromInt(crc);
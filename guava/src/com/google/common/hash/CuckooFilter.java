@@ -0,0 +1,653 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.hash.LittleEndianByteArray.load64;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cuckoo filter for instances of {@code T}. Like a {@link BloomFilter}, a cuckoo filter offers an
+ * approximate containment test with one-sided error: if it claims that an element is contained in
+ * it, this might be in error, but if it claims that an element is <i>not</i> contained in it, then
+ * this is definitely true. Unlike a Bloom filter, a cuckoo filter also supports {@linkplain #remove
+ * removing} elements.
+ *
+ * <p>A cuckoo filter keeps a short fingerprint of each element in one of two buckets of four
+ * fingerprints, chosen by hashing the element with {@link Hashing#murmur3_128()}. When both
+ * buckets are full, {@link #put} relocates fingerprints to their alternate buckets, which can be
+ * found from the fingerprints alone. See "Cuckoo Filter: Practically Better Than Bloom" by Bin Fan,
+ * David G. Andersen, Michael Kaminsky and Michael D. Mitzenmacher.
+ *
+ * <p>Filled to its expected number of insertions, a cuckoo filter uses about as much space as a
+ * Bloom filter with the same false positive probability: about 10% more at 1%, and 5% less at
+ * 0.1%. Unlike a Bloom filter, it has a hard capacity: once it is nearly full, {@link #put} fails,
+ * and returns {@code false}.
+ *
+ * <p>Each element is counted as many times as it is put, up to eight times, and {@link #remove}
+ * removes one of those. Only elements which were put in the filter may be removed: removing an
+ * element which wasn't may instead remove another element with the same fingerprint, which would
+ * then no longer be contained in the filter.
+ *
+ * <p>Cuckoo filters are serializable. They also support a more compact serial representation via
+ * the {@link #writeTo} and {@link #readFrom} methods.
+ *
+ * <p>A cuckoo filter is not thread-safe. Use {@link #synchronizedCuckooFilter} to share one between
+ * threads.
+ *
+ * @param <T> the type of instances that the {@code CuckooFilter} accepts
+ * @since NEXT
+ */
+@Beta
+public final class CuckooFilter<T> implements Predicate<T>, Serializable {
+  /** The number of fingerprints in a bucket. */
+  private static final int BUCKET_SIZE = 4;
+
+  /** The fraction of the fingerprints which a filter holds after its expected insertions. */
+  private static final double LOAD_FACTOR = 0.94;
+
+  /** The number of fingerprints {@link #put} relocates before giving up. */
+  private static final int MAX_KICKS = 500;
+
+  private static final int MAX_FINGERPRINT_BITS = 32;
+
+  private final Table table;
+
+  /** The funnel to translate Ts to bytes */
+  private final Funnel<? super T> funnel;
+
+  /** The lock guarding the table, or null if this filter is not thread-safe. */
+  private final @Nullable StampedLock lock;
+
+  private CuckooFilter(Table table, Funnel<? super T> funnel, @Nullable StampedLock lock) {
+    this.table = checkNotNull(table);
+    this.funnel = checkNotNull(funnel);
+    this.lock = lock;
+  }
+
+  /**
+   * Creates a {@link CuckooFilter} with the expected number of insertions and expected false
+   * positive probability.
+   *
+   * <p>The false positive probability is that of a filter holding {@code expectedInsertions}
+   * elements; it is lower while the filter holds fewer. Although the filter typically accepts a few
+   * more elements than {@code expectedInsertions}, {@link #put} may fail for any more.
+   *
+   * <p>The constructed {@code CuckooFilter} will be serializable if the provided {@code Funnel<T>}
+   * is.
+   *
+   * <p>It is recommended that the funnel be implemented as a Java enum. This has the benefit of
+   * ensuring proper serialization and deserialization, which is important since {@link #equals}
+   * also relies on object identity of funnels.
+   *
+   * @param funnel the funnel of T's that the constructed {@code CuckooFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     CuckooFilter}; must be positive
+   * @param fpp the desired false positive probability (must be positive and less than 1.0). The
+   *     fingerprints have at most 32 bits, so probabilities below about 2e-9 are not achieved.
+   * @return a {@code CuckooFilter}
+   */
+  public static <T> CuckooFilter<T> create(
+      Funnel<? super T> funnel, long expectedInsertions, double fpp) {
+    checkNotNull(funnel);
+    checkArgument(
+        expectedInsertions >= 0, "Expected insertions (%s) must be >= 0", expectedInsertions);
+    checkArgument(fpp > 0.0, "False positive probability (%s) must be > 0.0", fpp);
+    checkArgument(fpp < 1.0, "False positive probability (%s) must be < 1.0", fpp);
+
+    if (expectedInsertions == 0) {
+      expectedInsertions = 1;
+    }
+    long numBuckets =
+        LongMath.divide(
+            (long) Math.ceil(expectedInsertions / LOAD_FACTOR), BUCKET_SIZE, RoundingMode.CEILING);
+    int fingerprintBits = optimalFingerprintBits(fpp);
+    checkArgument(
+        numBuckets <= Integer.MAX_VALUE / BUCKET_SIZE,
+        "Could not create CuckooFilter of %s buckets",
+        numBuckets);
+    return new CuckooFilter<T>(new Table((int) numBuckets, fingerprintBits), funnel, null);
+  }
+
+  /**
+   * Creates a {@link CuckooFilter} with the expected number of insertions and a default expected
+   * false positive probability of 3%.
+   *
+   * @param funnel the funnel of T's that the constructed {@code CuckooFilter} will use
+   * @param expectedInsertions the number of expected insertions to the constructed {@code
+   *     CuckooFilter}; must be positive
+   * @return a {@code CuckooFilter}
+   */
+  public static <T> CuckooFilter<T> create(Funnel<? super T> funnel, long expectedInsertions) {
+    return create(funnel, expectedInsertions, 0.03); // FYI, for 3%, we always get 8 bits
+  }
+
+  /**
+   * Returns a thread-safe cuckoo filter backed by the specified filter. In order to guarantee
+   * serial access, it is critical that <b>all</b> access to the backing filter is accomplished
+   * through the returned filter.
+   *
+   * <p>The returned filter locks for {@link #put} and {@link #remove}, but {@link #mightContain}
+   * reads optimistically, and only locks if a concurrent update interfered.
+   */
+  public static <T> CuckooFilter<T> synchronizedCuckooFilter(CuckooFilter<T> filter) {
+    if (filter.lock != null) {
+      return filter;
+    }
+    return new CuckooFilter<T>(filter.table, filter.funnel, new StampedLock());
+  }
+
+  /**
+   * Creates a new {@code CuckooFilter} that's a copy of this instance. The new instance is equal to
+   * this instance but shares no mutable state. It is thread-safe if this instance is.
+   */
+  public CuckooFilter<T> copy() {
+    return new CuckooFilter<T>(readTable(), funnel, (lock == null) ? null : new StampedLock());
+  }
+
+  /**
+   * Returns {@code true} if the element <i>might</i> have been put in this cuckoo filter, {@code
+   * false} if this is <i>definitely</i> not the case.
+   */
+  public boolean mightContain(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    int bucket = table.bucket(load64(bytes, 0));
+    int fingerprint = table.fingerprint(load64(bytes, 8));
+    if (lock == null) {
+      return table.contains(bucket, fingerprint);
+    }
+    long stamp = lock.tryOptimisticRead();
+    boolean result = table.contains(bucket, fingerprint);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        result = table.contains(bucket, fingerprint);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @deprecated Provided only to satisfy the {@link Predicate} interface; use {@link #mightContain}
+   *     instead.
+   */
+  @Deprecated
+  @Override
+  public boolean apply(T input) {
+    return mightContain(input);
+  }
+
+  /**
+   * Puts an element into this {@code CuckooFilter}, unless it is too full. Ensures that subsequent
+   * invocations of {@link #mightContain(Object)} with the same element will return {@code true},
+   * until it is {@linkplain #remove removed}.
+   *
+   * @return true if the element was put into the filter, or false if the filter was too full, in
+   *     which case the filter is unchanged
+   */
+  @CanIgnoreReturnValue
+  public boolean put(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = load64(bytes, 0);
+    long hash2 = load64(bytes, 8);
+    if (lock == null) {
+      return table.put(hash1, hash2);
+    }
+    long stamp = lock.writeLock();
+    try {
+      return table.put(hash1, hash2);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes an element, which must have been put into this {@code CuckooFilter}. If it was put more
+   * than once, it is removed once.
+   *
+   * <p>Removing an element which wasn't put into the filter can remove a different element with the
+   * same fingerprint, which then might no longer be contained in the filter.
+   *
+   * @return true if a fingerprint of the element was found and removed
+   */
+  @CanIgnoreReturnValue
+  public boolean remove(T object) {
+    byte[] bytes = Hashing.murmur3_128().hashObject(object, funnel).getBytesInternal();
+    long hash1 = load64(bytes, 0);
+    long hash2 = load64(bytes, 8);
+    if (lock == null) {
+      return table.remove(hash1, hash2);
+    }
+    long stamp = lock.writeLock();
+    try {
+      return table.remove(hash1, hash2);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the number of elements in this filter: the number of successful calls to {@link #put}
+   * less those to {@link #remove}. This counts an element once for each time it was put, and is
+   * approximate only in that removing an element which had not been put into the filter may
+   * succeed.
+   */
+  public long approximateElementCount() {
+    if (lock == null) {
+      return table.count;
+    }
+    long stamp = lock.readLock();
+    try {
+      return table.count;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the probability that {@linkplain #mightContain(Object)} will erroneously return {@code
+   * true} for an object that has not actually been put in the {@code CuckooFilter}.
+   *
+   * <p>This grows in proportion to the number of elements in the filter, and is close to the
+   * {@code fpp} parameter passed to {@linkplain #create(Funnel, long, double)} when the filter
+   * holds {@code expectedInsertions} elements.
+   */
+  public double expectedFpp() {
+    double checkedFingerprints =
+        2.0 * approximateElementCount() / table.numBuckets; // two buckets are looked in
+    return -Math.expm1(checkedFingerprints * Math.log1p(-1.0 / table.maxFingerprint()));
+  }
+
+  /** Returns the number of bits in the underlying table. */
+  @VisibleForTesting
+  long bitSize() {
+    return (long) table.data.length * Long.SIZE;
+  }
+
+  /**
+   * Determines whether a given cuckoo filter is compatible with this one: whether they are not the
+   * same instance, and have the same number of buckets, the same number of bits per fingerprint,
+   * and equal funnels. An element put into compatible filters is stored in the same buckets, with
+   * the same fingerprint.
+   *
+   * @param that The cuckoo filter to check for compatibility.
+   */
+  public boolean isCompatible(CuckooFilter<T> that) {
+    checkNotNull(that);
+    return this != that
+        && this.table.numBuckets == that.table.numBuckets
+        && this.table.fingerprintBits == that.table.fingerprintBits
+        && this.funnel.equals(that.funnel);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof CuckooFilter) {
+      CuckooFilter<?> that = (CuckooFilter<?>) object;
+      return this.funnel.equals(that.funnel) && this.readTable().equals(that.readTable());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(funnel, readTable());
+  }
+
+  /** Returns a copy of the table, read under the lock if there is one. */
+  private Table readTable() {
+    if (lock == null) {
+      return table.copy();
+    }
+    long stamp = lock.readLock();
+    try {
+      return table.copy();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Computes the number of bits of a fingerprint for a filter with the given false positive
+   * probability when full. Each lookup compares the fingerprint with up to {@code 2 * BUCKET_SIZE *
+   * LOAD_FACTOR} fingerprints in a full filter, each of which matches with probability {@code 1 /
+   * (2^f - 1)}.
+   */
+  @VisibleForTesting
+  static int optimalFingerprintBits(double p) {
+    double fingerprints = 2 * BUCKET_SIZE * LOAD_FACTOR / p + 1;
+    int bits = 64 - Long.numberOfLeadingZeros((long) Math.ceil(fingerprints) - 1);
+    return Math.min(bits, MAX_FINGERPRINT_BITS);
+  }
+
+  /**
+   * The buckets of a cuckoo filter, each holding up to {@link #BUCKET_SIZE} fingerprints of {@code
+   * fingerprintBits} bits, packed into an array of longs. Zero marks an empty slot.
+   */
+  private static final class Table {
+    final int numBuckets;
+    final int fingerprintBits;
+    final long[] data;
+    long count;
+
+    Table(int numBuckets, int fingerprintBits) {
+      this(numBuckets, fingerprintBits, new long[dataLength(numBuckets, fingerprintBits)], 0);
+    }
+
+    private static int dataLength(int numBuckets, int fingerprintBits) {
+      long bits = (long) numBuckets * BUCKET_SIZE * fingerprintBits;
+      return Ints.checkedCast(LongMath.divide(bits, Long.SIZE, RoundingMode.CEILING));
+    }
+
+    Table(int numBuckets, int fingerprintBits, long[] data, long count) {
+      checkArgument(numBuckets > 0, "numBuckets (%s) must be > 0", numBuckets);
+      checkArgument(
+          fingerprintBits > 0 && fingerprintBits <= MAX_FINGERPRINT_BITS,
+          "fingerprintBits (%s) must be in [1, %s]",
+          fingerprintBits,
+          MAX_FINGERPRINT_BITS);
+      checkArgument(
+          data.length * (long) Long.SIZE >= (long) numBuckets * BUCKET_SIZE * fingerprintBits,
+          "data length (%s) is too short",
+          data.length);
+      this.numBuckets = numBuckets;
+      this.fingerprintBits = fingerprintBits;
+      this.data = data;
+      this.count = count;
+    }
+
+    long maxFingerprint() {
+      return (1L << fingerprintBits) - 1;
+    }
+
+    /** Returns the bucket of an element with the given hash. */
+    int bucket(long hash1) {
+      return (int) ((hash1 >>> 1) % numBuckets);
+    }
+
+    /** Returns the nonzero fingerprint of an element with the given hash. */
+    int fingerprint(long hash2) {
+      // maps the high 32 bits of hash2 uniformly to [1, maxFingerprint]
+      return (int) (1 + (((hash2 >>> 32) * maxFingerprint()) >>> 32));
+    }
+
+    /**
+     * Returns the other bucket of the fingerprint in the given bucket. This is an involution, so
+     * the other bucket of the other bucket is the given one.
+     */
+    int otherBucket(int bucket, int fingerprint) {
+      long hash = (fingerprint & 0xFFFFFFFFL) * 0xc4ceb9fe1a85ec53L;
+      int other = (int) ((hash >>> 1) % numBuckets) - bucket;
+      return (other < 0) ? other + numBuckets : other;
+    }
+
+    int get(int slot) {
+      long bitIndex = (long) slot * fingerprintBits;
+      int longIndex = (int) (bitIndex >>> 6);
+      int shift = (int) bitIndex & 63;
+      long value = data[longIndex] >>> shift;
+      if (shift + fingerprintBits > Long.SIZE) {
+        value |= data[longIndex + 1] << -shift;
+      }
+      return (int) (value & maxFingerprint());
+    }
+
+    void set(int slot, int fingerprint) {
+      long bitIndex = (long) slot * fingerprintBits;
+      int longIndex = (int) (bitIndex >>> 6);
+      int shift = (int) bitIndex & 63;
+      long mask = maxFingerprint();
+      long value = fingerprint & mask;
+      data[longIndex] = (data[longIndex] & ~(mask << shift)) | (value << shift);
+      if (shift + fingerprintBits > Long.SIZE) {
+        int next = longIndex + 1;
+        data[next] = (data[next] & ~(mask >>> -shift)) | (value >>> -shift);
+      }
+    }
+
+    boolean contains(int bucket, int fingerprint) {
+      return bucketContains(bucket, fingerprint)
+          || bucketContains(otherBucket(bucket, fingerprint), fingerprint);
+    }
+
+    private boolean bucketContains(int bucket, int fingerprint) {
+      int slot = bucket * BUCKET_SIZE;
+      for (int i = 0; i < BUCKET_SIZE; i++) {
+        if (get(slot + i) == fingerprint) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Puts the fingerprint in an empty slot of the bucket, if there is one. */
+    private boolean putInBucket(int bucket, int fingerprint) {
+      int slot = bucket * BUCKET_SIZE;
+      for (int i = 0; i < BUCKET_SIZE; i++) {
+        if (get(slot + i) == 0) {
+          set(slot + i, fingerprint);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean put(long hash1, long hash2) {
+      int fingerprint = fingerprint(hash2);
+      int bucket = bucket(hash1);
+      int otherBucket = otherBucket(bucket, fingerprint);
+      if (putInBucket(bucket, fingerprint) || putInBucket(otherBucket, fingerprint)) {
+        count++;
+        return true;
+      }
+
+      // Relocate fingerprints to their other buckets, choosing them with the unused hash bits.
+      long random = hash2 | 1;
+      if ((random & 2) == 0) {
+        bucket = otherBucket;
+      }
+      int[] relocated = new int[MAX_KICKS];
+      for (int kick = 0; kick < MAX_KICKS; kick++) {
+        random ^= random << 13; // xorshift
+        random ^= random >>> 7;
+        random ^= random << 17;
+        int slot = bucket * BUCKET_SIZE + (int) (random >>> 62);
+        int evicted = get(slot);
+        set(slot, fingerprint);
+        relocated[kick] = slot;
+        fingerprint = evicted;
+        bucket = otherBucket(bucket, fingerprint);
+        if (putInBucket(bucket, fingerprint)) {
+          count++;
+          return true;
+        }
+      }
+
+      // The table is too full; undo the relocations.
+      for (int kick = MAX_KICKS - 1; kick >= 0; kick--) {
+        int slot = relocated[kick];
+        int displaced = get(slot);
+        set(slot, fingerprint);
+        fingerprint = displaced;
+      }
+      return false;
+    }
+
+    boolean remove(long hash1, long hash2) {
+      int fingerprint = fingerprint(hash2);
+      int bucket = bucket(hash1);
+      if (removeFromBucket(bucket, fingerprint)
+          || removeFromBucket(otherBucket(bucket, fingerprint), fingerprint)) {
+        count--;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean removeFromBucket(int bucket, int fingerprint) {
+      int slot = bucket * BUCKET_SIZE;
+      for (int i = 0; i < BUCKET_SIZE; i++) {
+        if (get(slot + i) == fingerprint) {
+          set(slot + i, 0);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    Table copy() {
+      return new Table(numBuckets, fingerprintBits, data.clone(), count);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object object) {
+      if (object instanceof Table) {
+        Table that = (Table) object;
+        return this.numBuckets == that.numBuckets
+            && this.fingerprintBits == that.fingerprintBits
+            && Arrays.equals(this.data, that.data);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(numBuckets, fingerprintBits) * 31 + Arrays.hashCode(data);
+    }
+  }
+
+  private Object writeReplace() {
+    return new SerialForm<T>(this);
+  }
+
+  private static class SerialForm<T> implements Serializable {
+    final int numBuckets;
+    final int fingerprintBits;
+    final long[] data;
+    final long count;
+    final Funnel<? super T> funnel;
+    final boolean threadSafe;
+
+    SerialForm(CuckooFilter<T> filter) {
+      Table table = filter.readTable();
+      this.numBuckets = table.numBuckets;
+      this.fingerprintBits = table.fingerprintBits;
+      this.data = table.data;
+      this.count = table.count;
+      this.funnel = filter.funnel;
+      this.threadSafe = filter.lock != null;
+    }
+
+    Object readResolve() {
+      return new CuckooFilter<T>(
+          new Table(numBuckets, fingerprintBits, data, count),
+          funnel,
+          threadSafe ? new StampedLock() : null);
+    }
+
+    private static final long serialVersionUID = 1;
+  }
+
+  /**
+   * Writes this {@code CuckooFilter} to an output stream, with a custom format (not Java
+   * serialization).
+   *
+   * <p>Use {@linkplain #readFrom(InputStream, Funnel)} to reconstruct the written CuckooFilter.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    // Serial form:
+    // 1 unsigned byte for the number of bits per fingerprint
+    // 1 big endian int, the number of buckets
+    // 1 big endian long, the number of elements
+    // 1 big endian int, the number of longs in our table
+    // N big endian longs of our table
+    Table table = readTable();
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(table.fingerprintBits);
+    dout.writeInt(table.numBuckets);
+    dout.writeLong(table.count);
+    dout.writeInt(table.data.length);
+    for (long value : table.data) {
+      dout.writeLong(value);
+    }
+  }
+
+  /**
+   * Reads a byte stream, which was written by {@linkplain #writeTo(OutputStream)}, into a {@code
+   * CuckooFilter}, which is not thread-safe.
+   *
+   * <p>The {@code Funnel} to be used is not encoded in the stream, so it must be provided here.
+   * <b>Warning:</b> the funnel provided <b>must</b> behave identically to the one used to populate
+   * the original cuckoo filter!
+   *
+   * @throws IOException if the InputStream throws an {@code IOException}, or if its data does not
+   *     appear to be a CuckooFilter serialized using the {@linkplain #writeTo(OutputStream)}
+   *     method.
+   */
+  public static <T> CuckooFilter<T> readFrom(InputStream in, Funnel<? super T> funnel)
+      throws IOException {
+    checkNotNull(in, "InputStream");
+    checkNotNull(funnel, "Funnel");
+    int fingerprintBits = -1;
+    int numBuckets = -1;
+    int dataLength = -1;
+    try {
+      DataInputStream din = new DataInputStream(in);
+      fingerprintBits = din.readUnsignedByte();
+      numBuckets = din.readInt();
+      long count = din.readLong();
+      dataLength = din.readInt();
+
+      long[] data = new long[dataLength];
+      for (int i = 0; i < data.length; i++) {
+        data[i] = din.readLong();
+      }
+      return new CuckooFilter<T>(new Table(numBuckets, fingerprintBits, data, count), funnel, null);
+    } catch (RuntimeException e) {
+      String message =
+          "Unable to deserialize CuckooFilter from InputStream."
+              + " fingerprintBits: "
+              + fingerprintBits
+              + " numBuckets: "
+              + numBuckets
+              + " dataLength: "
+              + dataLength;
+      throw new IOException(message, e);
+    }
+  }
+}
@@ -121,9 +121,10 @@ final class LittleEndianByteArray {
   /**
    * The only reference to Unsafe is in this nested class. We set things up so that if
    * Unsafe.theUnsafe is inaccessible, the attempt to load the nested class fails, and the outer
-   * class's static initializer can fall back on a non-Unsafe version.
+   * class's static initializer can fall back on a non-Unsafe version. {@link ByteBufferBitArray}
+   * shares {@link #theUnsafe}, and likewise falls back if this class fails to load.
    */
-  private enum UnsafeByteArray implements LittleEndianBytes {
+  enum UnsafeByteArray implements LittleEndianBytes {
     // Do *not* change the order of these constants!
     UNSAFE_LITTLE_ENDIAN {
       @Override
@@ -153,7 +154,7 @@ final class LittleEndianByteArray {
     };
 
     // Provides load and store operations that use native instructions to get better performance.
-    private static final Unsafe theUnsafe;
+    static final Unsafe theUnsafe;
 
     // The offset to the first element in a byte array.
     private static final int BYTE_ARRAY_BASE_OFFSET;
@@ -39,6 +39,7 @@ import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -99,14 +100,52 @@ final class Murmur3_32HashFunction extends AbstractHashFunction implements Seria
 
   @Override
   public HashCode hashInt(int input) {
+    return HashCode.fromInt(hash32(input));
+  }
+
+  @Override
+  public HashCode hashLong(long input) {
+    return HashCode.fromInt(hash32(input));
+  }
+
+  @Override
+  public HashCode hashUnencodedChars(CharSequence input) {
+    return HashCode.fromInt(hash32(input));
+  }
+
+  @Override
+  public void hashInts(int[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hash32(inputs[i]) & 0xFFFFFFFFL;
+    }
+  }
+
+  @Override
+  public void hashLongs(long[] inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.length);
+    for (int i = 0; i < inputs.length; i++) {
+      results[i] = hash32(inputs[i]) & 0xFFFFFFFFL;
+    }
+  }
+
+  @Override
+  public void hashUnencodedChars(List<? extends CharSequence> inputs, long[] results) {
+    Hashing.checkResultsLength(results.length, inputs.size());
+    int i = 0;
+    for (CharSequence input : inputs) {
+      results[i++] = hash32(input) & 0xFFFFFFFFL;
+    }
+  }
+
+  private int hash32(int input) {
     int k1 = mixK1(input);
     int h1 = mixH1(seed, k1);
 
-    return fmix(h1, Ints.BYTES);
+    return fmix32(h1, Ints.BYTES);
   }
 
-  @Override
-  public HashCode hashLong(long input) {
+  private int hash32(long input) {
     int low = (int) input;
     int high = (int) (input >>> 32);
 
@@ -116,11 +155,10 @@ final class Murmur3_32HashFunction extends AbstractHashFunction implements Seria
     k1 = mixK1(high);
     h1 = mixH1(h1, k1);
 
-    return fmix(h1, Longs.BYTES);
+    return fmix32(h1, Longs.BYTES);
   }
 
-  @Override
-  public HashCode hashUnencodedChars(CharSequence input) {
+  private int hash32(CharSequence input) {
     int h1 = seed;
 
     // step through the CharSequence 2 chars at a time
@@ -137,7 +175,7 @@ final class Murmur3_32HashFunction extends AbstractHashFunction implements Seria
       h1 ^= k1;
     }
 
-    return fmix(h1, Chars.BYTES * input.length());
+    return fmix32(h1, Chars.BYTES * input.length());
   }
 
   @SuppressWarnings("deprecation") // need to use Charsets for Android tests to pass
@@ -247,13 +285,17 @@ final class Murmur3_32HashFunction extends AbstractHashFunction implements Seria
 
   // Finalization mix - force all bits of a hash block to avalanche
   private static HashCode fmix(int h1, int length) {
+    return HashCode.fromInt(fmix32(h1, length));
+  }
+
+  private static int fmix32(int h1, int length) {
     h1 ^= length;
     h1 ^= h1 >>> 16;
     h1 *= 0x85ebca6b;
     h1 ^= h1 >>> 13;
     h1 *= 0xc2b2ae35;
     h1 ^= h1 >>> 16;
-    return HashCode.fromInt(h1);
+    return h1;
   }
 
   @CanIgnoreReturnValue
@@ -0,0 +1,619 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Source:
+ * https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h
+ * (Modified to adapt to Guava coding conventions and to use the HashFunction interface)
+ */
+
+package com.google.common.hash;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.hash.LittleEndianByteArray.load32;
+import static com.google.common.hash.LittleEndianByteArray.load64;
+import static com.google.common.hash.LittleEndianByteArray.store64;
+import static com.google.common.hash.XxHash64HashFunction.PRIME64_1;
+import static com.google.common.hash.XxHash64HashFunction.PRIME64_2;
+import static com.google.common.hash.XxHash64HashFunction.PRIME64_3;
+import static com.google.common.hash.XxHash64HashFunction.PRIME64_4;
+import static com.google.common.hash.XxHash64HashFunction.PRIME64_5;
+
+import com.google.errorprone.annotations.Immutable;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of the 64-bit and 128-bit variants of XXH3, the successor to XXH64 in Yann
+ * Collet's xxHash family, with the default secret. See XXH3_64bits_withSeed and
+ * XXH3_128bits_withSeed in <a href="https://github.com/Cyan4973/xxHash/blob/v0.8.1/xxhash.h">the
+ * C implementation</a>.
+ *
+ * <p>XXH3 hashes inputs of up to 240 bytes with dedicated functions of their length, which a
+ * {@link Hasher} can only choose once it has seen all of its input. The hasher therefore buffers
+ * up to 256 bytes, and only consumes whole stripes of the buffer once more input arrives, always
+ * leaving the final stripe of the input available.
+ */
+@Immutable
+final class Xxh3HashFunction extends AbstractHashFunction implements Serializable {
+  static final HashFunction XXH3_64 = new Xxh3HashFunction(64, 0);
+
+  static final HashFunction XXH3_128 = new Xxh3HashFunction(128, 0);
+
+  private static final long PRIME32_1 = 0x9E3779B1L;
+  private static final long PRIME32_2 = 0x85EBCA77L;
+  private static final long PRIME32_3 = 0xC2B2AE3DL;
+  private static final long PRIME_MX1 = 0x165667919E3779F9L;
+  private static final long PRIME_MX2 = 0x9FB21C651E98DF25L;
+
+  private static final int SECRET_SIZE = 192;
+  private static final int SECRET_SIZE_MIN = 136;
+  private static final int STRIPE_LENGTH = 64;
+  private static final int SECRET_CONSUME_RATE = 8;
+  private static final int STRIPES_PER_BLOCK = (SECRET_SIZE - STRIPE_LENGTH) / SECRET_CONSUME_RATE;
+  private static final int BLOCK_LENGTH = STRIPE_LENGTH * STRIPES_PER_BLOCK;
+  private static final int MIDSIZE_MAX = 240;
+  private static final int MIDSIZE_START_OFFSET = 3;
+  private static final int MIDSIZE_LAST_OFFSET = 17;
+  private static final int SECRET_LAST_ACCUMULATOR_START = 7;
+  private static final int SECRET_MERGE_ACCUMULATORS_START = 11;
+
+  /** The default secret, from which the secret for a nonzero seed is derived. */
+  private static final byte[] DEFAULT_SECRET = {
+    (byte) 0xb8, (byte) 0xfe, (byte) 0x6c, (byte) 0x39, (byte) 0x23, (byte) 0xa4, (byte) 0x4b,
+    (byte) 0xbe, (byte) 0x7c, (byte) 0x01, (byte) 0x81, (byte) 0x2c, (byte) 0xf7, (byte) 0x21,
+    (byte) 0xad, (byte) 0x1c, (byte) 0xde, (byte) 0xd4, (byte) 0x6d, (byte) 0xe9, (byte) 0x83,
+    (byte) 0x90, (byte) 0x97, (byte) 0xdb, (byte) 0x72, (byte) 0x40, (byte) 0xa4, (byte) 0xa4,
+    (byte) 0xb7, (byte) 0xb3, (byte) 0x67, (byte) 0x1f, (byte) 0xcb, (byte) 0x79, (byte) 0xe6,
+    (byte) 0x4e, (byte) 0xcc, (byte) 0xc0, (byte) 0xe5, (byte) 0x78, (byte) 0x82, (byte) 0x5a,
+    (byte) 0xd0, (byte) 0x7d, (byte) 0xcc, (byte) 0xff, (byte) 0x72, (byte) 0x21, (byte) 0xb8,
+    (byte) 0x08, (byte) 0x46, (byte) 0x74, (byte) 0xf7, (byte) 0x43, (byte) 0x24, (byte) 0x8e,
+    (byte) 0xe0, (byte) 0x35, (byte) 0x90, (byte) 0xe6, (byte) 0x81, (byte) 0x3a, (byte) 0x26,
+    (byte) 0x4c, (byte) 0x3c, (byte) 0x28, (byte) 0x52, (byte) 0xbb, (byte) 0x91, (byte) 0xc3,
+    (byte) 0x00, (byte) 0xcb, (byte) 0x88, (byte) 0xd0, (byte) 0x65, (byte) 0x8b, (byte) 0x1b,
+    (byte) 0x53, (byte) 0x2e, (byte) 0xa3, (byte) 0x71, (byte) 0x64, (byte) 0x48, (byte) 0x97,
+    (byte) 0xa2, (byte) 0x0d, (byte) 0xf9, (byte) 0x4e, (byte) 0x38, (byte) 0x19, (byte) 0xef,
+    (byte) 0x46, (byte) 0xa9, (byte) 0xde, (byte) 0xac, (byte) 0xd8, (byte) 0xa8, (byte) 0xfa,
+    (byte) 0x76, (byte) 0x3f, (byte) 0xe3, (byte) 0x9c, (byte) 0x34, (byte) 0x3f, (byte) 0xf9,
+    (byte) 0xdc, (byte) 0xbb, (byte) 0xc7, (byte) 0xc7, (byte) 0x0b, (byte) 0x4f, (byte) 0x1d,
+    (byte) 0x8a, (byte) 0x51, (byte) 0xe0, (byte) 0x4b, (byte) 0xcd, (byte) 0xb4, (byte) 0x59,
+    (byte) 0x31, (byte) 0xc8, (byte) 0x9f, (byte) 0x7e, (byte) 0xc9, (byte) 0xd9, (byte) 0x78,
+    (byte) 0x73, (byte) 0x64, (byte) 0xea, (byte) 0xc5, (byte) 0xac, (byte) 0x83, (byte) 0x34,
+    (byte) 0xd3, (byte) 0xeb, (byte) 0xc3, (byte) 0xc5, (byte) 0x81, (byte) 0xa0, (byte) 0xff,
+    (byte) 0xfa, (byte) 0x13, (byte) 0x63, (byte) 0xeb, (byte) 0x17, (byte) 0x0d, (byte) 0xdd,
+    (byte) 0x51, (byte) 0xb7, (byte) 0xf0, (byte) 0xda, (byte) 0x49, (byte) 0xd3, (byte) 0x16,
+    (byte) 0x55, (byte) 0x26, (byte) 0x29, (byte) 0xd4, (byte) 0x68, (byte) 0x9e, (byte) 0x2b,
+    (byte) 0x16, (byte) 0xbe, (byte) 0x58, (byte) 0x7d, (byte) 0x47, (byte) 0xa1, (byte) 0xfc,
+    (byte) 0x8f, (byte) 0xf8, (byte) 0xb8, (byte) 0xd1, (byte) 0x7a, (byte) 0xd0, (byte) 0x31,
+    (byte) 0xce, (byte) 0x45, (byte) 0xcb, (byte) 0x3a, (byte) 0x8f, (byte) 0x95, (byte) 0x16,
+    (byte) 0x04, (byte) 0x28, (byte) 0xaf, (byte) 0xd7, (byte) 0xfb, (byte) 0xca, (byte) 0xbb,
+    (byte) 0x4b, (byte) 0x40, (byte) 0x7e,
+  };
+
+  private final int bits;
+  private final long seed;
+
+  Xxh3HashFunction(int bits, long seed) {
+    this.bits = bits;
+    this.seed = seed;
+  }
+
+  @Override
+  public int bits() {
+    return bits;
+  }
+
+  @Override
+  public Hasher newHasher() {
+    return new Xxh3Hasher(bits, seed);
+  }
+
+  @Override
+  public HashCode hashBytes(byte[] input, int off, int len) {
+    checkPositionIndexes(off, off + len, input.length);
+    return hash(bits, input, off, len, seed);
+  }
+
+  @Override
+  public String toString() {
+    return "Hashing.xxh3_" + bits + "(" + seed + ")";
+  }
+
+  @Override
+  public boolean equals(@Nullable Object object) {
+    if (object instanceof Xxh3HashFunction) {
+      Xxh3HashFunction other = (Xxh3HashFunction) object;
+      return bits == other.bits && seed == other.seed;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (getClass().hashCode() ^ bits ^ seed ^ (seed >>> 32));
+  }
+
+  private static HashCode hash(int bits, byte[] input, int off, int len, long seed) {
+    if (bits == 64) {
+      long hash;
+      if (len <= 16) {
+        hash = hash64Length0To16(input, off, len, seed);
+      } else if (len <= 128) {
+        hash = hash64Length17To128(input, off, len, seed);
+      } else if (len <= MIDSIZE_MAX) {
+        hash = hash64Length129To240(input, off, len, seed);
+      } else {
+        long[] accumulators = initialAccumulators();
+        byte[] secret = secret(seed);
+        accumulateLong(accumulators, input, off, len, secret);
+        hash = merge64(accumulators, secret, len);
+      }
+      return HashCode.fromLong(hash);
+    } else {
+      if (len <= 16) {
+        return hash128Length0To16(input, off, len, seed);
+      } else if (len <= 128) {
+        return hash128Length17To128(input, off, len, seed);
+      } else if (len <= MIDSIZE_MAX) {
+        return hash128Length129To240(input, off, len, seed);
+      } else {
+        long[] accumulators = initialAccumulators();
+        byte[] secret = secret(seed);
+        accumulateLong(accumulators, input, off, len, secret);
+        return merge128(accumulators, secret, len);
+      }
+    }
+  }
+
+  // Inputs of up to 240 bytes, which are hashed with the default secret and the seed.
+
+  private static long hash64Length0To16(byte[] input, int off, int len, long seed) {
+    byte[] secret = DEFAULT_SECRET;
+    if (len > 8) {
+      long bitflip1 = (load64(secret, 24) ^ load64(secret, 32)) + seed;
+      long bitflip2 = (load64(secret, 40) ^ load64(secret, 48)) - seed;
+      long low = load64(input, off) ^ bitflip1;
+      long high = load64(input, off + len - 8) ^ bitflip2;
+      long accumulator = len + Long.reverseBytes(low) + high + multiplyFold64(low, high);
+      return avalanche(accumulator);
+    } else if (len >= 4) {
+      seed ^= (long) Integer.reverseBytes((int) seed) << 32;
+      long bitflip = (load64(secret, 8) ^ load64(secret, 16)) - seed;
+      long input64 =
+          (load32(input, off + len - 4) & 0xFFFFFFFFL) + ((long) load32(input, off) << 32);
+      return rrmxmx(input64 ^ bitflip, len);
+    } else if (len > 0) {
+      long combined = combine1To3(input, off, len) & 0xFFFFFFFFL;
+      long bitflip = ((load32(secret, 0) ^ load32(secret, 4)) & 0xFFFFFFFFL) + seed;
+      return XxHash64HashFunction.avalanche(combined ^ bitflip);
+    } else {
+      return XxHash64HashFunction.avalanche(seed ^ load64(secret, 56) ^ load64(secret, 64));
+    }
+  }
+
+  private static long hash64Length17To128(byte[] input, int off, int len, long seed) {
+    long accumulator = len * PRIME64_1;
+    if (len > 32) {
+      if (len > 64) {
+        if (len > 96) {
+          accumulator += mix16(input, off + 48, DEFAULT_SECRET, 96, seed);
+          accumulator += mix16(input, off + len - 64, DEFAULT_SECRET, 112, seed);
+        }
+        accumulator += mix16(input, off + 32, DEFAULT_SECRET, 64, seed);
+        accumulator += mix16(input, off + len - 48, DEFAULT_SECRET, 80, seed);
+      }
+      accumulator += mix16(input, off + 16, DEFAULT_SECRET, 32, seed);
+      accumulator += mix16(input, off + len - 32, DEFAULT_SECRET, 48, seed);
+    }
+    accumulator += mix16(input, off, DEFAULT_SECRET, 0, seed);
+    accumulator += mix16(input, off + len - 16, DEFAULT_SECRET, 16, seed);
+    return avalanche(accumulator);
+  }
+
+  private static long hash64Length129To240(byte[] input, int off, int len, long seed) {
+    long accumulator = len * PRIME64_1;
+    int rounds = len / 16;
+    for (int i = 0; i < 8; i++) {
+      accumulator += mix16(input, off + 16 * i, DEFAULT_SECRET, 16 * i, seed);
+    }
+    accumulator = avalanche(accumulator);
+    for (int i = 8; i < rounds; i++) {
+      accumulator +=
+          mix16(input, off + 16 * i, DEFAULT_SECRET, 16 * (i - 8) + MIDSIZE_START_OFFSET, seed);
+    }
+    accumulator +=
+        mix16(input, off + len - 16, DEFAULT_SECRET, SECRET_SIZE_MIN - MIDSIZE_LAST_OFFSET, seed);
+    return avalanche(accumulator);
+  }
+
+  private static HashCode hash128Length0To16(byte[] input, int off, int len, long seed) {
+    byte[] secret = DEFAULT_SECRET;
+    if (len > 8) {
+      long bitflipLow = (load64(secret, 32) ^ load64(secret, 40)) - seed;
+      long bitflipHigh = (load64(secret, 48) ^ load64(secret, 56)) + seed;
+      long inputLow = load64(input, off);
+      long inputHigh = load64(input, off + len - 8);
+      long product = inputLow ^ inputHigh ^ bitflipLow;
+      long low = product * PRIME64_1 + ((long) (len - 1) << 54);
+      long high = unsignedMultiplyHigh(product, PRIME64_1);
+      inputHigh ^= bitflipHigh;
+      high += inputHigh + (inputHigh & 0xFFFFFFFFL) * (PRIME32_2 - 1);
+      low ^= Long.reverseBytes(high);
+      return fromLongs(
+          avalanche(low * PRIME64_2),
+          avalanche(unsignedMultiplyHigh(low, PRIME64_2) + high * PRIME64_2));
+    } else if (len >= 4) {
+      seed ^= (long) Integer.reverseBytes((int) seed) << 32;
+      long input64 =
+          (load32(input, off) & 0xFFFFFFFFL) + ((long) load32(input, off + len - 4) << 32);
+      long bitflip = (load64(secret, 16) ^ load64(secret, 24)) + seed;
+      long keyed = input64 ^ bitflip;
+      long multiplier = PRIME64_1 + (len << 2);
+      long low = keyed * multiplier;
+      long high = unsignedMultiplyHigh(keyed, multiplier);
+      high += low << 1;
+      low ^= high >>> 3;
+      low ^= low >>> 35;
+      low *= PRIME_MX2;
+      low ^= low >>> 28;
+      return fromLongs(low, avalanche(high));
+    } else if (len > 0) {
+      int combinedLow = combine1To3(input, off, len);
+      int combinedHigh = Integer.rotateLeft(Integer.reverseBytes(combinedLow), 13);
+      long bitflipLow = ((load32(secret, 0) ^ load32(secret, 4)) & 0xFFFFFFFFL) + seed;
+      long bitflipHigh = ((load32(secret, 8) ^ load32(secret, 12)) & 0xFFFFFFFFL) - seed;
+      return fromLongs(
+          XxHash64HashFunction.avalanche((combinedLow & 0xFFFFFFFFL) ^ bitflipLow),
+          XxHash64HashFunction.avalanche((combinedHigh & 0xFFFFFFFFL) ^ bitflipHigh));
+    } else {
+      return fromLongs(
+          XxHash64HashFunction.avalanche(seed ^ load64(secret, 64) ^ load64(secret, 72)),
+          XxHash64HashFunction.avalanche(seed ^ load64(secret, 80) ^ load64(secret, 88)));
+    }
+  }
+
+  private static HashCode hash128Length17To128(byte[] input, int off, int len, long seed) {
+    long[] accumulator = {len * PRIME64_1, 0};
+    if (len > 32) {
+      if (len > 64) {
+        if (len > 96) {
+          mix32(accumulator, input, off + 48, off + len - 64, DEFAULT_SECRET, 96, seed);
+        }
+        mix32(accumulator, input, off + 32, off + len - 48, DEFAULT_SECRET, 64, seed);
+      }
+      mix32(accumulator, input, off + 16, off + len - 32, DEFAULT_SECRET, 32, seed);
+    }
+    mix32(accumulator, input, off, off + len - 16, DEFAULT_SECRET, 0, seed);
+    return finish128(accumulator, len, seed);
+  }
+
+  private static HashCode hash128Length129To240(byte[] input, int off, int len, long seed) {
+    long[] accumulator = {len * PRIME64_1, 0};
+    int rounds = len / 32;
+    for (int i = 0; i < 4; i++) {
+      mix32(accumulator, input, off + 32 * i, off + 32 * i + 16, DEFAULT_SECRET, 32 * i, seed);
+    }
+    accumulator[0] = avalanche(accumulator[0]);
+    accumulator[1] = avalanche(accumulator[1]);
+    for (int i = 4; i < rounds; i++) {
+      int inputOffset = off + 32 * i;
+      int secretOffset = MIDSIZE_START_OFFSET + 32 * (i - 4);
+      mix32(accumulator, input, inputOffset, inputOffset + 16, DEFAULT_SECRET, secretOffset, seed);
+    }
+    int end = off + len;
+    int lastSecretOffset = SECRET_SIZE_MIN - MIDSIZE_LAST_OFFSET - 16;
+    mix32(accumulator, input, end - 16, end - 32, DEFAULT_SECRET, lastSecretOffset, -seed);
+    return finish128(accumulator, len, seed);
+  }
+
+  private static HashCode finish128(long[] accumulator, int len, long seed) {
+    long low = accumulator[0] + accumulator[1];
+    long high = accumulator[0] * PRIME64_1 + accumulator[1] * PRIME64_4 + (len - seed) * PRIME64_2;
+    return fromLongs(avalanche(low), -avalanche(high));
+  }
+
+  private static int combine1To3(byte[] input, int off, int len) {
+    int c1 = input[off] & 0xFF;
+    int c2 = input[off + (len >> 1)] & 0xFF;
+    int c3 = input[off + len - 1] & 0xFF;
+    return (c1 << 16) | (c2 << 24) | c3 | (len << 8);
+  }
+
+  private static long mix16(byte[] input, int off, byte[] secret, int secretOffset, long seed) {
+    long low = load64(input, off) ^ (load64(secret, secretOffset) + seed);
+    long high = load64(input, off + 8) ^ (load64(secret, secretOffset + 8) - seed);
+    return multiplyFold64(low, high);
+  }
+
+  /** Mixes 16 bytes at each of two offsets into a 128-bit accumulator. */
+  private static void mix32(
+      long[] accumulator,
+      byte[] input,
+      int off1,
+      int off2,
+      byte[] secret,
+      int secretOffset,
+      long seed) {
+    accumulator[0] += mix16(input, off1, secret, secretOffset, seed);
+    accumulator[0] ^= load64(input, off2) + load64(input, off2 + 8);
+    accumulator[1] += mix16(input, off2, secret, secretOffset + 16, seed);
+    accumulator[1] ^= load64(input, off1) + load64(input, off1 + 8);
+  }
+
+  // Inputs of more than 240 bytes, which are hashed in stripes with a secret derived from the seed.
+
+  private static long[] initialAccumulators() {
+    return new long[] {
+      PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1
+    };
+  }
+
+  private static byte[] secret(long seed) {
+    if (seed == 0) {
+      return DEFAULT_SECRET;
+    }
+    byte[] secret = new byte[SECRET_SIZE];
+    for (int i = 0; i < SECRET_SIZE; i += 16) {
+      store64(secret, i, load64(DEFAULT_SECRET, i) + seed);
+      store64(secret, i + 8, load64(DEFAULT_SECRET, i + 8) - seed);
+    }
+    return secret;
+  }
+
+  private static void accumulateLong(
+      long[] accumulators, byte[] input, int off, int len, byte[] secret) {
+    int blocks = (len - 1) / BLOCK_LENGTH;
+    for (int block = 0; block < blocks; block++) {
+      accumulate(accumulators, input, off + block * BLOCK_LENGTH, secret, 0, STRIPES_PER_BLOCK);
+      scramble(accumulators, secret);
+    }
+    int stripes = ((len - 1) - BLOCK_LENGTH * blocks) / STRIPE_LENGTH;
+    accumulate(accumulators, input, off + blocks * BLOCK_LENGTH, secret, 0, stripes);
+    accumulateLastStripe(accumulators, input, off + len - STRIPE_LENGTH, secret);
+  }
+
+  private static void accumulate(
+      long[] accumulators, byte[] input, int off, byte[] secret, int secretOffset, int stripes) {
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      accumulate512(
+          accumulators,
+          input,
+          off + stripe * STRIPE_LENGTH,
+          secret,
+          secretOffset + stripe * SECRET_CONSUME_RATE);
+    }
+  }
+
+  private static void accumulateLastStripe(
+      long[] accumulators, byte[] input, int off, byte[] secret) {
+    accumulate512(
+        accumulators,
+        input,
+        off,
+        secret,
+        SECRET_SIZE - STRIPE_LENGTH - SECRET_LAST_ACCUMULATOR_START);
+  }
+
+  private static void accumulate512(
+      long[] accumulators, byte[] input, int off, byte[] secret, int secretOffset) {
+    for (int i = 0; i < 8; i++) {
+      long data = load64(input, off + 8 * i);
+      long key = data ^ load64(secret, secretOffset + 8 * i);
+      accumulators[i ^ 1] += data;
+      accumulators[i] += (key & 0xFFFFFFFFL) * (key >>> 32);
+    }
+  }
+
+  private static void scramble(long[] accumulators, byte[] secret) {
+    int secretOffset = SECRET_SIZE - STRIPE_LENGTH;
+    for (int i = 0; i < 8; i++) {
+      long accumulator = accumulators[i];
+      accumulator ^= accumulator >>> 47;
+      accumulator ^= load64(secret, secretOffset + 8 * i);
+      accumulators[i] = accumulator * PRIME32_1;
+    }
+  }
+
+  private static long merge64(long[] accumulators, byte[] secret, long len) {
+    return mergeAccumulators(
+        accumulators, secret, SECRET_MERGE_ACCUMULATORS_START, len * PRIME64_1);
+  }
+
+  private static HashCode merge128(long[] accumulators, byte[] secret, long len) {
+    return fromLongs(
+        mergeAccumulators(accumulators, secret, SECRET_MERGE_ACCUMULATORS_START, len * PRIME64_1),
+        mergeAccumulators(
+            accumulators,
+            secret,
+            SECRET_SIZE - STRIPE_LENGTH - SECRET_MERGE_ACCUMULATORS_START,
+            ~(len * PRIME64_2)));
+  }
+
+  private static long mergeAccumulators(
+      long[] accumulators, byte[] secret, int secretOffset, long start) {
+    long result = start;
+    for (int i = 0; i < 4; i++) {
+      result +=
+          multiplyFold64(
+              accumulators[2 * i] ^ load64(secret, secretOffset + 16 * i),
+              accumulators[2 * i + 1] ^ load64(secret, secretOffset + 16 * i + 8));
+    }
+    return avalanche(result);
+  }
+
+  // Arithmetic helpers.
+
+  private static long avalanche(long hash) {
+    hash ^= hash >>> 37;
+    hash *= PRIME_MX1;
+    return hash ^ (hash >>> 32);
+  }
+
+  private static long rrmxmx(long hash, int len) {
+    hash ^= Long.rotateLeft(hash, 49) ^ Long.rotateLeft(hash, 24);
+    hash *= PRIME_MX2;
+    hash ^= (hash >>> 35) + len;
+    hash *= PRIME_MX2;
+    return hash ^ (hash >>> 28);
+  }
+
+  /** Returns the exclusive or of the low and high halves of the unsigned 128-bit product. */
+  private static long multiplyFold64(long a, long b) {
+    return (a * b) ^ unsignedMultiplyHigh(a, b);
+  }
+
+  /** Returns the high 64 bits of the unsigned 128-bit product of {@code a} and {@code b}. */
+  private static long unsignedMultiplyHigh(long a, long b) {
+    long aLow = a & 0xFFFFFFFFL;
+    long aHigh = a >>> 32;
+    long bLow = b & 0xFFFFFFFFL;
+    long bHigh = b >>> 32;
+    long lowHigh = aHigh * bLow;
+    long cross = ((aLow * bLow) >>> 32) + (lowHigh & 0xFFFFFFFFL) + aLow * bHigh;
+    return aHigh * bHigh + (lowHigh >>> 32) + (cross >>> 32);
+  }
+
+  /** Returns a 128-bit hash code of the given halves, each encoded in little-endian order. */
+  private static HashCode fromLongs(long low, long high) {
+    byte[] bytes = new byte[16];
+    store64(bytes, 0, low);
+    store64(bytes, 8, high);
+    return HashCode.fromBytesNoCopy(bytes);
+  }
+
+  private static final class Xxh3Hasher extends AbstractByteHasher {
+    private static final int BUFFER_SIZE = 256;
+    private static final int BUFFER_STRIPES = BUFFER_SIZE / STRIPE_LENGTH;
+
+    private final int bits;
+    private final long seed;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered;
+    private long length;
+
+    // Allocated once the input exceeds the buffer, and is known to be longer than 240 bytes
+    private long @Nullable [] accumulators;
+    private byte @Nullable [] secret;
+    private int stripesInBlock;
+
+    Xxh3Hasher(int bits, long seed) {
+      this.bits = bits;
+      this.seed = seed;
+    }
+
+    @Override
+    protected void update(byte b) {
+      if (buffered == BUFFER_SIZE) {
+        consumeStripes(buffer, 0, BUFFER_STRIPES);
+        buffered = 0;
+      }
+      buffer[buffered++] = b;
+      length++;
+    }
+
+    @Override
+    protected void update(byte[] b, int off, int len) {
+      length += len;
+      if (len <= BUFFER_SIZE - buffered) {
+        System.arraycopy(b, off, buffer, buffered, len);
+        buffered += len;
+        return;
+      }
+      // Only consume input which more input follows, since the final stripe is treated specially.
+      if (buffered > 0) {
+        int fill = BUFFER_SIZE - buffered;
+        System.arraycopy(b, off, buffer, buffered, fill);
+        off += fill;
+        len -= fill;
+        consumeStripes(buffer, 0, BUFFER_STRIPES);
+      }
+      if (len > BUFFER_SIZE) {
+        do {
+          consumeStripes(b, off, BUFFER_STRIPES);
+          off += BUFFER_SIZE;
+          len -= BUFFER_SIZE;
+        } while (len > BUFFER_SIZE);
+        // keep the last stripe consumed, in case the final stripe needs some of its bytes
+        System.arraycopy(
+            b, off - STRIPE_LENGTH, buffer, BUFFER_SIZE - STRIPE_LENGTH, STRIPE_LENGTH);
+      }
+      System.arraycopy(b, off, buffer, 0, len);
+      buffered = len;
+    }
+
+    @Override
+    protected void update(ByteBuffer b) {
+      if (b.hasArray()) {
+        super.update(b);
+        return;
+      }
+      byte[] chunk = new byte[Math.min(b.remaining(), 4 * BUFFER_SIZE)];
+      while (b.hasRemaining()) {
+        int len = Math.min(b.remaining(), chunk.length);
+        b.get(chunk, 0, len);
+        update(chunk, 0, len);
+      }
+    }
+
+    private void consumeStripes(byte[] input, int off, int stripes) {
+      if (accumulators == null) {
+        accumulators = initialAccumulators();
+        secret = secret(seed);
+      }
+      int stripesToEndOfBlock = STRIPES_PER_BLOCK - stripesInBlock;
+      if (stripes >= stripesToEndOfBlock) {
+        int secretOffset = stripesInBlock * SECRET_CONSUME_RATE;
+        accumulate(accumulators, input, off, secret, secretOffset, stripesToEndOfBlock);
+        scramble(accumulators, secret);
+        int stripesAfterBlock = stripes - stripesToEndOfBlock;
+        accumulate(
+            accumulators,
+            input,
+            off + stripesToEndOfBlock * STRIPE_LENGTH,
+            secret,
+            0,
+            stripesAfterBlock);
+        stripesInBlock = stripesAfterBlock;
+      } else {
+        int secretOffset = stripesInBlock * SECRET_CONSUME_RATE;
+        accumulate(accumulators, input, off, secret, secretOffset, stripes);
+        stripesInBlock += stripes;
+      }
+    }
+
+    @Override
+    public HashCode hash() {
+      if (length <= MIDSIZE_MAX) {
+        return Xxh3HashFunction.hash(bits, buffer, 0, buffered, seed);
+      }
+      if (buffered >= STRIPE_LENGTH) {
+        consumeStripes(buffer, 0, (buffered - 1) / STRIPE_LENGTH);
+        accumulateLastStripe(accumulators, buffer, buffered - STRIPE_LENGTH, secret);
+      } else {
+        // the final stripe begins with the end of the last stripe consumed
+        byte[] lastStripe = new byte[STRIPE_LENGTH];
+        int catchUp = STRIPE_LENGTH - buffered;
+        System.arraycopy(buffer, BUFFER_SIZE - catchUp, lastStripe, 0, catchUp);
+        System.arraycopy(buffer, 0, lastStripe, catchUp, buffered);
+        accumulateLastStripe(accumulators, lastStripe, 0, secret);
+      }
+      return (bits == 64)
+          ? HashCode.fromLong(merge64(accumulators, secret, length))
+          : merge128(accumulators, secret, length);
+    }
+  }
+
+  private static final long serialVersionUID = 0L;
+}
@@ -31,6 +31,8 @@ import com.google.common.graph.SuccessorsFunction;
 import com.google.common.graph.Traverser;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -600,6 +602,58 @@ public final class Files {
     return asByteSource(file).hash(hashFunction);
   }
 
+  /**
+   * Computes the hash code of the {@code file} using {@code hashFunction}, reading the file through
+   * a read-only memory mapping rather than a stream.
+   *
+   * <p>The mapped file is passed to {@link HashFunction#hashBytes(java.nio.ByteBuffer)} or, if it
+   * exceeds {@link Integer#MAX_VALUE} bytes, to a {@link Hasher} in regions of at most 1 GiB. Hash
+   * functions which read a direct buffer in place, such as {@link Hashing#murmur3_128()}, {@link
+   * Hashing#farmHashFingerprint64()} and {@link Hashing#crc32c()}, thereby hash the file without
+   * copying it to the Java heap. This is typically much faster than {@code
+   * asByteSource(file).hash(hashFunction)} for large files, but slower for small ones.
+   *
+   * <p>The file must be a regular file, and must not be truncated while it is hashed: accessing a
+   * mapped region of a file beyond its end may crash the JVM on some platforms. The mapping is
+   * released when it is garbage collected, and until then may prevent the file from being deleted
+   * on some platforms.
+   *
+   * @param file the file to hash
+   * @param hashFunction the hash function to use to hash the data
+   * @return the {@link HashCode} of all of the bytes in the file
+   * @throws FileNotFoundException if the {@code file} does not exist
+   * @throws IOException if an I/O error occurs
+   * @since NEXT
+   */
+  @Beta
+  public static HashCode hashMapped(File file, HashFunction hashFunction) throws IOException {
+    checkNotNull(file);
+    checkNotNull(hashFunction);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      return hashMapped(raf.getChannel(), hashFunction);
+    }
+  }
+
+  /** The size of the largest region {@link #hashMapped(FileChannel, HashFunction)} maps at once. */
+  private static final long MAX_HASHED_REGION = 1L << 30;
+
+  /**
+   * Hashes the contents of {@code channel} through read-only memory mappings. Also used by {@link
+   * MoreFiles#hashMapped}.
+   */
+  static HashCode hashMapped(FileChannel channel, HashFunction hashFunction) throws IOException {
+    long size = channel.size();
+    if (size <= Integer.MAX_VALUE) {
+      return hashFunction.hashBytes(channel.map(MapMode.READ_ONLY, 0, size));
+    }
+    Hasher hasher = hashFunction.newHasher();
+    for (long position = 0; position < size; position += MAX_HASHED_REGION) {
+      long regionSize = Math.min(MAX_HASHED_REGION, size - position);
+      hasher.putBytes(channel.map(MapMode.READ_ONLY, position, regionSize));
+    }
+    return hasher.hash();
+  }
+
   /**
    * Fully maps a file read-only in to memory as per {@link
    * FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.
@@ -26,12 +26,16 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.graph.SuccessorsFunction;
 import com.google.common.graph.Traverser;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource.AsCharSource;
 import com.google.j2objc.annotations.J2ObjCIncompatible;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.DirectoryIteratorException;
@@ -187,6 +191,34 @@ public final class MoreFiles {
     }
   }
 
+  /**
+   * Computes the hash code of the file at {@code path} using {@code hashFunction}, reading the file
+   * through a read-only memory mapping rather than a stream.
+   *
+   * <p>Hash functions which read a direct buffer in place, such as {@link Hashing#murmur3_128()},
+   * {@link Hashing#farmHashFingerprint64()} and {@link Hashing#crc32c()}, thereby hash the file
+   * without copying it to the Java heap. This is typically much faster than {@code
+   * asByteSource(path).hash(hashFunction)} for large files, but slower for small ones.
+   *
+   * <p>The file must be a regular file, and must not be truncated while it is hashed: accessing a
+   * mapped region of a file beyond its end may crash the JVM on some platforms. The mapping is
+   * released when it is garbage collected, and until then may prevent the file from being deleted
+   * on some platforms.
+   *
+   * @return the {@link HashCode} of all of the bytes in the file
+   * @throws NoSuchFileException if the file does not exist <i>(optional specific exception)</i>
+   * @throws IOException if an I/O error occurs
+   * @since NEXT
+   */
+  public static HashCode hashMapped(Path path, HashFunction hashFunction) throws IOException {
+    checkNotNull(path);
+    checkNotNull(hashFunction);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // qualified, since java.nio.file.Files is imported
+      return com.google.common.io.Files.hashMapped(channel, hashFunction);
+    }
+  }
+
   /**
    * Returns a view of the given {@code path} as a {@link ByteSink}.
    *
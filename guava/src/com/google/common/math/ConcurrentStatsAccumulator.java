@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.math;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A thread-safe object which accumulates double values and tracks some basic statistics over all
+ * the values added so far, like a {@link StatsAccumulator} which may be shared between threads.
+ *
+ * <p>Values are added to one of a number of independent cells, each holding the statistics of the
+ * values added to it. The number of cells grows, up to about the number of processors, as threads
+ * contend to add values, so that threads adding values at the same time usually do so without
+ * waiting for each other. The statistics of the cells are combined only when they are read by
+ * {@link #snapshot}. Under high contention, this class is therefore much faster than a {@link
+ * StatsAccumulator} guarded by a lock, at the expense of higher memory use and slower reads. Values
+ * added in groups are accumulated before a cell is chosen, and then combined with it at once.
+ *
+ * <p>The results of {@link #snapshot} are as if the values in each cell had been added to a single
+ * {@link StatsAccumulator} with {@link StatsAccumulator#addAll(Stats)}. They may therefore differ
+ * from those of adding the same values to a single {@code StatsAccumulator} by rounding error, as
+ * may the results of adding the same values in a different order.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class ConcurrentStatsAccumulator {
+  /*
+   * This class stripes updates across cells in the same way as Striped64 (see the hash and cache
+   * packages), except that a cell holds a StatsAccumulator guarded by a lock rather than a single
+   * long updated by CAS. A failed tryLock plays the role of a failed CAS: it indicates contention,
+   * and leads to the thread trying another cell, or to the table of cells being expanded. Once the
+   * table can no longer be expanded, a thread which fails to lock its cell picks another cell for
+   * its next update, and then waits for the lock on the current one.
+   */
+
+  /** A lock guarding a {@link StatsAccumulator}, padded to reduce cache contention. */
+  private static final class Cell extends ReentrantLock {
+    // Padding from 40 into 64 bytes, as in Striped.PaddedLock.
+    long unused1;
+    long unused2;
+    long unused3;
+
+    final StatsAccumulator accumulator = new StatsAccumulator();
+
+    Cell() {
+      super(false);
+    }
+  }
+
+  /**
+   * ThreadLocal holding a single-slot int array holding hash code, as in Striped64. A zero hash
+   * code is never used, to allow xorShift rehash.
+   */
+  private static final ThreadLocal<int[]> threadHashCode = new ThreadLocal<>();
+
+  /** Generator of new random hash codes. */
+  private static final Random rng = new Random();
+
+  /** Number of CPUS, to place bound on table size. */
+  private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+  /** The cell used until there is contention, and as a fallback during table initialization. */
+  private final Cell base = new Cell();
+
+  /** Table of cells. When non-null, size is a power of 2. */
+  private volatile Cell @Nullable [] cells;
+
+  /** Lock used when resizing and/or creating cells. Never waited for. */
+  private final ReentrantLock tableLock = new ReentrantLock();
+
+  /** Creates a new accumulator, with no values. */
+  public ConcurrentStatsAccumulator() {}
+
+  /** Adds the given value to the dataset. */
+  public void add(double value) {
+    Cell cell = lockCell();
+    try {
+      cell.accumulator.add(value);
+    } finally {
+      cell.unlock();
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision)
+   */
+  public void addAll(Iterable<? extends Number> values) {
+    addAll(Stats.of(values));
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision)
+   */
+  public void addAll(Iterator<? extends Number> values) {
+    addAll(Stats.of(values));
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values
+   */
+  public void addAll(double... values) {
+    addAll(Stats.of(values));
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values
+   */
+  public void addAll(int... values) {
+    addAll(Stats.of(values));
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision for longs of magnitude over 2^53 (slightly over 9e15))
+   */
+  public void addAll(long... values) {
+    addAll(Stats.of(values));
+  }
+
+  /**
+   * Adds the given statistics to the dataset, as if the individual values used to compute the
+   * statistics had been added directly.
+   */
+  public void addAll(Stats values) {
+    checkNotNull(values);
+    if (values.count() == 0) {
+      return;
+    }
+    Cell cell = lockCell();
+    try {
+      cell.accumulator.addAll(values);
+    } finally {
+      cell.unlock();
+    }
+  }
+
+  /**
+   * Returns an immutable snapshot of the current statistics.
+   *
+   * <p>The snapshot is not atomic: values added while it is being computed may or may not be
+   * included in it. It is exact in the absence of concurrent updates.
+   */
+  public Stats snapshot() {
+    StatsAccumulator result = new StatsAccumulator();
+    result.addAll(snapshot(base));
+    Cell[] cs = cells;
+    if (cs != null) {
+      for (Cell cell : cs) {
+        if (cell != null) {
+          result.addAll(snapshot(cell));
+        }
+      }
+    }
+    return result.snapshot();
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * <p>Like {@link #snapshot}, this is not atomic with respect to concurrent updates.
+   */
+  public long count() {
+    long count = count(base);
+    Cell[] cs = cells;
+    if (cs != null) {
+      for (Cell cell : cs) {
+        if (cell != null) {
+          count += count(cell);
+        }
+      }
+    }
+    return count;
+  }
+
+  private static Stats snapshot(Cell cell) {
+    cell.lock();
+    try {
+      return cell.accumulator.snapshot();
+    } finally {
+      cell.unlock();
+    }
+  }
+
+  private static long count(Cell cell) {
+    cell.lock();
+    try {
+      return cell.accumulator.count();
+    } finally {
+      cell.unlock();
+    }
+  }
+
+  /** Returns a cell, locked by the current thread, to add values to. */
+  private Cell lockCell() {
+    Cell[] cs = cells;
+    if (cs == null) {
+      if (base.tryLock()) {
+        return base;
+      }
+    } else {
+      int[] hc = threadHashCode.get();
+      if (hc != null) {
+        Cell cell = cs[(cs.length - 1) & hc[0]];
+        if (cell != null && cell.tryLock()) {
+          return cell;
+        }
+      }
+    }
+    return lockCellContended();
+  }
+
+  /**
+   * Handles the cases of {@link #lockCell} involving initialization, resizing, creating new cells,
+   * and/or contention, following {@code Striped64.retryUpdate}.
+   */
+  private Cell lockCellContended() {
+    int[] hc = threadHashCode.get();
+    int h;
+    if (hc == null) {
+      threadHashCode.set(hc = new int[1]); // Initialize randomly
+      int r = rng.nextInt(); // Avoid zero to allow xorShift rehash
+      h = hc[0] = (r == 0) ? 1 : r;
+    } else {
+      h = hc[0];
+    }
+    boolean collide = false; // True if last slot nonempty
+    while (true) {
+      Cell[] cs = cells;
+      if (cs != null) {
+        int n = cs.length;
+        Cell cell = cs[(n - 1) & h];
+        if (cell == null) {
+          if (tableLock.tryLock()) { // Try to attach new Cell
+            try {
+              int j = (n - 1) & h;
+              if (cells == cs && cs[j] == null) {
+                cs[j] = new Cell();
+              }
+            } finally {
+              tableLock.unlock();
+            }
+            continue; // Slot is now non-empty
+          }
+          collide = false;
+        } else if (cell.tryLock()) {
+          return cell;
+        } else if (n >= NCPU) {
+          // The table is at its maximum size: use another cell next time, and wait for this one.
+          hc[0] = rehash(h);
+          cell.lock();
+          return cell;
+        } else if (cells != cs) {
+          collide = false; // Stale
+        } else if (!collide) {
+          collide = true;
+        } else if (tableLock.tryLock()) {
+          try {
+            if (cells == cs) { // Expand table unless stale
+              Cell[] rs = new Cell[n << 1];
+              System.arraycopy(cs, 0, rs, 0, n);
+              cells = rs;
+            }
+          } finally {
+            tableLock.unlock();
+          }
+          collide = false;
+          continue; // Retry with expanded table
+        }
+        h = rehash(h);
+        hc[0] = h; // Record index for next time
+      } else if (tableLock.tryLock()) {
+        try { // Initialize table
+          if (cells == null) {
+            Cell[] rs = new Cell[2];
+            rs[h & 1] = new Cell();
+            cells = rs;
+          }
+        } finally {
+          tableLock.unlock();
+        }
+      } else if (base.tryLock()) {
+        return base; // Fall back on using base
+      }
+    }
+  }
+
+  /** Marsaglia XorShift, which maps non-zero values to non-zero values. */
+  private static int rehash(int h) {
+    h ^= h << 13;
+    h ^= h >>> 17;
+    h ^= h << 5;
+    return h;
+  }
+}
@@ -69,6 +69,9 @@ import java.util.Map;
  * it being arbitrarily reordered, and you want to avoid that copy, you can use {@code
  * computeInPlace} instead of {@code compute}.
  *
+ * <p>To estimate quantiles of a dataset too large to keep in memory, accumulate it in a {@link
+ * QuantilesSketch}, and compute its quantiles in the same way.
+ *
  * <h3>Definition and notes on interpolation</h3>
  *
  * <p>The definition of the kth q-quantile of N values is as follows: define x = k * (N - 1) / q; if
@@ -301,6 +304,22 @@ public final class Quantiles {
         return interpolate(dataset[quotient], dataset[quotient + 1], remainder, scale);
       }
     }
+
+    /**
+     * Estimates the quantile value of the dataset summarized by the given sketch. Until the sketch
+     * compacts its values, this is exactly the quantile value of the dataset.
+     *
+     * @param sketch the sketch of the dataset to do the calculation on, which must be non-empty
+     * @return the estimated quantile value
+     * @since NEXT
+     */
+    public double compute(QuantilesSketch sketch) {
+      checkArgument(sketch.count() > 0, "Cannot calculate quantiles of an empty dataset");
+      if (sketch.containsNaN()) {
+        return NaN;
+      }
+      return estimate(sketch.sortedView(), sketch.count(), index, scale);
+    }
   }
 
   /**
@@ -435,6 +454,52 @@ public final class Quantiles {
       }
       return unmodifiableMap(ret);
     }
+
+    /**
+     * Estimates the quantile values of the dataset summarized by the given sketch. Until the sketch
+     * compacts its values, these are exactly the quantile values of the dataset.
+     *
+     * @param sketch the sketch of the dataset to do the calculation on, which must be non-empty
+     * @return an unmodifiable map of results: the keys will be the specified quantile indexes, and
+     *     the values the corresponding estimated quantile values
+     * @since NEXT
+     */
+    public Map<Integer, Double> compute(QuantilesSketch sketch) {
+      checkArgument(sketch.count() > 0, "Cannot calculate quantiles of an empty dataset");
+      Map<Integer, Double> ret = new HashMap<>();
+      if (sketch.containsNaN()) {
+        for (int index : indexes) {
+          ret.put(index, NaN);
+        }
+        return unmodifiableMap(ret);
+      }
+      QuantilesSketch.SortedView view = sketch.sortedView();
+      for (int index : indexes) {
+        ret.put(index, estimate(view, sketch.count(), index, scale));
+      }
+      return unmodifiableMap(ret);
+    }
+  }
+
+  /**
+   * Estimates the kth q-quantile of a dataset of the given size from the sorted values of a sketch
+   * of it, interpolating as for the dataset itself.
+   */
+  private static double estimate(
+      QuantilesSketch.SortedView view, long count, int index, int scale) {
+    // Calculate the quotient and remainder in the integer division x = k * (N - 1) / q, as in
+    // computeInPlace. Since N - 1 may be as large as a long, split it as a * q + b, so that
+    // x = k * a + k * b / q, and k * b is less than q^2, which can be expressed as a long:
+    long a = (count - 1) / scale;
+    long kb = (long) index * ((count - 1) % scale);
+    long quotient = index * a + kb / scale;
+    long remainder = kb % scale;
+    if (remainder == 0) {
+      return view.valueAtIndex(quotient);
+    } else {
+      return interpolate(
+          view.valueAtIndex(quotient), view.valueAtIndex(quotient + 1), remainder, scale);
+    }
   }
 
   /** Returns whether any of the values in {@code dataset} are {@code NaN}. */
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2018 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.common.math;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Double.NaN;
+import static java.lang.Double.isNaN;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A mutable object which accumulates double values in bounded memory, and estimates quantiles of
+ * all the values added so far. Unlike {@link Quantiles}, which needs the whole dataset, a sketch
+ * keeps a sample of a few hundred values, however many are added. This class is not thread safe.
+ *
+ * <p>The quantiles of a sketch are computed with the same fluent API as those of a dataset:
+ *
+ * <pre>{@code
+ * QuantilesSketch latencies = new QuantilesSketch();
+ * ...
+ * latencies.add(latencyMillis);
+ * ...
+ * double p99 = percentiles().index(99).compute(latencies);
+ * Map<Integer, Double> quartiles = quartiles().indexes(1, 2, 3).compute(latencies);
+ * }</pre>
+ *
+ * <p>The sketch is the KLL sketch of "Optimal Quantile Approximation in Streams" by Zohar Karnin,
+ * Kevin Lang and Edo Liberty. It keeps its values in a hierarchy of compactors, each value in the
+ * compactor of level {@code h} standing for {@code 2^h} values of the dataset. When a compactor is
+ * full, it is sorted, and every other value, starting at a random one of the first two, is promoted
+ * to the next level, and the rest are discarded. The capacity of each compactor is 2/3 that of the
+ * next level, but at least 8, so that the sketch retains a little over {@code 3k} values, where
+ * {@code k} is the capacity of the highest one: {@code 3k} plus up to 8 for each level.
+ *
+ * <p>An estimated quantile is a value which was added to the sketch, and its rank among the values
+ * is typically within about {@code 1.7 / k} of the requested rank: within 0.85% for the default
+ * {@code k} of 200. Until the sketch first compacts, after {@code k} values, its quantiles are
+ * exactly those of {@link Quantiles}, as are the minimum and maximum values (i.e. the 0th and the
+ * qth q-quantiles) and the handling of non-finite values, at any time.
+ *
+ * <p>Sketches can be merged with {@link #addAll(QuantilesSketch)}, so that values can be
+ * accumulated by several threads, each with its own sketch.
+ *
+ * @since NEXT
+ */
+@Beta
+@GwtIncompatible
+public final class QuantilesSketch {
+  private static final int DEFAULT_K = 200;
+
+  /** The least capacity of a compactor. */
+  private static final int MIN_CAPACITY = 8;
+
+  private static final int MAX_K = 1 << 16;
+
+  /** The ratio of the capacity of each compactor to that of the next level. */
+  private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+  private final int k;
+
+  /** The values in the compactor of each level, each of which stands for {@code 2^level} values. */
+  private double[][] levels;
+
+  /** The number of values in the compactor of each level. */
+  private int[] sizes;
+
+  /** The capacity of the compactor of each level. */
+  private int[] capacities;
+
+  /** The total capacity of the compactors, which the number of retained values is kept below. */
+  private int totalCapacity;
+
+  /** The number of values retained in the compactors. */
+  private int retained;
+
+  private long count = 0;
+  private double min = NaN; // any value will do
+  private double max = NaN; // any value will do
+  private boolean containsNaN;
+
+  /**
+   * Creates an empty sketch, whose largest compactor holds 200 values, and whose quantiles are
+   * typically within 0.85% of the requested rank.
+   */
+  public QuantilesSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Creates an empty sketch, whose largest compactor holds {@code k} values. The sketch retains a
+   * little over {@code 3k} values, and its quantiles are typically within about {@code 1.7 / k} of
+   * the requested rank.
+   *
+   * @param k the size of the largest compactor, which must be in the range [8, 65536]
+   */
+  public QuantilesSketch(int k) {
+    checkArgument(
+        k >= MIN_CAPACITY && k <= MAX_K,
+        "k (%s) must be between %s and %s",
+        k,
+        MIN_CAPACITY,
+        MAX_K);
+    this.k = k;
+    this.levels = new double[0][];
+    this.sizes = new int[0];
+    addLevel();
+  }
+
+  /** Adds the given value to the dataset. */
+  public void add(double value) {
+    if (count == 0) {
+      min = value;
+      max = value;
+    } else {
+      // Math.min and Math.max return NaN if either value is NaN
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    count++;
+    if (isNaN(value)) {
+      containsNaN = true;
+      return;
+    }
+    if (sizes[0] == levels[0].length) {
+      levels[0] = Arrays.copyOf(levels[0], Math.max(MIN_CAPACITY, 2 * sizes[0]));
+    }
+    levels[0][sizes[0]++] = value;
+    retained++;
+    if (retained >= totalCapacity) {
+      compress();
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision)
+   */
+  public void addAll(Iterable<? extends Number> values) {
+    for (Number value : values) {
+      add(value.doubleValue());
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision)
+   */
+  public void addAll(Iterator<? extends Number> values) {
+    while (values.hasNext()) {
+      add(values.next().doubleValue());
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values
+   */
+  public void addAll(double... values) {
+    for (double value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values
+   */
+  public void addAll(int... values) {
+    for (int value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * Adds the given values to the dataset.
+   *
+   * @param values a series of values, which will be converted to {@code double} values (this may
+   *     cause loss of precision for longs of magnitude over 2^53 (slightly over 9e15))
+   */
+  public void addAll(long... values) {
+    for (long value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * Adds the values summarized by the given sketch to the dataset, so that this sketch estimates
+   * the quantiles of the values added to either. The sketches needn't have the same {@code k}; the
+   * values of the given one are compacted as this one's would be.
+   *
+   * @param sketch the sketch to merge into this one, which is not modified (unless it is this one)
+   */
+  public void addAll(QuantilesSketch sketch) {
+    if (sketch.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      min = sketch.min;
+      max = sketch.max;
+    } else {
+      min = Math.min(min, sketch.min);
+      max = Math.max(max, sketch.max);
+    }
+    count += sketch.count;
+    containsNaN |= sketch.containsNaN;
+    int sketchLevels = sketch.levels.length;
+    while (levels.length < sketchLevels) {
+      addLevel();
+    }
+    for (int level = 0; level < sketchLevels; level++) {
+      // read the other sketch's compactor first, in case it is this one's
+      double[] values = sketch.levels[level];
+      int size = sketch.sizes[level];
+      ensureCapacity(level, sizes[level] + size);
+      System.arraycopy(values, 0, levels[level], sizes[level], size);
+      sizes[level] += size;
+      retained += size;
+    }
+    compress();
+  }
+
+  /** Returns the number of values. */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns the lowest value in the dataset. The count must be non-zero.
+   *
+   * <p>If any of the values is {@link Double#NaN NaN} then the result is {@link Double#NaN NaN}.
+   *
+   * @throws IllegalStateException if the dataset is empty
+   */
+  public double min() {
+    checkState(count != 0);
+    return min;
+  }
+
+  /**
+   * Returns the highest value in the dataset. The count must be non-zero.
+   *
+   * <p>If any of the values is {@link Double#NaN NaN} then the result is {@link Double#NaN NaN}.
+   *
+   * @throws IllegalStateException if the dataset is empty
+   */
+  public double max() {
+    checkState(count != 0);
+    return max;
+  }
+
+  /** Returns whether any of the values is {@link Double#NaN NaN}. */
+  boolean containsNaN() {
+    return containsNaN;
+  }
+
+  /** Returns the number of values retained by the sketch. */
+  @VisibleForTesting
+  int retained() {
+    return retained;
+  }
+
+  /** Adds a compactor above the highest one, shrinking the capacities of the others. */
+  private void addLevel() {
+    int numLevels = levels.length + 1;
+    levels = Arrays.copyOf(levels, numLevels);
+    levels[numLevels - 1] = new double[0];
+    sizes = Arrays.copyOf(sizes, numLevels);
+    capacities = new int[numLevels];
+    totalCapacity = 0;
+    for (int level = 0; level < numLevels; level++) {
+      int depth = numLevels - 1 - level;
+      capacities[level] =
+          Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+      totalCapacity += capacities[level];
+    }
+  }
+
+  private void ensureCapacity(int level, int size) {
+    if (levels[level].length < size) {
+      levels[level] = Arrays.copyOf(levels[level], Math.max(size, capacities[level]));
+    }
+  }
+
+  /** Compacts full compactors until the sketch retains fewer values than its total capacity. */
+  private void compress() {
+    while (retained >= totalCapacity) {
+      // some compactor must be full, and compacting the lowest one loses the least
+      int level = 0;
+      while (sizes[level] < capacities[level]) {
+        level++;
+      }
+      compact(level);
+    }
+  }
+
+  /**
+   * Promotes every other value of the given compactor to the next level. If the compactor holds an
+   * odd number of values, its lowest value stays.
+   */
+  private void compact(int level) {
+    if (level + 1 == levels.length) {
+      addLevel();
+    }
+    double[] values = levels[level];
+    int size = sizes[level];
+    Arrays.sort(values, 0, size);
+    int start = size & 1;
+    int promoted = (size - start) / 2;
+    ensureCapacity(level + 1, sizes[level + 1] + promoted);
+    double[] next = levels[level + 1];
+    int nextSize = sizes[level + 1];
+    for (int i = start + (ThreadLocalRandom.current().nextBoolean() ? 1 : 0); i < size; i += 2) {
+      next[nextSize++] = values[i];
+    }
+    sizes[level + 1] = nextSize;
+    sizes[level] = start;
+    retained -= promoted;
+  }
+
+  /**
+   * Returns the values retained by this sketch in sorted order, from which quantiles are estimated.
+   * The sketch must be non-empty and contain no {@code NaN} values.
+   */
+  SortedView sortedView() {
+    double[] values = new double[0];
+    long[] weights = new long[0];
+    for (int level = 0; level < levels.length; level++) {
+      double[] levelValues = Arrays.copyOf(levels[level], sizes[level]);
+      Arrays.sort(levelValues);
+      long[] levelWeights = new long[levelValues.length];
+      Arrays.fill(levelWeights, 1L << level);
+      // merge the sorted values of this level into those of the levels below
+      double[] mergedValues = new double[values.length + levelValues.length];
+      long[] mergedWeights = new long[mergedValues.length];
+      for (int i = 0, j = 0, m = 0; m < mergedValues.length; m++) {
+        if (j == levelValues.length || (i < values.length && values[i] <= levelValues[j])) {
+          mergedValues[m] = values[i];
+          mergedWeights[m] = weights[i++];
+        } else {
+          mergedValues[m] = levelValues[j];
+          mergedWeights[m] = levelWeights[j++];
+        }
+      }
+      values = mergedValues;
+      weights = mergedWeights;
+    }
+    long cumulativeWeight = 0;
+    for (int i = 0; i < weights.length; i++) {
+      cumulativeWeight += weights[i];
+      weights[i] = cumulativeWeight;
+    }
+    return new SortedView(values, weights, count, min, max);
+  }
+
+  /**
+   * The values retained by a sketch in sorted order, each with the number of values of the dataset
+   * which it and the lower values stand for.
+   */
+  static final class SortedView {
+    private final double[] values;
+    private final long[] cumulativeWeights;
+    private final long count;
+    private final double min;
+    private final double max;
+
+    private SortedView(
+        double[] values, long[] cumulativeWeights, long count, double min, double max) {
+      this.values = values;
+      this.cumulativeWeights = cumulativeWeights;
+      this.count = count;
+      this.min = min;
+      this.max = max;
+    }
+
+    /**
+     * Returns an estimate of the value which would appear at the given index, in the range [0,
+     * count), in the sorted dataset.
+     */
+    double valueAtIndex(long index) {
+      // the lowest and highest values are exact, even though they may not have been retained
+      if (index == 0) {
+        return min;
+      } else if (index == count - 1) {
+        return max;
+      }
+      // the first value whose cumulative weight exceeds the index
+      int low = 0;
+      int high = cumulativeWeights.length - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (cumulativeWeights[mid] > index) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return values[low];
+    }
+  }
+}
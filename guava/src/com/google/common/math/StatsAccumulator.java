@@ -26,7 +26,8 @@ import java.util.Iterator;
 
 /**
  * A mutable object which accumulates double values and tracks some basic statistics over all the
- * values added so far. The values may be added singly or in groups. This class is not thread safe.
+ * values added so far. The values may be added singly or in groups. This class is not thread safe;
+ * see {@link ConcurrentStatsAccumulator} for a version which is.
  *
  * @author Pete Gillin
  * @author Kevin Bourrillion